@@ -0,0 +1,226 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+import it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent.WriteNetCDFRichards1DDouble;
+import it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent.WriteNetCDFRichards1DFloat;
+import it.geoframe.blogspot.netcdf.utilities.TimeCodec;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.Dimension;
+import ucar.nc2.NetcdfFileWriter;
+
+/**
+ * Synthetic input and output files of the benchmarks, generated on the fly in a temporary directory.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+final class BenchmarkFiles {
+
+	/** Number of values of each record array of the Richards 1D output (slots 0-13). */
+	static final int RICHARDS_VARIABLES = 14;
+
+	private BenchmarkFiles() {
+	}
+
+
+	static File createTempDirectory() throws IOException {
+		return Files.createTempDirectory("netcdf-jmh").toFile();
+	}
+
+
+	static void delete(File directory) {
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+
+
+	/**
+	 * Richards 1D output record: slots 0-3 are defined on the control volumes,
+	 * 4-9 on the interfaces and 10-13 are scalars.
+	 */
+	static ArrayList<double[]> richardsRecord(int KMAX, int step) {
+		ArrayList<double[]> record = new ArrayList<double[]>(RICHARDS_VARIABLES);
+		for (int slot = 0; slot < RICHARDS_VARIABLES; slot++) {
+			double[] values = new double[slot < 4 ? KMAX : slot < 10 ? KMAX + 1 : 1];
+			Arrays.fill(values, step + slot*0.01);
+			record.add(values);
+		}
+		return record;
+	}
+
+
+	static int[] richardsLengths(int KMAX) {
+		int[] lengths = new int[RICHARDS_VARIABLES];
+		for (int slot = 0; slot < RICHARDS_VARIABLES; slot++) {
+			lengths[slot] = slot < 4 ? KMAX : slot < 10 ? KMAX + 1 : 1;
+		}
+		return lengths;
+	}
+
+
+	/**
+	 * @return epoch time [ms] of the step-th hourly record, from 2000-01-01 00:00 UTC
+	 */
+	static long time(int step) {
+		return 946684800000L + step*3600000L;
+	}
+
+
+	static String date(int step) {
+		return TimeCodec.getInstance("UTC").format(time(step));
+	}
+
+
+	/**
+	 * Grid file with the variables read by ReadNetCDFRichardsGrid1D and ReadNetCDFGEOSPACEGrid1D.
+	 */
+	static void writeGrid(String fileName, int KMAX) throws IOException, InvalidRangeException {
+
+		final int parameters = 5;
+		NetcdfFileWriter dataFile = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, fileName, null);
+		try {
+			Dimension depth = dataFile.addDimension(null, "depth", KMAX);
+			Dimension dualDepth = dataFile.addDimension(null, "dualDepth", KMAX + 1);
+			Dimension parameter = dataFile.addDimension(null, "parameter", parameters);
+
+			dataFile.addVariable(null, "KMAX", DataType.INT, new ArrayList<Dimension>());
+			String[] depthVariables = {"eta", "z", "psi0", "T0", "root0", "controlVolume"};
+			String[] dualDepthVariables = {"etaDual", "zDual", "spaceDelta"};
+			String[] parameterVariables = {"thetaS", "thetaR", "thetaWP", "thetaFC", "ks", "alphaSpecificStorage", "betaSpecificStorage",
+					"par1SWRC", "par2SWRC", "par3SWRC", "par4SWRC", "par5SWRC"};
+			for (String name : depthVariables) {
+				dataFile.addVariable(null, name, DataType.DOUBLE, "depth");
+			}
+			for (String name : dualDepthVariables) {
+				dataFile.addVariable(null, name, DataType.DOUBLE, "dualDepth");
+			}
+			for (String name : parameterVariables) {
+				dataFile.addVariable(null, name, DataType.DOUBLE, "parameter");
+			}
+			dataFile.addVariable(null, "equationStateID", DataType.INT, "depth");
+			dataFile.addVariable(null, "parameterID", DataType.INT, "depth");
+			dataFile.addVariable(null, "controlVolumeIndex", DataType.INT, "depth");
+			dataFile.create();
+
+			dataFile.write(dataFile.findVariable("KMAX"), Array.factory(DataType.INT, new int[0], new int[] {KMAX}));
+			for (String name : depthVariables) {
+				dataFile.write(dataFile.findVariable(name), ramp(depth.getLength()));
+			}
+			for (String name : dualDepthVariables) {
+				dataFile.write(dataFile.findVariable(name), ramp(dualDepth.getLength()));
+			}
+			for (String name : parameterVariables) {
+				dataFile.write(dataFile.findVariable(name), ramp(parameter.getLength()));
+			}
+			int[] ids = new int[KMAX];
+			for (int k = 0; k < KMAX; k++) {
+				ids[k] = k%parameters;
+			}
+			Array idArray = Array.factory(DataType.INT, new int[] {KMAX}, ids);
+			dataFile.write(dataFile.findVariable("equationStateID"), idArray);
+			dataFile.write(dataFile.findVariable("parameterID"), idArray);
+			dataFile.write(dataFile.findVariable("controlVolumeIndex"), idArray);
+		} finally {
+			dataFile.close();
+		}
+	}
+
+
+	/**
+	 * Richards 1D output file written by WriteNetCDFRichards1DDouble, as read by ReadNetCDFRichardsOutput1D.
+	 *
+	 * @return name of the written file
+	 */
+	static String writeRichardsOutput(File directory, int KMAX, int NREC) throws IOException {
+
+		WriteNetCDFRichards1DDouble writer = richardsDoubleWriter(directory, KMAX);
+		writer.writeFrequency = NREC;
+		LinkedHashMap<String,ArrayList<double[]>> variables = new LinkedHashMap<String,ArrayList<double[]>>();
+		for (int step = 0; step < NREC; step++) {
+			variables.put(date(step), richardsRecord(KMAX, step));
+			writer.variables = variables;
+			writer.doProcess = step < NREC - 1;
+			writer.writeNetCDF();
+			if (step == 0) {
+				variables.clear();
+			}
+		}
+		writer.closeNetCDF();
+		return new File(directory, "out_0000.nc").getPath();
+	}
+
+
+	static WriteNetCDFRichards1DDouble richardsDoubleWriter(File directory, int KMAX) {
+		WriteNetCDFRichards1DDouble writer = new WriteNetCDFRichards1DDouble();
+		writer.fileName = new File(directory, "out.nc").getPath();
+		writer.briefDescritpion = "benchmark";
+		writer.outVariables = new String[] {"all"};
+		writer.spatialCoordinate = coordinate(KMAX);
+		writer.dualSpatialCoordinate = coordinate(KMAX + 1);
+		writer.controlVolume = coordinate(KMAX);
+		writer.psiIC = coordinate(KMAX);
+		writer.temperature = coordinate(KMAX);
+		return writer;
+	}
+
+
+	static WriteNetCDFRichards1DFloat richardsFloatWriter(File directory, int KMAX) {
+		WriteNetCDFRichards1DFloat writer = new WriteNetCDFRichards1DFloat();
+		writer.fileName = new File(directory, "out.nc").getPath();
+		writer.briefDescritpion = "benchmark";
+		writer.outVariables = new String[] {"all"};
+		writer.spatialCoordinate = coordinate(KMAX);
+		writer.dualSpatialCoordinate = coordinate(KMAX + 1);
+		writer.controlVolume = coordinate(KMAX);
+		writer.psiIC = coordinate(KMAX);
+		writer.temperature = coordinate(KMAX);
+		return writer;
+	}
+
+
+	private static double[] coordinate(int length) {
+		return (double[]) ramp(length).getStorage();
+	}
+
+
+	private static Array ramp(int length) {
+		double[] values = new double[length];
+		for (int i = 0; i < length; i++) {
+			values[i] = i*0.1;
+		}
+		return Array.factory(DataType.DOUBLE, new int[] {length}, values);
+	}
+
+}
@@ -0,0 +1,97 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent.ReadNetCDFGEOSPACEGrid1D;
+import it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent.ReadNetCDFRichardsGrid1D;
+import ucar.ma2.InvalidRangeException;
+
+/**
+ * Reading of a synthetic grid file with KMAX control volumes by the grid readers,
+ * each operation is the first time step of a new reader.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadNetCDFGrid1DBenchmark {
+
+	@Param({"100", "10000"})
+	public int KMAX;
+
+	private File directory;
+	private String gridFileName;
+
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException, InvalidRangeException {
+		directory = BenchmarkFiles.createTempDirectory();
+		gridFileName = new File(directory, "grid.nc").getPath();
+		BenchmarkFiles.writeGrid(gridFileName, KMAX);
+	}
+
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		BenchmarkFiles.delete(directory);
+	}
+
+
+	@Benchmark
+	public ReadNetCDFRichardsGrid1D richardsGrid() throws IOException {
+		ReadNetCDFRichardsGrid1D reader = new ReadNetCDFRichardsGrid1D();
+		reader.richardsGridFilename = gridFileName;
+		reader.read();
+		return reader;
+	}
+
+
+	@Benchmark
+	public ReadNetCDFGEOSPACEGrid1D geospaceGrid() throws IOException {
+		ReadNetCDFGEOSPACEGrid1D reader = new ReadNetCDFGEOSPACEGrid1D();
+		reader.richardsGridFilename = gridFileName;
+		reader.read();
+		return reader;
+	}
+
+}
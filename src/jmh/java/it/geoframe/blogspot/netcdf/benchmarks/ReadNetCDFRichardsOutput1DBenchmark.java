@@ -0,0 +1,90 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent.ReadNetCDFRichardsOutput1D;
+
+/**
+ * Reading of a Richards 1D output file with NREC records of KMAX control volumes.
+ *
+ * The records counter gives the throughput in records per second, run with -prof gc for the allocation rate.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadNetCDFRichardsOutput1DBenchmark {
+
+	@Param({"50", "500"})
+	public int KMAX;
+
+	@Param({"1000", "10000"})
+	public int NREC;
+
+	private File directory;
+	private String outputFileName;
+
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		directory = BenchmarkFiles.createTempDirectory();
+		outputFileName = BenchmarkFiles.writeRichardsOutput(directory, KMAX, NREC);
+	}
+
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		BenchmarkFiles.delete(directory);
+	}
+
+
+	@Benchmark
+	public ReadNetCDFRichardsOutput1D read(RecordCounter counter) throws IOException {
+		ReadNetCDFRichardsOutput1D reader = new ReadNetCDFRichardsOutput1D();
+		reader.richardsOutputFilename = outputFileName;
+		reader.read();
+		counter.records += NREC;
+		return reader;
+	}
+
+}
@@ -0,0 +1,153 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent.OutputBuffer1D;
+import it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent.WriteNetCDFRichards1DDouble;
+import it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent.WriteNetCDFRichards1DFloat;
+
+/**
+ * Simulation of NREC time steps of Richards 1D writing the output every writeFrequency steps,
+ * with the double and float writers and with the LinkedHashMap or OutputBuffer1D input.
+ *
+ * The records counter gives the throughput in records per second, run with -prof gc for the allocation rate.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WriteNetCDFRichards1DBenchmark {
+
+	@Param({"double", "float"})
+	public String precision;
+
+	@Param({"map", "buffer"})
+	public String input;
+
+	@Param({"50", "500"})
+	public int KMAX;
+
+	@Param({"1000"})
+	public int NREC;
+
+	@Param({"1", "10", "100"})
+	public int writeFrequency;
+
+	private File directory;
+	private List<ArrayList<double[]>> records;
+	private double[][][] arrays;
+
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		directory = BenchmarkFiles.createTempDirectory();
+		records = new ArrayList<ArrayList<double[]>>(NREC);
+		arrays = new double[NREC][][];
+		for (int step = 0; step < NREC; step++) {
+			records.add(BenchmarkFiles.richardsRecord(KMAX, step));
+			arrays[step] = records.get(step).toArray(new double[0][]);
+		}
+	}
+
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		BenchmarkFiles.delete(directory);
+	}
+
+
+	@Benchmark
+	public void simulation(RecordCounter counter) throws IOException {
+
+		WriteNetCDFRichards1DDouble doubleWriter = null;
+		WriteNetCDFRichards1DFloat floatWriter = null;
+		if (precision.equals("double")) {
+			doubleWriter = BenchmarkFiles.richardsDoubleWriter(directory, KMAX);
+			doubleWriter.writeFrequency = writeFrequency;
+		} else {
+			floatWriter = BenchmarkFiles.richardsFloatWriter(directory, KMAX);
+			floatWriter.writeFrequency = writeFrequency;
+		}
+
+		LinkedHashMap<String,ArrayList<double[]>> variables = new LinkedHashMap<String,ArrayList<double[]>>();
+		OutputBuffer1D outputBuffer = input.equals("buffer") ? new OutputBuffer1D(writeFrequency + 1, BenchmarkFiles.richardsLengths(KMAX)) : null;
+
+		for (int step = 0; step < NREC; step++) {
+
+			boolean doProcess = step < NREC - 1;
+			if (outputBuffer != null) {
+				outputBuffer.append(BenchmarkFiles.time(step), arrays[step]);
+			} else {
+				variables.put(BenchmarkFiles.date(step), records.get(step));
+			}
+
+			if (doubleWriter != null) {
+				doubleWriter.variables = variables;
+				doubleWriter.outputBuffer = outputBuffer;
+				doubleWriter.doProcess = doProcess;
+				doubleWriter.writeNetCDF();
+			} else {
+				floatWriter.variables = variables;
+				floatWriter.outputBuffer = outputBuffer;
+				floatWriter.doProcess = doProcess;
+				floatWriter.writeNetCDF();
+			}
+
+			// the model clears its buffer after each writing step
+			if (step%writeFrequency == 0) {
+				variables = new LinkedHashMap<String,ArrayList<double[]>>();
+			}
+		}
+
+		if (doubleWriter != null) {
+			doubleWriter.closeNetCDF();
+		} else {
+			floatWriter.closeNetCDF();
+		}
+		counter.records += NREC;
+	}
+
+}
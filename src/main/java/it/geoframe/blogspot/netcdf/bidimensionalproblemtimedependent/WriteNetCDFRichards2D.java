@@ -20,18 +20,19 @@
 package it.geoframe.blogspot.netcdf.bidimensionalproblemtimedependent;
 
 import java.io.IOException;
-import java.text.DateFormat;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Date;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.TimeZone;
 import java.util.Map.Entry;
 
+import it.geoframe.blogspot.netcdf.utilities.AsyncNetCDFWriter;
+import it.geoframe.blogspot.netcdf.utilities.NetCDFMetrics;
+import it.geoframe.blogspot.netcdf.utilities.ProgressReporter;
+import it.geoframe.blogspot.netcdf.utilities.NetCDFFileSize;
+import it.geoframe.blogspot.netcdf.utilities.TimeCodec;
 import oms3.annotations.Author;
 import oms3.annotations.Description;
 import oms3.annotations.Documentation;
@@ -136,12 +137,32 @@ public class WriteNetCDFRichards2D {
 	@In
 	@Unit ()
 	public boolean doProcess;
+
+	@Description("Write the output with a background thread, the simulation does not wait for the disk")
+	@In
+	@Unit ()
+	public boolean asyncWrite = false;
+
+	@Description("Maximum number of buffered writing steps waiting for the background thread")
+	@In
+	@Unit ()
+	public int asyncQueueCapacity = 2;
 	
 	@Description("Maximum allowed file size")
 	@In
 	@Unit ("MB")
 	public double fileSizeMax = 10000;
 
+	@Description("CSV file, or JSON file if the name ends with .json, where the metrics of the reads and writes of the run are saved")
+	@In
+	@Unit ()
+	public String metricsFileName;
+
+	@Description("Seconds between two lines of progress of the output, if not positive the progress is printed only at the end")
+	@In
+	@Unit ("s")
+	public double progressInterval = 10;
+
 	@Description("Name of the variables to save")
 	@In
 	@Unit ()
@@ -150,8 +171,8 @@ public class WriteNetCDFRichards2D {
 	private ArrayList<Double> tempVariable; 
 	private Iterator it;
 
-	private DateFormat dateFormat;
-	private Date date = null;
+	private TimeCodec timeCodec;
+	private long date = 0;
 	private String filename;
 	private NetcdfFileWriter dataFile;
 	private String fileNameToSave;
@@ -161,7 +182,7 @@ public class WriteNetCDFRichards2D {
 	private int i;
 	private int origin_counter;
 	private int fileNumber = 0;
-	private double fileSizeMB;
+	private NetCDFFileSize fileSize;
 	private Dimension xDim;
 	private Dimension zDim;
 	private Dimension xDualDim;
@@ -206,12 +227,53 @@ public class WriteNetCDFRichards2D {
 	private ArrayDouble.D2 dataDarcyVelocitiesZ;
 
 
+	private AsyncNetCDFWriter asyncWriter;
+	private NetCDFMetrics metrics;
+	private ProgressReporter progress;
 	private int step = 0;
 	private int stepCreation = 0;
 
 	@Execute
 	public void writeNetCDF() throws IOException {
 
+		if(metrics == null) {
+			metrics = NetCDFMetrics.get(fileName);
+			if (metricsFileName != null && !metricsFileName.trim().isEmpty()) {
+				NetCDFMetrics.setDumpFile(metricsFileName);
+			}
+		}
+
+		if(asyncWrite) {
+			/*
+			 * The buffered data are copied and written by a background thread,
+			 * so the simulation does not wait for the disk
+			 */
+			if( step%writeFrequency==0 || doProcess == false) {
+				if(asyncWriter == null) {
+					asyncWriter = new AsyncNetCDFWriter(fileName, asyncQueueCapacity);
+				}
+				final LinkedHashMap<String,ArrayList<ArrayList<Double>>> variablesCopy = AsyncNetCDFWriter.copyLists(variables);
+				final boolean doProcessCopy = doProcess;
+				final int stepCopy = step;
+				asyncWriter.submit(() -> metrics.measure(variablesCopy.size(), () -> writeNetCDF(variablesCopy, doProcessCopy, stepCopy)));
+				if(doProcess == false) {
+					// wait until all the data are written
+					asyncWriter.close();
+					asyncWriter = null;
+				}
+			}
+		} else if( step%writeFrequency==0 || doProcess == false) {
+			metrics.measure(variables.size(), () -> writeNetCDF(variables, doProcess, step));
+		} else {
+			writeNetCDF(variables, doProcess, step);
+		}
+
+		step++;
+	}
+
+
+	private void writeNetCDF(LinkedHashMap<String,ArrayList<ArrayList<Double>>> variables, boolean doProcess, int step) throws IOException {
+
 		final int NX = spatialCoordinate.size()-1;
 
 		final int dualNX = dualSpatialCoordinate.size()-1;
@@ -227,9 +289,8 @@ public class WriteNetCDFRichards2D {
 
 			final int NREC = variables.keySet().size();
 			// human readable date will be converted in unix format, the format will be an input and it has to be consistent with that used in OMS
-			dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
-			dateFormat.setTimeZone(TimeZone.getTimeZone(timeZone));
-			date = null;
+			timeCodec = TimeCodec.getInstance(timeZone);
+			date = 0;
 			
 			origin = new int[]{0, 0};
 			time_origin = new int[]{0};
@@ -357,6 +418,7 @@ public class WriteNetCDFRichards2D {
 
 				//Create the file. At this point the (empty) file will be written to disk
 				dataFile.create();
+				fileSize = new NetCDFFileSize(dataFile.getNetcdfFile());
 				dataFile.write(xVar, x);
 				dataFile.write(zVar, z);
 				dataFile.write(xDualVar, xDual);
@@ -376,6 +438,9 @@ public class WriteNetCDFRichards2D {
 						ioe.printStackTrace();
 					}
 			}
+			if (fileSize != null) {
+				fileSize.measure(fileNameToSave);
+			}
 
 		}
 
@@ -418,13 +483,13 @@ public class WriteNetCDFRichards2D {
 
 					try {
 						
-						date = dateFormat.parse(entry.getKey());
+						date = timeCodec.parse(entry.getKey());
 					} catch (ParseException e) {
 						// TODO Auto-generated catch block
 						e.printStackTrace();
 					}
 
-					times.setLong(i, (long) date.getTime()/(60*1000));
+					times.setLong(i, date/(60*1000));
 
 					
 					tempVariable =  entry.getValue().get(0);
@@ -509,18 +574,9 @@ public class WriteNetCDFRichards2D {
 
 				origin_counter = origin_counter + NREC;
 				
-				fileSizeMB = (2*NX + 2*dualNX)*4 + (2*NX + 3*NX*origin_counter)*8;
-				if(outVariablesList.contains("darcy_velocity") || outVariablesList.contains("darcy velocity")) {
-					fileSizeMB += dualNX*8*origin_counter;
-				}
-				if(outVariablesList.contains("darcy_velocity_components") || outVariablesList.contains("darcy velocity components") ) {
-					fileSizeMB += 2*dualNX*8*origin_counter;
-				}
-				if(outVariablesList.contains("all")){
-					fileSizeMB += dualNX*8*origin_counter+2*dualNX*8*origin_counter;
-				}
+				fileSize.addRecords(NREC);
 				stepCreation ++;
-				if(fileSizeMB/1000000>fileSizeMax) {
+				if(fileSize.getSizeMB()>fileSizeMax) {
 					
 					stepCreation = 0;
 					fileNumber++;
@@ -528,11 +584,10 @@ public class WriteNetCDFRichards2D {
 					
 				}
 					
-				if(!variables.isEmpty()) {
-					
-					System.out.println("\t\t*** " + variables.keySet().toArray()[i-1].toString() +", writing output file: " + fileNameToSave + "\n");
-				
+				if (progress == null) {
+					progress = new ProgressReporter(fileName, timeCodec, progressInterval);
 				}
+				progress.update(fileNameToSave, i, date);
 
 			} catch (IOException e) {
 				e.printStackTrace(System.err);
@@ -552,8 +607,18 @@ public class WriteNetCDFRichards2D {
 
 		}
 
-		step++;
 	}
 
-}
 
+	@Finalize
+	public void closeNetCDF() throws IOException {
+		if (asyncWriter != null) {
+			asyncWriter.close();
+			asyncWriter = null;
+		}
+		if (progress != null) {
+			progress.close();
+		}
+	}
+
+}
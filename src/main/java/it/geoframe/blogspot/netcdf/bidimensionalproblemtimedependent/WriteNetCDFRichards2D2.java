@@ -20,17 +20,18 @@
 package it.geoframe.blogspot.netcdf.bidimensionalproblemtimedependent;
 
 import java.io.IOException;
-import java.text.DateFormat;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Date;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map.Entry;
 
+import it.geoframe.blogspot.netcdf.utilities.AsyncNetCDFWriter;
+import it.geoframe.blogspot.netcdf.utilities.NetCDFMetrics;
+import it.geoframe.blogspot.netcdf.utilities.ProgressReporter;
+import it.geoframe.blogspot.netcdf.utilities.TimeCodec;
 import oms3.annotations.Author;
 import oms3.annotations.Description;
 import oms3.annotations.Documentation;
@@ -130,6 +131,26 @@ public class WriteNetCDFRichards2D2 {
 	@Unit ()
 	public boolean doProcess;
 
+	@Description("Write the output with a background thread, the simulation does not wait for the disk")
+	@In
+	@Unit ()
+	public boolean asyncWrite = false;
+
+	@Description("Maximum number of buffered writing steps waiting for the background thread")
+	@In
+	@Unit ()
+	public int asyncQueueCapacity = 2;
+
+	@Description("CSV file, or JSON file if the name ends with .json, where the metrics of the reads and writes of the run are saved")
+	@In
+	@Unit ()
+	public String metricsFileName;
+
+	@Description("Seconds between two lines of progress of the output, if not positive the progress is printed only at the end")
+	@In
+	@Unit ("s")
+	public double progressInterval = 10;
+
 	@Description("Name of the variables to save")
 	@In
 	@Unit ()
@@ -138,8 +159,8 @@ public class WriteNetCDFRichards2D2 {
 	double[] tempVariable; 
 	Iterator it;
 
-	DateFormat dateFormat;
-	Date date = null;
+	TimeCodec timeCodec;
+	long date = 0;
 	String filename;
 	NetcdfFileWriter dataFile;
 	int KMAX;
@@ -200,12 +221,53 @@ public class WriteNetCDFRichards2D2 {
 	//	D3 dataKinematicRatio;
 
 
+	AsyncNetCDFWriter asyncWriter;
+	NetCDFMetrics metrics;
+	ProgressReporter progress;
 	int step = 0;
 
 
 	@Execute
 	public void writeNetCDF() throws IOException {
 
+		if(metrics == null) {
+			metrics = NetCDFMetrics.get(fileName);
+			if (metricsFileName != null && !metricsFileName.trim().isEmpty()) {
+				NetCDFMetrics.setDumpFile(metricsFileName);
+			}
+		}
+
+		if(asyncWrite) {
+			/*
+			 * The buffered data are copied and written by a background thread,
+			 * so the simulation does not wait for the disk
+			 */
+			if( step%writeFrequency==0 || doProcess == false) {
+				if(asyncWriter == null) {
+					asyncWriter = new AsyncNetCDFWriter(fileName, asyncQueueCapacity);
+				}
+				final LinkedHashMap<String,ArrayList<double[]>> myVariablesCopy = AsyncNetCDFWriter.copy(myVariables);
+				final boolean doProcessCopy = doProcess;
+				final int stepCopy = step;
+				asyncWriter.submit(() -> metrics.measure(myVariablesCopy.size(), () -> writeNetCDF(myVariablesCopy, doProcessCopy, stepCopy)));
+				if(doProcess == false) {
+					// wait until all the data are written
+					asyncWriter.close();
+					asyncWriter = null;
+				}
+			}
+		} else if( step%writeFrequency==0 || doProcess == false) {
+			metrics.measure(myVariables.size(), () -> writeNetCDF(myVariables, doProcess, step));
+		} else {
+			writeNetCDF(myVariables, doProcess, step);
+		}
+
+		step++;
+	}
+
+
+	private void writeNetCDF(LinkedHashMap<String,ArrayList<double[]>> myVariables, boolean doProcess, int step) throws IOException {
+
 		/*
 		 * Create a new file
 		 */
@@ -220,8 +282,8 @@ public class WriteNetCDFRichards2D2 {
 			final int dualNZ = myDualSpatialCoordinateZ.length-1;
 			final int NREC = myVariables.keySet().size();
 			// human readable date will be converted in unix format, the format will be an input and it has to be consistent with that used in OMS
-			dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
-			date = null;
+			timeCodec = TimeCodec.getDefault();
+			date = 0;
 			
 			origin = new int[]{0, 0};
 			dual_origin = new int[]{0, 0};
@@ -432,14 +494,14 @@ public class WriteNetCDFRichards2D2 {
 					Entry<String, ArrayList<double[]>> entry = (Entry<String, ArrayList<double[]>>) it.next();
 
 					try {
-						date = dateFormat.parse(entry.getKey());
+						date = timeCodec.parse(entry.getKey());
 					} catch (ParseException e) {
 						// TODO Auto-generated catch block
 						e.printStackTrace();
 					}
 
 					// think if there is a better way instead of using i
-					times.setLong(i, (long) date.getTime()/1000);
+					times.setLong(i, date/1000);
 
 					if(step==0) {
 						tempVariable =  entry.getValue().get(0);
@@ -584,7 +646,10 @@ public class WriteNetCDFRichards2D2 {
 				//				dataFile.write(bottomBCVar, origin, dataBottomBC);
 				//				dataFile.write(runOffVar, origin, dataRunOff);
 
-				System.out.println("\t*** " + myVariables.keySet().toArray()[i-1].toString() +", writing output file \n");
+				if (progress == null) {
+					progress = new ProgressReporter(fileName, timeCodec, progressInterval);
+				}
+				progress.update(fileName, i, date);
 			} catch (IOException e) {
 				e.printStackTrace(System.err);
 
@@ -603,8 +668,18 @@ public class WriteNetCDFRichards2D2 {
 
 		}
 
-		step++;
 	}
 
-}
 
+	@Finalize
+	public void closeNetCDF() throws IOException {
+		if (asyncWriter != null) {
+			asyncWriter.close();
+			asyncWriter = null;
+		}
+		if (progress != null) {
+			progress.close();
+		}
+	}
+
+}
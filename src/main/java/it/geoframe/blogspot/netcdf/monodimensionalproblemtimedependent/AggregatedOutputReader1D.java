@@ -0,0 +1,276 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import it.geoframe.blogspot.netcdf.utilities.NetCDF3MappedFile;
+
+/**
+ * Reads the sequence of files of a 1D output (fileName_0000.nc, fileName_0001.nc, ...
+ * or fileName_2020-01.nc, ...) as a single time series.
+ *
+ * The files are discovered and indexed by the times of their records once, reading only
+ * their header and the time variable, without mapping them; a query opens the files that overlap its
+ * time range one at a time, each one only while it reads it.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public class AggregatedOutputReader1D {
+
+	private final List<OutputFile> files = new ArrayList<OutputFile>();
+	private int depthFirst = 0;
+	private int depthCount = Integer.MAX_VALUE;
+
+
+	/**
+	 * A file of the sequence and the times of its records.
+	 */
+	private static final class OutputFile {
+
+		private final String fileName;
+		private final int records;
+		private final long[] times;
+		private final long startTime;
+		private final long endTime;
+
+		private OutputFile(String fileName, long[] times) {
+			this.fileName = fileName;
+			this.records = times.length;
+			this.times = times;
+			this.startTime = times[0];
+			this.endTime = times[times.length - 1];
+		}
+
+		/**
+		 * @return the first record at or after the time
+		 */
+		private int first(long time) {
+			int first = Arrays.binarySearch(times, time);
+			return first < 0 ? -first - 1 : first;
+		}
+
+		/**
+		 * @return number of records from start to end, both included
+		 */
+		private int count(long start, long end) {
+			int last = Arrays.binarySearch(times, end);
+			last = last < 0 ? -last - 2 : last;
+			return Math.max(0, last - first(start) + 1);
+		}
+	}
+
+
+	/**
+	 * Values of the records of a time range, contiguous for each variable:
+	 * the value of the k-th depth of the i-th record is getValues(name)[i*getLength(name) + k].
+	 */
+	public static final class TimeSlice {
+
+		private final String[] names;
+		private final int[] lengths;
+		private final long[] times;
+		private final double[][] values;
+
+		private TimeSlice(String[] names, int[] lengths, long[] times, double[][] values) {
+			this.names = names;
+			this.lengths = lengths;
+			this.times = times;
+			this.values = values;
+		}
+
+		public int getRecords() {
+			return times.length;
+		}
+
+		/**
+		 * @return epoch time [ms] of the i-th record
+		 */
+		public long getTime(int i) {
+			return times[i];
+		}
+
+		public int getLength(String name) {
+			return lengths[indexOf(name)];
+		}
+
+		public double[] getValues(String name) {
+			return values[indexOf(name)];
+		}
+
+		private int indexOf(String name) {
+			for (int n = 0; n < names.length; n++) {
+				if (names[n].equals(name)) {
+					return n;
+				}
+			}
+			throw new IllegalArgumentException("Variable " + name + " is not read");
+		}
+	}
+
+
+	/**
+	 * @param fileName name of the output given to the writer, e.g. out.nc for out_0000.nc, out_0001.nc, ...
+	 */
+	public AggregatedOutputReader1D(String fileName) throws IOException {
+
+		File file = new File(fileName).getAbsoluteFile();
+		String name = file.getName();
+		int dot = name.lastIndexOf('.');
+		Pattern pattern = Pattern.compile(Pattern.quote(dot < 0 ? name : name.substring(0, dot)) + "_(\\d{4}|\\d{4}-\\d{2})"
+				+ Pattern.quote(dot < 0 ? "" : name.substring(dot)));
+
+		File[] candidates = file.getParentFile().listFiles((directory, candidate) -> pattern.matcher(candidate).matches());
+		if (candidates == null || candidates.length == 0) {
+			throw new IOException("No output files " + pattern.pattern() + " in " + file.getParent());
+		}
+
+		for (File candidate : candidates) {
+			try (NetCDF3MappedFile mappedFile = new NetCDF3MappedFile(candidate.getPath())) {
+				long[] times = new long[mappedFile.getNumberOfRecords()];
+				for (int i = 0; i < times.length; i++) {
+					times[i] = time(mappedFile, i);
+				}
+				if (times.length > 0) {
+					files.add(new OutputFile(candidate.getPath(), times));
+				}
+			}
+		}
+		Collections.sort(files, Comparator.comparingLong(outputFile -> outputFile.startTime));
+	}
+
+
+	/**
+	 * Read only count depths from the first-th one of the variables defined on depth.
+	 */
+	public void setDepthRange(int first, int count) {
+		depthFirst = first;
+		depthCount = count;
+	}
+
+
+	public int getNumberOfFiles() {
+		return files.size();
+	}
+
+
+	public String getFileName(int i) {
+		return files.get(i).fileName;
+	}
+
+
+	/**
+	 * @return number of records of all the files
+	 */
+	public int getNumberOfRecords() {
+		int records = 0;
+		for (OutputFile file : files) {
+			records += file.records;
+		}
+		return records;
+	}
+
+
+	/**
+	 * @return epoch time [ms] of the first record, Long.MAX_VALUE if there are no records
+	 */
+	public long getStartTime() {
+		return files.isEmpty() ? Long.MAX_VALUE : files.get(0).startTime;
+	}
+
+
+	/**
+	 * @return epoch time [ms] of the last record, Long.MIN_VALUE if there are no records
+	 */
+	public long getEndTime() {
+		return files.isEmpty() ? Long.MIN_VALUE : files.get(files.size() - 1).endTime;
+	}
+
+
+	/**
+	 * Read the records from start to end, both included, across the files that contain them.
+	 *
+	 * @param start epoch time [ms]
+	 * @param end epoch time [ms]
+	 * @param names name of the variables to read
+	 */
+	public TimeSlice read(long start, long end, String... names) throws IOException {
+
+		// the records of the range, from the times of the index
+		int records = 0;
+		for (OutputFile file : files) {
+			records += file.count(start, end);
+		}
+
+		int[] lengths = new int[names.length];
+		long[] times = new long[records];
+		double[][] values = new double[names.length][];
+		for (int n = 0; n < names.length; n++) {
+			values[n] = new double[0];
+		}
+
+		// each file is opened, read and closed in turn, only the records in the range are read
+		int position = 0;
+		for (OutputFile file : files) {
+			int count = file.count(start, end);
+			if (count == 0) {
+				continue;
+			}
+			try (OutputWindowReader1D reader = new OutputWindowReader1D(file.fileName, names)) {
+				reader.setRecordRange(file.first(start), file.first(start) + count);
+				reader.setDepthRange(depthFirst, depthCount);
+				reader.setWindowSize(count);
+				if (position == 0) {
+					for (int n = 0; n < names.length; n++) {
+						lengths[n] = reader.getLength(names[n]);
+						values[n] = new double[records*lengths[n]];
+					}
+				}
+				if (!reader.next() || reader.getRecords() != count) {
+					throw new IOException(file.fileName + " changed after it was indexed");
+				}
+				for (int i = 0; i < count; i++) {
+					times[position + i] = reader.getTime(i);
+				}
+				for (int n = 0; n < names.length; n++) {
+					System.arraycopy(reader.getValues(names[n]), 0, values[n], position*lengths[n], count*lengths[n]);
+				}
+				position += count;
+			}
+		}
+
+		return new TimeSlice(names.clone(), lengths, times, values);
+	}
+
+
+	private static long time(NetCDF3MappedFile file, int record) {
+		// time is saved in minutes since 01/01/1970
+		return (long) file.getDouble("time", record, 0)*60*1000;
+	}
+
+}
@@ -0,0 +1,300 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ucar.ma2.Array;
+import ucar.ma2.ArrayDouble;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.Attribute;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.Variable;
+
+/**
+ * Checkpoint of a simulation: the prognostic state of the model at a time and the position
+ * of the writer in its output files, so a simulation that stopped can be restarted from there.
+ *
+ * The checkpoint is saved in a small netcdf-3 file: the scalar time (milliseconds since 01/01/1970),
+ * one double variable for each state variable, the position of the writer and of the writers of
+ * its output policies (writer_position) and the running accumulators of the periods not completed
+ * yet (aggregation, accumulator_0, ...). The file is written aside and then renamed, so a
+ * simulation stopped while writing a checkpoint keeps the previous one.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public final class Checkpoint1D {
+
+	private static final String[] POSITION = {"step", "fileNumber", "records", "firstTime", "closedFilesSize"};
+
+	private final long time;
+	private final Map<String,double[]> state = new LinkedHashMap<String,double[]>();
+	private String writerFileName = "";
+	private final List<long[]> writerPositions = new ArrayList<long[]>();
+	private final List<long[]> aggregations = new ArrayList<long[]>();
+	private final List<double[]> accumulators = new ArrayList<double[]>();
+
+
+	/**
+	 * @param time epoch time [ms] of the state
+	 * @param state prognostic state of the model by variable name, the arrays are copied
+	 */
+	public Checkpoint1D(long time, Map<String,double[]> state) {
+		this.time = time;
+		for (Map.Entry<String,double[]> entry : state.entrySet()) {
+			String name = entry.getKey();
+			if (name.equals("time") || name.equals("writer_position") || name.equals("aggregation") || name.startsWith("accumulator_")) {
+				throw new IllegalArgumentException("The name " + name + " is reserved in the checkpoint files");
+			}
+			if (entry.getValue() == null || entry.getValue().length == 0) {
+				throw new IllegalArgumentException("The state variable " + name + " of the checkpoint has no values");
+			}
+			this.state.put(name, entry.getValue().clone());
+		}
+	}
+
+
+	/**
+	 * @return epoch time [ms] of the state
+	 */
+	public long getTime() {
+		return time;
+	}
+
+
+	/**
+	 * @return the prognostic state by variable name
+	 */
+	public Map<String,double[]> getState() {
+		return Collections.unmodifiableMap(state);
+	}
+
+
+	/**
+	 * @return the values of a state variable
+	 * @throws IllegalArgumentException if the variable is not in the checkpoint
+	 */
+	public double[] getState(String name) {
+		double[] values = state.get(name);
+		if (values == null) {
+			throw new IllegalArgumentException("The state variable " + name + " is not in the checkpoint");
+		}
+		return values;
+	}
+
+
+	/**
+	 * Write the checkpoint, replacing the previous one.
+	 */
+	public void write(String fileName) throws IOException {
+
+		File target = new File(fileName);
+		File temporary = new File(fileName + ".tmp");
+
+		NetcdfFileWriter dataFile = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, temporary.getPath());
+		try {
+			dataFile.addGroupAttribute(null, new Attribute("checkpoint_time", Instant.ofEpochMilli(time).toString()));
+			dataFile.addGroupAttribute(null, new Attribute("writer_file_name", writerFileName));
+
+			Variable timeVariable = dataFile.addVariable(null, "time", DataType.DOUBLE, "");
+			dataFile.addVariableAttribute(timeVariable, new Attribute("units", "Milliseconds since 01/01/1970 00:00:00 UTC"));
+
+			for (Map.Entry<String,double[]> entry : state.entrySet()) {
+				dataFile.addDimension(null, entry.getKey() + "_size", entry.getValue().length);
+				Variable variable = dataFile.addVariable(null, entry.getKey(), DataType.DOUBLE, entry.getKey() + "_size");
+				dataFile.addVariableAttribute(variable, new Attribute("long_name", "Prognostic state"));
+			}
+
+			// epoch times and sizes are exact in double precision
+			if (!writerPositions.isEmpty()) {
+				dataFile.addDimension(null, "writer", writerPositions.size());
+				dataFile.addDimension(null, "position", POSITION.length);
+				Variable variable = dataFile.addVariable(null, "writer_position", DataType.DOUBLE, "writer position");
+				dataFile.addVariableAttribute(variable, new Attribute("long_name", String.join(" ", POSITION)));
+			}
+			if (!aggregations.isEmpty()) {
+				dataFile.addDimension(null, "aggregator", aggregations.size());
+				dataFile.addDimension(null, "period", 2);
+				Variable variable = dataFile.addVariable(null, "aggregation", DataType.DOUBLE, "aggregator period");
+				dataFile.addVariableAttribute(variable, new Attribute("long_name", "firstTime count"));
+				for (int a = 0; a < accumulators.size(); a++) {
+					dataFile.addDimension(null, "accumulator_" + a + "_size", accumulators.get(a).length);
+					dataFile.addVariable(null, "accumulator_" + a, DataType.DOUBLE, "accumulator_" + a + "_size");
+				}
+			}
+
+			dataFile.create();
+
+			ArrayDouble.D0 timeArray = new ArrayDouble.D0();
+			timeArray.set(time);
+			dataFile.write(dataFile.findVariable("time"), timeArray);
+			for (Map.Entry<String,double[]> entry : state.entrySet()) {
+				dataFile.write(dataFile.findVariable(entry.getKey()), Array.factory(entry.getValue()));
+			}
+			if (!writerPositions.isEmpty()) {
+				dataFile.write(dataFile.findVariable("writer_position"), toArray(writerPositions, POSITION.length));
+			}
+			if (!aggregations.isEmpty()) {
+				dataFile.write(dataFile.findVariable("aggregation"), toArray(aggregations, 2));
+				for (int a = 0; a < accumulators.size(); a++) {
+					dataFile.write(dataFile.findVariable("accumulator_" + a), Array.factory(accumulators.get(a)));
+				}
+			}
+		} catch (InvalidRangeException e) {
+			throw new IOException("Cannot write the checkpoint " + fileName, e);
+		} finally {
+			dataFile.close();
+		}
+
+		try {
+			Files.move(temporary.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temporary.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+
+	/**
+	 * Read a checkpoint written by write(fileName).
+	 */
+	public static Checkpoint1D read(String fileName) throws IOException {
+
+		NetcdfFile dataFile = NetcdfFile.open(fileName, null);
+		try {
+			Variable timeVariable = dataFile.findVariable("time");
+			if (timeVariable == null) {
+				throw new IOException(fileName + " is not a checkpoint file");
+			}
+
+			Map<String,double[]> state = new LinkedHashMap<String,double[]>();
+			for (Variable variable : dataFile.getVariables()) {
+				String name = variable.getShortName();
+				if (!name.equals("time") && !name.equals("writer_position") && !name.equals("aggregation") && !name.startsWith("accumulator_")) {
+					state.put(name, (double[]) variable.read().get1DJavaArray(double.class));
+				}
+			}
+			Checkpoint1D checkpoint = new Checkpoint1D((long) timeVariable.read().getDouble(0), state);
+
+			Attribute writerFileName = dataFile.findGlobalAttribute("writer_file_name");
+			checkpoint.writerFileName = writerFileName == null ? "" : writerFileName.getStringValue();
+			readRows(dataFile.findVariable("writer_position"), checkpoint.writerPositions);
+			readRows(dataFile.findVariable("aggregation"), checkpoint.aggregations);
+			for (int a = 0; a < checkpoint.aggregations.size(); a++) {
+				Variable variable = dataFile.findVariable("accumulator_" + a);
+				if (variable == null) {
+					throw new IOException("The accumulators of the aggregator " + a + " are missing in the checkpoint " + fileName);
+				}
+				checkpoint.accumulators.add((double[]) variable.read().get1DJavaArray(double.class));
+			}
+			return checkpoint;
+		} finally {
+			dataFile.close();
+		}
+	}
+
+
+	/**
+	 * Add the position of a writer: the writer of the checkpoint first, then the writers of its output policies.
+	 *
+	 * @param records number of records of the file being written, -1 if no file is open
+	 */
+	void addWriterPosition(String fileName, int step, int fileNumber, long records, long firstTime, long closedFilesSize) {
+		if (writerPositions.isEmpty()) {
+			writerFileName = fileName;
+		}
+		writerPositions.add(new long[] {step, fileNumber, records, firstTime, closedFilesSize});
+	}
+
+
+	/**
+	 * Add the state of an aggregator, in the order of the output policies of the writer.
+	 */
+	void addAggregation(long first, int count, double[] values) {
+		aggregations.add(new long[] {first, count});
+		accumulators.add(values);
+	}
+
+
+	String getWriterFileName() {
+		return writerFileName;
+	}
+
+
+	/**
+	 * @return step, fileNumber, records, firstTime and closedFilesSize of each writer
+	 */
+	List<long[]> getWriterPositions() {
+		return writerPositions;
+	}
+
+
+	/**
+	 * @return time of the first record and count of the current period of each aggregator
+	 */
+	List<long[]> getAggregations() {
+		return aggregations;
+	}
+
+
+	List<double[]> getAccumulators() {
+		return accumulators;
+	}
+
+
+	private static Array toArray(List<long[]> rows, int columns) {
+		ArrayDouble.D2 array = new ArrayDouble.D2(rows.size(), columns);
+		for (int i = 0; i < rows.size(); i++) {
+			for (int j = 0; j < columns; j++) {
+				array.set(i, j, rows.get(i)[j]);
+			}
+		}
+		return array;
+	}
+
+
+	private static void readRows(Variable variable, List<long[]> rows) throws IOException {
+		if (variable == null) {
+			return;
+		}
+		Array array = variable.read();
+		int[] shape = array.getShape();
+		for (int i = 0; i < shape[0]; i++) {
+			long[] row = new long[shape[1]];
+			for (int j = 0; j < shape[1]; j++) {
+				row[j] = (long) array.getDouble(i*shape[1] + j);
+			}
+			rows.add(row);
+		}
+	}
+
+}
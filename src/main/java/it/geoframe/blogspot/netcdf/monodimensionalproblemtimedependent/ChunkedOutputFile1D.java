@@ -0,0 +1,244 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import it.geoframe.blogspot.netcdf.utilities.ChunkedFileWriter;
+import it.geoframe.blogspot.netcdf.utilities.NetCDFMetrics;
+import it.geoframe.blogspot.netcdf.utilities.TimeCodec;
+import ucar.nc2.Attribute;
+
+/**
+ * A chunked compressed output file of NetCDFWriter1D (see ChunkedFile), with the same dimensions,
+ * variables and attributes of the netCDF-3 one; ChunkedFileConverter converts it to netCDF-3.
+ *
+ * The records are compressed in chunks of chunkRecords records and chunkDepth depths; the last chunks
+ * are written when the file is closed, at rollover, at the end of the simulation or at each writing step
+ * if the file is not kept open, and time_coverage_end is set in the header then.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+class ChunkedOutputFile1D implements OutputFile1D {
+
+	private final OutputSchema1D schema;
+	private final String fileName;
+	private final boolean keepFileOpen;
+	private final TimeCodec timeCodec;
+	private final int chunkRecords;
+	private final int chunkDepth;
+	private final int level;
+	private final NetCDFMetrics metrics;
+	private ChunkedFileWriter writer;
+	private long records = 0;
+	private long size;
+	private long recordSize;
+
+	// end of the time coverage, set in the header when the file is closed
+	private long coverageEnd;
+	private boolean coverageEndChanged = false;
+
+
+	/**
+	 * Create the file and write the static variables.
+	 *
+	 * @param firstTime epoch time [ms] of the first record of the file
+	 * @param chunkRecords maximum number of records of each chunk
+	 * @param chunkDepth maximum number of depths of each chunk, all of them if not positive
+	 * @param level deflate level, from 0 to 9
+	 * @param metrics metrics of the writer
+	 */
+	ChunkedOutputFile1D(OutputSchema1D schema, String fileName, boolean keepFileOpen, TimeCodec timeCodec, long firstTime,
+			int chunkRecords, int chunkDepth, int level, NetCDFMetrics metrics) throws IOException {
+
+		this(schema, fileName, keepFileOpen, timeCodec, chunkRecords, chunkDepth, level, metrics);
+
+		long start = System.nanoTime();
+		writer = new ChunkedFileWriter(fileName, chunkRecords, chunkDepth, level);
+
+		for (Map.Entry<String,String> attribute : schema.getGlobalAttributes().entrySet()) {
+			writer.addGlobalAttribute(new Attribute(attribute.getKey(), attribute.getValue()));
+		}
+		writer.addGlobalAttribute(new Attribute("time_coverage_start", timeCodec.format(firstTime)));
+		writer.addGlobalAttribute(new Attribute("time_coverage_end", timeCodec.format(firstTime)));
+
+		if (schema.getDepthName() != null) {
+			writer.addDimension(schema.getDepthName(), schema.getLength(OutputDimension.DEPTH));
+		}
+		if (schema.getDualDepthName() != null) {
+			writer.addDimension(schema.getDualDepthName(), schema.getLength(OutputDimension.DUAL_DEPTH));
+		}
+		writer.addUnlimitedDimension("time");
+
+		for (OutputVariable variable : schema.getVariables()) {
+			String dims = schema.getDimensionName(variable.getDimension());
+			if (variable.isRecord() && variable.getDimension() != OutputDimension.TIME) {
+				dims = "time " + dims;
+			}
+			writer.addVariable(variable.getName(), variable.getDataType(), dims, variable.getAttributes());
+		}
+
+		long defined = System.nanoTime();
+		metrics.addHeader(defined - start);
+		writer.create();
+		start = System.nanoTime();
+		metrics.addOpen(start - defined);
+
+		for (OutputVariable variable : schema.getVariables()) {
+			if (variable.isStatic() && variable.getValues() != null) {
+				int length = schema.getLength(variable.getDimension());
+				Object values = java.lang.reflect.Array.newInstance(variable.getDataType().getPrimitiveClassType(), length);
+				NetCDFWriter1D.copy(variable.getValues(), 0, values, 0, Math.min(length, variable.getValues().length), length);
+				writer.write(variable.getName(), values);
+			}
+		}
+
+		System.out.println("\n\t***Created chunked output file " + fileName +"\n\n");
+
+		size = writer.getSize();
+		recordSize = writer.getRecordSize();
+		metrics.addWrite(System.nanoTime() - start, 0, size);
+		release(false);
+	}
+
+
+	private ChunkedOutputFile1D(OutputSchema1D schema, String fileName, boolean keepFileOpen, TimeCodec timeCodec,
+			int chunkRecords, int chunkDepth, int level, NetCDFMetrics metrics) {
+		this.schema = schema;
+		this.fileName = fileName;
+		this.keepFileOpen = keepFileOpen;
+		this.timeCodec = timeCodec;
+		this.chunkRecords = chunkRecords;
+		this.chunkDepth = chunkDepth;
+		this.level = level;
+		this.metrics = metrics;
+	}
+
+
+	/**
+	 * Open the file of a previous simulation to append records after its first records ones,
+	 * the following ones are dropped.
+	 *
+	 * @throws IOException if the file has fewer records or does not have the variables of the schema
+	 */
+	static ChunkedOutputFile1D openExisting(OutputSchema1D schema, String fileName, boolean keepFileOpen, TimeCodec timeCodec, int records,
+			int chunkRecords, int chunkDepth, int level, NetCDFMetrics metrics) throws IOException {
+
+		long start = System.nanoTime();
+		ChunkedOutputFile1D file = new ChunkedOutputFile1D(schema, fileName, keepFileOpen, timeCodec, chunkRecords, chunkDepth, level, metrics);
+		file.writer = ChunkedFileWriter.openExisting(fileName, chunkRecords, chunkDepth, level, records);
+		try {
+			for (OutputVariable variable : schema.getVariables()) {
+				if (!file.writer.hasVariable(variable.getName())) {
+					throw new IOException("Variable " + variable.getName() + " not found in " + fileName);
+				}
+			}
+		} catch (IOException e) {
+			file.writer.close();
+			throw e;
+		}
+		file.records = records;
+		file.size = file.writer.getSize();
+		file.recordSize = file.writer.getRecordSize();
+		metrics.addOpen(System.nanoTime() - start);
+		file.release(false);
+
+		System.out.println("\n\t***Appending to chunked output file " + fileName + " after the record " + records + "\n\n");
+
+		return file;
+	}
+
+
+	@Override
+	public String getFileName() {
+		return fileName;
+	}
+
+
+	@Override
+	public void write(int[] times, Object[] data, int count, long lastTime) throws IOException {
+
+		long start = System.nanoTime();
+		if (writer == null) {
+			writer = ChunkedFileWriter.openExisting(fileName, chunkRecords, chunkDepth, level);
+			long opened = System.nanoTime();
+			metrics.addOpen(opened - start);
+			start = opened;
+		}
+
+		writer.append("time", times, 0, count);
+		for (int n = 0; n < data.length; n++) {
+			if (data[n] != null) {
+				writer.append(schema.getVariables().get(n).getName(), data[n], 0, count);
+			}
+		}
+		coverageEnd = lastTime;
+		coverageEndChanged = true;
+
+		records += count;
+		long previousSize = size;
+		size = writer.getSize();
+		recordSize = writer.getRecordSize();
+		metrics.addWrite(System.nanoTime() - start, count, size - previousSize);
+	}
+
+
+	@Override
+	public long getRecords() {
+		return records;
+	}
+
+
+	/**
+	 * @return size of the file, the records not compressed yet are estimated with the compression ratio so far
+	 */
+	@Override
+	public long getSize() {
+		return size;
+	}
+
+
+	@Override
+	public long getRecordSize() {
+		return recordSize;
+	}
+
+
+	@Override
+	public void release(boolean close) throws IOException {
+		if (writer != null && (close || !keepFileOpen)) {
+			long start = System.nanoTime();
+			if (coverageEndChanged) {
+				writer.addGlobalAttribute(new Attribute("time_coverage_end", timeCodec.format(coverageEnd)));
+				coverageEndChanged = false;
+			}
+			writer.close();
+			writer = null;
+			// the estimated size of the records in memory is replaced by the actual one
+			long previousSize = size;
+			size = new File(fileName).length();
+			metrics.addWrite(System.nanoTime() - start, 0, size - previousSize);
+		}
+	}
+
+}
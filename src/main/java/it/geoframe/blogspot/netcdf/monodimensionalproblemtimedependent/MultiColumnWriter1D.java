@@ -0,0 +1,466 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+import it.geoframe.blogspot.netcdf.utilities.AsyncNetCDFWriter;
+import it.geoframe.blogspot.netcdf.utilities.NetCDFFileHandle;
+import it.geoframe.blogspot.netcdf.utilities.NetCDFFileSize;
+import it.geoframe.blogspot.netcdf.utilities.NetCDFMetrics;
+import it.geoframe.blogspot.netcdf.utilities.TimeCodec;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.Attribute;
+import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.Variable;
+
+/**
+ * Writes the output of an ensemble of 1D columns with the same grid layout in a single netcdf-3 file,
+ * following an OutputSchema1D: the record variables have an extra column dimension, (time, column, depth)
+ * or (time, column), the static variables are shared by the columns.
+ *
+ * The solver threads submit their records concurrently, each column at its own pace. The records are
+ * staged in contiguous arrays, row after row (a row is a time step of all the columns); as soon as
+ * batchRecords rows are complete they are copied and written with one write for each variable by a
+ * background thread. A column that is more than 2*batchRecords records ahead of the slowest one waits.
+ * All the columns must submit the same time for the same row.
+ * As NetCDFWriter1D does, the file is handled by a NetCDFFileHandle, the rollover policy starts a new file
+ * before the row that does not fit (fileName_0000.nc, fileName_0001.nc, ...), and the global attributes
+ * time_coverage_start and time_coverage_end are written; time_coverage_end is set when a file is closed.
+ * Each batch is measured as a whole in the NetCDFMetrics of the file.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public class MultiColumnWriter1D implements Closeable {
+
+	private final OutputSchema1D schema;
+	private final String fileName;
+	private final TimeCodec timeCodec;
+	private final int columns;
+	private final int batchRecords;
+	private final int capacity;
+	private final AsyncNetCDFWriter asyncWriter;
+	private final NetCDFMetrics metrics;
+
+	private RolloverPolicy rolloverPolicy = RolloverPolicies.bySize(10000);
+	private boolean keepFileOpen = true;
+
+	// staging of the rows not written yet, the first one is the row base of the file
+	private final Object[] staging;
+	private final int[] submitted;
+	private final long[] rowTimes;
+	private final long[] nextRecord;
+	private long base = 0;
+	private int completeRows = 0;
+	private boolean closed = false;
+
+	// used only by the background thread
+	private NetCDFFileHandle fileHandle;
+	private NetCDFFileSize fileSize;
+	private NetcdfFileWriter resolvedFile;
+	private Variable[] variables;
+	private Variable timeVariable;
+	private int fileNumber = 0;
+	private long firstTime;
+	private long coverageEnd;
+
+
+	/**
+	 * @param schema variables of the output, the slots refer to the arrays of the submitted records
+	 * @param fileName name of the output file, the number of the file is added before the extension
+	 * @param timeZone time zone of time_coverage_start and time_coverage_end
+	 * @param columns number of columns
+	 * @param batchRecords number of complete time steps written at once
+	 */
+	public MultiColumnWriter1D(OutputSchema1D schema, String fileName, String timeZone, int columns, int batchRecords) {
+		if (columns < 1 || batchRecords < 1) {
+			throw new IllegalArgumentException("The number of columns and of records of each batch must be positive: " + columns + ", " + batchRecords);
+		}
+		this.schema = schema;
+		this.fileName = fileName;
+		timeCodec = TimeCodec.getInstance(timeZone);
+		this.columns = columns;
+		this.batchRecords = batchRecords;
+		capacity = 2*batchRecords;
+
+		staging = new Object[schema.getVariables().size()];
+		for (int n = 0; n < staging.length; n++) {
+			OutputVariable variable = schema.getVariables().get(n);
+			if (variable.isRecord()) {
+				staging[n] = java.lang.reflect.Array.newInstance(variable.getDataType().getPrimitiveClassType(), capacity*columns*schema.getLength(variable.getDimension()));
+			}
+		}
+		submitted = new int[capacity];
+		rowTimes = new long[capacity];
+		nextRecord = new long[columns];
+		asyncWriter = new AsyncNetCDFWriter(fileName, 2);
+		metrics = NetCDFMetrics.get(fileName);
+	}
+
+
+	/**
+	 * @param rolloverPolicy when to close the output file and start a new one, to be set before the first record
+	 */
+	public void setRolloverPolicy(RolloverPolicy rolloverPolicy) {
+		this.rolloverPolicy = rolloverPolicy;
+	}
+
+
+	/**
+	 * @param keepFileOpen keep the file open between two batches, to be set before the first record
+	 */
+	public void setKeepFileOpen(boolean keepFileOpen) {
+		this.keepFileOpen = keepFileOpen;
+	}
+
+
+	/**
+	 * Add the next record of a column, the caller can reuse the arrays as soon as this method returns.
+	 *
+	 * @param column index of the column
+	 * @param time epoch time [ms] of the record, the same for all the columns
+	 * @param record values of the record variables, indexed by slot
+	 * @throws IOException if another column submitted a different time for the same row, or a batch could not be written
+	 */
+	public void write(int column, long time, double[][] record) throws IOException {
+
+		synchronized (this) {
+
+			// the column waits for the slowest ones
+			while (!closed && nextRecord[column] >= base + capacity) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted while waiting for the other columns", e);
+				}
+			}
+			if (closed) {
+				throw new IllegalStateException("The writer of " + fileName + " is closed");
+			}
+
+			int row = (int) (nextRecord[column] - base);
+			if (submitted[row] == 0) {
+				rowTimes[row] = time;
+			} else if (rowTimes[row] != time) {
+				throw new IOException("The column " + column + " of " + fileName + " submitted the record " + (base + row) + " at "
+						+ timeCodec.format(time) + ", the other columns at " + timeCodec.format(rowTimes[row]));
+			}
+			for (int n = 0; n < staging.length; n++) {
+				if (staging[n] == null) {
+					continue;
+				}
+				OutputVariable variable = schema.getVariables().get(n);
+				int length = schema.getLength(variable.getDimension());
+				double[] values = variable.getSlot() < record.length ? record[variable.getSlot()] : null;
+				int sourceLength = values == null ? 0 : Math.min(values.length, length);
+				NetCDFWriter1D.copy(variable, values == null ? new double[0] : values, 0, staging[n], (row*columns + column)*length, sourceLength, length);
+			}
+			submitted[row]++;
+			nextRecord[column]++;
+
+			while (completeRows < capacity && submitted[completeRows] == columns) {
+				completeRows++;
+			}
+			if (completeRows >= batchRecords) {
+				flush(completeRows);
+			}
+		}
+	}
+
+
+	/**
+	 * Write the pending rows, with zeros for the columns that did not submit them, and close the file.
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			int rows = 0;
+			while (rows < capacity && submitted[rows] > 0) {
+				rows++;
+			}
+			if (rows > 0) {
+				flush(rows);
+			}
+		}
+		asyncWriter.submit(() -> {
+			if (fileHandle != null) {
+				closeFile();
+			}
+		});
+		asyncWriter.close();
+	}
+
+
+	/**
+	 * Copy the first rows of the staging arrays in a batch for the background thread and
+	 * move the remaining ones at the beginning.
+	 */
+	private void flush(int rows) throws IOException {
+
+		final long[] times = Arrays.copyOf(rowTimes, rows);
+		final Object[] batch = new Object[staging.length];
+		for (int n = 0; n < staging.length; n++) {
+			if (staging[n] == null) {
+				continue;
+			}
+			int rowLength = columns*schema.getLength(schema.getVariables().get(n).getDimension());
+			batch[n] = java.lang.reflect.Array.newInstance(staging[n].getClass().getComponentType(), rows*rowLength);
+			System.arraycopy(staging[n], 0, batch[n], 0, rows*rowLength);
+			System.arraycopy(staging[n], rows*rowLength, staging[n], 0, (capacity - rows)*rowLength);
+			clear(staging[n], (capacity - rows)*rowLength, capacity*rowLength);
+		}
+		System.arraycopy(submitted, rows, submitted, 0, capacity - rows);
+		Arrays.fill(submitted, capacity - rows, capacity, 0);
+		System.arraycopy(rowTimes, rows, rowTimes, 0, capacity - rows);
+		base += rows;
+		completeRows -= rows;
+		notifyAll();
+
+		asyncWriter.submit(() -> write(times, batch));
+	}
+
+
+	/**
+	 * Write a batch at the end of the current file, starting a new file at each row chosen by the rollover policy.
+	 */
+	private void write(long[] times, Object[] batch) throws IOException {
+
+		long allocated = NetCDFMetrics.getThreadAllocatedBytes();
+		long start = System.nanoTime();
+		int rows = times.length;
+
+		int[] minutes = new int[rows];
+		for (int i = 0; i < rows; i++) {
+			minutes[i] = (int) (times[i]/(60*1000));
+		}
+		Array timesArray = Array.factory(DataType.INT, new int[] {rows}, minutes);
+		Array[] dataArrays = new Array[batch.length];
+		for (int n = 0; n < batch.length; n++) {
+			if (batch[n] == null) {
+				continue;
+			}
+			OutputVariable variable = schema.getVariables().get(n);
+			int[] shape = variable.getDimension() == OutputDimension.TIME ? new int[] {rows, columns}
+					: new int[] {rows, columns, schema.getLength(variable.getDimension())};
+			dataArrays[n] = Array.factory(variable.getDataType(), shape, batch[n]);
+		}
+
+		int first = 0;
+		while (first < rows) {
+			if (fileHandle == null) {
+				create(times[first]);
+			}
+			// a file always contains at least one row
+			int end = first;
+			long records = fileSize.getRecords();
+			while (end < rows && (records + end - first == 0
+					|| !rolloverPolicy.startNewFile(firstTime, times[end], records + end - first,
+							fileSize.getSize() + (end - first)*fileSize.getRecordSize(), fileSize.getRecordSize()))) {
+				end++;
+			}
+			if (end == first) {
+				closeFile();
+				metrics.addRollover();
+				fileNumber++;
+				continue;
+			}
+			write(timesArray, dataArrays, first, end - first);
+			coverageEnd = times[end - 1];
+			first = end;
+		}
+		fileHandle.release();
+
+		long nanos = System.nanoTime() - start;
+		metrics.addWrite(nanos, rows, rows*fileSize.getRecordSize());
+		metrics.addFlush(nanos, allocated < 0 ? -1 : NetCDFMetrics.getThreadAllocatedBytes() - allocated);
+	}
+
+
+	/**
+	 * Write count rows of the batch, from the first-th one, at the end of the current file.
+	 */
+	private void write(Array timesArray, Array[] dataArrays, int first, int count) throws IOException {
+		long start = System.nanoTime();
+		boolean open = fileHandle.isOpen();
+		NetcdfFileWriter dataFile = fileHandle.open();
+		if (!open) {
+			metrics.addOpen(System.nanoTime() - start);
+		}
+		resolve(dataFile);
+		int origin = (int) fileSize.getRecords();
+		try {
+			dataFile.write(timeVariable, new int[] {origin}, rows(timesArray, first, count));
+			for (int n = 0; n < dataArrays.length; n++) {
+				if (dataArrays[n] == null) {
+					continue;
+				}
+				int[] recordOrigin = new int[dataArrays[n].getRank()];
+				recordOrigin[0] = origin;
+				dataFile.write(variables[n], recordOrigin, rows(dataArrays[n], first, count));
+			}
+		} catch (InvalidRangeException e) {
+			throw new IOException("Cannot write the records " + origin + "-" + (origin + count) + " of " + fileHandle.getFileName(), e);
+		}
+		fileSize.addRecords(count);
+	}
+
+
+	/**
+	 * Create the file of the current fileNumber and write the static variables.
+	 *
+	 * @param time epoch time [ms] of the first row of the file
+	 */
+	private void create(long time) throws IOException {
+
+		firstTime = time;
+		coverageEnd = time;
+		String fileNameToSave = fileName.substring(0,fileName.length()-3) + '_' + rolloverPolicy.getFileSuffix(time, fileNumber)
+				+ fileName.substring(fileName.length()-3,fileName.length());
+		fileHandle = new NetCDFFileHandle(fileNameToSave, keepFileOpen);
+
+		long start = System.nanoTime();
+		NetcdfFileWriter dataFile = fileHandle.createNew();
+		long opened = System.nanoTime();
+		metrics.addOpen(opened - start);
+		start = opened;
+
+		for (Map.Entry<String,String> attribute : schema.getGlobalAttributes().entrySet()) {
+			dataFile.addGroupAttribute(null, new Attribute(attribute.getKey(), attribute.getValue()));
+		}
+		// time_coverage_end is set when the file is closed, it keeps the same length so the header is rewritten in place
+		dataFile.addGroupAttribute(null, new Attribute("time_coverage_start", timeCodec.format(time)));
+		dataFile.addGroupAttribute(null, new Attribute("time_coverage_end", timeCodec.format(time)));
+
+		if (schema.getDepthName() != null) {
+			dataFile.addDimension(null, schema.getDepthName(), schema.getLength(OutputDimension.DEPTH));
+		}
+		if (schema.getDualDepthName() != null) {
+			dataFile.addDimension(null, schema.getDualDepthName(), schema.getLength(OutputDimension.DUAL_DEPTH));
+		}
+		dataFile.addDimension(null, "column", columns);
+		dataFile.addUnlimitedDimension("time");
+
+		for (OutputVariable variable : schema.getVariables()) {
+			String dims = schema.getDimensionName(variable.getDimension());
+			if (variable.isRecord()) {
+				dims = variable.getDimension() == OutputDimension.TIME ? "time column" : "time column " + dims;
+			}
+			Variable var = dataFile.addVariable(null, variable.getName(), variable.getDataType(), dims);
+			for (Attribute attribute : variable.getAttributes()) {
+				dataFile.addVariableAttribute(var, attribute);
+			}
+		}
+
+		dataFile.create();
+		resolve(dataFile);
+		fileSize = new NetCDFFileSize(dataFile.getNetcdfFile());
+		metrics.addHeader(System.nanoTime() - start);
+
+		try {
+			for (int n = 0; n < variables.length; n++) {
+				OutputVariable variable = schema.getVariables().get(n);
+				if (variable.isStatic() && variable.getValues() != null) {
+					int length = schema.getLength(variable.getDimension());
+					Array data = Array.factory(variable.getDataType(), new int[] {length});
+					for (int k = 0; k < length; k++) {
+						data.setDouble(k, variable.getValues()[k]);
+					}
+					dataFile.write(variables[n], data);
+				}
+			}
+		} catch (InvalidRangeException e) {
+			throw new IOException("Cannot write the static variables of " + fileNameToSave, e);
+		} finally {
+			fileHandle.release();
+		}
+		fileSize.measure(fileNameToSave);
+
+		System.out.println("\n\t***Created NetCDF " + fileNameToSave + " with " + columns + " columns\n\n");
+	}
+
+
+	/**
+	 * Write time_coverage_end in the header and close the current file.
+	 */
+	private void closeFile() throws IOException {
+		long start = System.nanoTime();
+		NetcdfFileWriter dataFile = fileHandle.open();
+		dataFile.setRedefineMode(true);
+		dataFile.addGroupAttribute(null, new Attribute("time_coverage_end", timeCodec.format(coverageEnd)));
+		dataFile.setRedefineMode(false);
+		fileHandle.release(true);
+		metrics.addHeader(System.nanoTime() - start);
+		fileHandle = null;
+		resolvedFile = null;
+	}
+
+
+	/**
+	 * Resolve the variables of the schema in the file, at its creation and each time it is opened again.
+	 */
+	private void resolve(NetcdfFileWriter dataFile) throws IOException {
+		if (dataFile == resolvedFile) {
+			return;
+		}
+		variables = schema.resolve(dataFile, fileHandle.getFileName(), columns);
+		timeVariable = variables[schema.getTimeIndex()];
+		resolvedFile = dataFile;
+	}
+
+
+	/**
+	 * @return view of count rows of the array, from the first-th one
+	 */
+	private static Array rows(Array array, int first, int count) throws InvalidRangeException {
+		int[] shape = array.getShape();
+		if (first == 0 && shape[0] == count) {
+			return array;
+		}
+		int[] origin = new int[shape.length];
+		origin[0] = first;
+		shape[0] = count;
+		return array.sectionNoReduce(origin, shape, null);
+	}
+
+
+	private static void clear(Object storage, int from, int to) {
+		if (storage instanceof double[]) {
+			Arrays.fill((double[]) storage, from, to, 0.0);
+		} else if (storage instanceof float[]) {
+			Arrays.fill((float[]) storage, from, to, 0f);
+		} else if (storage instanceof short[]) {
+			Arrays.fill((short[]) storage, from, to, (short) 0);
+		} else {
+			Arrays.fill((int[]) storage, from, to, 0);
+		}
+	}
+
+}
@@ -0,0 +1,360 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent;
+
+import java.io.IOException;
+import java.util.Map;
+
+import it.geoframe.blogspot.netcdf.utilities.NetCDFFileHandle;
+import it.geoframe.blogspot.netcdf.utilities.NetCDFFileSize;
+import it.geoframe.blogspot.netcdf.utilities.NetCDFMetrics;
+import it.geoframe.blogspot.netcdf.utilities.TimeCodec;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.Attribute;
+import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.Variable;
+
+/**
+ * A netcdf-3 output file of NetCDFWriter1D.
+ *
+ * The staging arrays of the writer, the batch ones and the ones of a single record, are wrapped by Arrays without copies
+ * and written with one write for each variable;
+ * the global attribute time_coverage_end is set when the file is closed by the writer, at rollover or at the end of the simulation,
+ * so the writing steps do not enter the define mode. The variables are resolved and checked
+ * against the schema when the file is created or opened, not looked up by name at each writing step.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+class NetCDF3OutputFile1D implements OutputFile1D {
+
+	private final OutputSchema1D schema;
+	private final String fileName;
+	private final TimeCodec timeCodec;
+	private final NetCDFFileHandle fileHandle;
+	private final NetCDFMetrics metrics;
+	private NetCDFFileSize fileSize;
+
+	// variables of the schema resolved in the open file, in the order of the schema
+	private NetcdfFileWriter resolvedFile;
+	private Variable[] variables;
+	private Variable timeVariable;
+
+	// views of the staging arrays of the writer: the batch ones and the ones of a single record
+	private Views views;
+	private Views otherViews;
+	private final int[] origin = new int[2];
+	private final int[] timeOrigin = new int[1];
+
+	// end of the time coverage, written in the header when the file is closed
+	private long coverageEnd;
+	private boolean coverageEndChanged = false;
+
+
+	/**
+	 * Arrays wrapping the staging arrays of the writer, with the capacity of the staging arrays as first dimension.
+	 */
+	private static final class Views {
+		final int[] times;
+		final Array timesArray;
+		final Array[] dataArrays;
+
+		Views(int[] times, Array timesArray, Array[] dataArrays) {
+			this.times = times;
+			this.timesArray = timesArray;
+			this.dataArrays = dataArrays;
+		}
+	}
+
+
+	/**
+	 * Create the file and write the static variables.
+	 *
+	 * @param firstTime epoch time [ms] of the first record of the file
+	 * @param metrics metrics of the writer
+	 */
+	NetCDF3OutputFile1D(OutputSchema1D schema, String fileName, boolean keepFileOpen, TimeCodec timeCodec, long firstTime, NetCDFMetrics metrics) throws IOException {
+
+		this(schema, fileName, timeCodec, new NetCDFFileHandle(fileName, keepFileOpen), metrics);
+
+		long start = System.nanoTime();
+		try {
+			NetcdfFileWriter dataFile = fileHandle.createNew();
+			long opened = System.nanoTime();
+			metrics.addOpen(opened - start);
+			start = opened;
+
+			for (Map.Entry<String,String> attribute : schema.getGlobalAttributes().entrySet()) {
+				dataFile.addGroupAttribute(null, new Attribute(attribute.getKey(), attribute.getValue()));
+			}
+			// time_coverage_end is set when the file is closed, it keeps the same length so the header is rewritten in place
+			dataFile.addGroupAttribute(null, new Attribute("time_coverage_start", timeCodec.format(firstTime)));
+			dataFile.addGroupAttribute(null, new Attribute("time_coverage_end", timeCodec.format(firstTime)));
+
+			// the time dimension is unlimited
+			if (schema.getDepthName() != null) {
+				dataFile.addDimension(null, schema.getDepthName(), schema.getLength(OutputDimension.DEPTH));
+			}
+			if (schema.getDualDepthName() != null) {
+				dataFile.addDimension(null, schema.getDualDepthName(), schema.getLength(OutputDimension.DUAL_DEPTH));
+			}
+			dataFile.addUnlimitedDimension("time");
+
+			for (OutputVariable variable : schema.getVariables()) {
+				String dims = schema.getDimensionName(variable.getDimension());
+				if (variable.isRecord() && variable.getDimension() != OutputDimension.TIME) {
+					dims = "time " + dims;
+				}
+				Variable var = dataFile.addVariable(null, variable.getName(), variable.getDataType(), dims);
+				for (Attribute attribute : variable.getAttributes()) {
+					dataFile.addVariableAttribute(var, attribute);
+				}
+			}
+
+			//Create the file. At this point the (empty) file will be written to disk
+			dataFile.create();
+			resolve(dataFile);
+			fileSize = new NetCDFFileSize(dataFile.getNetcdfFile());
+			long created = System.nanoTime();
+			metrics.addHeader(created - start);
+			start = created;
+
+			for (int n = 0; n < variables.length; n++) {
+				OutputVariable variable = schema.getVariables().get(n);
+				if (variable.isStatic() && variable.getValues() != null) {
+					int length = schema.getLength(variable.getDimension());
+					Array data = Array.factory(variable.getDataType(), new int[] {length});
+					for (int k = 0; k < length; k++) {
+						data.setDouble(k, variable.getValues()[k]);
+					}
+					dataFile.write(variables[n], data);
+				}
+			}
+
+			System.out.println("\n\t***Created NetCDF " + fileName +"\n\n");
+
+		} catch (InvalidRangeException e) {
+			throw new IOException("Cannot write the static variables of " + fileName, e);
+		} finally {
+			fileHandle.release();
+		}
+
+		fileSize.measure(fileName);
+		metrics.addWrite(System.nanoTime() - start, 0, fileSize.getSize());
+
+	}
+
+
+	private NetCDF3OutputFile1D(OutputSchema1D schema, String fileName, TimeCodec timeCodec, NetCDFFileHandle fileHandle, NetCDFMetrics metrics) {
+		this.schema = schema;
+		this.fileName = fileName;
+		this.timeCodec = timeCodec;
+		this.fileHandle = fileHandle;
+		this.metrics = metrics;
+	}
+
+
+	/**
+	 * Open the file of a previous simulation to append records after its first records ones,
+	 * the following ones are dropped.
+	 *
+	 * @throws IOException if the file has fewer records or does not have the variables of the schema
+	 */
+	static NetCDF3OutputFile1D openExisting(OutputSchema1D schema, String fileName, boolean keepFileOpen, TimeCodec timeCodec, int records,
+			NetCDFMetrics metrics) throws IOException {
+
+		long start = System.nanoTime();
+		NetCDFFileSize.truncate(fileName, records);
+
+		NetCDF3OutputFile1D file = new NetCDF3OutputFile1D(schema, fileName, timeCodec, new NetCDFFileHandle(fileName, keepFileOpen), metrics);
+		try {
+			NetcdfFileWriter dataFile = file.fileHandle.open();
+			file.resolve(dataFile);
+			file.fileSize = new NetCDFFileSize(dataFile.getNetcdfFile());
+		} catch (IOException e) {
+			file.fileHandle.close();
+			throw e;
+		}
+		file.fileHandle.release();
+		file.fileSize.measure(fileName, records);
+		metrics.addOpen(System.nanoTime() - start);
+
+		System.out.println("\n\t***Appending to NetCDF " + fileName + " after the record " + records + "\n\n");
+
+		return file;
+	}
+
+
+	@Override
+	public String getFileName() {
+		return fileName;
+	}
+
+
+	@Override
+	public void write(int[] times, Object[] data, int count, long lastTime) throws IOException {
+
+		wrap(times, data);
+		long start = System.nanoTime();
+		boolean open = fileHandle.isOpen();
+		NetcdfFileWriter dataFile = fileHandle.open();
+		resolve(dataFile);
+		if (!open) {
+			long opened = System.nanoTime();
+			metrics.addOpen(opened - start);
+			start = opened;
+		}
+
+		int origin_counter = (int) fileSize.getRecords();
+		origin[0] = origin_counter;
+		timeOrigin[0] = origin_counter;
+
+		try {
+			dataFile.write(timeVariable, timeOrigin, records(views.timesArray, count));
+			for (int n = 0; n < views.dataArrays.length; n++) {
+				if (views.dataArrays[n] == null) {
+					continue;
+				}
+				OutputVariable variable = schema.getVariables().get(n);
+				if (variable.getDimension() == OutputDimension.TIME) {
+					dataFile.write(variables[n], timeOrigin, records(views.dataArrays[n], count));
+				} else {
+					dataFile.write(variables[n], origin, records(views.dataArrays[n], count));
+				}
+			}
+		} catch (InvalidRangeException e) {
+			throw new IOException("Cannot write the records " + origin_counter + "-" + (origin_counter + count) + " of " + fileName, e);
+		}
+
+		fileSize.addRecords(count);
+		long written = System.nanoTime();
+		metrics.addWrite(written - start, count, count*fileSize.getRecordSize());
+
+		coverageEnd = lastTime;
+		coverageEndChanged = true;
+
+	}
+
+
+	@Override
+	public long getRecords() {
+		return fileSize.getRecords();
+	}
+
+
+	@Override
+	public long getSize() {
+		return fileSize.getSize();
+	}
+
+
+	@Override
+	public long getRecordSize() {
+		return fileSize.getRecordSize();
+	}
+
+
+	@Override
+	public void release(boolean close) throws IOException {
+		if (close && coverageEndChanged) {
+			writeCoverageEnd();
+		}
+		long start = System.nanoTime();
+		fileHandle.release(close);
+		metrics.addWrite(System.nanoTime() - start, 0, 0);
+	}
+
+
+	/**
+	 * Write time_coverage_end in the header, opening again the file if it is not kept open.
+	 */
+	private void writeCoverageEnd() throws IOException {
+		long start = System.nanoTime();
+		NetcdfFileWriter dataFile = fileHandle.open();
+		dataFile.setRedefineMode(true);
+		dataFile.addGroupAttribute(null, new Attribute("time_coverage_end", timeCodec.format(coverageEnd)));
+		dataFile.setRedefineMode(false);
+		coverageEndChanged = false;
+		metrics.addHeader(System.nanoTime() - start);
+	}
+
+
+	/**
+	 * Resolve the variables of the schema in the file, at its creation and each time it is opened again.
+	 */
+	private void resolve(NetcdfFileWriter dataFile) throws IOException {
+		if (dataFile == resolvedFile) {
+			return;
+		}
+		variables = schema.resolve(dataFile, fileName, 0);
+		timeVariable = variables[schema.getTimeIndex()];
+		resolvedFile = dataFile;
+	}
+
+
+	/**
+	 * Wrap the staging arrays, which the writer reallocates all together when they are too small.
+	 * The views of the batch staging arrays and of the single-record ones are both kept, so a writer
+	 * that alternates the two paths does not wrap them again.
+	 */
+	private void wrap(int[] times, Object[] data) {
+		if (views != null && views.times == times) {
+			return;
+		}
+		if (otherViews != null && otherViews.times == times) {
+			Views swap = views;
+			views = otherViews;
+			otherViews = swap;
+			return;
+		}
+		int capacity = times.length;
+		Array[] dataArrays = new Array[data.length];
+		for (int n = 0; n < data.length; n++) {
+			if (data[n] == null) {
+				continue;
+			}
+			OutputVariable variable = schema.getVariables().get(n);
+			if (variable.getDimension() == OutputDimension.TIME) {
+				dataArrays[n] = Array.factory(variable.getDataType(), new int[] {capacity}, data[n]);
+			} else {
+				dataArrays[n] = Array.factory(variable.getDataType(), new int[] {capacity, schema.getLength(variable.getDimension())}, data[n]);
+			}
+		}
+		otherViews = views;
+		views = new Views(times, Array.factory(DataType.INT, new int[] {capacity}, times), dataArrays);
+	}
+
+
+	/**
+	 * @return the first NREC records of a staging array, as a view when the batch is smaller than the array
+	 */
+	private static Array records(Array array, int NREC) throws InvalidRangeException {
+		int[] shape = array.getShape();
+		if (shape[0] == NREC) {
+			return array;
+		}
+		int[] origin = new int[shape.length];
+		shape[0] = NREC;
+		return array.sectionNoReduce(origin, shape, null);
+	}
+
+}
@@ -0,0 +1,864 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent.OutputPolicy.Statistic;
+import it.geoframe.blogspot.netcdf.utilities.AsyncNetCDFWriter;
+import it.geoframe.blogspot.netcdf.utilities.ChunkedFile;
+import it.geoframe.blogspot.netcdf.utilities.NetCDFMetrics;
+import it.geoframe.blogspot.netcdf.utilities.ProgressReporter;
+import it.geoframe.blogspot.netcdf.utilities.TimeCodec;
+import ucar.ma2.DataType;
+
+/**
+ * Writes the buffered output of a 1D problem in a sequence of netcdf-3 files
+ * (fileName_0000.nc, fileName_0001.nc, ... or fileName_2020-01.nc, ...), following an OutputSchema1D.
+ *
+ * The records come from an OutputBuffer1D, or from the legacy LinkedHashMap whose keys are the dates
+ * (yyyy-MM-dd HH:mm) and whose values are the list of the arrays of the record variables, which is
+ * adapted to an OutputBuffer1D; time is saved in minutes since 01/01/1970. In incremental mode only the records
+ * of the map after the last written one are written.
+ * A new file is started when the RolloverPolicy says so, by default when the size of the file would exceed 10000 MB;
+ * the global attributes time_coverage_start and time_coverage_end give the time span of each file.
+ * The variables with an OutputPolicy are aggregated over their period and written in a sequence of files
+ * for each period (fileName_1d_0000.nc, ...); the point values of a period with statistics too are written
+ * in files of their own (fileName_1d_point_0000.nc, ...), as they are dated at the time they were sampled.
+ * The files are netcdf-3 ones (NetCDF3OutputFile1D) or, with the chunked format, compressed chunked files
+ * (ChunkedOutputFile1D) that ChunkedFileConverter converts to netcdf-3.
+ * With a checkpoint file, the prognostic state and the position of the writer are saved periodically
+ * in a Checkpoint1D; restore(checkpoint) continues the output of a stopped simulation from there.
+ * The time spent in each phase of the writing steps, the records and the bytes written are collected in
+ * the NetCDFMetrics of the file name; the progress is printed by a ProgressReporter at most once every progress interval.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public class NetCDFWriter1D {
+
+	private OutputSchema1D schema;
+	private final String fileName;
+	private final String timeZone;
+	private final TimeCodec timeCodec;
+	private final NetCDFMetrics metrics;
+	private final List<OutputAggregator1D> aggregators = new ArrayList<OutputAggregator1D>();
+
+	private RolloverPolicy rolloverPolicy = RolloverPolicies.bySize(10000);
+	private boolean keepFileOpen = true;
+	private boolean asyncWrite = false;
+	private int asyncQueueCapacity = 2;
+
+	private AsyncNetCDFWriter asyncWriter;
+	private OutputBuffer1DAdapter adapter;
+	private double[][] record = new double[0][];
+	private String format = "netcdf3";
+	private int chunkRecords = 256;
+	private int chunkDepth = 0;
+	private int compressionLevel = 6;
+	private String checkpointFileName;
+	private int checkpointFrequency = 1000;
+	private Map<String,double[]> checkpointState = new LinkedHashMap<String,double[]>();
+	private int lastCheckpointStep = 0;
+	private double progressInterval = 10;
+	private boolean incremental = false;
+	private long lastWrittenTime = Long.MIN_VALUE;
+	private ProgressReporter progress;
+
+	private OutputFile1D file;
+	private int fileNumber = 0;
+	private long firstTime;
+	private volatile long currentFileSize = 0;
+	private volatile long closedFilesSize = 0;
+	private int step = 0;
+
+	private static final double[] NO_VALUES = new double[0];
+
+	// staging arrays, sized to the largest number of records written so far and reused at each flush
+	private int capacity = 0;
+	private int[] times;
+	private Object[] data;
+
+	// staging arrays of the single-record path, allocated at its first record
+	private int[] recordTimes;
+	private Object[] recordData;
+
+
+	public NetCDFWriter1D(OutputSchema1D schema, String fileName, String timeZone) {
+		this.schema = schema;
+		this.fileName = fileName;
+		this.timeZone = timeZone;
+		timeCodec = TimeCodec.getInstance(timeZone);
+		metrics = NetCDFMetrics.get(fileName);
+	}
+
+
+	/**
+	 * @param rolloverPolicy when to close the output file and start a new one
+	 */
+	public void setRolloverPolicy(RolloverPolicy rolloverPolicy) {
+		this.rolloverPolicy = rolloverPolicy;
+		for (OutputAggregator1D aggregator : aggregators) {
+			aggregator.getWriter().setRolloverPolicy(rolloverPolicy);
+		}
+	}
+
+
+	/**
+	 * @param keepFileOpen keep the file open between two writing steps
+	 */
+	public void setKeepFileOpen(boolean keepFileOpen) {
+		this.keepFileOpen = keepFileOpen;
+		for (OutputAggregator1D aggregator : aggregators) {
+			aggregator.getWriter().setKeepFileOpen(keepFileOpen);
+		}
+	}
+
+
+	/**
+	 * The values of the variables with a quantization are rounded to the given significant digits or packed
+	 * in 16 bit integers. To be set before the output policies and the first writing step.
+	 *
+	 * @param quantizations quantizations by variable name, either the name in the file or the outVariables key
+	 * @throws IllegalArgumentException if a quantization does not refer to a double or float record variable of the schema
+	 */
+	public void setOutputQuantizations(Map<String,OutputQuantization> quantizations) {
+
+		if (quantizations.isEmpty()) {
+			return;
+		}
+		if (step > 0 || !aggregators.isEmpty()) {
+			throw new IllegalStateException("The output quantizations of " + fileName + " must be set before the output policies and the first writing step");
+		}
+		Map<String,OutputQuantization> quantizationsByVariable = new LinkedHashMap<String,OutputQuantization>();
+		for (OutputQuantization quantization : quantizations.values()) {
+			String name = schema.getVariableName(quantization.getName());
+			boolean found = false;
+			for (OutputVariable variable : schema.getVariables()) {
+				found = found || (variable.isRecord() && variable.getName().equals(name)
+						&& (variable.getDataType() == DataType.DOUBLE || variable.getDataType() == DataType.FLOAT));
+			}
+			if (!found) {
+				throw new IllegalArgumentException("The output quantization of " + quantization.getName() + " does not refer to a double or float record variable of " + fileName);
+			}
+			quantizationsByVariable.put(name, quantization);
+		}
+
+		schema = schema.map(variable -> variable.isRecord() && quantizationsByVariable.containsKey(variable.getName()) ? variable.withQuantization(quantizationsByVariable.get(variable.getName())) : variable);
+	}
+
+
+	/**
+	 * The variables with an output policy are removed from the file of the writer and written,
+	 * aggregated over their period, in a file for each period. To be set before the first writing step.
+	 *
+	 * @param outputPolicies output policies by variable name, either the name in the file or the outVariables key;
+	 *        the variables without a policy are written at every record
+	 * @throws IllegalArgumentException if a policy does not refer to a record variable of the schema
+	 */
+	public void setOutputPolicies(Map<String,OutputPolicy> outputPolicies) {
+
+		if (outputPolicies.isEmpty()) {
+			return;
+		}
+		if (step > 0 || !aggregators.isEmpty()) {
+			throw new IllegalStateException("The output policies of " + fileName + " must be set once, before the first writing step");
+		}
+		Map<String,OutputPolicy> policies = new LinkedHashMap<String,OutputPolicy>();
+		for (OutputPolicy policy : outputPolicies.values()) {
+			String name = schema.getVariableName(policy.getName());
+			boolean found = false;
+			for (OutputVariable variable : schema.getVariables()) {
+				found = found || (variable.isRecord() && variable.getName().equals(name));
+			}
+			if (!found) {
+				throw new IllegalArgumentException("The output policy of " + policy.getName() + " does not refer to a record variable of " + fileName);
+			}
+			policies.put(name, policy);
+		}
+
+		/*
+		 * One file for each period, named after the first policy with that period. The point values are dated
+		 * at the time they were sampled, the statistics at the beginning of the period, so if a period has both
+		 * the point values go in a file of their own (fileName_1d_point.nc, ...)
+		 */
+		Map<String,OutputPolicy> groups = new LinkedHashMap<String,OutputPolicy>();
+		for (OutputPolicy policy : policies.values()) {
+			groups.putIfAbsent(policy.getPeriod() + (policy.getStatistic() == Statistic.POINT ? "p" : "s"), policy);
+		}
+		for (OutputPolicy group : groups.values()) {
+			boolean points = group.getStatistic() == Statistic.POINT;
+			OutputSchema1D aggregatedSchema = schema.map(variable -> {
+				if (!variable.isRecord()) {
+					return variable;
+				}
+				OutputPolicy policy = policies.get(variable.getName());
+				if (policy == null || policy.getPeriod() != group.getPeriod() || (policy.getStatistic() == Statistic.POINT) != points) {
+					return null;
+				}
+				return variable.withCellMethods(policy.getStatistic().getCellMethod());
+			});
+			String periodName = group.getPeriodName() + (points && groups.containsKey(group.getPeriod() + "s") ? "_point" : "");
+			String aggregatedFileName = fileName.substring(0,fileName.length()-3) + '_' + periodName + fileName.substring(fileName.length()-3,fileName.length());
+			NetCDFWriter1D writer = new NetCDFWriter1D(aggregatedSchema, aggregatedFileName, timeZone);
+			writer.setRolloverPolicy(rolloverPolicy);
+			writer.setKeepFileOpen(keepFileOpen);
+			writer.setFormat(format, chunkRecords, chunkDepth, compressionLevel);
+			writer.setProgressInterval(progressInterval);
+			aggregators.add(new OutputAggregator1D(aggregatedSchema, writer, group.getPeriod(), policies, timeCodec.getZone()));
+		}
+
+		schema = schema.map(variable -> variable.isRecord() && policies.containsKey(variable.getName()) ? null : variable);
+	}
+
+
+	/**
+	 * @param format netcdf3, or chunked for the compressed chunked files (fileName_0000.gfc, ...)
+	 * @param chunkRecords maximum number of records of each chunk of the chunked files
+	 * @param chunkDepth maximum number of depths of each chunk of the chunked files, all of them if not positive
+	 * @param compressionLevel deflate level of the chunked files, from 0 to 9
+	 */
+	public void setFormat(String format, int chunkRecords, int chunkDepth, int compressionLevel) {
+		String name = format == null ? "netcdf3" : format.trim().toLowerCase();
+		if (!name.equals("netcdf3") && !name.equals("chunked")) {
+			throw new IllegalArgumentException("Unknown output format: " + format + ". Use netcdf3 or chunked");
+		}
+		if (chunkRecords < 1 || compressionLevel < 0 || compressionLevel > 9) {
+			throw new IllegalArgumentException("Wrong chunked format: " + chunkRecords + " records per chunk, compression level " + compressionLevel);
+		}
+		this.format = name;
+		this.chunkRecords = chunkRecords;
+		this.chunkDepth = chunkDepth;
+		this.compressionLevel = compressionLevel;
+		for (OutputAggregator1D aggregator : aggregators) {
+			aggregator.getWriter().setFormat(format, chunkRecords, chunkDepth, compressionLevel);
+		}
+	}
+
+
+	/**
+	 * @param checkpointFileName name of the checkpoint file, rewritten at each checkpoint; null or empty for no checkpoints
+	 * @param checkpointFrequency number of time steps between two checkpoints: a checkpoint is written at the first
+	 *        writing step after them, and at the end of the simulation
+	 */
+	public void setCheckpoint(String checkpointFileName, int checkpointFrequency) {
+		if (checkpointFrequency < 1) {
+			throw new IllegalArgumentException("The checkpoint frequency must be positive: " + checkpointFrequency);
+		}
+		this.checkpointFileName = checkpointFileName == null || checkpointFileName.trim().isEmpty() ? null : checkpointFileName;
+		this.checkpointFrequency = checkpointFrequency;
+	}
+
+
+	/**
+	 * @param checkpointState prognostic state of the model at the current time step by variable name, it is copied
+	 *        at the checkpoints
+	 */
+	public void setCheckpointState(Map<String,double[]> checkpointState) {
+		this.checkpointState = checkpointState == null ? new LinkedHashMap<String,double[]>() : checkpointState;
+	}
+
+
+	/**
+	 * Continue the output of a stopped simulation: the file being written at the checkpoint is truncated
+	 * after the records written before the checkpoint and the following records are appended to it.
+	 * The writer resumes from the number of records of the file, its step counter starts again from 0.
+	 * To be called after the output policies, before the first writing step.
+	 *
+	 * @throws IllegalArgumentException if the checkpoint was not written by a writer of the same file with the same output policies
+	 */
+	public void restore(Checkpoint1D checkpoint) throws IOException {
+
+		if (step > 0) {
+			throw new IllegalStateException("The output of " + fileName + " must be restored before the first writing step");
+		}
+		List<long[]> positions = checkpoint.getWriterPositions();
+		if (!new File(checkpoint.getWriterFileName()).getName().equals(new File(fileName).getName())) {
+			throw new IllegalArgumentException("The checkpoint was written by the writer of " + checkpoint.getWriterFileName() + ", not of " + fileName);
+		}
+		if (positions.size() != aggregators.size() + 1 || checkpoint.getAggregations().size() != aggregators.size()) {
+			throw new IllegalArgumentException("The checkpoint has " + (positions.size() - 1) + " output periods, the output policies of " + fileName + " have " + aggregators.size());
+		}
+
+		// the step counter starts again from 0, as the one of the caller does, so the writing steps keep the phase of writeFrequency
+		restore(positions.get(0));
+		lastWrittenTime = checkpoint.getTime();
+		step = 0;
+		lastCheckpointStep = 0;
+		for (int a = 0; a < aggregators.size(); a++) {
+			long[] aggregation = checkpoint.getAggregations().get(a);
+			aggregators.get(a).restore(aggregation[0], (int) aggregation[1], checkpoint.getAccumulators().get(a));
+			aggregators.get(a).getWriter().restore(positions.get(a + 1));
+		}
+	}
+
+
+	/**
+	 * In incremental mode the writer keeps the time of the last record it has written, and at each writing step
+	 * only the records of the legacy buffer after it are written: the buffer can be left growing during the
+	 * simulation without writing its records twice, and each step writes only the new records.
+	 */
+	public void setIncremental(boolean incremental) {
+		this.incremental = incremental;
+	}
+
+
+	/**
+	 * @param progressInterval seconds between two lines of progress; if not positive the progress is printed only at the end
+	 */
+	public void setProgressInterval(double progressInterval) {
+		this.progressInterval = progressInterval;
+		for (OutputAggregator1D aggregator : aggregators) {
+			aggregator.getWriter().setProgressInterval(progressInterval);
+		}
+	}
+
+
+	/**
+	 * @param asyncWrite write with a background thread
+	 * @param asyncQueueCapacity maximum number of writing steps waiting for the background thread
+	 */
+	public void setAsyncWrite(boolean asyncWrite, int asyncQueueCapacity) {
+		this.asyncWrite = asyncWrite;
+		this.asyncQueueCapacity = asyncQueueCapacity;
+	}
+
+
+	public String getFileName() {
+		return fileName;
+	}
+
+
+	/**
+	 * @return the metrics of the writer, the writers of the output periods have their own ones
+	 */
+	public NetCDFMetrics getMetrics() {
+		return metrics;
+	}
+
+
+	public OutputSchema1D getSchema() {
+		return schema;
+	}
+
+
+	/**
+	 * @return size of the file being written [bytes]
+	 */
+	public long getFileSize() {
+		return currentFileSize;
+	}
+
+
+	/**
+	 * @return size of all the files written so far [bytes]
+	 */
+	public long getTotalSize() {
+		long size = closedFilesSize + currentFileSize;
+		for (OutputAggregator1D aggregator : aggregators) {
+			size += aggregator.getWriter().getTotalSize();
+		}
+		return size;
+	}
+
+
+	/**
+	 * Called at each time step with the legacy buffer: the buffer is written every writeFrequency steps
+	 * and when doProcess is false, that is at the end of the simulation.
+	 */
+	public void write(LinkedHashMap<String,ArrayList<double[]>> variables, boolean doProcess, int writeFrequency) throws IOException {
+
+		if( step%writeFrequency==0 || doProcess == false) {
+			if (variables.size() == 1) {
+				// a single record, as in the coupled runs, goes to the single-record path: only its date is parsed
+				Map.Entry<String,ArrayList<double[]>> entry = variables.entrySet().iterator().next();
+				long time;
+				try {
+					time = timeCodec.parse(entry.getKey());
+				} catch (ParseException e) {
+					throw new IOException("Wrong date in the output buffer: " + entry.getKey(), e);
+				}
+				if (record.length != entry.getValue().size()) {
+					record = new double[entry.getValue().size()][];
+				}
+				writeRecord(time, entry.getValue().toArray(record), doProcess);
+			} else {
+				if(adapter == null) {
+					adapter = new OutputBuffer1DAdapter(timeCodec);
+				}
+				write(incremental ? adapter.adapt(variables, lastWrittenTime) : adapter.adapt(variables), doProcess);
+			}
+		}
+
+		step++;
+	}
+
+
+	/**
+	 * Called at each time step with a single record, which is written at once: the fast path of the coupled runs,
+	 * where the solver gives one record per time step. The values are copied in staging arrays of one record,
+	 * allocated at the first call, and written through the variables resolved when the file was created:
+	 * there are no dates to parse, maps to iterate or intermediate buffers. In async mode the record is copied
+	 * once, for the background thread.
+	 *
+	 * @param time epoch time [ms] of the record
+	 * @param record one value array for each slot of the schema, the caller can reuse the arrays as soon as this method returns
+	 */
+	public void write(long time, double[][] record, boolean doProcess) throws IOException {
+		writeRecord(time, record, doProcess);
+		step++;
+	}
+
+
+	/**
+	 * Called at each time step: the records of the buffer are written every writeFrequency steps
+	 * and when doProcess is false, that is at the end of the simulation. The written records are
+	 * removed from the buffer.
+	 */
+	public void write(OutputBuffer1D buffer, boolean doProcess, int writeFrequency) throws IOException {
+
+		if( step%writeFrequency==0 || doProcess == false) {
+			write(buffer, doProcess);
+			buffer.clear();
+		}
+
+		step++;
+	}
+
+
+	private void writeRecord(long time, double[][] record, boolean doProcess) throws IOException {
+
+		// in incremental mode a record already written is skipped
+		if (incremental && time <= lastWrittenTime) {
+			if (doProcess == false) {
+				write(new OutputBuffer1D(1, new int[0]), doProcess);
+			}
+			return;
+		}
+
+		final double[][] values;
+		if (asyncWrite) {
+			values = new double[record.length][];
+			for (int slot = 0; slot < record.length; slot++) {
+				values[slot] = record[slot] == null ? null : record[slot].clone();
+			}
+		} else {
+			values = record;
+		}
+		write(() -> flush(time, values, doProcess), time, doProcess);
+	}
+
+
+	private void write(OutputBuffer1D buffer, boolean doProcess) throws IOException {
+		// in async mode the records are copied, so the caller can reuse the buffer
+		final OutputBuffer1D records = asyncWrite ? buffer.copy() : buffer;
+		write(() -> flush(records, doProcess), buffer.isEmpty() ? Long.MIN_VALUE : buffer.getTime(buffer.size()-1), doProcess);
+	}
+
+
+	/**
+	 * Run a writing step, by the background thread in async mode, and write the checkpoint if it is due.
+	 *
+	 * @param flush writes the records of the step
+	 * @param lastTime epoch time [ms] of the last record of the step, Long.MIN_VALUE if there are no records
+	 */
+	private void write(AsyncNetCDFWriter.WriteTask flush, long lastTime, boolean doProcess) throws IOException {
+
+		if (lastTime != Long.MIN_VALUE) {
+			lastWrittenTime = lastTime;
+		}
+
+		// the checkpoint is taken after the records of the step are written, the next time step is step + 1
+		final Checkpoint1D checkpoint;
+		if (checkpointFileName != null && lastTime != Long.MIN_VALUE && (doProcess == false || step + 1 - lastCheckpointStep >= checkpointFrequency)) {
+			checkpoint = new Checkpoint1D(lastTime, checkpointState);
+			lastCheckpointStep = step + 1;
+		} else {
+			checkpoint = null;
+		}
+		final int nextStep = step + 1;
+
+		AsyncNetCDFWriter.WriteTask task = () -> {
+			flush.write();
+			if (checkpoint != null) {
+				checkpoint(checkpoint, nextStep);
+			}
+		};
+
+		if(asyncWrite) {
+			/*
+			 * The data are written by a background thread,
+			 * so the simulation does not wait for the disk
+			 */
+			if(asyncWriter == null) {
+				asyncWriter = new AsyncNetCDFWriter(fileName, asyncQueueCapacity);
+			}
+			asyncWriter.submit(task);
+			if(doProcess == false) {
+				// wait until all the data are written
+				asyncWriter.close();
+				asyncWriter = null;
+			}
+		} else {
+			task.write();
+		}
+
+	}
+
+
+	/**
+	 * Write the pending data and close the file.
+	 */
+	public void close() throws IOException {
+		if (asyncWriter != null) {
+			asyncWriter.close();
+			asyncWriter = null;
+		}
+		if (file != null) {
+			file.release(true);
+		}
+		for (OutputAggregator1D aggregator : aggregators) {
+			aggregator.getWriter().close();
+		}
+		if (progress != null) {
+			progress.close();
+		}
+	}
+
+
+	/**
+	 * @param firstTime epoch time [ms] of the first record of the file
+	 */
+	private void create(long firstTime) throws IOException {
+
+		this.firstTime = firstTime;
+
+		if (format.equals("chunked")) {
+			file = new ChunkedOutputFile1D(schema, getFileName(firstTime), keepFileOpen, timeCodec, firstTime, chunkRecords, chunkDepth, compressionLevel, metrics);
+		} else {
+			file = new NetCDF3OutputFile1D(schema, getFileName(firstTime), keepFileOpen, timeCodec, firstTime, metrics);
+		}
+		currentFileSize = file.getSize();
+
+	}
+
+
+	/**
+	 * @return name of the file of the current fileNumber whose first record is at firstTime
+	 */
+	private String getFileName(long firstTime) {
+		String fileNameToSave = fileName.substring(0,fileName.length()-3) + '_' + rolloverPolicy.getFileSuffix(firstTime, fileNumber);
+		return fileNameToSave + (format.equals("chunked") ? ChunkedFile.EXTENSION : fileName.substring(fileName.length()-3,fileName.length()));
+	}
+
+
+	/**
+	 * Save the position of this writer and of the writers of the output policies, then write the checkpoint.
+	 * The files are closed, so the records written so far are on the disk; they are opened again at the next writing step.
+	 */
+	private void checkpoint(Checkpoint1D checkpoint, int nextStep) throws IOException {
+		savePosition(checkpoint, nextStep);
+		for (OutputAggregator1D aggregator : aggregators) {
+			aggregator.getWriter().savePosition(checkpoint, 0);
+		}
+		for (OutputAggregator1D aggregator : aggregators) {
+			aggregator.save(checkpoint);
+		}
+		checkpoint.write(checkpointFileName);
+	}
+
+
+	private void savePosition(Checkpoint1D checkpoint, int nextStep) throws IOException {
+		if (file != null) {
+			file.release(true);
+			currentFileSize = file.getSize();
+		}
+		checkpoint.addWriterPosition(fileName, nextStep, fileNumber, file == null ? -1 : file.getRecords(), firstTime, closedFilesSize);
+	}
+
+
+	/**
+	 * @param position step, fileNumber, records, firstTime and closedFilesSize saved by savePosition
+	 */
+	private void restore(long[] position) throws IOException {
+		fileNumber = (int) position[1];
+		firstTime = position[3];
+		closedFilesSize = position[4];
+		int records = (int) position[2];
+		if (records >= 0) {
+			if (format.equals("chunked")) {
+				file = ChunkedOutputFile1D.openExisting(schema, getFileName(firstTime), keepFileOpen, timeCodec, records, chunkRecords, chunkDepth, compressionLevel, metrics);
+			} else {
+				file = NetCDF3OutputFile1D.openExisting(schema, getFileName(firstTime), keepFileOpen, timeCodec, records, metrics);
+			}
+			currentFileSize = file.getSize();
+		}
+	}
+
+
+	private void flush(OutputBuffer1D buffer, boolean doProcess) throws IOException {
+
+		// the aggregated variables are written as their periods are completed
+		for (OutputAggregator1D aggregator : aggregators) {
+			aggregator.getWriter().flush(aggregator.aggregate(buffer, doProcess == false), doProcess);
+		}
+
+		long flushStart = System.nanoTime();
+		long allocated = NetCDFMetrics.getThreadAllocatedBytes();
+
+		// number of time record that will be saved
+		int NREC = buffer.size();
+
+		ensureCapacity(NREC);
+		if (progress == null) {
+			progress = new ProgressReporter(fileName, timeCodec, progressInterval);
+		}
+
+		int start = 0;
+		while (start < NREC) {
+
+			if (file == null) {
+				create(buffer.getTime(start));
+			}
+
+			// records of the batch that go in the current file
+			int end = start;
+			while (end < NREC && (file.getRecords() + end - start == 0
+					|| !rolloverPolicy.startNewFile(firstTime, buffer.getTime(end), file.getRecords() + end - start,
+							file.getSize() + (end - start)*file.getRecordSize(), file.getRecordSize()))) {
+				end++;
+			}
+			boolean rollover = end < NREC;
+
+			try {
+
+				// the batch may start a new file at its first record
+				if (end > start) {
+					write(buffer, start, end - start);
+					progress.update(file.getFileName(), end - start, buffer.getTime(end-1));
+				}
+
+			} finally {
+				// the file is closed at rollover and at the end of the simulation
+				file.release(doProcess == false || rollover);
+				currentFileSize = file.getSize();
+				if (rollover) {
+					rollover();
+				}
+			}
+
+			start = end;
+		}
+
+		if (NREC == 0 && doProcess == false && file != null) {
+			file.release(true);
+		}
+
+		metrics.addFlush(System.nanoTime() - flushStart, allocated < 0 ? -1 : NetCDFMetrics.getThreadAllocatedBytes() - allocated);
+
+		if (doProcess == false) {
+			progress.report();
+		}
+
+	}
+
+
+	/**
+	 * Write a single record from the staging arrays of one record.
+	 */
+	private void flush(long time, double[][] record, boolean doProcess) throws IOException {
+
+		for (OutputAggregator1D aggregator : aggregators) {
+			aggregator.getWriter().flush(aggregator.aggregate(time, record, doProcess == false), doProcess);
+		}
+
+		long flushStart = System.nanoTime();
+		long allocated = NetCDFMetrics.getThreadAllocatedBytes();
+
+		if (recordData == null) {
+			recordTimes = new int[1];
+			recordData = new Object[schema.getVariables().size()];
+			for (int n = 0; n < recordData.length; n++) {
+				OutputVariable variable = schema.getVariables().get(n);
+				if (variable.isRecord()) {
+					recordData[n] = java.lang.reflect.Array.newInstance(variable.getDataType().getPrimitiveClassType(), schema.getLength(variable.getDimension()));
+				}
+			}
+		}
+		if (progress == null) {
+			progress = new ProgressReporter(fileName, timeCodec, progressInterval);
+		}
+
+		if (file != null && file.getRecords() > 0
+				&& rolloverPolicy.startNewFile(firstTime, time, file.getRecords(), file.getSize(), file.getRecordSize())) {
+			file.release(true);
+			rollover();
+		}
+		if (file == null) {
+			create(time);
+		}
+
+		long marshallingStart = System.nanoTime();
+		recordTimes[0] = (int) (time/(60*1000));
+		for (int n = 0; n < recordData.length; n++) {
+			if (recordData[n] == null) {
+				continue;
+			}
+			OutputVariable variable = schema.getVariables().get(n);
+			double[] source = variable.getSlot() < record.length && record[variable.getSlot()] != null ? record[variable.getSlot()] : NO_VALUES;
+			int length = schema.getLength(variable.getDimension());
+			copy(variable, source, 0, recordData[n], 0, Math.min(source.length, length), length);
+		}
+		metrics.addMarshalling(System.nanoTime() - marshallingStart);
+
+		try {
+			file.write(recordTimes, recordData, 1, time);
+			progress.update(file.getFileName(), 1, time);
+		} finally {
+			// the file is closed at the end of the simulation
+			file.release(doProcess == false);
+			currentFileSize = file.getSize();
+		}
+
+		metrics.addFlush(System.nanoTime() - flushStart, allocated < 0 ? -1 : NetCDFMetrics.getThreadAllocatedBytes() - allocated);
+
+		if (doProcess == false) {
+			progress.report();
+		}
+
+	}
+
+
+	/**
+	 * Account for the file closed at rollover, the next record starts a new one.
+	 */
+	private void rollover() {
+		metrics.addRollover();
+		currentFileSize = file.getSize();
+		file = null;
+		fileNumber++;
+		closedFilesSize += currentFileSize;
+		currentFileSize = 0;
+	}
+
+
+	/**
+	 * Write count records of the buffer, from the start-th one, at the end of the file.
+	 */
+	private void write(OutputBuffer1D buffer, int start, int count) throws IOException {
+
+		long marshallingStart = System.nanoTime();
+		for (int i = 0; i < count; i++) {
+
+			times[i] = (int) (buffer.getTime(start+i)/(60*1000));
+
+			int index = buffer.getIndex(start+i);
+			for (int n = 0; n < data.length; n++) {
+				if (data[n] == null) {
+					continue;
+				}
+				OutputVariable variable = schema.getVariables().get(n);
+				int sourceLength = buffer.getLength(variable.getSlot());
+				int length = schema.getLength(variable.getDimension());
+				copy(variable, buffer.getValues(variable.getSlot()), index*sourceLength, data[n], i*length, Math.min(sourceLength, length), length);
+			}
+		}
+
+		metrics.addMarshalling(System.nanoTime() - marshallingStart);
+
+		file.write(times, data, count, buffer.getTime(start+count-1));
+		currentFileSize = file.getSize();
+
+	}
+
+
+	/**
+	 * Allocate the staging arrays if the records to write do not fit in the current ones.
+	 *
+	 * Each variable is assembled in a contiguous array (record after record),
+	 * which the output file writes without any further copy.
+	 */
+	private void ensureCapacity(int NREC) {
+		if (NREC <= capacity) {
+			return;
+		}
+		capacity = NREC;
+		times = new int[capacity];
+		data = new Object[schema.getVariables().size()];
+		for (int n = 0; n < data.length; n++) {
+			OutputVariable variable = schema.getVariables().get(n);
+			if (variable.isRecord()) {
+				data[n] = java.lang.reflect.Array.newInstance(variable.getDataType().getPrimitiveClassType(), capacity*schema.getLength(variable.getDimension()));
+			}
+		}
+	}
+
+
+	/**
+	 * Copy the values of a record in the backing array of a variable, with its quantization if any.
+	 */
+	static void copy(OutputVariable variable, double[] source, int sourceOffset, Object storage, int offset, int length, int recordLength) {
+		if (variable.getQuantization() != null) {
+			variable.getQuantization().copy(source, sourceOffset, storage, offset, length, recordLength);
+		} else {
+			copy(source, sourceOffset, storage, offset, length, recordLength);
+		}
+	}
+
+
+	/**
+	 * Copy the values of a record in the backing array of a variable.
+	 * The values beyond the length of the source are set to zero, the array is reused.
+	 *
+	 * @param source values of the variable in the buffer
+	 * @param sourceOffset position of the first value of the record in the buffer
+	 * @param storage double[], float[] or int[] backing array of the variable
+	 * @param offset position of the first value of the record in the backing array
+	 * @param length number of values to copy
+	 * @param recordLength number of values of each record in the backing array
+	 */
+	static void copy(double[] source, int sourceOffset, Object storage, int offset, int length, int recordLength) {
+		if (storage instanceof double[]) {
+			double[] target = (double[]) storage;
+			System.arraycopy(source, sourceOffset, target, offset, length);
+			Arrays.fill(target, offset+length, offset+recordLength, 0.0);
+		} else if (storage instanceof float[]) {
+			float[] target = (float[]) storage;
+			for (int k = 0; k < length; k++) {
+				target[offset+k] = (float) source[sourceOffset+k];
+			}
+			Arrays.fill(target, offset+length, offset+recordLength, 0f);
+		} else {
+			int[] target = (int[]) storage;
+			for (int k = 0; k < length; k++) {
+				target[offset+k] = (int) source[sourceOffset+k];
+			}
+			Arrays.fill(target, offset+length, offset+recordLength, 0);
+		}
+	}
+
+}
@@ -0,0 +1,335 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent.OutputPolicy.Statistic;
+
+/**
+ * Aggregates the records of the variables with the same output period, following their OutputPolicy.
+ *
+ * The records are accumulated as they come (first value, running sum, minimum or maximum), so only
+ * one record per variable is kept in memory; when a record of a new period arrives the previous period
+ * is complete and added to the output buffer. The statistics are dated at the beginning of the period;
+ * the point values, when all the variables of the aggregator are points, at the time of the first record of the period,
+ * which is when they were sampled: a first period started before the simulation is not labelled with a time
+ * the values do not belong to.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+class OutputAggregator1D {
+
+	private static final long DAY = 24*3600*1000L;
+
+	private final OutputSchema1D schema;
+	private final NetCDFWriter1D writer;
+	private final long period;
+	private final ZoneId zone;
+
+	private final int[] slots;
+	private final int[] lengths;
+	private final Statistic[] statistics;
+	private final double[][] accumulators;
+	private final boolean points;
+	private long start;
+	private long first;
+	private int count = 0;
+
+	private OutputBuffer1D output;
+	private double[][] record;
+
+	// local day of the last record: its bounds, the offset of the time zone at its start and,
+	// for the periods of whole days, the start of the period
+	private long dayStart = Long.MAX_VALUE;
+	private long dayEnd = Long.MIN_VALUE;
+	private long dayOffset;
+	private long dayPeriodStart;
+
+
+	/**
+	 * @param schema schema of the aggregated file, with the record variables of the period
+	 * @param writer writer of the aggregated file
+	 * @param period length of the period [ms]
+	 * @param policies output policies by variable name
+	 * @param zone time zone of the periods
+	 */
+	OutputAggregator1D(OutputSchema1D schema, NetCDFWriter1D writer, long period, Map<String,OutputPolicy> policies, ZoneId zone) {
+		this.schema = schema;
+		this.writer = writer;
+		this.period = period;
+		this.zone = zone;
+
+		List<OutputVariable> records = new ArrayList<OutputVariable>();
+		for (OutputVariable variable : schema.getVariables()) {
+			if (variable.isRecord()) {
+				records.add(variable);
+			}
+		}
+		slots = new int[records.size()];
+		lengths = new int[records.size()];
+		statistics = new Statistic[records.size()];
+		accumulators = new double[records.size()][];
+		for (int v = 0; v < slots.length; v++) {
+			OutputVariable variable = records.get(v);
+			slots[v] = variable.getSlot();
+			lengths[v] = schema.getLength(variable.getDimension());
+			statistics[v] = policies.get(variable.getName()).getStatistic();
+			accumulators[v] = new double[lengths[v]];
+		}
+		boolean allPoints = true;
+		for (Statistic statistic : statistics) {
+			allPoints = allPoints && statistic == Statistic.POINT;
+		}
+		points = allPoints;
+
+		int numberOfSlots = 0;
+		for (int slot : slots) {
+			numberOfSlots = Math.max(numberOfSlots, slot + 1);
+		}
+		record = new double[numberOfSlots][];
+		for (int v = 0; v < slots.length; v++) {
+			record[slots[v]] = new double[lengths[v]];
+		}
+		output = createOutput(1);
+	}
+
+
+	NetCDFWriter1D getWriter() {
+		return writer;
+	}
+
+
+	/**
+	 * Accumulate the records of the buffer.
+	 *
+	 * @param buffer records to aggregate, they are not removed
+	 * @param last true at the end of the simulation, the current period is completed with the records received
+	 * @return the buffer of the completed periods, it is emptied at the next call
+	 */
+	OutputBuffer1D aggregate(OutputBuffer1D buffer, boolean last) {
+
+		ensureCapacity(buffer.size());
+
+		for (int i = 0; i < buffer.size(); i++) {
+			begin(buffer.getTime(i));
+			int index = buffer.getIndex(i);
+			for (int v = 0; v < slots.length; v++) {
+				int sourceLength = buffer.getLength(slots[v]);
+				accumulate(v, buffer.getValues(slots[v]), index*sourceLength, Math.min(sourceLength, lengths[v]));
+			}
+			count++;
+		}
+
+		if (last && count > 0) {
+			complete();
+		}
+
+		return output;
+	}
+
+
+	/**
+	 * Accumulate a single record.
+	 *
+	 * @param record one value array for each slot, missing values are zero
+	 * @param last true at the end of the simulation, the current period is completed with the records received
+	 * @return the buffer of the completed periods, it is emptied at the next call
+	 */
+	OutputBuffer1D aggregate(long time, double[][] record, boolean last) {
+
+		ensureCapacity(1);
+
+		begin(time);
+		for (int v = 0; v < slots.length; v++) {
+			double[] values = slots[v] < record.length ? record[slots[v]] : null;
+			accumulate(v, values, 0, values == null ? 0 : Math.min(values.length, lengths[v]));
+		}
+		count++;
+
+		if (last) {
+			complete();
+		}
+
+		return output;
+	}
+
+
+	/**
+	 * Save the current period, not completed yet, in the checkpoint.
+	 */
+	void save(Checkpoint1D checkpoint) {
+		int size = 0;
+		for (int v = 0; v < slots.length; v++) {
+			size += lengths[v];
+		}
+		double[] values = new double[size];
+		int offset = 0;
+		for (int v = 0; v < slots.length; v++) {
+			System.arraycopy(accumulators[v], 0, values, offset, lengths[v]);
+			offset += lengths[v];
+		}
+		checkpoint.addAggregation(first, count, values);
+	}
+
+
+	/**
+	 * Continue the period saved in a checkpoint.
+	 *
+	 * @param first epoch time [ms] of the first record of the period
+	 * @throws IllegalArgumentException if the accumulators do not match the variables of the aggregator
+	 */
+	void restore(long first, int count, double[] values) {
+		int offset = 0;
+		for (int v = 0; v < slots.length; v++) {
+			offset += lengths[v];
+		}
+		if (offset != values.length) {
+			throw new IllegalArgumentException("The checkpoint has " + values.length + " accumulated values, the output policies of " + writer.getFileName() + " need " + offset);
+		}
+		offset = 0;
+		for (int v = 0; v < slots.length; v++) {
+			System.arraycopy(values, offset, accumulators[v], 0, lengths[v]);
+			offset += lengths[v];
+		}
+		this.first = first;
+		this.start = getPeriodStart(first);
+		this.count = count;
+	}
+
+
+	/**
+	 * Complete the current period if the record belongs to a new one.
+	 */
+	private void begin(long time) {
+		long periodStart = getPeriodStart(time);
+		if (count > 0 && periodStart != start) {
+			complete();
+		}
+		if (count == 0) {
+			start = periodStart;
+			first = time;
+		}
+	}
+
+
+	/**
+	 * Accumulate the values of the v-th variable of a record, the values after length are zero.
+	 */
+	private void accumulate(int v, double[] values, int offset, int length) {
+		double[] accumulator = accumulators[v];
+		if (count == 0) {
+			if (length > 0) {
+				System.arraycopy(values, offset, accumulator, 0, length);
+			}
+			return;
+		}
+		switch (statistics[v]) {
+		case MEAN:
+		case SUM:
+			for (int k = 0; k < length; k++) {
+				accumulator[k] += values[offset+k];
+			}
+			break;
+		case MIN:
+			for (int k = 0; k < lengths[v]; k++) {
+				accumulator[k] = Math.min(accumulator[k], k < length ? values[offset+k] : 0.0);
+			}
+			break;
+		case MAX:
+			for (int k = 0; k < lengths[v]; k++) {
+				accumulator[k] = Math.max(accumulator[k], k < length ? values[offset+k] : 0.0);
+			}
+			break;
+		default:
+			break;
+		}
+	}
+
+
+	/**
+	 * Add the aggregated record of the current period to the output buffer and reset the accumulators.
+	 */
+	private void complete() {
+		for (int v = 0; v < slots.length; v++) {
+			double[] values = record[slots[v]];
+			double[] accumulator = accumulators[v];
+			for (int k = 0; k < lengths[v]; k++) {
+				values[k] = statistics[v] == Statistic.MEAN ? accumulator[k]/count : accumulator[k];
+				accumulator[k] = 0.0;
+			}
+		}
+		output.append(points ? first : start, record);
+		count = 0;
+	}
+
+
+	/**
+	 * The periods of whole days start at the local midnight, from the calendar of the time zone, so a day
+	 * of a daylight saving transition lasts 23 or 25 hours. The shorter periods use the offset of the time zone
+	 * at the start of the local day of the record, so the periods of a day never go back in time.
+	 *
+	 * @return epoch time [ms] of the beginning of the period of the record
+	 */
+	private long getPeriodStart(long time) {
+		if (time < dayStart || time >= dayEnd) {
+			LocalDate day = Instant.ofEpochMilli(time).atZone(zone).toLocalDate();
+			dayStart = day.atStartOfDay(zone).toInstant().toEpochMilli();
+			dayEnd = day.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+			dayOffset = zone.getRules().getOffset(Instant.ofEpochMilli(dayStart)).getTotalSeconds()*1000L;
+			if (period % DAY == 0) {
+				long days = period/DAY;
+				dayPeriodStart = LocalDate.ofEpochDay(Math.floorDiv(day.toEpochDay(), days)*days).atStartOfDay(zone).toInstant().toEpochMilli();
+			}
+		}
+		if (period % DAY == 0) {
+			return dayPeriodStart;
+		}
+		return Math.floorDiv(time + dayOffset, period)*period - dayOffset;
+	}
+
+
+	/**
+	 * Each record may complete a period, so the empty output buffer must hold one more record than the ones to aggregate.
+	 */
+	private void ensureCapacity(int records) {
+		output.clear();
+		if (output.getCapacity() > records) {
+			return;
+		}
+		output = createOutput(records + 1);
+	}
+
+
+	private OutputBuffer1D createOutput(int capacity) {
+		int[] outputLengths = new int[record.length];
+		for (int v = 0; v < slots.length; v++) {
+			outputLengths[slots[v]] = lengths[v];
+		}
+		return new OutputBuffer1D(capacity, outputLengths);
+	}
+
+}
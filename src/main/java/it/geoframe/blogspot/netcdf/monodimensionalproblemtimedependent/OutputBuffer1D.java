@@ -0,0 +1,166 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent;
+
+import java.util.Arrays;
+
+/**
+ * Preallocated ring buffer of the output of a 1D problem.
+ *
+ * Each record is made of an epoch time (milliseconds since 01/01/1970 UTC) and of one value
+ * array for each variable; the values of each variable are stored in one contiguous double[]
+ * of capacity*length elements. append() copies the values in the ring without allocating,
+ * the writer reads the records from the oldest one and removes them once written.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public class OutputBuffer1D {
+
+	private final long[] times;
+	private final double[][] values;
+	private final int[] lengths;
+	private int head = 0;
+	private int size = 0;
+
+
+	/**
+	 * @param capacity maximum number of records in the buffer
+	 * @param lengths number of values of each variable, the position in the array is the slot of the variable
+	 */
+	public OutputBuffer1D(int capacity, int[] lengths) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("The capacity of the output buffer must be positive: " + capacity);
+		}
+		this.times = new long[capacity];
+		this.lengths = lengths.clone();
+		this.values = new double[lengths.length][];
+		for (int slot = 0; slot < lengths.length; slot++) {
+			values[slot] = new double[capacity*lengths[slot]];
+		}
+	}
+
+
+	/**
+	 * Add a record. Each value array is copied in the ring, values exceeding the length
+	 * of the variable are discarded and missing ones are set to zero.
+	 *
+	 * @param time epoch time in milliseconds
+	 * @param record one value array for each variable
+	 * @throws IllegalStateException if the buffer is full
+	 */
+	public void append(long time, double[][] record) {
+		if (size == times.length) {
+			throw new IllegalStateException("The output buffer is full (" + size + " records), write it before adding new records");
+		}
+		int index = (head + size) % times.length;
+		times[index] = time;
+		for (int slot = 0; slot < values.length; slot++) {
+			int offset = index*lengths[slot];
+			int length = 0;
+			if (slot < record.length && record[slot] != null) {
+				length = Math.min(record[slot].length, lengths[slot]);
+				System.arraycopy(record[slot], 0, values[slot], offset, length);
+			}
+			Arrays.fill(values[slot], offset + length, offset + lengths[slot], 0.0);
+		}
+		size++;
+	}
+
+
+	/**
+	 * Remove all the records.
+	 */
+	public void clear() {
+		head = (head + size) % times.length;
+		size = 0;
+	}
+
+
+	/**
+	 * @return a buffer with a copy of the records, the caller can keep appending to this one
+	 */
+	public OutputBuffer1D copy() {
+		OutputBuffer1D copy = new OutputBuffer1D(Math.max(1, size), lengths);
+		for (int i = 0; i < size; i++) {
+			int index = getIndex(i);
+			copy.times[i] = times[index];
+			for (int slot = 0; slot < values.length; slot++) {
+				System.arraycopy(values[slot], index*lengths[slot], copy.values[slot], i*lengths[slot], lengths[slot]);
+			}
+		}
+		copy.size = size;
+		return copy;
+	}
+
+
+	public int size() {
+		return size;
+	}
+
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+
+	public int getCapacity() {
+		return times.length;
+	}
+
+
+	public int getNumberOfVariables() {
+		return lengths.length;
+	}
+
+
+	/**
+	 * @return number of values of each record of the variable
+	 */
+	public int getLength(int slot) {
+		return lengths[slot];
+	}
+
+
+	/**
+	 * @return epoch time in milliseconds of the i-th record, 0 being the oldest one
+	 */
+	public long getTime(int i) {
+		return times[getIndex(i)];
+	}
+
+
+	/**
+	 * @return position in the ring of the i-th record, 0 being the oldest one
+	 */
+	public int getIndex(int i) {
+		return (head + i) % times.length;
+	}
+
+
+	/**
+	 * @return the storage of the variable: the values of the record at position index of the ring
+	 * start at index*getLength(slot)
+	 */
+	public double[] getValues(int slot) {
+		return values[slot];
+	}
+
+}
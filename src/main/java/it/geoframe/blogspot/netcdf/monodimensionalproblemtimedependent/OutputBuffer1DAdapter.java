@@ -0,0 +1,174 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map.Entry;
+
+import it.geoframe.blogspot.netcdf.utilities.TimeCodec;
+
+/**
+ * Adapter from the legacy buffer, a LinkedHashMap whose keys are the dates (yyyy-MM-dd HH:mm)
+ * and whose values are the list of the arrays of the variables, to an OutputBuffer1D.
+ *
+ * The OutputBuffer1D is reused and reallocated only when the map has more records,
+ * more variables or longer arrays than the ones seen so far.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public class OutputBuffer1DAdapter {
+
+	private final TimeCodec timeCodec;
+	private OutputBuffer1D buffer;
+	private double[][] record = new double[0][];
+
+	// entries of the map to copy and their times, reused at each call
+	private final List<ArrayList<double[]>> entries = new ArrayList<ArrayList<double[]>>();
+	private long[] times = new long[0];
+
+	// incremental adapt: number of entries of the map seen so far and key of the last one
+	private int seen = 0;
+	private String lastKey;
+
+
+	/**
+	 * @param timeCodec codec of the keys of the map
+	 */
+	public OutputBuffer1DAdapter(TimeCodec timeCodec) {
+		this.timeCodec = timeCodec;
+	}
+
+
+	/**
+	 * @return a buffer with the records of the map, valid until the next call
+	 * @throws IOException if a key of the map is not a date
+	 */
+	public OutputBuffer1D adapt(LinkedHashMap<String,ArrayList<double[]>> variables) throws IOException {
+		return adapt(variables, Long.MIN_VALUE, false);
+	}
+
+
+	/**
+	 * Only the records after a time are copied, for a map that grows during the simulation.
+	 * The adapter remembers how many entries of the map it has seen and the key of the last one:
+	 * if the map has only grown since the previous call, the entries seen are skipped without parsing
+	 * their dates, so only the new ones are parsed; otherwise the dates of all the entries are parsed
+	 * and compared with the time.
+	 *
+	 * @param after epoch time [ms], the records at or before it are skipped
+	 * @return a buffer with the records of the map after the time, valid until the next call
+	 * @throws IOException if a key of the map is not a date
+	 */
+	public OutputBuffer1D adapt(LinkedHashMap<String,ArrayList<double[]>> variables, long after) throws IOException {
+		return adapt(variables, after, true);
+	}
+
+
+	private OutputBuffer1D adapt(LinkedHashMap<String,ArrayList<double[]>> variables, long after, boolean incremental) throws IOException {
+
+		Iterator<Entry<String, ArrayList<double[]>>> iterator = variables.entrySet().iterator();
+		String key = null;
+		if (incremental && seen > 0 && seen <= variables.size()) {
+			for (int i = 0; i < seen; i++) {
+				key = iterator.next().getKey();
+			}
+			if (!key.equals(lastKey)) {
+				// not the map seen so far
+				iterator = variables.entrySet().iterator();
+				key = null;
+			}
+		}
+
+		int NREC = 0;
+		int[] lengths = new int[0];
+		while (iterator.hasNext()) {
+			Entry<String, ArrayList<double[]>> entry = iterator.next();
+			key = entry.getKey();
+			long time = parse(key);
+			if (time <= after) {
+				continue;
+			}
+			if (NREC == times.length) {
+				times = Arrays.copyOf(times, Math.max(16, 2*NREC));
+			}
+			times[NREC++] = time;
+			ArrayList<double[]> values = entry.getValue();
+			entries.add(values);
+			if (values.size() > lengths.length) {
+				lengths = Arrays.copyOf(lengths, values.size());
+			}
+			for (int slot = 0; slot < values.size(); slot++) {
+				if (values.get(slot) != null) {
+					lengths[slot] = Math.max(lengths[slot], values.get(slot).length);
+				}
+			}
+		}
+		if (incremental) {
+			seen = variables.size();
+			lastKey = key;
+		}
+
+		if (buffer == null || !fits(NREC, lengths)) {
+			buffer = new OutputBuffer1D(Math.max(1, NREC), lengths);
+		}
+		buffer.clear();
+
+		for (int i = 0; i < NREC; i++) {
+			ArrayList<double[]> values = entries.get(i);
+			if (record.length != values.size()) {
+				record = new double[values.size()][];
+			}
+			buffer.append(times[i], values.toArray(record));
+		}
+		entries.clear();
+
+		return buffer;
+	}
+
+
+	private long parse(String date) throws IOException {
+		try {
+			return timeCodec.parse(date);
+		} catch (ParseException e) {
+			throw new IOException("Wrong date in the output buffer: " + date, e);
+		}
+	}
+
+
+	private boolean fits(int NREC, int[] lengths) {
+		if (NREC > buffer.getCapacity() || lengths.length > buffer.getNumberOfVariables()) {
+			return false;
+		}
+		for (int slot = 0; slot < lengths.length; slot++) {
+			if (lengths[slot] > buffer.getLength(slot)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
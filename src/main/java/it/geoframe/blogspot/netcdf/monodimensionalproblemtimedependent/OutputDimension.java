@@ -0,0 +1,35 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent;
+
+/**
+ * Spatial dimension of a variable of a 1D output file.
+ *
+ * DEPTH and DUAL_DEPTH are the grid of the control volumes and the grid of the interfaces,
+ * TIME is used for the variables with one value for each time step.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public enum OutputDimension {
+	DEPTH,
+	DUAL_DEPTH,
+	TIME
+}
@@ -0,0 +1,71 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent;
+
+import java.io.IOException;
+
+/**
+ * An output file of NetCDFWriter1D: a netCDF-3 file (NetCDF3OutputFile1D) or a chunked compressed one (ChunkedOutputFile1D).
+ *
+ * The file is created with the variables of an OutputSchema1D and the static ones are written;
+ * then the records are appended from the staging arrays of the writer.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+interface OutputFile1D {
+
+	String getFileName();
+
+
+	/**
+	 * Append the first count records of the staging arrays.
+	 *
+	 * @param times minutes since 01/01/1970 of the records
+	 * @param data double[], float[], int[] or short[] of each variable of the schema, record after record, null for the non record variables
+	 * @param lastTime epoch time [ms] of the last record, the end of the time coverage of the file
+	 */
+	void write(int[] times, Object[] data, int count, long lastTime) throws IOException;
+
+
+	/**
+	 * @return number of records of the file
+	 */
+	long getRecords();
+
+
+	/**
+	 * @return size of the file [bytes]
+	 */
+	long getSize();
+
+
+	/**
+	 * @return size of each record [bytes]
+	 */
+	long getRecordSize();
+
+
+	/**
+	 * End of a writing step: the file is closed if close is true or if it is not kept open.
+	 */
+	void release(boolean close) throws IOException;
+
+}
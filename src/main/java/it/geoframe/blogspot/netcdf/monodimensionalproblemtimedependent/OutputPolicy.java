@@ -0,0 +1,173 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Output policy of a record variable: the variable is written once per period, as the first record
+ * of the period (point) or as the mean, minimum, maximum or sum of its records.
+ *
+ * A policy is given as name:period[:statistic], for example psi:1h, darcyVelocity:1d:mean, error:1d:max;
+ * the period is a number of minutes (m), hours (h) or days (d), the periods start at midnight of the time zone
+ * of the writer. The variables without a policy are written at every record.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public final class OutputPolicy {
+
+	public enum Statistic {
+
+		POINT("point"), MEAN("mean"), MIN("minimum"), MAX("maximum"), SUM("sum");
+
+		private final String cellMethod;
+
+		Statistic(String cellMethod) {
+			this.cellMethod = cellMethod;
+		}
+
+		/**
+		 * @return the CF cell method of the aggregated variable
+		 */
+		public String getCellMethod() {
+			return "time: " + cellMethod;
+		}
+
+	}
+
+	private final String name;
+	private final long period;
+	private final String periodName;
+	private final Statistic statistic;
+
+
+	public OutputPolicy(String name, long period, String periodName, Statistic statistic) {
+		if (period < 60*1000) {
+			throw new IllegalArgumentException("The output period of " + name + " must be at least one minute");
+		}
+		this.name = name;
+		this.period = period;
+		this.periodName = periodName;
+		this.statistic = statistic;
+	}
+
+
+	/**
+	 * @param policies name:period[:statistic] of each variable, null or blank entries are ignored
+	 * @return the policies by variable name
+	 */
+	public static Map<String,OutputPolicy> parse(String[] policies) {
+		Map<String,OutputPolicy> map = new LinkedHashMap<String,OutputPolicy>();
+		if (policies == null) {
+			return map;
+		}
+		for (String policy : policies) {
+			if (policy == null || policy.trim().isEmpty()) {
+				continue;
+			}
+			OutputPolicy outputPolicy = parse(policy);
+			map.put(outputPolicy.getName(), outputPolicy);
+		}
+		return map;
+	}
+
+
+	/**
+	 * @param policy name:period[:statistic]
+	 */
+	public static OutputPolicy parse(String policy) {
+		String[] fields = policy.trim().split(":");
+		if (fields.length < 2 || fields.length > 3) {
+			throw new IllegalArgumentException("Wrong output policy: " + policy + ". Use name:period[:statistic], for example name:1d:mean");
+		}
+		String periodName = fields[1].trim().toLowerCase();
+		long unit;
+		switch (periodName.isEmpty() ? ' ' : periodName.charAt(periodName.length()-1)) {
+		case 'm':
+			unit = 60*1000L;
+			break;
+		case 'h':
+			unit = 60*60*1000L;
+			break;
+		case 'd':
+			unit = 24*60*60*1000L;
+			break;
+		default:
+			throw new IllegalArgumentException("Wrong output period: " + fields[1] + ". Use minutes (m), hours (h) or days (d), for example 30m, 1h or 1d");
+		}
+		long period;
+		try {
+			period = Long.parseLong(periodName.substring(0, periodName.length()-1))*unit;
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Wrong output period: " + fields[1] + ". Use minutes (m), hours (h) or days (d), for example 30m, 1h or 1d");
+		}
+		Statistic statistic = Statistic.POINT;
+		if (fields.length == 3) {
+			switch (fields[2].trim().toLowerCase()) {
+			case "point":
+				break;
+			case "mean":
+				statistic = Statistic.MEAN;
+				break;
+			case "min":
+				statistic = Statistic.MIN;
+				break;
+			case "max":
+				statistic = Statistic.MAX;
+				break;
+			case "sum":
+				statistic = Statistic.SUM;
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown statistic: " + fields[2] + ". Use point, mean, min, max or sum");
+			}
+		}
+		return new OutputPolicy(fields[0].trim(), period, periodName, statistic);
+	}
+
+
+	public String getName() {
+		return name;
+	}
+
+
+	/**
+	 * @return length of the period [ms]
+	 */
+	public long getPeriod() {
+		return period;
+	}
+
+
+	/**
+	 * @return the period as given, 1h, 1d, ..., used in the name of the output file
+	 */
+	public String getPeriodName() {
+		return periodName;
+	}
+
+
+	public Statistic getStatistic() {
+		return statistic;
+	}
+
+}
@@ -0,0 +1,240 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ucar.ma2.DataType;
+import ucar.nc2.Attribute;
+
+/**
+ * Lossy storage of a record variable, to drop the mantissa bits that are only noise.
+ *
+ *  - name:digits keeps the given number of significant decimal digits: the values are rounded to the nearest
+ *    value with the needed mantissa bits and the other bits are set to zero (bit rounding), so the file
+ *    compresses far better downstream. The number of bits kept is in the attribute _QuantizeBitRoundNumberOfSignificantBits.
+ *  - name:short:min:max packs the values of the range [min, max] in 16 bit integers with the attributes
+ *    scale_factor and add_offset, following the CF packing conventions; values out of the range are clipped
+ *    and NaN is written as _FillValue.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public final class OutputQuantization {
+
+	public static final short FILL_VALUE = Short.MIN_VALUE;
+
+	private final String name;
+	private final int significantDigits;
+	private final int significantBits;
+	private final double scaleFactor;
+	private final double addOffset;
+
+
+	private OutputQuantization(String name, int significantDigits, double scaleFactor, double addOffset) {
+		this.name = name;
+		this.significantDigits = significantDigits;
+		// bits of the mantissa needed for the digits, plus one to round to the nearest value
+		this.significantBits = significantDigits > 0 ? (int) Math.ceil(significantDigits*Math.log(10)/Math.log(2)) + 1 : 0;
+		this.scaleFactor = scaleFactor;
+		this.addOffset = addOffset;
+	}
+
+
+	/**
+	 * @param significantDigits number of significant decimal digits to keep
+	 */
+	public static OutputQuantization bySignificantDigits(String name, int significantDigits) {
+		if (significantDigits < 1 || significantDigits > 15) {
+			throw new IllegalArgumentException("The significant digits of " + name + " must be between 1 and 15: " + significantDigits);
+		}
+		return new OutputQuantization(name, significantDigits, 1.0, 0.0);
+	}
+
+
+	/**
+	 * @param min minimum value of the variable
+	 * @param max maximum value of the variable
+	 */
+	public static OutputQuantization byPacking(String name, double min, double max) {
+		if (!(max > min)) {
+			throw new IllegalArgumentException("Wrong range of " + name + ": the maximum " + max + " must be greater than the minimum " + min);
+		}
+		return new OutputQuantization(name, 0, (max - min)/(2.0*Short.MAX_VALUE), (max + min)/2.0);
+	}
+
+
+	/**
+	 * @param quantizations name:digits or name:short:min:max of each variable, null or blank entries are ignored
+	 * @return the quantizations by variable name
+	 */
+	public static Map<String,OutputQuantization> parse(String[] quantizations) {
+		Map<String,OutputQuantization> map = new LinkedHashMap<String,OutputQuantization>();
+		if (quantizations == null) {
+			return map;
+		}
+		for (String quantization : quantizations) {
+			if (quantization == null || quantization.trim().isEmpty()) {
+				continue;
+			}
+			OutputQuantization outputQuantization = parse(quantization);
+			map.put(outputQuantization.getName(), outputQuantization);
+		}
+		return map;
+	}
+
+
+	/**
+	 * @param quantization name:digits or name:short:min:max
+	 */
+	public static OutputQuantization parse(String quantization) {
+		String[] fields = quantization.trim().split(":");
+		try {
+			if (fields.length == 2) {
+				return bySignificantDigits(fields[0].trim(), Integer.parseInt(fields[1].trim()));
+			}
+			if (fields.length == 4 && fields[1].trim().equalsIgnoreCase("short")) {
+				return byPacking(fields[0].trim(), Double.parseDouble(fields[2].trim()), Double.parseDouble(fields[3].trim()));
+			}
+		} catch (NumberFormatException e) {
+			// reported below
+		}
+		throw new IllegalArgumentException("Wrong output quantization: " + quantization + ". Use name:digits or name:short:min:max");
+	}
+
+
+	public String getName() {
+		return name;
+	}
+
+
+	/**
+	 * @return true if the values are packed in 16 bit integers
+	 */
+	public boolean isPacked() {
+		return significantDigits == 0;
+	}
+
+
+	/**
+	 * @return type of the quantized variable
+	 */
+	DataType getDataType(DataType dataType) {
+		return isPacked() ? DataType.SHORT : dataType;
+	}
+
+
+	/**
+	 * @param dataType type of the variable before the quantization
+	 * @return the attributes describing the quantization
+	 */
+	List<Attribute> getAttributes(DataType dataType) {
+		List<Attribute> attributes = new ArrayList<Attribute>();
+		if (isPacked()) {
+			// CF: the attributes have the type of the unpacked data
+			if (dataType == DataType.FLOAT) {
+				attributes.add(new Attribute("scale_factor", (float) scaleFactor));
+				attributes.add(new Attribute("add_offset", (float) addOffset));
+			} else {
+				attributes.add(new Attribute("scale_factor", scaleFactor));
+				attributes.add(new Attribute("add_offset", addOffset));
+			}
+			attributes.add(new Attribute("_FillValue", FILL_VALUE));
+		} else {
+			attributes.add(new Attribute("_QuantizeBitRoundNumberOfSignificantBits", significantBits));
+		}
+		return attributes;
+	}
+
+
+	/**
+	 * Quantize the values of a record in the backing array of a variable,
+	 * as NetCDFWriter1D.copy does without quantization.
+	 *
+	 * @param storage short[] backing array of a packed variable, double[] or float[] otherwise
+	 */
+	void copy(double[] source, int sourceOffset, Object storage, int offset, int length, int recordLength) {
+
+		if (storage instanceof short[]) {
+			short[] target = (short[]) storage;
+			for (int k = 0; k < length; k++) {
+				target[offset+k] = pack(source[sourceOffset+k]);
+			}
+			for (int k = length; k < recordLength; k++) {
+				target[offset+k] = pack(0.0);
+			}
+			return;
+		}
+
+		NetCDFWriter1D.copy(source, sourceOffset, storage, offset, length, recordLength);
+		if (storage instanceof double[]) {
+			double[] target = (double[]) storage;
+			for (int k = 0; k < length; k++) {
+				target[offset+k] = round(target[offset+k], significantBits);
+			}
+		} else if (storage instanceof float[]) {
+			float[] target = (float[]) storage;
+			for (int k = 0; k < length; k++) {
+				target[offset+k] = round(target[offset+k], significantBits);
+			}
+		}
+	}
+
+
+	private short pack(double value) {
+		if (Double.isNaN(value)) {
+			return FILL_VALUE;
+		}
+		double packed = Math.rint((value - addOffset)/scaleFactor);
+		return (short) Math.max(-Short.MAX_VALUE, Math.min(Short.MAX_VALUE, packed));
+	}
+
+
+	/**
+	 * @return the value rounded to the nearest one with the given bits of mantissa, the others are zero
+	 */
+	static double round(double value, int bits) {
+		int drop = 52 - bits;
+		if (drop <= 0 || Double.isNaN(value) || Double.isInfinite(value)) {
+			return value;
+		}
+		long raw = Double.doubleToRawLongBits(value);
+		raw = (raw + (1L << (drop - 1))) & (-1L << drop);
+		return Double.longBitsToDouble(raw);
+	}
+
+
+	/**
+	 * @return the value rounded to the nearest one with the given bits of mantissa, the others are zero
+	 */
+	static float round(float value, int bits) {
+		int drop = 23 - bits;
+		if (drop <= 0 || Float.isNaN(value) || Float.isInfinite(value)) {
+			return value;
+		}
+		int raw = Float.floatToRawIntBits(value);
+		raw = (raw + (1 << (drop - 1))) & (-1 << drop);
+		return Float.intBitsToFloat(raw);
+	}
+
+}
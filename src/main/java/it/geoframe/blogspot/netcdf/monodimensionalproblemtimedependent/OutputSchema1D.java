@@ -0,0 +1,259 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import ucar.ma2.DataType;
+import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.Variable;
+
+/**
+ * Declarative description of a 1D output file: global attributes, dimensions and variables.
+ *
+ * Each writer component builds its schema once and gives it to a NetCDFWriter1D,
+ * which defines the file and maps the slots of the buffer entries to the NetCDF variables.
+ * Variables are defined in the file in the order they are added.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public class OutputSchema1D {
+
+	private final List<String> outVariablesList;
+	private final Map<String,String> globalAttributes = new LinkedHashMap<String,String>();
+	private final List<OutputVariable> variables = new ArrayList<OutputVariable>();
+	// variable name by outVariables key, for the variables saved under another name
+	private final Map<String,String> variableNames = new LinkedHashMap<String,String>();
+	private String depthName;
+	private int depthLength;
+	private String dualDepthName;
+	private int dualDepthLength;
+
+
+	/**
+	 * @param outVariables name of the optional variables to save, "all" to save all of them
+	 */
+	public OutputSchema1D(String[] outVariables) {
+		outVariablesList = outVariables == null ? Collections.<String>emptyList() : Arrays.asList(outVariables);
+	}
+
+
+	/**
+	 * @return true if the optional variable has to be saved
+	 */
+	public boolean isRequested(String outVariable) {
+		return outVariablesList.contains(outVariable) || outVariablesList.contains("all");
+	}
+
+
+	public void addGlobalAttribute(String name, String value) {
+		globalAttributes.put(name, value);
+	}
+
+
+	public void setDepthDimension(String name, int length) {
+		depthName = name;
+		depthLength = length;
+	}
+
+
+	public void setDualDepthDimension(String name, int length) {
+		dualDepthName = name;
+		dualDepthLength = length;
+	}
+
+
+	/**
+	 * Add the time coordinate, whose values are the dates of the buffer entries.
+	 */
+	public void addTime(String units, String longName) {
+		variables.add(new OutputVariable("time", OutputVariable.TIME, OutputDimension.TIME, DataType.INT, units, longName, null));
+	}
+
+
+	/**
+	 * Add a variable that does not depend on time, written when the file is created.
+	 */
+	public void addStatic(String name, OutputDimension dimension, DataType dataType, String units, String longName, double[] values) {
+		variables.add(new OutputVariable(name, OutputVariable.STATIC, dimension, dataType, units, longName, values));
+	}
+
+
+	/**
+	 * Add a variable whose values are the slot-th array of each buffer entry.
+	 */
+	public void add(String name, int slot, OutputDimension dimension, DataType dataType, String units, String longName) {
+		variables.add(new OutputVariable(name, slot, dimension, dataType, units, longName, null));
+	}
+
+
+	/**
+	 * Add a variable requested in outVariables with a key other than its name in the file,
+	 * for example celerity for celerities: the output policies and quantizations can refer to it by either one.
+	 */
+	public void add(String name, String outVariable, int slot, OutputDimension dimension, DataType dataType, String units, String longName) {
+		add(name, slot, dimension, dataType, units, longName);
+		variableNames.put(outVariable, name);
+	}
+
+
+	/**
+	 * @param mapping gives the variable of the new schema, null to leave the variable out
+	 * @return a schema with the same attributes and dimensions and the mapped variables
+	 */
+	OutputSchema1D map(Function<OutputVariable,OutputVariable> mapping) {
+		OutputSchema1D schema = new OutputSchema1D(null);
+		schema.globalAttributes.putAll(globalAttributes);
+		schema.setDepthDimension(depthName, depthLength);
+		schema.setDualDepthDimension(dualDepthName, dualDepthLength);
+		schema.variableNames.putAll(variableNames);
+		for (OutputVariable variable : variables) {
+			OutputVariable mapped = mapping.apply(variable);
+			if (mapped != null) {
+				schema.variables.add(mapped);
+			}
+		}
+		return schema;
+	}
+
+
+	public Map<String,String> getGlobalAttributes() {
+		return globalAttributes;
+	}
+
+
+	/**
+	 * @param name name of a variable in the file or its outVariables key
+	 * @return name of the variable in the file
+	 */
+	public String getVariableName(String name) {
+		return variableNames.getOrDefault(name, name);
+	}
+
+
+	public List<OutputVariable> getVariables() {
+		return variables;
+	}
+
+
+	public String getDepthName() {
+		return depthName;
+	}
+
+
+	public String getDualDepthName() {
+		return dualDepthName;
+	}
+
+
+	public String getDimensionName(OutputDimension dimension) {
+		switch (dimension) {
+		case DEPTH:
+			return depthName;
+		case DUAL_DEPTH:
+			return dualDepthName;
+		default:
+			return "time";
+		}
+	}
+
+
+	/**
+	 * @return number of values of each record of a variable defined on the given dimension
+	 */
+	public int getLength(OutputDimension dimension) {
+		switch (dimension) {
+		case DEPTH:
+			return depthLength;
+		case DUAL_DEPTH:
+			return dualDepthLength;
+		default:
+			return 1;
+		}
+	}
+
+
+	/**
+	 * Resolve the variables of the schema in an open file, so the writers do not look them up by name
+	 * at each writing step. The table is valid as long as the file is open.
+	 *
+	 * @param columns number of columns of the records of an ensemble, 0 for a single column
+	 * @return the Variable of each variable of the schema, in the order of getVariables()
+	 * @throws IOException if a variable is missing, or its type or its shape differ from the schema
+	 */
+	Variable[] resolve(NetcdfFileWriter dataFile, String fileName, int columns) throws IOException {
+		Variable[] resolved = new Variable[variables.size()];
+		for (int n = 0; n < resolved.length; n++) {
+			OutputVariable variable = variables.get(n);
+			Variable var = dataFile.findVariable(variable.getName());
+			if (var == null) {
+				throw new IOException("Variable " + variable.getName() + " not found in " + fileName);
+			}
+			if (var.getDataType() != variable.getDataType()) {
+				throw new IOException("Variable " + variable.getName() + " of " + fileName + " is " + var.getDataType() + ", not " + variable.getDataType());
+			}
+			// the shape after the time dimension
+			int[] shape;
+			if (variable.isStatic()) {
+				shape = new int[] {getLength(variable.getDimension())};
+			} else if (variable.isTime()) {
+				shape = new int[0];
+			} else if (variable.getDimension() == OutputDimension.TIME) {
+				shape = columns > 0 ? new int[] {columns} : new int[0];
+			} else {
+				shape = columns > 0 ? new int[] {columns, getLength(variable.getDimension())} : new int[] {getLength(variable.getDimension())};
+			}
+			boolean record = !variable.isStatic();
+			int[] fileShape = var.getShape();
+			if (record && (var.getRank() == 0 || !var.getDimension(0).isUnlimited())) {
+				throw new IOException("Variable " + variable.getName() + " of " + fileName + " is not a record variable");
+			}
+			if (!Arrays.equals(shape, record ? Arrays.copyOfRange(fileShape, 1, fileShape.length) : fileShape)) {
+				throw new IOException("Variable " + variable.getName() + " of " + fileName + " has shape " + Arrays.toString(fileShape) + ", the schema gives " + Arrays.toString(shape)
+						+ (record ? " after the time dimension" : ""));
+			}
+			resolved[n] = var;
+		}
+		return resolved;
+	}
+
+
+	/**
+	 * @return index in getVariables() of the time coordinate
+	 * @throws IllegalStateException if the schema has no time coordinate
+	 */
+	int getTimeIndex() {
+		for (int n = 0; n < variables.size(); n++) {
+			if (variables.get(n).isTime()) {
+				return n;
+			}
+		}
+		throw new IllegalStateException("The schema has no time coordinate");
+	}
+
+}
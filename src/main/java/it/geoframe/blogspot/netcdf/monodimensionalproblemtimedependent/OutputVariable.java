@@ -0,0 +1,180 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ucar.ma2.DataType;
+import ucar.nc2.Attribute;
+
+/**
+ * A variable of a 1D output file.
+ *
+ * Record variables take their values from the slot-th array of each entry of the buffer,
+ * static variables (coordinates, initial conditions, ...) are written once when the file is created.
+ * A record variable may be aggregated over time (cell methods) and stored with an OutputQuantization.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public class OutputVariable {
+
+	public static final int STATIC = -1;
+	public static final int TIME = -2;
+
+	private final String name;
+	private final int slot;
+	private final OutputDimension dimension;
+	private final DataType dataType;
+	private final String units;
+	private final String longName;
+	private final double[] values;
+	private final String cellMethods;
+	private final OutputQuantization quantization;
+
+
+	OutputVariable(String name, int slot, OutputDimension dimension, DataType dataType, String units, String longName, double[] values) {
+		this(name, slot, dimension, dataType, units, longName, values, null, null);
+	}
+
+
+	private OutputVariable(String name, int slot, OutputDimension dimension, DataType dataType, String units, String longName, double[] values,
+			String cellMethods, OutputQuantization quantization) {
+		this.name = name;
+		this.slot = slot;
+		this.dimension = dimension;
+		this.dataType = dataType;
+		this.units = units;
+		this.longName = longName;
+		this.values = values;
+		this.cellMethods = cellMethods;
+		this.quantization = quantization;
+	}
+
+
+	/**
+	 * @return a copy of the variable with the given CF cell_methods attribute
+	 */
+	OutputVariable withCellMethods(String cellMethods) {
+		return new OutputVariable(name, slot, dimension, dataType, units, longName, values, cellMethods, quantization);
+	}
+
+
+	/**
+	 * @return a copy of the variable stored with the given quantization
+	 */
+	OutputVariable withQuantization(OutputQuantization quantization) {
+		return new OutputVariable(name, slot, dimension, dataType, units, longName, values, cellMethods, quantization);
+	}
+
+
+	public String getName() {
+		return name;
+	}
+
+
+	/**
+	 * @return the position of the variable in the list of arrays of each buffer entry
+	 */
+	public int getSlot() {
+		return slot;
+	}
+
+
+	public OutputDimension getDimension() {
+		return dimension;
+	}
+
+
+	/**
+	 * @return type of the variable in the file, short for packed variables
+	 */
+	public DataType getDataType() {
+		return quantization == null ? dataType : quantization.getDataType(dataType);
+	}
+
+
+	public String getUnits() {
+		return units;
+	}
+
+
+	public String getLongName() {
+		return longName;
+	}
+
+
+	/**
+	 * @return the values of a static variable
+	 */
+	public double[] getValues() {
+		return values;
+	}
+
+
+	/**
+	 * @return the CF cell_methods attribute of an aggregated variable, null if the values are not aggregated
+	 */
+	public String getCellMethods() {
+		return cellMethods;
+	}
+
+
+	/**
+	 * @return the quantization of the values, null if they are stored as they are
+	 */
+	public OutputQuantization getQuantization() {
+		return quantization;
+	}
+
+
+	/**
+	 * @return the attributes of the variable in the file
+	 */
+	List<Attribute> getAttributes() {
+		List<Attribute> attributes = new ArrayList<Attribute>();
+		attributes.add(new Attribute("units", units));
+		attributes.add(new Attribute("long_name", longName));
+		if (cellMethods != null) {
+			attributes.add(new Attribute("cell_methods", cellMethods));
+		}
+		if (quantization != null) {
+			attributes.addAll(quantization.getAttributes(dataType));
+		}
+		return attributes;
+	}
+
+
+	public boolean isStatic() {
+		return slot == STATIC;
+	}
+
+
+	public boolean isTime() {
+		return slot == TIME;
+	}
+
+
+	public boolean isRecord() {
+		return slot >= 0;
+	}
+
+}
@@ -0,0 +1,339 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.IndexIterator;
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.Attribute;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+
+import it.geoframe.blogspot.netcdf.utilities.NetCDFMetrics;
+
+/**
+ * Reads the record variables of a 1D output file in windows of consecutive records,
+ * so long outputs are processed in constant memory.
+ *
+ * Each call of next() reads the following window of the selected time and depth range
+ * into contiguous blocks, one for each variable, which are reused across the windows:
+ * the value of the k-th depth of the i-th record of the window is getValues(name)[i*getLength(name) + k].
+ * Time is saved in minutes since 01/01/1970, as NetCDFWriter1D does; the variables packed in 16 bit integers are unpacked.
+ * The time spent opening and reading the file is added to its NetCDFMetrics.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public class OutputWindowReader1D implements Closeable {
+
+	private final String fileName;
+	private final NetCDFMetrics metrics;
+	private final NetcdfFile dataFile;
+	private final String[] names;
+	private final Variable[] variables;
+	private final double[] scaleFactors;
+	private final double[] addOffsets;
+	private final Variable time;
+	private final int records;
+
+	private int windowSize = 1000;
+	private int firstRecord = 0;
+	private int endRecord;
+	private int depthFirst = 0;
+	private int depthCount = Integer.MAX_VALUE;
+
+	private int position = -1;
+	private int windowRecords = 0;
+	private long[] times;
+	private double[][] blocks;
+
+
+	/**
+	 * @param fileName name of the output file
+	 * @param names name of the variables to read, defined on time or on time and depth
+	 */
+	public OutputWindowReader1D(String fileName, String... names) throws IOException {
+		this.fileName = fileName;
+		this.names = names;
+		metrics = NetCDFMetrics.get(fileName);
+		long start = System.nanoTime();
+		dataFile = NetcdfFile.open(fileName, null);
+		metrics.addOpen(System.nanoTime() - start);
+		try {
+			time = findVariable("time");
+			variables = new Variable[names.length];
+			scaleFactors = new double[names.length];
+			addOffsets = new double[names.length];
+			for (int n = 0; n < names.length; n++) {
+				variables[n] = findVariable(names[n]);
+				if (variables[n].getRank() < 1 || variables[n].getRank() > 2 || !variables[n].getDimension(0).isUnlimited()) {
+					throw new IOException("Variable " + names[n] + " of " + fileName + " is not a record variable");
+				}
+				scaleFactors[n] = getAttribute(variables[n], "scale_factor", 1.0);
+				addOffsets[n] = getAttribute(variables[n], "add_offset", 0.0);
+			}
+			records = time.getShape()[0];
+			endRecord = records;
+		} catch (IOException e) {
+			dataFile.close();
+			throw e;
+		}
+	}
+
+
+	/**
+	 * @param windowSize maximum number of records of each window
+	 */
+	public void setWindowSize(int windowSize) {
+		if (windowSize < 1) {
+			throw new IllegalArgumentException("The window size must be positive: " + windowSize);
+		}
+		this.windowSize = windowSize;
+		blocks = null;
+	}
+
+
+	/**
+	 * Read only the records from first (included) to end (excluded).
+	 */
+	public void setRecordRange(int first, int end) {
+		firstRecord = Math.max(0, first);
+		endRecord = Math.min(records, Math.max(firstRecord, end));
+		position = -1;
+	}
+
+
+	/**
+	 * Read only the records from start to end, both included.
+	 *
+	 * @param start epoch time [ms]
+	 * @param end epoch time [ms]
+	 */
+	public void setTimeRange(long start, long end) throws IOException {
+		setRecordRange(search(start, false), search(end, true));
+	}
+
+
+	/**
+	 * Read only count depths from the first-th one of the variables defined on depth.
+	 */
+	public void setDepthRange(int first, int count) {
+		depthFirst = Math.max(0, first);
+		depthCount = Math.max(0, count);
+		blocks = null;
+	}
+
+
+	/**
+	 * Read the following window.
+	 *
+	 * @return false if there are no more records in the range
+	 */
+	public boolean next() throws IOException {
+
+		position = position < 0 ? firstRecord : position + windowRecords;
+		windowRecords = Math.min(windowSize, endRecord - position);
+		if (windowRecords <= 0) {
+			windowRecords = 0;
+			return false;
+		}
+
+		if (blocks == null) {
+			times = new long[windowSize];
+			blocks = new double[variables.length][];
+			for (int n = 0; n < variables.length; n++) {
+				blocks[n] = new double[windowSize*getLength(n)];
+			}
+		}
+
+		long start = System.nanoTime();
+		long bytes = 0;
+		try {
+			Array timeArray = time.read(new int[] {position}, new int[] {windowRecords});
+			bytes += timeArray.getSizeBytes();
+			IndexIterator timeIterator = timeArray.getIndexIterator();
+			for (int i = 0; i < windowRecords; i++) {
+				times[i] = timeIterator.getLongNext()*60*1000;
+			}
+
+			for (int n = 0; n < variables.length; n++) {
+				Array array;
+				if (variables[n].getRank() == 1) {
+					array = variables[n].read(new int[] {position}, new int[] {windowRecords});
+				} else {
+					array = variables[n].read(new int[] {position, depthFirst}, new int[] {windowRecords, getLength(n)});
+				}
+				bytes += array.getSizeBytes();
+				copy(array, blocks[n]);
+				if (variables[n].getDataType() == DataType.SHORT) {
+					unpack(blocks[n], windowRecords*getLength(n), scaleFactors[n], addOffsets[n]);
+				}
+			}
+		} catch (InvalidRangeException e) {
+			throw new IOException("Cannot read the records " + position + "-" + (position + windowRecords) + " of " + fileName, e);
+		}
+		metrics.addRead(System.nanoTime() - start, bytes);
+
+		return true;
+	}
+
+
+	/**
+	 * @return number of records of the selected range
+	 */
+	public int getNumberOfRecords() {
+		return endRecord - firstRecord;
+	}
+
+
+	/**
+	 * @return index in the file of the first record of the current window
+	 */
+	public int getFirstRecord() {
+		return position;
+	}
+
+
+	/**
+	 * @return number of records of the current window
+	 */
+	public int getRecords() {
+		return windowRecords;
+	}
+
+
+	/**
+	 * @return epoch time [ms] of the i-th record of the current window
+	 */
+	public long getTime(int i) {
+		return times[i];
+	}
+
+
+	/**
+	 * @return number of values of each record of the variable
+	 */
+	public int getLength(String name) {
+		return getLength(indexOf(name));
+	}
+
+
+	/**
+	 * @return values of the current window, record after record: the array is reused by the next window
+	 */
+	public double[] getValues(String name) {
+		return blocks[indexOf(name)];
+	}
+
+
+	@Override
+	public void close() throws IOException {
+		dataFile.close();
+	}
+
+
+	private int getLength(int n) {
+		if (variables[n].getRank() == 1) {
+			return 1;
+		}
+		return Math.max(0, Math.min(depthCount, variables[n].getShape()[1] - depthFirst));
+	}
+
+
+	private int indexOf(String name) {
+		for (int n = 0; n < names.length; n++) {
+			if (names[n].equals(name)) {
+				return n;
+			}
+		}
+		throw new IllegalArgumentException("Variable " + name + " is not read");
+	}
+
+
+	/**
+	 * Binary search on the time variable, reading one value at each step.
+	 *
+	 * @param after false for the index of the first record at or after the time,
+	 *        true for the index after the last record at or before the time
+	 */
+	private int search(long millis, boolean after) throws IOException {
+		int low = 0;
+		int high = records;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			long value;
+			try {
+				value = time.read(new int[] {middle}, new int[] {1}).getLong(0)*60*1000;
+			} catch (InvalidRangeException e) {
+				throw new IOException(e);
+			}
+			if (value < millis || (after && value == millis)) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+
+	private static void copy(Array array, double[] block) {
+		Object storage = array.getStorage();
+		int size = (int) array.getSize();
+		if (storage instanceof double[] && ((double[]) storage).length == size) {
+			System.arraycopy(storage, 0, block, 0, size);
+		} else {
+			IndexIterator iterator = array.getIndexIterator();
+			for (int i = 0; i < size; i++) {
+				block[i] = iterator.getDoubleNext();
+			}
+		}
+	}
+
+
+	/**
+	 * Unpack the values of a variable packed in 16 bit integers, _FillValue is NaN.
+	 */
+	private static void unpack(double[] block, int size, double scaleFactor, double addOffset) {
+		for (int i = 0; i < size; i++) {
+			block[i] = block[i] == OutputQuantization.FILL_VALUE ? Double.NaN : block[i]*scaleFactor + addOffset;
+		}
+	}
+
+
+	private static double getAttribute(Variable variable, String name, double defaultValue) {
+		Attribute attribute = variable.findAttribute(name);
+		return attribute == null || attribute.getNumericValue() == null ? defaultValue : attribute.getNumericValue().doubleValue();
+	}
+
+
+	private Variable findVariable(String name) throws IOException {
+		Variable variable = dataFile.findVariable(name);
+		if (variable == null) {
+			throw new IOException("Variable " + name + " not found in " + fileName);
+		}
+		return variable;
+	}
+
+}
@@ -0,0 +1,87 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+
+import it.geoframe.blogspot.netcdf.utilities.TimeCodec;
+import oms3.annotations.Author;
+import oms3.annotations.Description;
+import oms3.annotations.Documentation;
+import oms3.annotations.Execute;
+import oms3.annotations.In;
+import oms3.annotations.Keywords;
+import oms3.annotations.Label;
+import oms3.annotations.License;
+import oms3.annotations.Out;
+import oms3.annotations.Status;
+import oms3.annotations.Unit;
+
+@Description("This class reads a checkpoint written by a 1D writer, to restart the simulation from its prognostic state."
+		+ " The writer continues the output when the same file is given as its restartFileName.")
+@Documentation("")
+@Author(name = "Niccolo' Tubini", contact = "tubini.niccolo@gmail.com")
+@Keywords("Checkpoint, restart, GEOframe")
+@Label("GEOframe.NETCDF")
+//@Name("")
+@Status(Status.CERTIFIED)
+@License("General Public License Version 3 (GPLv3)")
+
+public class ReadNetCDFCheckpoint1D {
+
+	@Description("File name of the checkpoint")
+	@In
+	public String checkpointFileName;
+
+	@Description("Time zone used to format the date of the checkpoint")
+	@In
+	public String timeZone = "UTC";
+
+	@Description("Prognostic state of the model at the checkpoint, by variable name")
+	@Out
+	public LinkedHashMap<String,double[]> state;
+
+	@Description("Date of the checkpoint, yyyy-MM-dd HH:mm: the simulation restarts from the following time step")
+	@Out
+	@Unit("yyyy-MM-dd HH:mm")
+	public String checkpointDate;
+
+	@Description("Date of the checkpoint in UNIX time")
+	@Out
+	@Unit("ms")
+	public long checkpointTime;
+
+
+	@Execute
+	public void read() throws IOException {
+
+		if (state == null) {
+			Checkpoint1D checkpoint = Checkpoint1D.read(checkpointFileName);
+			state = new LinkedHashMap<String,double[]>(checkpoint.getState());
+			checkpointTime = checkpoint.getTime();
+			checkpointDate = TimeCodec.getInstance(timeZone).format(checkpointTime);
+
+			System.out.println("*** SUCCESS reading checkpoint " + checkpointFileName + " of " + checkpointDate);
+		}
+
+	}
+
+}
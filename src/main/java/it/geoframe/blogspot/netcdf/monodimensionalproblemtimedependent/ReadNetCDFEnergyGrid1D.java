@@ -35,6 +35,8 @@ import ucar.ma2.InvalidRangeException;
 import ucar.nc2.NetcdfFile;
 import ucar.nc2.Variable;
 
+import it.geoframe.blogspot.netcdf.utilities.NetCDFMetrics;
+
 @Description("This class reads a NetCDF containing 1D grid data. "
 		+ "The input file is created with EnergyMeshGen.ipynb (Jupyter Notebook)")
 @Documentation("")
@@ -155,7 +157,7 @@ public class ReadNetCDFEnergyGrid1D {
 			// Open the file.
 			try {
 
-				dataFile = NetcdfFile.open(filename, null);
+				dataFile = NetCDFMetrics.open(filename);
 
 				// Retrieve the variables named "___"
 				Variable dataEta = dataFile.findVariable("eta");
@@ -298,7 +300,7 @@ public class ReadNetCDFEnergyGrid1D {
 			} finally {
 				if (dataFile != null)
 					try {
-						dataFile.close();
+						NetCDFMetrics.close(dataFile);
 					} catch (IOException ioe) {
 						ioe.printStackTrace();
 					}
@@ -20,6 +20,9 @@
 package it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent;
 
 import java.io.IOException;
+
+import it.geoframe.blogspot.netcdf.utilities.NetCDFGridCache;
+import it.geoframe.blogspot.netcdf.utilities.NetCDFGridFile;
 import oms3.annotations.Author;
 import oms3.annotations.Description;
 import oms3.annotations.Documentation;
@@ -30,12 +33,6 @@ import oms3.annotations.Keywords;
 import oms3.annotations.License;
 import oms3.annotations.Out;
 import oms3.annotations.Unit;
-import ucar.ma2.ArrayDouble;
-import ucar.ma2.ArrayDouble.D1;
-import ucar.ma2.ArrayInt;
-import ucar.ma2.InvalidRangeException;
-import ucar.nc2.NetcdfFile;
-import ucar.nc2.Variable;
 
 @Description("This class reads a NetCDF containing 1D grid data.")
 @Documentation("")
@@ -52,6 +49,15 @@ public class ReadNetCDFExcessIce1D {
 	@In
 	public String gridFilename;
 
+	@Description("Name of the variables to read, all to read all of them: the others are left null")
+	@In
+	public String[] outVariables = new String[] {"all"};
+
+	@Description("Maximum size of the cache of the grid files shared by all the readers of the process, 0 to read the file at each run")
+	@In
+	@Unit("MB")
+	public double gridCacheSizeMax = 256;
+
 	@Description("Number of control volume")
 	@Out
 	@Unit("-")
@@ -183,10 +189,6 @@ public class ReadNetCDFExcessIce1D {
 	public double[] par4;
 
 	
-	int[] size;
-	int[] size1;
-	int[] sizeParameter;
-	int[] sizeCellSize;
 	int step = 0;
 
 	@Execute
@@ -194,217 +196,93 @@ public class ReadNetCDFExcessIce1D {
 
 		if (step == 0) {
 
-			// Open the file. The ReadOnly parameter tells netCDF we want
-			// read-only access to the file.
-			NetcdfFile dataFile = null;
-			String filename = gridFilename;
-			// Open the file.
+			// the file is opened at the first read and only the requested variables not in the cache are read
+			NetCDFGridFile grid = new NetCDFGridFile(gridFilename, outVariables, NetCDFGridCache.getInstance(gridCacheSizeMax));
 			try {
 
-				dataFile = NetcdfFile.open(filename, null);
-
-				// Retrieve the variables named "___"
-				Variable dataKMAX = dataFile.findVariable("KMAX");
-				Variable dataVECTOR_LENGTH = dataFile.findVariable("VECTOR_LENGTH");
-				Variable dataSurfaceElevation = dataFile.findVariable("surfaceElevation");
-				Variable dataEta = dataFile.findVariable("eta");
-				Variable dataEtaDual = dataFile.findVariable("etaDual");
-				Variable dataZ = dataFile.findVariable("z");
-				Variable dataZDual = dataFile.findVariable("zDual");
-				Variable dataIC = dataFile.findVariable("ic");
-				Variable dataSpaceDelta = dataFile.findVariable("spaceDelta");
-				Variable dataVolumeSoil = dataFile.findVariable("volumeSoil");
-				Variable dataVolumeExcessIce = dataFile.findVariable("volumeExcessIce");
-				Variable dataRheologyID = dataFile.findVariable("rheologyID");
-				Variable dataParameterID = dataFile.findVariable("parameterID");
-				Variable dataRegridID = dataFile.findVariable("regridID");
-				
-				Variable dataMaxSize = dataFile.findVariable("maxSize");
-				Variable dataMinSize = dataFile.findVariable("minSize");
-
-				Variable dataSoilParticlesDensity = dataFile.findVariable("soilParticlesDensity");
-				Variable dataThermalConductivitySoilParticles = dataFile.findVariable("thermalConductivitySoilParticles");
-				Variable dataSpecificThermalCapacitySoilParticles = dataFile.findVariable("specificThermalCapacitySoilParticles");
-				Variable dataThetaS = dataFile.findVariable("thetaS");
-				Variable dataThetaR = dataFile.findVariable("thetaR");
-				Variable dataMeltingTemperature = dataFile.findVariable("meltingTemperature");
-				Variable dataPar1 = dataFile.findVariable("par1");
-				Variable dataPar2 = dataFile.findVariable("par2");
-				Variable dataPar3 = dataFile.findVariable("par3");
-				Variable dataPar4 = dataFile.findVariable("par4");
-
-
-				// if (dataEta == null) {
-				// System.out.println("Cant find Variable data");
-				// return;
-				// }
-
-				size = dataEta.getShape();
-				size1 = dataEtaDual.getShape();
-				sizeParameter = dataPar1.getShape();
-				sizeCellSize = dataMaxSize.getShape();
-
-				KMAX = 0;
-				VECTOR_LENGTH = 0;
-				surfaceElevation = 0.0;
-				eta = new double[size[0]];
-				z = new double[size[0]];
-				volumeSoil = new double[size[0]];
-				volumeExcessIce = new double[size[0]];
-				temperatureIC = new double[size[0]];
-				rheologyID = new int[size[0]];
-				parameterID = new int[size[0]];
-				regridID = new int[size[0]];
-				
-				etaDual = new double[size1[0]];
-				zDual = new double[size1[0]];
-				spaceDelta = new double[size1[0]];
-				
-				maxSize = new double[sizeCellSize[0]];
-				minSize = new double[sizeCellSize[0]];				
-				
-				soilParticlesDensity = new double[sizeParameter[0]];
-				thermalConductivitySoilParticles = new double[sizeParameter[0]];
-				specificThermalCapacitySoilParticles = new double[sizeParameter[0]];
-				thetaS  = new double[sizeParameter[0]];
-				thetaR = new double[sizeParameter[0]];
-				meltingTemperature = new double[sizeParameter[0]];
-				par1 = new double[sizeParameter[0]];
-				par2 = new double[sizeParameter[0]];
-				par3 = new double[sizeParameter[0]];
-				par4 = new double[sizeParameter[0]];
-				
-				ArrayDouble.D1 dataArrayEta;
-				ArrayDouble.D1 dataArrayEtaDual;
-				ArrayDouble.D1 dataArrayZ;
-				ArrayDouble.D1 dataArrayZDual;
-				ArrayDouble.D1 dataArraySpaceDelta;
-				ArrayDouble.D1 dataArrayVolumeSoil;
-				ArrayDouble.D1 dataArrayVolumeExcessIce;
-				ArrayDouble.D1 dataArrayTemperatureIC;
-				ArrayDouble.D1 dataArrayRheologyID;
-				ArrayDouble.D1 dataArrayParameterID;
-				ArrayDouble.D1 dataArrayRegridID;
-				ArrayDouble.D1 dataArrayMaxSize;
-				ArrayDouble.D1 dataArrayMinSize;
-				ArrayDouble.D1 dataArraySoilParticlesDensity;
-				ArrayDouble.D1 dataArrayThermalConductivitySoilParticles;
-				ArrayDouble.D1 dataArraySpecificThermalCapacitySoilParticles;
-				ArrayDouble.D1 dataArrayThetaS;
-				ArrayDouble.D1 dataArrayThetaR;
-				ArrayDouble.D1 dataArrayMeltingTemperature;
-				ArrayDouble.D1 dataArrayPar1;
-				ArrayDouble.D1 dataArrayPar2;
-				ArrayDouble.D1 dataArrayPar3;
-				ArrayDouble.D1 dataArrayPar4;
-
-				
-				
-				dataArrayEta = (ArrayDouble.D1) dataEta.read(null, size);
-				dataArrayZ = (ArrayDouble.D1) dataZ.read(null, size);
-				dataArrayVolumeSoil = (ArrayDouble.D1) dataVolumeSoil.read(null, size);
-				dataArrayVolumeExcessIce = (ArrayDouble.D1) dataVolumeExcessIce.read(null, size);
-				dataArrayTemperatureIC = (ArrayDouble.D1) dataIC.read(null, size);
-				dataArrayRheologyID = (D1) dataRheologyID.read(null, size);
-				dataArrayParameterID = (D1) dataParameterID.read(null, size);
-				dataArrayRegridID = (D1) dataRegridID.read(null, size);
-
-
-				dataArrayEtaDual = (ArrayDouble.D1) dataEtaDual.read(null, size1);
-				dataArrayZDual = (ArrayDouble.D1) dataZDual.read(null, size1);
-				dataArraySpaceDelta = (ArrayDouble.D1) dataSpaceDelta.read(null, size1);
-				
-				dataArrayMaxSize = (ArrayDouble.D1) dataMaxSize.read(null, sizeCellSize);
-				dataArrayMinSize = (ArrayDouble.D1) dataMinSize.read(null, sizeCellSize);
-				
-				dataArraySoilParticlesDensity = (ArrayDouble.D1) dataSoilParticlesDensity.read(null, sizeParameter);
-				dataArrayThermalConductivitySoilParticles = (ArrayDouble.D1) dataThermalConductivitySoilParticles.read(null, sizeParameter);
-				dataArraySpecificThermalCapacitySoilParticles = (ArrayDouble.D1) dataSpecificThermalCapacitySoilParticles.read(null, sizeParameter);
-				dataArrayThetaS = (ArrayDouble.D1) dataThetaS.read(null, sizeParameter);
-				dataArrayThetaR = (ArrayDouble.D1) dataThetaR.read(null, sizeParameter);
-				dataArrayMeltingTemperature = (ArrayDouble.D1) dataMeltingTemperature.read(null, sizeParameter);	
-				dataArrayPar1 = (ArrayDouble.D1) dataPar1.read(null, sizeParameter);
-				dataArrayPar2 = (ArrayDouble.D1) dataPar2.read(null, sizeParameter);	
-				dataArrayPar3 = (ArrayDouble.D1) dataPar3.read(null, sizeParameter);	
-				dataArrayPar4 = (ArrayDouble.D1) dataPar4.read(null, sizeParameter);				
-
-				KMAX = dataKMAX.readScalarInt();
-				VECTOR_LENGTH = dataVECTOR_LENGTH.readScalarInt();
-				surfaceElevation = dataSurfaceElevation.readScalarDouble();
-				for (int i = 0; i < size[0]; i++) {
-
-					eta[i] = dataArrayEta.get(i);
-					z[i] = dataArrayZ.get(i);
-					temperatureIC[i] = dataArrayTemperatureIC.get(i);
-					volumeSoil[i] = dataArrayVolumeSoil.get(i);
-					volumeExcessIce[i] = dataArrayVolumeExcessIce.get(i);					
-					rheologyID[i] = (int) dataArrayRheologyID.get(i);
-					parameterID[i] = (int) dataArrayParameterID.get(i);
-					regridID[i] = (int) dataArrayRegridID.get(i);
+				KMAX = grid.readScalarInt("KMAX");
+				VECTOR_LENGTH = grid.readScalarInt("VECTOR_LENGTH");
+				surfaceElevation = grid.readScalarDouble("surfaceElevation");
 
+				int length = grid.getLength("eta");
+				if (grid.isRequested("eta")) {
+					eta = grid.readDouble("eta", length);
 				}
-
-			
-				for (int i = 0; i < size1[0]; i++) {
-					
-					etaDual[i] = dataArrayEtaDual.get(i);
-					zDual[i] = dataArrayZDual.get(i);
-					spaceDelta[i] = dataArraySpaceDelta.get(i);
-
+				if (grid.isRequested("z")) {
+					z = grid.readDouble("z", length);
 				}
-
-				for (int i = 0; i < sizeCellSize[0]; i++) {
-					
-					maxSize[i] = dataArrayMaxSize.get(i);
-					minSize[i] = dataArrayMinSize.get(i);
-
+				if (grid.isRequested("volumeSoil")) {
+					volumeSoil = grid.readDouble("volumeSoil", length);
+				}
+				if (grid.isRequested("volumeExcessIce")) {
+					volumeExcessIce = grid.readDouble("volumeExcessIce", length);
+				}
+				if (grid.isRequested("temperatureIC")) {
+					temperatureIC = grid.readDouble("ic", length);
+				}
+				if (grid.isRequested("rheologyID")) {
+					rheologyID = grid.readInt("rheologyID", length);
+				}
+				if (grid.isRequested("parameterID")) {
+					parameterID = grid.readInt("parameterID", length);
+				}
+				if (grid.isRequested("regridID")) {
+					regridID = grid.readInt("regridID", length);
 				}
 
-				for (int i = 0; i < sizeParameter[0]; i++) {
-					
-					soilParticlesDensity[i] = dataArraySoilParticlesDensity.get(i);
-					thermalConductivitySoilParticles[i] = dataArrayThermalConductivitySoilParticles.get(i);
-					specificThermalCapacitySoilParticles[i] = dataArraySpecificThermalCapacitySoilParticles.get(i);
-					thetaS[i] = dataArrayThetaS.get(i);
-					thetaR[i] = dataArrayThetaR.get(i);
-					meltingTemperature[i] = dataArrayMeltingTemperature.get(i);
-					par1[i] = dataArrayPar1.get(i);
-					par2[i] = dataArrayPar2.get(i);
-					par3[i] = dataArrayPar3.get(i);
-					par4[i] = dataArrayPar4.get(i);
-					
+				int dualLength = grid.getLength("etaDual");
+				if (grid.isRequested("etaDual")) {
+					etaDual = grid.readDouble("etaDual", dualLength);
+				}
+				if (grid.isRequested("zDual")) {
+					zDual = grid.readDouble("zDual", dualLength);
+				}
+				if (grid.isRequested("spaceDelta")) {
+					spaceDelta = grid.readDouble("spaceDelta", dualLength);
 				}
-				
-				// Control values
-				/*
-				System.out.println(dataPar1SWRC + "\n" + par1SWRC[0] + "\n\n" + dataPar2SWRC + "\n" + par2SWRC[0]
-						+ "\n\n" + dataPar3SWRC + "\n" + par3SWRC[0] + "\n\n" + dataPar4SWRC + "\n" + par4SWRC[0]
-						+ "\n\n" + dataPar5SWRC + "\n" + par5SWRC[0] + "\n\n" + dataPar6SWRC + "\n" + par6SWRC[0]
-						+ "\n\n" + dataPar7SWRC + "\n" + par7SWRC[0] + "\n\n" + dataPar8SWRC + "\n" + par8SWRC[0]
-						+ "\n\n" + dataThetaS + "\n" + thetaS[0] + "\n\n" + dataThetaR + "\n" + thetaR[0] + "\n\n"
-						+ dataKs + "\n" + Ks[0]
 
-						+ "\n\n" + dataBetaSS + "\n" + betaSS[0] + "\n\n" + dataAlphaSS + "\n" + alphaSS[0]);
-				*/
-				/*
-				 * System.out.println("Check IC values:\n\n"); for (int i = 0; i < size[0]; i++)
-				 * {
-				 * 
-				 * System.out.println("	"+psiIC[i]);
-				 * 
-				 * }
-				 */
+				int cellSizeLength = grid.getLength("maxSize");
+				if (grid.isRequested("maxSize")) {
+					maxSize = grid.readDouble("maxSize", cellSizeLength);
+				}
+				if (grid.isRequested("minSize")) {
+					minSize = grid.readDouble("minSize", cellSizeLength);
+				}
 
-			} catch (InvalidRangeException e) {
-				e.printStackTrace();
+				int parameters = grid.getLength("par1");
+				if (grid.isRequested("soilParticlesDensity")) {
+					soilParticlesDensity = grid.readDouble("soilParticlesDensity", parameters);
+				}
+				if (grid.isRequested("thermalConductivitySoilParticles")) {
+					thermalConductivitySoilParticles = grid.readDouble("thermalConductivitySoilParticles", parameters);
+				}
+				if (grid.isRequested("specificThermalCapacitySoilParticles")) {
+					specificThermalCapacitySoilParticles = grid.readDouble("specificThermalCapacitySoilParticles", parameters);
+				}
+				if (grid.isRequested("thetaS")) {
+					thetaS = grid.readDouble("thetaS", parameters);
+				}
+				if (grid.isRequested("thetaR")) {
+					thetaR = grid.readDouble("thetaR", parameters);
+				}
+				if (grid.isRequested("meltingTemperature")) {
+					meltingTemperature = grid.readDouble("meltingTemperature", parameters);
+				}
+				if (grid.isRequested("par1")) {
+					par1 = grid.readDouble("par1", parameters);
+				}
+				if (grid.isRequested("par2")) {
+					par2 = grid.readDouble("par2", parameters);
+				}
+				if (grid.isRequested("par3")) {
+					par3 = grid.readDouble("par3", parameters);
+				}
+				if (grid.isRequested("par4")) {
+					par4 = grid.readDouble("par4", parameters);
+				}
 
 			} finally {
-				if (dataFile != null)
-					try {
-						dataFile.close();
-					} catch (IOException ioe) {
-						ioe.printStackTrace();
-					}
+				grid.close();
 			}
 
 			System.out.println("*** SUCCESS reading file " + gridFilename);
@@ -413,4 +291,4 @@ public class ReadNetCDFExcessIce1D {
 		step++;
 
 	}
-}
\ No newline at end of file
+}
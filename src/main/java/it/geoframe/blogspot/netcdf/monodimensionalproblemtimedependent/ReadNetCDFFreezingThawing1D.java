@@ -39,6 +39,8 @@ import ucar.ma2.InvalidRangeException;
 import ucar.nc2.NetcdfFile;
 import ucar.nc2.Variable;
 
+import it.geoframe.blogspot.netcdf.utilities.NetCDFMetrics;
+
 @Description("This class reads a NetCDF containing 1D grid data.")
 @Documentation("")
 @Author(name = "Niccolo' Tubini", contact = "tubini.niccolo@gmail.com")
@@ -176,7 +178,7 @@ public class ReadNetCDFFreezingThawing1D {
 			// Open the file.
 			try {
 
-				dataFile = NetcdfFile.open(filename, null);
+				dataFile = NetCDFMetrics.open(filename);
 
 				// Retrieve the variables named "___"
 				Variable dataKMAX = dataFile.findVariable("KMAX");
@@ -317,7 +319,7 @@ public class ReadNetCDFFreezingThawing1D {
 			} finally {
 				if (dataFile != null)
 					try {
-						dataFile.close();
+						NetCDFMetrics.close(dataFile);
 					} catch (IOException ioe) {
 						ioe.printStackTrace();
 					}
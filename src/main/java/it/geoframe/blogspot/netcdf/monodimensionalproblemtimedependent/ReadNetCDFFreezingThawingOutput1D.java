@@ -35,6 +35,8 @@ import ucar.ma2.InvalidRangeException;
 import ucar.nc2.NetcdfFile;
 import ucar.nc2.Variable;
 
+import it.geoframe.blogspot.netcdf.utilities.NetCDFMetrics;
+
 @Description("This class reads a NetCDF containing FrozenSoil 1D output.")
 @Documentation("")
 @Author(name = "Niccolo' Tubini", contact = "tubini.niccolo@gmail.com")
@@ -78,7 +80,7 @@ public class ReadNetCDFFreezingThawingOutput1D {
 			// Open the file.
 			try {
 
-				dataFile = NetcdfFile.open(filename, null);
+				dataFile = NetCDFMetrics.open(filename);
 
 				// Retrieve the variables named "___"
 				Variable dataTemperature = dataFile.findVariable("T");
@@ -112,7 +114,7 @@ public class ReadNetCDFFreezingThawingOutput1D {
 			} finally {
 				if (dataFile != null)
 					try {
-						dataFile.close();
+						NetCDFMetrics.close(dataFile);
 					} catch (IOException ioe) {
 						ioe.printStackTrace();
 					}
@@ -20,6 +20,9 @@
 package it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent;
 
 import java.io.IOException;
+
+import it.geoframe.blogspot.netcdf.utilities.NetCDFGridCache;
+import it.geoframe.blogspot.netcdf.utilities.NetCDFGridFile;
 import oms3.annotations.Author;
 import oms3.annotations.Description;
 import oms3.annotations.Documentation;
@@ -29,11 +32,6 @@ import oms3.annotations.Keywords;
 import oms3.annotations.License;
 import oms3.annotations.Out;
 import oms3.annotations.Unit;
-import ucar.ma2.ArrayDouble;
-import ucar.ma2.ArrayInt;
-import ucar.ma2.InvalidRangeException;
-import ucar.nc2.NetcdfFile;
-import ucar.nc2.Variable;
 
 @Description("This class reads a NetCDF containing 1D grid data. The input file is created with WHETGEO1D.ipynb (Jupyter Notebook)")
 @Documentation("")
@@ -50,6 +48,15 @@ public class ReadNetCDFGEOSPACEGrid1D {
 	@In
 	public String richardsGridFilename;
 
+	@Description("Name of the variables to read, all to read all of them: the others are left null")
+	@In
+	public String[] outVariables = new String[] {"all"};
+
+	@Description("Maximum size of the cache of the grid files shared by all the readers of the process, 0 to read the file at each run")
+	@In
+	@Unit("MB")
+	public double gridCacheSizeMax = 256;
+
 	@Description("Number of control volume")
 	@Out
 	@Unit("-")
@@ -176,8 +183,6 @@ public class ReadNetCDFGEOSPACEGrid1D {
 	public int[] controlVolumeIndex;
 
 
-	int[] size;
-
 	int step = 0;
 
 	@Execute
@@ -185,173 +190,92 @@ public class ReadNetCDFGEOSPACEGrid1D {
 
 		if (step == 0) {
 
-			// Open the file. The ReadOnly parameter tells netCDF we want
-			// read-only access to the file.
-			NetcdfFile dataFile = null;
-			String filename = richardsGridFilename;
-			// Open the file.
+			// the file is opened at the first read and only the requested variables not in the cache are read
+			NetCDFGridFile grid = new NetCDFGridFile(richardsGridFilename, outVariables, NetCDFGridCache.getInstance(gridCacheSizeMax));
 			try {
 
-				dataFile = NetcdfFile.open(filename, null);
-
-				// Retrieve the variables named "___"
-				Variable dataKMAX = dataFile.findVariable("KMAX");
-				Variable dataEta = dataFile.findVariable("eta");
-				Variable dataEtaDual = dataFile.findVariable("etaDual");
-				Variable dataZ = dataFile.findVariable("z");
-				Variable dataZDual = dataFile.findVariable("zDual");
-				Variable dataPsiIC = dataFile.findVariable("psi0");
-				Variable dataTemperatureIC = dataFile.findVariable("T0");
-				Variable dataSpaceDelta = dataFile.findVariable("spaceDelta");
-				Variable dataControlVolume = dataFile.findVariable("controlVolume");
-				Variable dataEquationStateID = dataFile.findVariable("equationStateID");
-				Variable dataParameterID = dataFile.findVariable("parameterID");
-				Variable dataThetaS = dataFile.findVariable("thetaS");
-				Variable dataThetaR = dataFile.findVariable("thetaR");
-				Variable dataThetaWP = dataFile.findVariable("thetaWP");
-				Variable dataThetaFC = dataFile.findVariable("thetaFC");
-				Variable dataRootIC = dataFile.findVariable("root0");
-				Variable dataKs = dataFile.findVariable("ks");
-				Variable dataAlphaSS = dataFile.findVariable("alphaSpecificStorage");
-				Variable dataBetaSS = dataFile.findVariable("betaSpecificStorage");
-				Variable dataPar1SWRC = dataFile.findVariable("par1SWRC");
-				Variable dataPar2SWRC = dataFile.findVariable("par2SWRC");
-				Variable dataPar3SWRC = dataFile.findVariable("par3SWRC");
-				Variable dataPar4SWRC = dataFile.findVariable("par4SWRC");
-				Variable dataPar5SWRC = dataFile.findVariable("par5SWRC");
-				Variable dataControlVolumeIndex = dataFile.findVariable("controlVolumeIndex");
-
-				KMAX = dataKMAX.readScalarInt();
-
-				size = dataEta.getShape();
-
-				eta = new double[size[0]];
-				etaDual = new double[size[0]];
-				z = new double[size[0]];
-				zDual = new double[size[0]];
-				psiIC = new double[size[0]];
-				rootIC = new double[size[0]];
-				temperature = new double[size[0]];
-				controlVolume = new double[size[0]];
-				equationStateID = new int[size[0]];
-				parameterID = new int[size[0]];
-				
-				ArrayDouble.D1 dataArrayEta = (ArrayDouble.D1) dataEta.read(null, size);
-				ArrayDouble.D1 dataArrayEtaDual = (ArrayDouble.D1) dataEtaDual.read(null, size);
-				ArrayDouble.D1 dataArrayZ = (ArrayDouble.D1) dataZ.read(null, size);
-				ArrayDouble.D1 dataArrayZDual = (ArrayDouble.D1) dataZDual.read(null, size);
-				ArrayDouble.D1 dataArrayPsiIC = (ArrayDouble.D1) dataPsiIC.read(null, size);
-				ArrayDouble.D1 dataArrayTemperatureIC = (ArrayDouble.D1) dataTemperatureIC.read(null, size);				
-				ArrayDouble.D1 dataArrayRootIC = (ArrayDouble.D1) dataRootIC.read(null, size);
-				ArrayDouble.D1 dataArrayControlVolume = (ArrayDouble.D1) dataControlVolume.read(null, size);
-				ArrayInt.D1 dataArrayEquationStateID = (ArrayInt.D1) dataEquationStateID.read(null, size);
-				ArrayInt.D1 dataArrayParameterID = (ArrayInt.D1) dataParameterID.read(null, size);
-
-
-				for (int i = 0; i < size[0]; i++) {
-
-					eta[i] = dataArrayEta.get(i);
-					etaDual[i] = dataArrayEtaDual.get(i);
-					z[i] = dataArrayZ.get(i);
-					zDual[i] = dataArrayZDual.get(i);
-					psiIC[i] = dataArrayPsiIC.get(i);
-					temperature[i] = dataArrayTemperatureIC.get(i);
-					rootIC[i] = dataArrayRootIC.get(i);
-					controlVolume[i] = dataArrayControlVolume.get(i);
-					equationStateID[i] = dataArrayEquationStateID.get(i);
-					parameterID[i] = dataArrayParameterID.get(i);
-					
-				}
-				
-				size = dataSpaceDelta.getShape();
-				
-				
-				spaceDelta = new double[size[0]];
-				
-				
-				ArrayDouble.D1 dataArraySpaceDelta = (ArrayDouble.D1) dataSpaceDelta.read(null, size);
-
-				
-				for (int i = 0; i < size[0]; i++) {
-					
-					spaceDelta[i] = dataArraySpaceDelta.get(i);
+				KMAX = grid.readScalarInt("KMAX");
 
+				int length = grid.getLength("eta");
+				if (grid.isRequested("eta")) {
+					eta = grid.readDouble("eta", length);
 				}
-				//////////////////////////
-				//////////////////////////
-				//////////////////////////
-
-				size = dataThetaS.getShape();
-
-				thetaS = new double[size[0]];
-				thetaR = new double[size[0]];
-				thetaWP = new double[size[0]];
-				thetaFC = new double[size[0]];
-				Ks = new double[size[0]];
-				alphaSS = new double[size[0]];
-				betaSS = new double[size[0]];
-				par1SWRC = new double[size[0]];
-				par2SWRC = new double[size[0]];
-				par3SWRC = new double[size[0]];
-				par4SWRC = new double[size[0]];
-				par5SWRC = new double[size[0]];
-
-
-				ArrayDouble.D1 dataArrayThetaS = (ArrayDouble.D1) dataThetaS.read(null, size);
-				ArrayDouble.D1 dataArrayThetaR = (ArrayDouble.D1) dataThetaR.read(null, size);
-				ArrayDouble.D1 dataArrayThetaWp = (ArrayDouble.D1) dataThetaWP.read(null, size);
-				ArrayDouble.D1 dataArrayThetaFc = (ArrayDouble.D1) dataThetaFC.read(null, size);
-				ArrayDouble.D1 dataArrayKs= (ArrayDouble.D1) dataKs.read(null, size);
-				ArrayDouble.D1 dataArrayAlphaSS = (ArrayDouble.D1) dataAlphaSS.read(null, size);
-				ArrayDouble.D1 dataArrayBetaSS = (ArrayDouble.D1) dataBetaSS.read(null, size);
-				ArrayDouble.D1 dataArrayPar1SWRC = (ArrayDouble.D1) dataPar1SWRC.read(null, size);
-				ArrayDouble.D1 dataArrayPar2SWRC = (ArrayDouble.D1) dataPar2SWRC.read(null, size);
-				ArrayDouble.D1 dataArrayPar3SWRC = (ArrayDouble.D1) dataPar3SWRC.read(null, size);
-				ArrayDouble.D1 dataArrayPar4SWRC = (ArrayDouble.D1) dataPar4SWRC.read(null, size);
-				ArrayDouble.D1 dataArrayPar5SWRC = (ArrayDouble.D1) dataPar5SWRC.read(null, size);
-				
-				
-				for (int i = 0; i < size[0]; i++) {
-
-					thetaS[i] = dataArrayThetaS.get(i);
-					thetaR[i] = dataArrayThetaR.get(i);
-					thetaWP[i] = dataArrayThetaWp.get(i);
-					thetaFC[i] = dataArrayThetaFc.get(i);
-					Ks[i] = dataArrayKs.get(i);
-					alphaSS[i] = dataArrayAlphaSS.get(i);
-					betaSS[i] = dataArrayBetaSS.get(i);
-					par1SWRC[i] = dataArrayPar1SWRC.get(i);
-					par2SWRC[i] = dataArrayPar2SWRC.get(i);
-					par3SWRC[i] = dataArrayPar3SWRC.get(i);
-					par4SWRC[i] = dataArrayPar4SWRC.get(i);
-					par5SWRC[i] = dataArrayPar5SWRC.get(i);
-
-
+				if (grid.isRequested("etaDual")) {
+					etaDual = grid.readDouble("etaDual", length);
+				}
+				if (grid.isRequested("z")) {
+					z = grid.readDouble("z", length);
+				}
+				if (grid.isRequested("zDual")) {
+					zDual = grid.readDouble("zDual", length);
+				}
+				if (grid.isRequested("psiIC")) {
+					psiIC = grid.readDouble("psi0", length);
+				}
+				if (grid.isRequested("temperature")) {
+					temperature = grid.readDouble("T0", length);
+				}
+				if (grid.isRequested("rootIC")) {
+					rootIC = grid.readDouble("root0", length);
+				}
+				if (grid.isRequested("controlVolume")) {
+					controlVolume = grid.readDouble("controlVolume", length);
+				}
+				if (grid.isRequested("equationStateID")) {
+					equationStateID = grid.readInt("equationStateID", length);
+				}
+				if (grid.isRequested("parameterID")) {
+					parameterID = grid.readInt("parameterID", length);
 				}
 
-				size = dataControlVolumeIndex.getShape();
-
-				controlVolumeIndex = new int[size[0]];
-				
-				ArrayInt.D1 dataArrayControlVolumeIndex = (ArrayInt.D1) dataControlVolumeIndex.read(null, size);
+				if (grid.isRequested("spaceDelta")) {
+					spaceDelta = grid.readDouble("spaceDelta");
+				}
 
-				
-				for (int i = 0; i < size[0]; i++) {
+				int parameters = grid.getLength("thetaS");
+				if (grid.isRequested("thetaS")) {
+					thetaS = grid.readDouble("thetaS", parameters);
+				}
+				if (grid.isRequested("thetaR")) {
+					thetaR = grid.readDouble("thetaR", parameters);
+				}
+				if (grid.isRequested("thetaWP")) {
+					thetaWP = grid.readDouble("thetaWP", parameters);
+				}
+				if (grid.isRequested("thetaFC")) {
+					thetaFC = grid.readDouble("thetaFC", parameters);
+				}
+				if (grid.isRequested("Ks")) {
+					Ks = grid.readDouble("ks", parameters);
+				}
+				if (grid.isRequested("alphaSS")) {
+					alphaSS = grid.readDouble("alphaSpecificStorage", parameters);
+				}
+				if (grid.isRequested("betaSS")) {
+					betaSS = grid.readDouble("betaSpecificStorage", parameters);
+				}
+				if (grid.isRequested("par1SWRC")) {
+					par1SWRC = grid.readDouble("par1SWRC", parameters);
+				}
+				if (grid.isRequested("par2SWRC")) {
+					par2SWRC = grid.readDouble("par2SWRC", parameters);
+				}
+				if (grid.isRequested("par3SWRC")) {
+					par3SWRC = grid.readDouble("par3SWRC", parameters);
+				}
+				if (grid.isRequested("par4SWRC")) {
+					par4SWRC = grid.readDouble("par4SWRC", parameters);
+				}
+				if (grid.isRequested("par5SWRC")) {
+					par5SWRC = grid.readDouble("par5SWRC", parameters);
+				}
 
-					controlVolumeIndex[i] = dataArrayControlVolumeIndex.get(i);
+				if (grid.isRequested("controlVolumeIndex")) {
+					controlVolumeIndex = grid.readInt("controlVolumeIndex");
 				}
-				
-				
-			} catch (InvalidRangeException e) {
-				e.printStackTrace();
 
 			} finally {
-				if (dataFile != null)
-					try {
-						dataFile.close();
-					} catch (IOException ioe) {
-						ioe.printStackTrace();
-					}
+				grid.close();
 			}
 
 			System.out.println("\n\n\t*** SUCCESS reading " + richardsGridFilename);
@@ -360,4 +284,4 @@ public class ReadNetCDFGEOSPACEGrid1D {
 		step++;
 
 	}
-}
\ No newline at end of file
+}
@@ -35,6 +35,8 @@ import ucar.ma2.InvalidRangeException;
 import ucar.nc2.NetcdfFile;
 import ucar.nc2.Variable;
 
+import it.geoframe.blogspot.netcdf.utilities.NetCDFMetrics;
+
 @Description("This class reads a NetCDF containing 1D grid data. The input file is created with WHETGEO1D.ipynb (Jupyter Notebook)")
 @Documentation("")
 @Author(name = "Concetta D'Amato, Niccolo' Tubini, Riccardo Rigon", contact = "concetta.damato@unitn.it")
@@ -207,7 +209,7 @@ public class ReadNetCDFGEOSPACESoluteADEGrid1D {
 			// Open the file.
 			try {
 
-				dataFile = NetcdfFile.open(filename, null);
+				dataFile = NetCDFMetrics.open(filename);
 
 				// Retrieve the variables named "___"
 				Variable dataKMAX = dataFile.findVariable("KMAX");
@@ -375,7 +377,7 @@ public class ReadNetCDFGEOSPACESoluteADEGrid1D {
 			} finally {
 				if (dataFile != null)
 					try {
-						dataFile.close();
+						NetCDFMetrics.close(dataFile);
 					} catch (IOException ioe) {
 						ioe.printStackTrace();
 					}
@@ -39,6 +39,8 @@ import ucar.ma2.InvalidRangeException;
 import ucar.nc2.NetcdfFile;
 import ucar.nc2.Variable;
 
+import it.geoframe.blogspot.netcdf.utilities.NetCDFMetrics;
+
 @Description("This class reads a NetCDF containing 1D grid data.")
 @Documentation("")
 @Author(name = "Niccolo' Tubini", contact = "tubini.niccolo@gmail.com")
@@ -200,7 +202,7 @@ public class ReadNetCDFHeatAdvectionDiffusionGrid1D {
 			// Open the file.
 			try {
 
-				dataFile = NetcdfFile.open(filename, null);
+				dataFile = NetCDFMetrics.open(filename);
 
 				// Retrieve the variables named "___"
 				Variable dataKMAX = dataFile.findVariable("KMAX");
@@ -341,7 +343,7 @@ public class ReadNetCDFHeatAdvectionDiffusionGrid1D {
 			} finally {
 				if (dataFile != null)
 					try {
-						dataFile.close();
+						NetCDFMetrics.close(dataFile);
 					} catch (IOException ioe) {
 						ioe.printStackTrace();
 					}
@@ -35,6 +35,8 @@ import ucar.ma2.InvalidRangeException;
 import ucar.nc2.NetcdfFile;
 import ucar.nc2.Variable;
 
+import it.geoframe.blogspot.netcdf.utilities.NetCDFMetrics;
+
 @Description("This class reads a NetCDF containing 1D grid data and Lysimeter data. The input file is created with RichardsMeshGen.ipynb (Jupyter Notebook)")
 @Documentation("")
 @Author(name = "Niccolo' Tubini, Concetta D'Amato, Riccardo Rigon", contact = "tubini.niccolo@gmail.com")
@@ -181,7 +183,7 @@ public class ReadNetCDFLisimetro {
 			// Open the file.
 			try {
 
-				dataFile = NetcdfFile.open(filename, null);
+				dataFile = NetCDFMetrics.open(filename);
 
 				// Retrieve the variables named "___"
 				Variable dataEta = dataFile.findVariable("eta");
@@ -353,7 +355,7 @@ public class ReadNetCDFLisimetro {
 			} finally {
 				if (dataFile != null)
 					try {
-						dataFile.close();
+						NetCDFMetrics.close(dataFile);
 					} catch (IOException ioe) {
 						ioe.printStackTrace();
 					}
@@ -30,10 +30,6 @@ import oms3.annotations.Keywords;
 import oms3.annotations.License;
 import oms3.annotations.Out;
 import oms3.annotations.Unit;
-import ucar.ma2.ArrayDouble;
-import ucar.ma2.InvalidRangeException;
-import ucar.nc2.NetcdfFile;
-import ucar.nc2.Variable;
 
 @Description("This class reads a NetCDF containing Richards 1D output.")
 @Documentation("")
@@ -60,54 +56,28 @@ public class ReadNetCDFRichardsOutput1D {
 	@Unit("m")
 	public double[][] theta;
 
-	private int[] size;
-
 	@Execute
 	public void read() throws IOException {
 
-
-		// Open the file. The ReadOnly parameter tells netCDF we want
-		// read-only access to the file.
-		NetcdfFile dataFile = null;
-		String filename = richardsOutputFilename;
-		// Open the file.
+		// the records are read in windows, straight into the rows of psi and theta
+		OutputWindowReader1D reader = new OutputWindowReader1D(richardsOutputFilename, "psi", "theta");
 		try {
 
-			dataFile = NetcdfFile.open(filename, null);
-
-			// Retrieve the variables named "___"
-			Variable dataPsi = dataFile.findVariable("psi");
-			Variable dataTheta = dataFile.findVariable("theta");
-
-			size = dataPsi.getShape();
-
-			psi = new double[size[0]][size[1]];
-			theta = new double[size[0]][size[1]];
-
-			ArrayDouble.D2 dataArrayPsi = (ArrayDouble.D2) dataPsi.read(null, size);
-			ArrayDouble.D2 dataArrayTheta = (ArrayDouble.D2) dataTheta.read(null, size);
-
-			for (int i = 0; i < size[0]; i++) {
-				
-				for (int j = 0; j < size[1]; j++) {
-					
-					psi[i][j] = dataArrayPsi.get(i,j);
-					theta[i][j] = dataArrayTheta.get(i,j);
+			int KMAX = reader.getLength("psi");
+			psi = new double[reader.getNumberOfRecords()][KMAX];
+			theta = new double[reader.getNumberOfRecords()][KMAX];
 
+			while (reader.next()) {
+				double[] windowPsi = reader.getValues("psi");
+				double[] windowTheta = reader.getValues("theta");
+				for (int i = 0; i < reader.getRecords(); i++) {
+					System.arraycopy(windowPsi, i*KMAX, psi[reader.getFirstRecord() + i], 0, KMAX);
+					System.arraycopy(windowTheta, i*KMAX, theta[reader.getFirstRecord() + i], 0, KMAX);
 				}
-
 			}
 
-		} catch (InvalidRangeException e) {
-			e.printStackTrace();
-
 		} finally {
-			if (dataFile != null)
-				try {
-					dataFile.close();
-				} catch (IOException ioe) {
-					ioe.printStackTrace();
-				}
+			reader.close();
 		}
 
 		System.out.println("*** SUCCESS reading " + richardsOutputFilename);
@@ -0,0 +1,129 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.TimeZone;
+
+/**
+ * The available rollover policies of the output files.
+ *
+ *  - size: a new file when the next record would exceed the maximum size (fileName_0000.nc, fileName_0001.nc, ...)
+ *  - records: a new file every N records (fileName_0000.nc, fileName_0001.nc, ...)
+ *  - month: one file for each calendar month (fileName_2020-01.nc, fileName_2020-02.nc, ...)
+ *  - year: one file for each calendar year (fileName_2020.nc, fileName_2021.nc, ...)
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public final class RolloverPolicies {
+
+	private RolloverPolicies() {
+	}
+
+
+	/**
+	 * @param name size, records, month or year
+	 * @param fileSizeMax maximum size of each file [MB] for the size policy, no limit if not positive
+	 * @param records number of records of each file for the records policy
+	 * @param timeZone time zone of the calendar of the month and year policies
+	 */
+	public static RolloverPolicy create(String name, double fileSizeMax, int records, String timeZone) {
+		switch (name == null ? "size" : name.trim().toLowerCase()) {
+		case "size":
+			return bySize(fileSizeMax);
+		case "records":
+			return byRecords(records);
+		case "month":
+			return byMonth(timeZone);
+		case "year":
+			return byYear(timeZone);
+		default:
+			throw new IllegalArgumentException("Unknown rollover policy: " + name + ". Use size, records, month or year");
+		}
+	}
+
+
+	/**
+	 * @param fileSizeMax maximum size of each file [MB], no limit if not positive
+	 */
+	public static RolloverPolicy bySize(double fileSizeMax) {
+		final double maxBytes = fileSizeMax*1000000;
+		return (firstTime, time, records, size, recordSize) -> fileSizeMax > 0 && records > 0 && size + recordSize > maxBytes;
+	}
+
+
+	/**
+	 * @param maxRecords number of records of each file
+	 */
+	public static RolloverPolicy byRecords(int maxRecords) {
+		if (maxRecords < 1) {
+			throw new IllegalArgumentException("The number of records of each file must be positive: " + maxRecords);
+		}
+		return (firstTime, time, records, size, recordSize) -> records >= maxRecords;
+	}
+
+
+	public static RolloverPolicy byMonth(String timeZone) {
+		return new CalendarRolloverPolicy(TimeZone.getTimeZone(timeZone).toZoneId(), false);
+	}
+
+
+	public static RolloverPolicy byYear(String timeZone) {
+		return new CalendarRolloverPolicy(TimeZone.getTimeZone(timeZone).toZoneId(), true);
+	}
+
+
+	/**
+	 * One file for each calendar month or year, named after it.
+	 */
+	private static final class CalendarRolloverPolicy implements RolloverPolicy {
+
+		private final ZoneId zone;
+		private final boolean yearly;
+		private final DateTimeFormatter formatter;
+
+		CalendarRolloverPolicy(ZoneId zone, boolean yearly) {
+			this.zone = zone;
+			this.yearly = yearly;
+			this.formatter = DateTimeFormatter.ofPattern(yearly ? "uuuu" : "uuuu-MM").withZone(zone);
+		}
+
+		@Override
+		public boolean startNewFile(long firstTime, long time, long records, long size, long recordSize) {
+			if (records == 0) {
+				return false;
+			}
+			ZonedDateTime first = Instant.ofEpochMilli(firstTime).atZone(zone);
+			ZonedDateTime current = Instant.ofEpochMilli(time).atZone(zone);
+			return first.getYear() != current.getYear() || (!yearly && first.getMonthValue() != current.getMonthValue());
+		}
+
+		@Override
+		public String getFileSuffix(long firstTime, int fileNumber) {
+			return formatter.format(Instant.ofEpochMilli(firstTime));
+		}
+
+	}
+
+}
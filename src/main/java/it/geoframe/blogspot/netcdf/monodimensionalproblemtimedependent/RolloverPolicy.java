@@ -0,0 +1,53 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent;
+
+/**
+ * Decides when NetCDFWriter1D closes the output file and starts a new one.
+ *
+ * The policy is asked before each record is written; a file always contains at least one record.
+ * Implementations are in RolloverPolicies.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public interface RolloverPolicy {
+
+	/**
+	 * @param firstTime epoch time [ms] of the first record of the current file
+	 * @param time epoch time [ms] of the record to write
+	 * @param records number of records of the current file
+	 * @param size size of the current file [bytes]
+	 * @param recordSize size of each record [bytes]
+	 * @return true if the record must be written in a new file
+	 */
+	boolean startNewFile(long firstTime, long time, long records, long size, long recordSize);
+
+
+	/**
+	 * @param firstTime epoch time [ms] of the first record of the file
+	 * @param fileNumber number of files created before this one
+	 * @return the suffix of the file name, between the name and the extension
+	 */
+	default String getFileSuffix(long firstTime, int fileNumber) {
+		return String.format("%04d", fileNumber);
+	}
+
+}
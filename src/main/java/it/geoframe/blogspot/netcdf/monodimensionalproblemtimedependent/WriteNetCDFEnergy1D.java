@@ -20,15 +20,14 @@
 package it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent;
 
 import java.io.IOException;
-import java.text.DateFormat;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map.Entry;
 
+import it.geoframe.blogspot.netcdf.utilities.TimeCodec;
+
 import oms3.annotations.Author;
 import oms3.annotations.Description;
 import oms3.annotations.Documentation;
@@ -96,8 +95,8 @@ public class WriteNetCDFEnergy1D {
 	int dualNLVL;
 	int NREC;
 	// human readable date will be converted in unix format, the format will be an input and it has to be consistent with that used in OMS
-	DateFormat dateFormat;
-	Date date = null;
+	TimeCodec timeCodec;
+	long date = 0;
 	long unixTime;
 	double[] myTempVariable; 
 	Iterator it;
@@ -118,8 +117,8 @@ public class WriteNetCDFEnergy1D {
 			final int dualNLVL = myDualSpatialCoordinate.length;
 			final int NREC = myVariables.keySet().size();
 			// human readable date will be converted in unix format, the format will be an input and it has to be consistent with that used in OMS
-			DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
-			Date date = null;
+			TimeCodec timeCodec = TimeCodec.getDefault();
+			long date = 0;
 			long unixTime;
 			double[] myTempVariable; 
 			//Iterator it;
@@ -240,12 +239,12 @@ public class WriteNetCDFEnergy1D {
 					Entry<String, ArrayList<double[]>> entry = (Entry<String, ArrayList<double[]>>) it.next();
 
 					try {
-						date = dateFormat.parse(entry.getKey());
+						date = timeCodec.parse(entry.getKey());
 					} catch (ParseException e) {
 						// TODO Auto-generated catch block
 						e.printStackTrace();
 					}
-					unixTime = (long) date.getTime()/1000;
+					unixTime = date/1000;
 					// think if there is a better way instead of using i
 					times.setLong(i, unixTime);
 
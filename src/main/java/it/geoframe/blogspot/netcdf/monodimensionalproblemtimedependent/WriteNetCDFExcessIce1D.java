@@ -20,15 +20,17 @@
 package it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent;
 
 import java.io.IOException;
-import java.text.DateFormat;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map.Entry;
 
+import it.geoframe.blogspot.netcdf.utilities.AsyncNetCDFWriter;
+import it.geoframe.blogspot.netcdf.utilities.NetCDFMetrics;
+import it.geoframe.blogspot.netcdf.utilities.ProgressReporter;
+import it.geoframe.blogspot.netcdf.utilities.TimeCodec;
+import it.geoframe.blogspot.netcdf.utilities.NetCDFFileHandle;
 import oms3.annotations.Author;
 import oms3.annotations.Description;
 import oms3.annotations.Documentation;
@@ -132,13 +134,39 @@ public class WriteNetCDFExcessIce1D {
 	@Unit ()
 	public boolean doProcess;
 
+	@Description("CSV file, or JSON file if the name ends with .json, where the metrics of the reads and writes of the run are saved")
+	@In
+	@Unit ()
+	public String metricsFileName;
+
+	@Description("Seconds between two lines of progress of the output, if not positive the progress is printed only at the end")
+	@In
+	@Unit ("s")
+	public double progressInterval = 10;
+
+	@Description("Write the output with a background thread, the simulation does not wait for the disk")
+	@In
+	@Unit ()
+	public boolean asyncWrite = false;
+
+	@Description("Maximum number of buffered writing steps waiting for the background thread")
+	@In
+	@Unit ()
+	public int asyncQueueCapacity = 2;
+
+	@Description("Keep the output file open between two writing steps, it is closed at rollover or at the end of the simulation")
+	@In
+	@Unit ()
+	public boolean keepFileOpen = true;
+
 
 	double[] tempVariable;
 	Iterator it;
-	DateFormat dateFormat;
-	Date date = null;
+	TimeCodec timeCodec;
+	long date = 0;
 	String filename;
 	NetcdfFileWriter dataFile;
+	NetCDFFileHandle fileHandle;
 	int KMAX;
 	int NREC;
 	int[] origin;
@@ -191,11 +219,52 @@ public class WriteNetCDFExcessIce1D {
 	ArrayDouble.D1 dataHeatFluxTop;
 	ArrayDouble.D1 dataHeatFluxBottom;
 	
+	AsyncNetCDFWriter asyncWriter;
+	NetCDFMetrics metrics;
+	ProgressReporter progress;
 	int step = 0;
 
 	@Execute
 	public void writeNetCDF() throws IOException {
 
+		if(metrics == null) {
+			metrics = NetCDFMetrics.get(fileName);
+			if (metricsFileName != null && !metricsFileName.trim().isEmpty()) {
+				NetCDFMetrics.setDumpFile(metricsFileName);
+			}
+		}
+
+		if(asyncWrite) {
+			/*
+			 * The buffered data are copied and written by a background thread,
+			 * so the simulation does not wait for the disk
+			 */
+			if( step%writeFrequency==0 || doProcess == false) {
+				if(asyncWriter == null) {
+					asyncWriter = new AsyncNetCDFWriter(fileName, asyncQueueCapacity);
+				}
+				final LinkedHashMap<String,ArrayList<double[]>> myVariablesCopy = AsyncNetCDFWriter.copy(myVariables);
+				final boolean doProcessCopy = doProcess;
+				final int stepCopy = step;
+				asyncWriter.submit(() -> metrics.measure(myVariablesCopy.size(), () -> writeNetCDF(myVariablesCopy, doProcessCopy, stepCopy)));
+				if(doProcess == false) {
+					// wait until all the data are written
+					asyncWriter.close();
+					asyncWriter = null;
+				}
+			}
+		} else if( step%writeFrequency==0 || doProcess == false) {
+			metrics.measure(myVariables.size(), () -> writeNetCDF(myVariables, doProcess, step));
+		} else {
+			writeNetCDF(myVariables, doProcess, step);
+		}
+
+		step++;
+	}
+
+
+	private void writeNetCDF(LinkedHashMap<String,ArrayList<double[]>> myVariables, boolean doProcess, int step) throws IOException {
+
 		/*
 		 * Create a new file
 		 */
@@ -204,8 +273,8 @@ public class WriteNetCDFExcessIce1D {
 			KMAX = mySpatialCoordinate.length;
 			NREC = myVariables.keySet().size();
 
-			dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
-			date = null;
+			timeCodec = TimeCodec.getDefault();
+			date = 0;
 
 			origin = new int[]{0, 0};
 			time_origin = new int[]{0};
@@ -215,7 +284,8 @@ public class WriteNetCDFExcessIce1D {
 
 			try {
 				// Create new netcdf-3 file with the given filename
-				dataFile = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, fileName);
+				fileHandle = new NetCDFFileHandle(fileName, keepFileOpen);
+				dataFile = fileHandle.createNew();
 				// add a general attribute describing the problem and containing other relevant information for the user
 				dataFile.addGroupAttribute(null, new Attribute("Description of the problem",briefDescritpion));
 				dataFile.addGroupAttribute(null, new Attribute("Top boundary condition",topBC));
@@ -329,12 +399,7 @@ public class WriteNetCDFExcessIce1D {
 				// TODO Auto-generated catch block
 				e.printStackTrace();
 			} finally {
-				if (dataFile != null)
-					try {
-						dataFile.close();
-					} catch (IOException ioe) {
-						ioe.printStackTrace();
-					}
+				fileHandle.release();
 			}
 
 		}
@@ -459,7 +524,7 @@ public class WriteNetCDFExcessIce1D {
 			//				}
 
 			try {
-				dataFile = NetcdfFileWriter.openExisting(fileName);
+				dataFile = fileHandle.open();
 				
 				// number of time record that will be saved
 				NREC = myVariables.keySet().size();
@@ -495,13 +560,13 @@ public class WriteNetCDFExcessIce1D {
 					Entry<String, ArrayList<double[]>> entry = (Entry<String, ArrayList<double[]>>) it.next();
 
 					try {
-						date = dateFormat.parse(entry.getKey());
+						date = timeCodec.parse(entry.getKey());
 					} catch (ParseException e) {
 						// TODO Auto-generated catch block
 						e.printStackTrace();
 					}
 					
-					times.setLong(i, (long) date.getTime()/1000);
+					times.setLong(i, date/1000);
 
 
 					tempVariable =  entry.getValue().get(0);
@@ -614,8 +679,10 @@ public class WriteNetCDFExcessIce1D {
 				dataFile.write(dataFile.findVariable("heat_flux_top"), origin, dataHeatFluxTop);
 				dataFile.write(dataFile.findVariable("heat_flux_bottom"), origin, dataHeatFluxBottom);
 
-				
-				System.out.println("\t*** " + myVariables.keySet().toArray()[i-1].toString() +", writing output file \n");
+				if (progress == null) {
+					progress = new ProgressReporter(fileName, timeCodec, progressInterval);
+				}
+				progress.update(fileName, i, date);
 
 			} catch (IOException e) {
 				e.printStackTrace(System.err);
@@ -624,20 +691,30 @@ public class WriteNetCDFExcessIce1D {
 				e.printStackTrace(System.err);
 
 			} finally {
-				if (dataFile != null)
-					try {
-						dataFile.close();
-					} catch (IOException ioe) {
-						ioe.printStackTrace();
-					}
+				// the file is closed at rollover and at the end of the simulation
+				fileHandle.release(doProcess == false);
 			}
 
 
 
 		}
 
-		step++;
 
 	}
 
+
+	@Finalize
+	public void closeNetCDF() throws IOException {
+		if (asyncWriter != null) {
+			asyncWriter.close();
+			asyncWriter = null;
+		}
+		if (fileHandle != null) {
+			fileHandle.close();
+		}
+		if (progress != null) {
+			progress.close();
+		}
+	}
+
 }
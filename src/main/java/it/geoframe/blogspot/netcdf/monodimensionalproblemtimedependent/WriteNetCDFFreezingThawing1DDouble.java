@@ -20,39 +20,21 @@
 package it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent;
 
 import java.io.IOException;
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.TimeZone;
-import java.util.Map.Entry;
+
+import it.geoframe.blogspot.netcdf.utilities.NetCDFMetrics;
 
 import oms3.annotations.Author;
 import oms3.annotations.Description;
 import oms3.annotations.Documentation;
 import oms3.annotations.Execute;
-//import oms3.annotations.Finalize;
+import oms3.annotations.Finalize;
 import oms3.annotations.In;
-//import oms3.annotations.Initialize;
 import oms3.annotations.Keywords;
 import oms3.annotations.License;
-//import oms3.annotations.Out;
 import oms3.annotations.Unit;
-import ucar.ma2.Array;
-import ucar.ma2.ArrayDouble;
-//import ucar.ma2.ArrayFloat;
-//import ucar.ma2.ArrayInt;
-//import ucar.ma2.ArrayInt.D1;
-import ucar.ma2.ArrayDouble.D1;
 import ucar.ma2.DataType;
-import ucar.ma2.InvalidRangeException;
-import ucar.nc2.Attribute;
-import ucar.nc2.Dimension;
-import ucar.nc2.NetcdfFileWriter;
-import ucar.nc2.Variable;
 
 @Description("This class writes a NetCDF with freezing thawing problem outputs. Before writing, outputs are stored in a buffer writer"
 		+ " and as simulation is ended they are written in a NetCDF file.")
@@ -82,6 +64,22 @@ public class WriteNetCDFFreezingThawing1DDouble {
 	@Unit ()
 	public LinkedHashMap<String,ArrayList<double[]>> myVariables;
 
+	@Description("Buffer of the output, alternative to the LinkedHashMap: records are removed once written")
+	@In
+	@Unit ()
+	public OutputBuffer1D outputBuffer;
+
+	@Description("Record of the current time step, one value array for each variable of the buffer, alternative to the buffers:"
+			+ " it is written at once, at each time step")
+	@In
+	@Unit ()
+	public double[][] outputRecord;
+
+	@Description("Epoch time of outputRecord")
+	@In
+	@Unit ("ms")
+	public long outputRecordTime;
+
 	@Description("Spatial cooridinate describing the 1D domain")
 	@In
 	@Unit ()
@@ -132,314 +130,184 @@ public class WriteNetCDFFreezingThawing1DDouble {
 	@Unit ()
 	public boolean doProcess;
 
+	@Description("Write the output with a background thread, the simulation does not wait for the disk")
+	@In
+	@Unit ()
+	public boolean asyncWrite = false;
+
+	@Description("Maximum number of buffered writing steps waiting for the background thread")
+	@In
+	@Unit ()
+	public int asyncQueueCapacity = 2;
+
+	@Description("Keep the output file open between two writing steps, it is closed at rollover or at the end of the simulation")
+	@In
+	@Unit ()
+	public boolean keepFileOpen = true;
+
 	@Description("Maximum allowed file size")
 	@In
 	@Unit ()
 	public double fileSizeMax;
 
-	double[] tempVariable;
-	Iterator it;
-	DateFormat dateFormat;
-	Date date = null;
-	String fileNameToSave;
-	NetcdfFileWriter dataFile;
-	int KMAX;
-	int NREC;
-	int[] origin;
-	int[] time_origin;
-	int origin_counter;
-	int i;
-	int fileNumber = 0;
-	double fileSizeMB;
-	Dimension kDim;
-	Dimension timeDim;
-	D1 z;
-	Array times;
-	String dims;
-	
-	Variable timeVar;
-	Variable zVar;
-	// time and space
-	Variable temperatureVar;
-	Variable waterContentVar;
-	Variable iceContentVar;
-	Variable internalEnergyVar;
-	// time
-	Variable errorEnergyVar;
-	Variable heatFluxTopVar;
-	Variable heatFluxBottomVar;
-	// space
-	Variable controlVolumeVar;
-
-	ArrayDouble.D2 dataTemperature;
-	ArrayDouble.D2 dataWaterContent;
-	ArrayDouble.D2 dataIceContent;
-	ArrayDouble.D2 dataInternalEnergy;
-
-	ArrayDouble.D1 dataErrorEnergy;
-	ArrayDouble.D1 dataHeatFluxTop;
-	ArrayDouble.D1 dataHeatFluxBottom;
-	ArrayDouble.D1 dataControlVolume;
-
-	int step = 0;
-	int stepCreation = 0;
-	
-	@Execute
-	public void writeNetCDF() throws IOException {
+	@Description("When a new output file is started: size (fileSizeMax), records (rolloverRecords), month or year")
+	@In
+	@Unit ()
+	public String rolloverPolicy = "size";
 
-		/*
-		 * Create a new file
-		 */
-		if(stepCreation == 0) {
-			
-			origin_counter = 0;
-//			System.out.println("WriterNetCDF step:" + step);
-			KMAX = mySpatialCoordinate.length;
-			NREC = myVariables.keySet().size();
-
-			dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
-			dateFormat.setTimeZone(TimeZone.getTimeZone(timeZone));
-			date = null;
-
-			origin = new int[]{0, 0};
-			time_origin = new int[]{0};
-
-			dataFile = null;
-			fileNameToSave = fileName.substring(0,fileName.length()-3) + '_' + String.format("%04d", fileNumber) + fileName.substring(fileName.length()-3,fileName.length());
-
-
-			try {
-				// Create new netcdf-3 file with the given filename
-				dataFile = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, fileNameToSave);
-				// add a general attribute describing the problem and containing other relevant information for the user
-				dataFile.addGroupAttribute(null, new Attribute("Description of the problem",briefDescritpion));
-				dataFile.addGroupAttribute(null, new Attribute("Top boundary condition",topBC));
-				dataFile.addGroupAttribute(null, new Attribute("Bottom boundary condition",bottomBC));
-				dataFile.addGroupAttribute(null, new Attribute("path top boundary condition",pathTopBC));
-				dataFile.addGroupAttribute(null, new Attribute("path bottom boundary condition",pathBottomBC));
-				dataFile.addGroupAttribute(null, new Attribute("path grid",pathGrid));				
-				dataFile.addGroupAttribute(null, new Attribute("time delta",timeDelta));
-				dataFile.addGroupAttribute(null, new Attribute("sfcc model",sfccModel));
-				dataFile.addGroupAttribute(null, new Attribute("soil thermal conductivity model",soilThermalConductivityModel));
-				dataFile.addGroupAttribute(null, new Attribute("interface thermal conductivity model",interfaceThermalConductivityModel));
-				dataFile.addGroupAttribute(null, new Attribute("state equation",stateEquationModel));
-
-
-				//add dimensions  where time dimension is unlimit
-				// the spatial dimension is defined using just the indexes 
-				kDim = dataFile.addDimension(null, "z", KMAX);
-				timeDim = dataFile.addUnlimitedDimension("time");
-
-				// Define the coordinate variables.
-				zVar = dataFile.addVariable(null, "z", DataType.DOUBLE, "z");
-				timeVar = dataFile.addVariable(null, "time", DataType.INT, "time");
-
-				// Define units attributes for data variables.
-				// Define units attributes for data variables.
-				dataFile.addVariableAttribute(timeVar, new Attribute("units", timeUnits));
-				dataFile.addVariableAttribute(timeVar, new Attribute("long_name", "Time"));
-				dataFile.addVariableAttribute(zVar, new Attribute("units", "m"));
-				dataFile.addVariableAttribute(zVar, new Attribute("long_name", "Vertical coordinate"));
-
-				// Define the netCDF variables for the psi and theta data.
-				String dims = "time z";
-
-				temperatureVar = dataFile.addVariable(null, "T", DataType.DOUBLE, dims);
-				waterContentVar = dataFile.addVariable(null, "water_content", DataType.DOUBLE, dims);
-				iceContentVar = dataFile.addVariable(null, "ice_content", DataType.DOUBLE, dims);
-				internalEnergyVar = dataFile.addVariable(null, "internal_energy", DataType.DOUBLE, dims);
-								
-				errorEnergyVar = dataFile.addVariable(null, "error_energy", DataType.DOUBLE, "time");
-				heatFluxTopVar = dataFile.addVariable(null, "heat_flux_top", DataType.DOUBLE, "time");
-				heatFluxBottomVar = dataFile.addVariable(null, "heat_flux_bottom", DataType.DOUBLE, "time");
-
-				controlVolumeVar = dataFile.addVariable(null, "control_volume", DataType.DOUBLE, "z");
-
-				/*
-				 *  Define units attributes for data variables.
-				 */
-				dataFile.addVariableAttribute(temperatureVar, new Attribute("units", "K"));
-				dataFile.addVariableAttribute(temperatureVar, new Attribute("long_name", "Temperature"));
-				dataFile.addVariableAttribute(waterContentVar, new Attribute("units", "-"));
-				dataFile.addVariableAttribute(waterContentVar, new Attribute("long_name", "soil liquid water content"));
-				dataFile.addVariableAttribute(iceContentVar, new Attribute("units", "-"));
-				dataFile.addVariableAttribute(iceContentVar, new Attribute("long_name", "soil ice content"));
-				dataFile.addVariableAttribute(internalEnergyVar, new Attribute("units", "J"));
-				dataFile.addVariableAttribute(internalEnergyVar, new Attribute("long_name", "internal energy"));
-				dataFile.addVariableAttribute(errorEnergyVar, new Attribute("units", "J"));
-				dataFile.addVariableAttribute(errorEnergyVar, new Attribute("long_name", "energy error at each time step"));
-				dataFile.addVariableAttribute(heatFluxTopVar, new Attribute("units", "W/m2"));
-				dataFile.addVariableAttribute(heatFluxTopVar, new Attribute("long_name", "heat flux at the top"));
-				dataFile.addVariableAttribute(heatFluxBottomVar, new Attribute("units", "W/m2"));
-				dataFile.addVariableAttribute(heatFluxBottomVar, new Attribute("long_name", "heat flux at the bottom"));
-				dataFile.addVariableAttribute(controlVolumeVar, new Attribute("units", "m"));
-				dataFile.addVariableAttribute(controlVolumeVar, new Attribute("long_name", "dimension of each control volumes"));
-				//			D1 kIndex = new ArrayInt.D1(KMAX);
-
-				z = new ArrayDouble.D1(KMAX);
-				dataControlVolume = new ArrayDouble.D1(KMAX);
-
-				for (int k = 0; k < KMAX; k++) {
-					z.set(k, mySpatialCoordinate[k]);
-					dataControlVolume.set(k, myControlVolume[k]);
-				}
-
-
-				//Create the file. At this point the (empty) file will be written to disk
-				dataFile.create();
-				dataFile.write(zVar, z);
-				dataFile.write(controlVolumeVar, dataControlVolume);
-				stepCreation = 1;
-
-				System.out.println("\n\t***Created NetCDF " + fileNameToSave +"\n\n");
-			} catch (InvalidRangeException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
-			} finally {
-				if (dataFile != null)
-					try {
-						dataFile.close();
-					} catch (IOException ioe) {
-						ioe.printStackTrace();
-					}
-			}
+	@Description("Number of records of each output file with the records rollover policy")
+	@In
+	@Unit ()
+	public int rolloverRecords = 1000;
 
-		}
+	@Description("Output policies name:period[:statistic] of the variables written once per period, for example T:1d:mean or error_energy:1d:max."
+			+ " They are written in a file for each period, the other variables at every record")
+	@In
+	@Unit ()
+	public String[] outputPolicies = new String[]{};
 
+	@Description("Lossy storage of the variables: name:digits keeps the significant digits, for example T:4,"
+			+ " name:short:min:max packs the values of the range in 16 bit integers with scale_factor and add_offset")
+	@In
+	@Unit ()
+	public String[] outputQuantizations = new String[]{};
 
-		/*
-		 * Write data
-		 */
+	@Description("Format of the output files: netcdf3, or chunked for compressed chunked files (.gfc) that ChunkedFileConverter converts to netcdf3")
+	@In
+	@Unit ()
+	public String outputFormat = "netcdf3";
 
-		if( step%writeFrequency==0 || doProcess == false) {
+	@Description("Maximum number of records of each chunk of the chunked files")
+	@In
+	@Unit ()
+	public int chunkRecords = 256;
 
+	@Description("Maximum number of depths of each chunk of the chunked files, all of them if not positive")
+	@In
+	@Unit ()
+	public int chunkDepth = 0;
+
+	@Description("Deflate level of the chunked files, from 0 (no compression) to 9")
+	@In
+	@Unit ()
+	public int compressionLevel = 6;
+
+	@Description("Checkpoint file, rewritten periodically with the prognostic state and the position of the writer to restart the simulation")
+	@In
+	@Unit ()
+	public String checkpointFileName;
+
+	@Description("Number of time steps between two checkpoints: a checkpoint is written at the first writing step after them and at the end of the simulation")
+	@In
+	@Unit ()
+	public int checkpointFrequency = 1000;
+
+	@Description("Prognostic state of the model saved in the checkpoints, by variable name")
+	@In
+	@Unit ()
+	public LinkedHashMap<String,double[]> checkpointState;
+
+	@Description("Checkpoint of a stopped simulation: the output continues in its files, after the records written before the checkpoint")
+	@In
+	@Unit ()
+	public String restartFileName;
+
+	@Description("CSV file, or JSON file if the name ends with .json, where the metrics of the reads and writes of the run are saved")
+	@In
+	@Unit ()
+	public String metricsFileName;
+
+	@Description("Seconds between two lines of progress of the output, if not positive the progress is printed only at the end")
+	@In
+	@Unit ("s")
+	public double progressInterval = 10;
+
+	@Description("Write only the records of the buffer after the last written one, so the buffer can be left growing during the simulation")
+	@In
+	@Unit ()
+	public boolean incrementalWrite = false;
+
+	NetCDFWriter1D writer;
+
+
+	@Execute
+	public void writeNetCDF() throws IOException {
 
-			try {
-				dataFile = NetcdfFileWriter.openExisting(fileNameToSave);
-				
-				// number of time record that will be saved
-				NREC = myVariables.keySet().size();
-				
-				times = Array.factory(DataType.INT, new int[] {NREC});
-				
-				dataTemperature = new ArrayDouble.D2(NREC, KMAX);
-				dataWaterContent = new ArrayDouble.D2(NREC, KMAX);
-				dataIceContent = new ArrayDouble.D2(NREC, KMAX);
-				dataInternalEnergy = new ArrayDouble.D2(NREC, KMAX);
-								
-				dataErrorEnergy = new ArrayDouble.D1(NREC);
-				dataHeatFluxTop = new ArrayDouble.D1(NREC);
-				dataHeatFluxBottom = new ArrayDouble.D1(NREC);
-
-
-				int i=0;
-				it = myVariables.entrySet().iterator();
-				
-				while (it.hasNext()) {
-
-					@SuppressWarnings("unchecked")
-					Entry<String, ArrayList<double[]>> entry = (Entry<String, ArrayList<double[]>>) it.next();
-
-					try {
-						date = dateFormat.parse(entry.getKey());
-					} catch (ParseException e) {
-						// TODO Auto-generated catch block
-						e.printStackTrace();
-					}
-					
-					times.setLong(i, (long) date.getTime()/(60*1000));
-
-					tempVariable =  entry.getValue().get(0);
-					for (int k = 0; k < KMAX; k++) {
-
-						dataTemperature.set(i, k, tempVariable[k]);
-
-					}
-
-					tempVariable =  entry.getValue().get(1);
-					for (int k = 0; k < KMAX; k++) {
-
-						dataWaterContent.set(i, k, tempVariable[k]);
-
-					}
-
-					tempVariable =  entry.getValue().get(2);
-					for (int k = 0; k < KMAX; k++) {
-
-						dataIceContent.set(i, k, tempVariable[k]);
-
-					}
-
-					tempVariable =  entry.getValue().get(3);
-					for (int k = 0; k < KMAX; k++) {
-
-						dataInternalEnergy.set(i, k, tempVariable[k]);
-
-					}
-					
-					dataErrorEnergy.set(i, entry.getValue().get(4)[0]);
-
-					dataHeatFluxTop.set(i, entry.getValue().get(5)[0]);
-					
-					dataHeatFluxBottom.set(i, entry.getValue().get(6)[0]);
-
-					i++;
-				}
-
-
-				// A newly created Java integer array to be initialized to zeros.
-//				origin[0] = dataFile.findVariable("T").getShape()[0];
-//				time_origin[0] = dataFile.findVariable("time").getShape()[0];
-				origin[0] = origin_counter;
-				time_origin[0] = origin_counter;
-				
-//				dataFile.write(kIndexVar, kIndex);
-				dataFile.write(dataFile.findVariable("time"), time_origin, times);
-				dataFile.write(dataFile.findVariable("T"), origin, dataTemperature);
-				dataFile.write(dataFile.findVariable("water_content"), origin, dataWaterContent);
-				dataFile.write(dataFile.findVariable("ice_content"), origin, dataIceContent);
-				dataFile.write(dataFile.findVariable("internal_energy"), origin, dataInternalEnergy);
-
-				dataFile.write(dataFile.findVariable("error_energy"), origin, dataErrorEnergy);
-				dataFile.write(dataFile.findVariable("heat_flux_top"), origin, dataHeatFluxTop);
-				dataFile.write(dataFile.findVariable("heat_flux_bottom"), origin, dataHeatFluxBottom);
-
-				origin_counter = origin_counter + NREC;
-				
-				fileSizeMB = 1*KMAX*8*origin_counter/1000000;
-//				System.out.println("\t\tfileSizeMB: " + fileSizeMB);
-				stepCreation ++;
-				if(fileSizeMB>fileSizeMax) {
-					stepCreation = 0;
-					fileNumber++;
-					NREC = 0;
-				}
-						
-				if(!myVariables.isEmpty()) {
-					System.out.println("\t*** " + myVariables.keySet().toArray()[i-1].toString() +", writing output file: " + fileNameToSave + "\n");
-				}
-				
-			} catch (IOException e) {
-				e.printStackTrace(System.err);
-
-			} catch (InvalidRangeException e) {
-				e.printStackTrace(System.err);
-
-			} finally {
-				if (dataFile != null)
-					try {
-						dataFile.close();
-					} catch (IOException ioe) {
-						ioe.printStackTrace();
-					}
+		if(writer == null) {
+			writer = new NetCDFWriter1D(createSchema(), fileName, timeZone);
+			writer.setRolloverPolicy(RolloverPolicies.create(rolloverPolicy, fileSizeMax, rolloverRecords, timeZone));
+			writer.setKeepFileOpen(keepFileOpen);
+			writer.setFormat(outputFormat, chunkRecords, chunkDepth, compressionLevel);
+			writer.setAsyncWrite(asyncWrite, asyncQueueCapacity);
+			writer.setOutputQuantizations(OutputQuantization.parse(outputQuantizations));
+			writer.setOutputPolicies(OutputPolicy.parse(outputPolicies));
+			writer.setCheckpoint(checkpointFileName, checkpointFrequency);
+			writer.setProgressInterval(progressInterval);
+			writer.setIncremental(incrementalWrite);
+			if (metricsFileName != null && !metricsFileName.trim().isEmpty()) {
+				NetCDFMetrics.setDumpFile(metricsFileName);
+			}
+			if (restartFileName != null && !restartFileName.trim().isEmpty()) {
+				writer.restore(Checkpoint1D.read(restartFileName));
 			}
+		}
 
+		writer.setCheckpointState(checkpointState);
 
+		if(outputRecord != null) {
+			writer.write(outputRecordTime, outputRecord, doProcess);
+		} else if(outputBuffer != null) {
+			writer.write(outputBuffer, doProcess, writeFrequency);
+		} else {
+			writer.write(myVariables, doProcess, writeFrequency);
+		}
 
+	}
+
+
+	@Finalize
+	public void closeNetCDF() throws IOException {
+		if (writer != null) {
+			writer.close();
 		}
+	}
 
-		step++;
 
+	/**
+	 * Variables of the output file and position of each of them in the list of arrays of the buffer.
+	 */
+	private OutputSchema1D createSchema() {
+
+		OutputSchema1D schema = new OutputSchema1D(null);
+
+		// add a general attribute describing the problem and containing other relevant information for the user
+		schema.addGlobalAttribute("Description of the problem",briefDescritpion);
+		schema.addGlobalAttribute("Top boundary condition",topBC);
+		schema.addGlobalAttribute("Bottom boundary condition",bottomBC);
+		schema.addGlobalAttribute("path top boundary condition",pathTopBC);
+		schema.addGlobalAttribute("path bottom boundary condition",pathBottomBC);
+		schema.addGlobalAttribute("path grid",pathGrid);
+		schema.addGlobalAttribute("time delta",timeDelta);
+		schema.addGlobalAttribute("sfcc model",sfccModel);
+		schema.addGlobalAttribute("soil thermal conductivity model",soilThermalConductivityModel);
+		schema.addGlobalAttribute("interface thermal conductivity model",interfaceThermalConductivityModel);
+		schema.addGlobalAttribute("state equation",stateEquationModel);
+
+		schema.setDepthDimension("z", mySpatialCoordinate.length);
+
+		schema.addStatic("z", OutputDimension.DEPTH, DataType.DOUBLE, "m", "Vertical coordinate", mySpatialCoordinate);
+		schema.addTime(timeUnits, "Time");
+
+		schema.add("T", 0, OutputDimension.DEPTH, DataType.DOUBLE, "K", "Temperature");
+		schema.add("water_content", 1, OutputDimension.DEPTH, DataType.DOUBLE, "-", "soil liquid water content");
+		schema.add("ice_content", 2, OutputDimension.DEPTH, DataType.DOUBLE, "-", "soil ice content");
+		schema.add("internal_energy", 3, OutputDimension.DEPTH, DataType.DOUBLE, "J", "internal energy");
+		schema.add("error_energy", 4, OutputDimension.TIME, DataType.DOUBLE, "J", "energy error at each time step");
+		schema.add("heat_flux_top", 5, OutputDimension.TIME, DataType.DOUBLE, "W/m2", "heat flux at the top");
+		schema.add("heat_flux_bottom", 6, OutputDimension.TIME, DataType.DOUBLE, "W/m2", "heat flux at the bottom");
+		schema.addStatic("control_volume", OutputDimension.DEPTH, DataType.DOUBLE, "m", "dimension of each control volumes", myControlVolume);
+
+		return schema;
 	}
 
 }
@@ -20,35 +20,21 @@
 package it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent;
 
 import java.io.IOException;
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Date;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.TimeZone;
-import java.util.Map.Entry;
+
+import it.geoframe.blogspot.netcdf.utilities.NetCDFMetrics;
 
 import oms3.annotations.Author;
 import oms3.annotations.Description;
 import oms3.annotations.Documentation;
 import oms3.annotations.Execute;
+import oms3.annotations.Finalize;
 import oms3.annotations.In;
 import oms3.annotations.Keywords;
 import oms3.annotations.License;
 import oms3.annotations.Unit;
-import ucar.ma2.Array;
-import ucar.ma2.ArrayDouble;
 import ucar.ma2.DataType;
-import ucar.ma2.InvalidRangeException;
-import ucar.ma2.ArrayDouble.D1;
-import ucar.nc2.Attribute;
-import ucar.nc2.Dimension;
-import ucar.nc2.NetcdfFileWriter;
-import ucar.nc2.Variable;
 
 @Description("This class writes a NetCDF with heat diffusion equation considering the surface energy budget outputs. Before writing, outputs are stored in a buffer writer"
 		+ " and as simulation is ended they are written in a NetCDF file.")
@@ -78,6 +64,22 @@ public class WriteNetCDFHeatDiffusionFreezingThawingWithSurfaceEnergyBudget1DDou
 	@Unit ()
 	public LinkedHashMap<String,ArrayList<double[]>> variables; // consider the opportunity to save varibale as float instead of double
 
+	@Description("Buffer of the output, alternative to the LinkedHashMap: records are removed once written")
+	@In
+	@Unit ()
+	public OutputBuffer1D outputBuffer;
+
+	@Description("Record of the current time step, one value array for each variable of the buffer, alternative to the buffers:"
+			+ " it is written at once, at each time step")
+	@In
+	@Unit ()
+	public double[][] outputRecord;
+
+	@Description("Epoch time of outputRecord")
+	@In
+	@Unit ("ms")
+	public long outputRecordTime;
+
 	@Description()
 	@In
 	@Unit ()
@@ -139,445 +141,200 @@ public class WriteNetCDFHeatDiffusionFreezingThawingWithSurfaceEnergyBudget1DDou
 	@In
 	@Unit ()
 	public boolean doProcess;
+
+	@Description("Write the output with a background thread, the simulation does not wait for the disk")
+	@In
+	@Unit ()
+	public boolean asyncWrite = false;
+
+	@Description("Maximum number of buffered writing steps waiting for the background thread")
+	@In
+	@Unit ()
+	public int asyncQueueCapacity = 2;
+
+	@Description("Keep the output file open between two writing steps, it is closed at rollover or at the end of the simulation")
+	@In
+	@Unit ()
+	public boolean keepFileOpen = true;
 	
 	@Description("Maximum allowed file size")
 	@In
 	@Unit ("MB")
 	public double fileSizeMax = 10000;
-	
-	@Description("Name of the variables to save")
+
+	@Description("When a new output file is started: size (fileSizeMax), records (rolloverRecords), month or year")
 	@In
 	@Unit ()
-	public String [] outVariables = new String[]{""};
-
-	double[] tempVariable;
-	Iterator it;
-	DateFormat dateFormat;
-	Date date = null;
-	String fileNameToSave;
-	String filename;
-	NetcdfFileWriter dataFile;
-	int KMAX;
-	int DUALKMAX;
-	int NREC;
-	int[] origin;
-	int[] dual_origin;
-	int[] time_origin;
-	int origin_counter;
-	int i;
-	int fileNumber = 0;
-	double fileSizeMB;
-	Dimension kDim;
-	Dimension dualKDim;
-	Dimension timeDim;
-	D1 depth;
-	D1 dualDepth;
-	Array times;
-	String dims;
-	List<String> outVariablesList;
-
-	Variable timeVar;
-	Variable depthVar;
-	Variable dualDepthVar;
-	Variable psiVar;
-	Variable temperatureICVar;
-	Variable temperatureVar;
-	Variable thetaVar;
-	Variable iceContentVar;
-	Variable internalEnergyVar;
-	Variable diffusionHeatFluxVar;
-	Variable errorVar;
-	Variable airTemperatureVar;
-	Variable shortWaveOutVar;
-	Variable shortWaveInVar;
-	Variable longWaveOutVar;
-	Variable longWaveInVar;
-	Variable sensibleHeatFluxVar;
-	Variable actualLatentHeatFluxVar;
-	Variable bottomBCVar;
-	Variable controlVolumeVar;
-
-	ArrayDouble.D1 dataPsi;
-	ArrayDouble.D1 dataTemperatureIC;
-	ArrayDouble.D1 dataError;
-	ArrayDouble.D1 dataAirTemperature;
-	ArrayDouble.D1 dataShortWaveOut;
-	ArrayDouble.D1 dataShortWaveIn;
-	ArrayDouble.D1 dataLongWaveOut;
-	ArrayDouble.D1 dataLongWaveIn;
-	ArrayDouble.D1 dataSensibleHeatFlux;
-	ArrayDouble.D1 dataActualLatentHeatFlux;
-	ArrayDouble.D1 dataBottomBC;
-	ArrayDouble.D1 dataControlVolume;
-	
-	ArrayDouble.D2 dataTemperature;
-	ArrayDouble.D2 dataTheta;
-	ArrayDouble.D2 dataIceContent;
-	ArrayDouble.D2 dataInternalEnergy;
-	ArrayDouble.D2 dataDiffusionHeatFlux;
-
-
-	int step = 0;
-	int stepCreation = 0;
-
-	@Execute
-	public void writeNetCDF() throws IOException {
+	public String rolloverPolicy = "size";
 
+	@Description("Number of records of each output file with the records rollover policy")
+	@In
+	@Unit ()
+	public int rolloverRecords = 1000;
 
-		/*
-		 * Create a new file
-		 */
-		if(stepCreation == 0) {
-			
-			origin_counter = 0;
-			outVariablesList = Arrays.asList(outVariables);
-			
-			//			System.out.println("WriterNetCDF step:" + step);
-			KMAX = spatialCoordinate.length;
-			DUALKMAX = dualSpatialCoordinate.length;
-			//			NREC = myVariables.keySet().size();
-
-			dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
-			dateFormat.setTimeZone(TimeZone.getTimeZone(timeZone));
-			date = null;
-
-			origin = new int[]{0, 0};
-			dual_origin = new int[]{0, 0};
-			time_origin = new int[]{0};
-
-			dataFile = null;
-
-			fileNameToSave = fileName.substring(0,fileName.length()-3) + '_' + String.format("%04d", fileNumber) + fileName.substring(fileName.length()-3,fileName.length());
-
-			try {
-				// Create new netcdf-3 file with the given filename
-				dataFile = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, fileNameToSave);
-				// add a general attribute describing the problem and containing other relevant information for the user
-				dataFile.addGroupAttribute(null, new Attribute("Description of the problem",briefDescritpion));
-				dataFile.addGroupAttribute(null, new Attribute("Top boundary condition",topBC));
-				dataFile.addGroupAttribute(null, new Attribute("Bottom boundary condition",bottomBC));
-				dataFile.addGroupAttribute(null, new Attribute("path top boundary condition",pathTopBC));
-				dataFile.addGroupAttribute(null, new Attribute("path bottom boundary condition",pathBottomBC));
-				dataFile.addGroupAttribute(null, new Attribute("path grid",pathGrid));			
-				dataFile.addGroupAttribute(null, new Attribute("time delta",timeDelta));
-				dataFile.addGroupAttribute(null, new Attribute("swrc model",swrcModel));
-				dataFile.addGroupAttribute(null, new Attribute("soil thermal conductivity model",soilThermalConductivityModel));
-				dataFile.addGroupAttribute(null, new Attribute("interface conductivity model",interfaceConductivityModel));
-
-				//add dimensions  where time dimension is unlimit
-				// the spatial dimension is defined using just the indexes 
-				kDim = dataFile.addDimension(null, "depth", KMAX);
-				dualKDim = dataFile.addDimension(null, "dualDepth", DUALKMAX);
-				timeDim = dataFile.addUnlimitedDimension("time");
-
-				// Define the coordinate variables.
-				depthVar = dataFile.addVariable(null, "depth", DataType.DOUBLE, "depth");
-				dualDepthVar = dataFile.addVariable(null, "dualDepth", DataType.DOUBLE, "dualDepth");
-				timeVar = dataFile.addVariable(null, "time", DataType.INT, "time");
-
-				// Define units attributes for data variables.
-				// Define units attributes for data variables.
-				dataFile.addVariableAttribute(timeVar, new Attribute("units", timeUnits));
-				dataFile.addVariableAttribute(timeVar, new Attribute("long_name", "Time."));
-
-				dataFile.addVariableAttribute(depthVar, new Attribute("units", "m"));
-				dataFile.addVariableAttribute(depthVar, new Attribute("long_name", "Soil depth."));
-
-				dataFile.addVariableAttribute(dualDepthVar, new Attribute("units", "m"));
-				dataFile.addVariableAttribute(dualDepthVar, new Attribute("long_name", "Dual soil depth."));
-
-				// Define the netCDF variables and their attributes.
-				String dims = "time depth";
-				String dualDims = "time dualDepth";
-
-				psiVar = dataFile.addVariable(null, "psi", DataType.DOUBLE, "depth");
-				dataFile.addVariableAttribute(psiVar, new Attribute("units", "m"));
-				dataFile.addVariableAttribute(psiVar, new Attribute("long_name", "Water suction."));
-				
-				temperatureICVar = dataFile.addVariable(null, "temperatureIC", DataType.DOUBLE, "depth");
-				dataFile.addVariableAttribute(temperatureICVar, new Attribute("units", "m"));
-				dataFile.addVariableAttribute(temperatureICVar, new Attribute("long_name", "Initial condition for temperature."));
-				
-				temperatureVar = dataFile.addVariable(null, "T", DataType.DOUBLE, dims);
-				dataFile.addVariableAttribute(temperatureVar, new Attribute("units", "K"));
-				dataFile.addVariableAttribute(temperatureVar, new Attribute("long_name", "Temperature."));
-				
-				thetaVar = dataFile.addVariable(null, "waterContent", DataType.DOUBLE, dims);
-				dataFile.addVariableAttribute(thetaVar, new Attribute("units", " "));
-				dataFile.addVariableAttribute(thetaVar, new Attribute("long_name", "Adimensional water content."));
-				
-				iceContentVar = dataFile.addVariable(null, "iceContent", DataType.DOUBLE, dims);
-				dataFile.addVariableAttribute(iceContentVar, new Attribute("units", " "));
-				dataFile.addVariableAttribute(iceContentVar, new Attribute("long_name", "Adimensional ice content."));
-				
-				internalEnergyVar = dataFile.addVariable(null, "internalEnergy", DataType.DOUBLE, dims);
-				dataFile.addVariableAttribute(internalEnergyVar, new Attribute("units", "J"));
-				dataFile.addVariableAttribute(internalEnergyVar, new Attribute("long_name", "Internal energy"));
-				
-				diffusionHeatFluxVar = dataFile.addVariable(null, "diffusionHeatFlux", DataType.DOUBLE, dualDims);
-				dataFile.addVariableAttribute(diffusionHeatFluxVar, new Attribute("units", "W m-2"));
-				dataFile.addVariableAttribute(diffusionHeatFluxVar, new Attribute("long_name", "Diffusion heat flux."));
-
-				
-				errorVar = dataFile.addVariable(null, "error", DataType.DOUBLE, "time");
-				dataFile.addVariableAttribute(errorVar, new Attribute("units", "J"));
-				dataFile.addVariableAttribute(errorVar, new Attribute("long_name", "Internal energy error at each time step."));
-				
-				airTemperatureVar  = dataFile.addVariable(null, "airT", DataType.DOUBLE, "time");
-				dataFile.addVariableAttribute(airTemperatureVar, new Attribute("units", "K"));                   
-				dataFile.addVariableAttribute(airTemperatureVar, new Attribute("long_name", "Air temperature")); 
-				
-				shortWaveOutVar  = dataFile.addVariable(null, "swOut", DataType.DOUBLE, "time");
-				dataFile.addVariableAttribute(shortWaveOutVar, new Attribute("units", "W m-2"));                   
-				dataFile.addVariableAttribute(shortWaveOutVar, new Attribute("long_name", "Outcoming short-wave radiation")); 
-				
-				shortWaveInVar  = dataFile.addVariable(null, "swIn", DataType.DOUBLE, "time");
-				dataFile.addVariableAttribute(shortWaveInVar, new Attribute("units", "W m-2"));                   
-				dataFile.addVariableAttribute(shortWaveInVar, new Attribute("long_name", "Incoming short-wave radiation")); 
-
-				longWaveOutVar  = dataFile.addVariable(null, "lwOut", DataType.DOUBLE, "time");
-				dataFile.addVariableAttribute(longWaveOutVar, new Attribute("units", "W m-2"));                   
-				dataFile.addVariableAttribute(longWaveOutVar, new Attribute("long_name", "Outcoming long-wave radiation")); 
-				
-				longWaveInVar  = dataFile.addVariable(null, "lwIn", DataType.DOUBLE, "time");
-				dataFile.addVariableAttribute(longWaveInVar, new Attribute("units", "W m-2"));                   
-				dataFile.addVariableAttribute(longWaveInVar, new Attribute("long_name", "Incoming long-wave radiation")); 
-				
-				sensibleHeatFluxVar  = dataFile.addVariable(null, "H", DataType.DOUBLE, "time");
-				dataFile.addVariableAttribute(sensibleHeatFluxVar, new Attribute("units", "W m-2"));                   
-				dataFile.addVariableAttribute(sensibleHeatFluxVar, new Attribute("long_name", "Sensible heat flux")); 
-				
-				actualLatentHeatFluxVar  = dataFile.addVariable(null, "LE", DataType.DOUBLE, "time");
-				dataFile.addVariableAttribute(actualLatentHeatFluxVar, new Attribute("units", "W m-2"));                   
-				dataFile.addVariableAttribute(actualLatentHeatFluxVar, new Attribute("long_name", "Actual latent heat flux")); 
-				
-				bottomBCVar = dataFile.addVariable(null, "bottomBC", DataType.DOUBLE, "time");
-				dataFile.addVariableAttribute(bottomBCVar, new Attribute("units", ""));                 //?????
-				dataFile.addVariableAttribute(bottomBCVar, new Attribute("long_name", "")); //?????
-								
-				controlVolumeVar = dataFile.addVariable(null, "controlVolume", DataType.DOUBLE, "depth");
-				dataFile.addVariableAttribute(controlVolumeVar, new Attribute("units", "m"));
-				dataFile.addVariableAttribute(controlVolumeVar, new Attribute("long_name", "dimension of each control volumes"));
-
-
-				depth = new ArrayDouble.D1(kDim.getLength());
-				dualDepth = new ArrayDouble.D1(dualKDim.getLength());
-				dataControlVolume = new ArrayDouble.D1(kDim.getLength());
-				dataPsi = new ArrayDouble.D1(kDim.getLength());
-				dataTemperatureIC = new ArrayDouble.D1(kDim.getLength());
-
-				for (int k = 0; k < kDim.getLength(); k++) {
-					depth.set(k, spatialCoordinate[k]);
-					dataControlVolume.set(k, controlVolume[k]);
-					dataPsi.set(k, psi[k]);
-					dataTemperatureIC.set(k, temperatureIC[k]);	
-				}
-				
-				for (int k = 0; k < kDim.getLength()-1; k++) {
-					
-				}
-
-				for (int k = 0; k < dualKDim.getLength(); k++) {
-					dualDepth.set(k, dualSpatialCoordinate[k]);
-				}
-
-				//Create the file. At this point the (empty) file will be written to disk
-				dataFile.create();
-				dataFile.write(depthVar, depth);
-				dataFile.write(dualDepthVar, dualDepth);
-				dataFile.write(controlVolumeVar, dataControlVolume);
-				dataFile.write(psiVar, dataPsi);
-				dataFile.write(temperatureICVar, dataTemperatureIC);
-				stepCreation = 1;
-
-				System.out.println("\n\t***Created NetCDF " + fileNameToSave +"\n\n");
-			} catch (InvalidRangeException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
-			} finally {
-				if (dataFile != null)
-					try {
-						dataFile.close();
-					} catch (IOException ioe) {
-						ioe.printStackTrace();
-					}
-			}
+	@Description("Output policies name:period[:statistic] of the variables written once per period, for example T:1d:mean or LE:1d:sum."
+			+ " They are written in a file for each period, the other variables at every record")
+	@In
+	@Unit ()
+	public String[] outputPolicies = new String[]{};
 
-		}
+	@Description("Lossy storage of the variables: name:digits keeps the significant digits, for example T:4,"
+			+ " name:short:min:max packs the values of the range in 16 bit integers with scale_factor and add_offset")
+	@In
+	@Unit ()
+	public String[] outputQuantizations = new String[]{};
 
+	@Description("Format of the output files: netcdf3, or chunked for compressed chunked files (.gfc) that ChunkedFileConverter converts to netcdf3")
+	@In
+	@Unit ()
+	public String outputFormat = "netcdf3";
 
-		/*
-		 * Write data
-		 */
+	@Description("Maximum number of records of each chunk of the chunked files")
+	@In
+	@Unit ()
+	public int chunkRecords = 256;
 
-		if( step%writeFrequency==0 || doProcess == false) {
+	@Description("Maximum number of depths of each chunk of the chunked files, all of them if not positive")
+	@In
+	@Unit ()
+	public int chunkDepth = 0;
 
+	@Description("Deflate level of the chunked files, from 0 (no compression) to 9")
+	@In
+	@Unit ()
+	public int compressionLevel = 6;
 
-			try {
+	@Description("Checkpoint file, rewritten periodically with the prognostic state and the position of the writer to restart the simulation")
+	@In
+	@Unit ()
+	public String checkpointFileName;
 
-				dataFile = NetcdfFileWriter.openExisting(fileNameToSave);
+	@Description("Number of time steps between two checkpoints: a checkpoint is written at the first writing step after them and at the end of the simulation")
+	@In
+	@Unit ()
+	public int checkpointFrequency = 1000;
 
-				// number of time record that will be saved
-				NREC = variables.keySet().size();
+	@Description("Prognostic state of the model saved in the checkpoints, by variable name")
+	@In
+	@Unit ()
+	public LinkedHashMap<String,double[]> checkpointState;
 
-				times = Array.factory(DataType.INT, new int[] {NREC});
+	@Description("Checkpoint of a stopped simulation: the output continues in its files, after the records written before the checkpoint")
+	@In
+	@Unit ()
+	public String restartFileName;
 
-				dataTemperature = new ArrayDouble.D2(NREC, KMAX);
-				dataTheta = new ArrayDouble.D2(NREC, KMAX);
-				dataIceContent = new ArrayDouble.D2(NREC, KMAX);
-				dataInternalEnergy = new ArrayDouble.D2(NREC, KMAX);
-				dataDiffusionHeatFlux = new ArrayDouble.D2(NREC, DUALKMAX);
-				dataError = new ArrayDouble.D1(NREC);
-				dataAirTemperature = new ArrayDouble.D1(NREC);
-				dataShortWaveOut = new ArrayDouble.D1(NREC);
-				dataShortWaveIn = new ArrayDouble.D1(NREC);
-				dataLongWaveOut = new ArrayDouble.D1(NREC);
-				dataLongWaveIn = new ArrayDouble.D1(NREC);
-				dataSensibleHeatFlux = new ArrayDouble.D1(NREC);
-				dataActualLatentHeatFlux = new ArrayDouble.D1(NREC);
-				dataBottomBC = new ArrayDouble.D1(NREC);
+	@Description("CSV file, or JSON file if the name ends with .json, where the metrics of the reads and writes of the run are saved")
+	@In
+	@Unit ()
+	public String metricsFileName;
 
-				int i=0;
-				it = variables.entrySet().iterator();
-				while (it.hasNext()) {
+	@Description("Seconds between two lines of progress of the output, if not positive the progress is printed only at the end")
+	@In
+	@Unit ("s")
+	public double progressInterval = 10;
 
-					@SuppressWarnings("unchecked")
-					Entry<String, ArrayList<double[]>> entry = (Entry<String, ArrayList<double[]>>) it.next();
+	@Description("Write only the records of the buffer after the last written one, so the buffer can be left growing during the simulation")
+	@In
+	@Unit ()
+	public boolean incrementalWrite = false;
+	
+	@Description("Name of the variables to save")
+	@In
+	@Unit ()
+	public String [] outVariables = new String[]{""};
 
-					try {
-						date = dateFormat.parse(entry.getKey());
-					} catch (ParseException e) {
-						// TODO Auto-generated catch block
-						e.printStackTrace();
-					}
+	NetCDFWriter1D writer;
 
-					times.setLong(i, (long) date.getTime()/(60*1000));
-
-
-					tempVariable =  entry.getValue().get(0);
-					for (int k = 0; k < KMAX; k++) {
 
-						dataTemperature.set(i, k, tempVariable[k]);
+	@Execute
+	public void writeNetCDF() throws IOException {
 
-					}
+		if(writer == null) {
+			writer = new NetCDFWriter1D(createSchema(), fileName, timeZone);
+			writer.setRolloverPolicy(RolloverPolicies.create(rolloverPolicy, fileSizeMax, rolloverRecords, timeZone));
+			writer.setKeepFileOpen(keepFileOpen);
+			writer.setFormat(outputFormat, chunkRecords, chunkDepth, compressionLevel);
+			writer.setAsyncWrite(asyncWrite, asyncQueueCapacity);
+			writer.setOutputQuantizations(OutputQuantization.parse(outputQuantizations));
+			writer.setOutputPolicies(OutputPolicy.parse(outputPolicies));
+			writer.setCheckpoint(checkpointFileName, checkpointFrequency);
+			writer.setProgressInterval(progressInterval);
+			writer.setIncremental(incrementalWrite);
+			if (metricsFileName != null && !metricsFileName.trim().isEmpty()) {
+				NetCDFMetrics.setDumpFile(metricsFileName);
+			}
+			if (restartFileName != null && !restartFileName.trim().isEmpty()) {
+				writer.restore(Checkpoint1D.read(restartFileName));
+			}
+		}
 
+		writer.setCheckpointState(checkpointState);
 
-					tempVariable =  entry.getValue().get(1);
-					for (int k = 0; k < KMAX; k++) {
+		if(outputRecord != null) {
+			writer.write(outputRecordTime, outputRecord, doProcess);
+		} else if(outputBuffer != null) {
+			writer.write(outputBuffer, doProcess, writeFrequency);
+		} else {
+			writer.write(variables, doProcess, writeFrequency);
+		}
 
-						dataTheta.set(i, k, tempVariable[k]);
+	}
 
-					}
-					
-					tempVariable =  entry.getValue().get(2);
-					for (int k = 0; k < KMAX; k++) {
-
-						dataIceContent.set(i, k, tempVariable[k]);
-
-					}
-					
-					tempVariable =  entry.getValue().get(3);
-					for (int k = 0; k < KMAX; k++) {
-
-						dataInternalEnergy.set(i, k, tempVariable[k]);
-
-					}
-					
-					
-					tempVariable =  entry.getValue().get(4);
-					for (int k = 0; k < DUALKMAX; k++) {
-
-						dataDiffusionHeatFlux.set(i, k, tempVariable[k]);
-
-					}
-					
-					
-					dataError.set(i, entry.getValue().get(5)[0]);
-
-					dataAirTemperature.set(i, entry.getValue().get(6)[0]);
-
-					dataShortWaveOut.set(i, entry.getValue().get(7)[0]);
-					
-					dataShortWaveIn.set(i, entry.getValue().get(8)[0]);
-					
-					dataLongWaveOut.set(i, entry.getValue().get(9)[0]);
-					
-					dataLongWaveIn.set(i, entry.getValue().get(10)[0]);
-					
-					dataSensibleHeatFlux.set(i, entry.getValue().get(11)[0]);
-					
-					dataActualLatentHeatFlux.set(i, entry.getValue().get(12)[0]);
-
-					dataBottomBC.set(i, entry.getValue().get(13)[0]);
-
-
-					i++;
-				}				
-
-				// A newly created Java integer array to be initialized to zeros.
-//				origin[0] = dataFile.findVariable("psi").getShape()[0];
-//				dual_origin[0] = dataFile.findVariable("darcy_velocity").getShape()[0];
-//				time_origin[0] = dataFile.findVariable("time").getShape()[0];
-
-				origin[0] = origin_counter;
-				time_origin[0] = origin_counter;
-				
-				//				dataFile.write(kIndexVar, kIndex);
-				dataFile.write(dataFile.findVariable("time"), time_origin, times);
-				dataFile.write(dataFile.findVariable("T"), origin, dataTemperature);
-				dataFile.write(dataFile.findVariable("waterContent"), origin, dataTheta);
-				dataFile.write(dataFile.findVariable("iceContent"), origin, dataIceContent);
-				dataFile.write(dataFile.findVariable("internalEnergy"), origin, dataInternalEnergy);
-				dataFile.write(dataFile.findVariable("diffusionHeatFlux"), origin, dataDiffusionHeatFlux);
-
-				dataFile.write(dataFile.findVariable("error"), time_origin, dataError);
-				dataFile.write(dataFile.findVariable("airT"), time_origin, dataAirTemperature);
-				dataFile.write(dataFile.findVariable("swOut"), time_origin, dataShortWaveOut);	
-				dataFile.write(dataFile.findVariable("swIn"), time_origin, dataShortWaveIn);
-				dataFile.write(dataFile.findVariable("lwOut"), time_origin, dataLongWaveOut);
-				dataFile.write(dataFile.findVariable("lwIn"), time_origin, dataLongWaveIn);
-				dataFile.write(dataFile.findVariable("H"), time_origin, dataSensibleHeatFlux);
-				dataFile.write(dataFile.findVariable("LE"), time_origin, dataActualLatentHeatFlux);
-				dataFile.write(dataFile.findVariable("bottomBC"), time_origin, dataBottomBC);
-
-				origin_counter = origin_counter + NREC;
-				
-				
-				fileSizeMB = (4*KMAX + DUALKMAX + 9)*8*origin_counter/1000000;
-//				System.out.println("\t\tfileSizeMB: " + fileSizeMB);
-				stepCreation ++;
-				if(fileSizeMB>fileSizeMax) {
-					stepCreation = 0;
-					fileNumber++;
-					NREC = 0;
-				}
-					
-				if(!variables.isEmpty()) {
-					System.out.println("\t\t*** " + variables.keySet().toArray()[i-1].toString() +", writing output file: " + fileNameToSave + "\n");
-				}
-
-
-			} catch (IOException e) {
-				e.printStackTrace(System.err);
-
-			} catch (InvalidRangeException e) {
-				e.printStackTrace(System.err);
-
-			} finally {
-				if (dataFile != null)
-					try {
-						dataFile.close();
-					} catch (IOException ioe) {
-						ioe.printStackTrace();
-					}
-			}
 
+	@Finalize
+	public void closeNetCDF() throws IOException {
+		if (writer != null) {
+			writer.close();
 		}
-
-		step++;
 	}
 
 
-}
-
+	/**
+	 * Variables of the output file and position of each of them in the list of arrays of the buffer.
+	 */
+	private OutputSchema1D createSchema() {
+
+		OutputSchema1D schema = new OutputSchema1D(outVariables);
+
+		// add a general attribute describing the problem and containing other relevant information for the user
+		schema.addGlobalAttribute("Description of the problem",briefDescritpion);
+		schema.addGlobalAttribute("Top boundary condition",topBC);
+		schema.addGlobalAttribute("Bottom boundary condition",bottomBC);
+		schema.addGlobalAttribute("path top boundary condition",pathTopBC);
+		schema.addGlobalAttribute("path bottom boundary condition",pathBottomBC);
+		schema.addGlobalAttribute("path grid",pathGrid);
+		schema.addGlobalAttribute("time delta",timeDelta);
+		schema.addGlobalAttribute("swrc model",swrcModel);
+		schema.addGlobalAttribute("soil thermal conductivity model",soilThermalConductivityModel);
+		schema.addGlobalAttribute("interface conductivity model",interfaceConductivityModel);
+
+		schema.setDepthDimension("depth", spatialCoordinate.length);
+		schema.setDualDepthDimension("dualDepth", dualSpatialCoordinate.length);
+
+		schema.addStatic("depth", OutputDimension.DEPTH, DataType.DOUBLE, "m", "Soil depth.", spatialCoordinate);
+		schema.addStatic("dualDepth", OutputDimension.DUAL_DEPTH, DataType.DOUBLE, "m", "Dual soil depth.", dualSpatialCoordinate);
+		schema.addTime(timeUnits, "Time.");
+
+		schema.addStatic("psi", OutputDimension.DEPTH, DataType.DOUBLE, "m", "Water suction.", psi);
+		schema.addStatic("temperatureIC", OutputDimension.DEPTH, DataType.DOUBLE, "m", "Initial condition for temperature.", temperatureIC);
+		schema.add("T", 0, OutputDimension.DEPTH, DataType.DOUBLE, "K", "Temperature.");
+		schema.add("waterContent", 1, OutputDimension.DEPTH, DataType.DOUBLE, " ", "Adimensional water content.");
+		schema.add("iceContent", 2, OutputDimension.DEPTH, DataType.DOUBLE, " ", "Adimensional ice content.");
+		schema.add("internalEnergy", 3, OutputDimension.DEPTH, DataType.DOUBLE, "J", "Internal energy");
+		schema.add("diffusionHeatFlux", 4, OutputDimension.DUAL_DEPTH, DataType.DOUBLE, "W m-2", "Diffusion heat flux.");
+		schema.add("error", 5, OutputDimension.TIME, DataType.DOUBLE, "J", "Internal energy error at each time step.");
+		schema.add("airT", 6, OutputDimension.TIME, DataType.DOUBLE, "K", "Air temperature");
+		schema.add("swOut", 7, OutputDimension.TIME, DataType.DOUBLE, "W m-2", "Outcoming short-wave radiation");
+		schema.add("swIn", 8, OutputDimension.TIME, DataType.DOUBLE, "W m-2", "Incoming short-wave radiation");
+		schema.add("lwOut", 9, OutputDimension.TIME, DataType.DOUBLE, "W m-2", "Outcoming long-wave radiation");
+		schema.add("lwIn", 10, OutputDimension.TIME, DataType.DOUBLE, "W m-2", "Incoming long-wave radiation");
+		schema.add("H", 11, OutputDimension.TIME, DataType.DOUBLE, "W m-2", "Sensible heat flux");
+		schema.add("LE", 12, OutputDimension.TIME, DataType.DOUBLE, "W m-2", "Actual latent heat flux");
+		schema.add("bottomBC", 13, OutputDimension.TIME, DataType.DOUBLE, "", "");
+		schema.addStatic("controlVolume", OutputDimension.DEPTH, DataType.DOUBLE, "m", "dimension of each control volumes", controlVolume);
+
+		return schema;
+	}
 
+}
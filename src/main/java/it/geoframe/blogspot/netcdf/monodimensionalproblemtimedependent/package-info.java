@@ -14,6 +14,19 @@
  *  - WriteNetCDFFreezingThawing1DFloat.java to save the output in float precision
  *  - WriteNetCDFFreezingThawing1DSpinupDouble.java to save the output in double precision mainly for spin-up simulation
  * 
+ * Output writers
+ * 	- OutputSchema1D.java describes the dimensions and the variables of an output file
+ *  - NetCDFWriter1D.java writes the buffer following an OutputSchema1D, the WriteNetCDF*1D components only define their schema
+ *  - OutputBuffer1D.java ring buffer of the output records, OutputBuffer1DAdapter.java adapts the legacy LinkedHashMap to it
+ *  - RolloverPolicy.java when a new output file is started, RolloverPolicies.java size, records, month and year policies
+ *  - OutputPolicy.java per-variable output period and statistic, OutputAggregator1D.java aggregates the records over the periods
+ *  - OutputQuantization.java lossy storage of a variable: significant digits or packing in 16 bit integers
+ *  - OutputWindowReader1D.java reads an output file in windows of records, in constant memory
+ *  - AggregatedOutputReader1D.java reads the sequence of files of an output as a single time series
+ *  - MultiColumnWriter1D.java writes the records of an ensemble of columns, submitted concurrently, in the same files
+ *  - OutputFile1D.java output file of a writer, NetCDF3OutputFile1D.java classic netCDF-3 file, ChunkedOutputFile1D.java compressed chunked file
+ *  - Checkpoint1D.java prognostic state and position of a writer to restart a simulation, ReadNetCDFCheckpoint1D.java reads it for the model
+ * 
  * @author Niccolo` Tubini, Concetta D'Amato
  *
  */
@@ -0,0 +1,195 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.utilities;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Background thread that performs the disk I/O of a writer component.
+ *
+ * The @Execute method of the writer copies the buffered variables and submits
+ * a task; the task is executed by a dedicated thread. The queue is bounded: if the
+ * writer thread is behind, submit() blocks until there is room (back-pressure), so
+ * the memory used by the copies is limited to queueCapacity batches.
+ * The writers not closed yet at the exit of the JVM are drained by the shutdown hooks of NetCDFFileHandle
+ * and ChunkedFileWriter (see closeAll()) before they close the files, so the queued steps are not lost.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public class AsyncNetCDFWriter {
+
+	/**
+	 * A writing step executed by the background thread.
+	 */
+	public interface WriteTask {
+		void write() throws IOException;
+	}
+
+	private static final WriteTask STOP = () -> { };
+
+	private static final Set<AsyncNetCDFWriter> liveWriters = ConcurrentHashMap.newKeySet();
+
+	private final BlockingQueue<WriteTask> queue;
+	private final Thread thread;
+	private volatile Throwable failure;
+	private volatile boolean closed = false;
+
+
+	public AsyncNetCDFWriter(String name, int queueCapacity) {
+		queue = new ArrayBlockingQueue<WriteTask>(Math.max(1, queueCapacity));
+		thread = new Thread(this::run, "netcdf-writer-" + name);
+		thread.setDaemon(true);
+		liveWriters.add(this);
+		thread.start();
+	}
+
+
+	/**
+	 * Queue a writing step, blocking while the queue is full.
+	 *
+	 * @throws IOException if a previous step failed
+	 */
+	public void submit(WriteTask task) throws IOException {
+		checkFailure();
+		if (closed) {
+			throw new IOException("The NetCDF writer thread " + thread.getName() + " is closed");
+		}
+		try {
+			queue.put(task);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for the NetCDF writer thread", e);
+		}
+	}
+
+
+	/**
+	 * Write all the queued steps and stop the background thread.
+	 *
+	 * @throws IOException if one of the steps failed
+	 */
+	public synchronized void close() throws IOException {
+		if (!closed) {
+			try {
+				queue.put(STOP);
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while waiting for the NetCDF writer thread", e);
+			}
+			closed = true;
+			liveWriters.remove(this);
+		}
+		checkFailure();
+	}
+
+
+	/**
+	 * Write the queued steps of all the writers not closed yet, called by the shutdown hooks
+	 * before they close the files.
+	 */
+	public static void closeAll() {
+		for (AsyncNetCDFWriter writer : liveWriters) {
+			try {
+				writer.close();
+			} catch (IOException ioe) {
+				ioe.printStackTrace();
+			}
+		}
+	}
+
+
+	private void run() {
+		while (true) {
+			WriteTask task;
+			try {
+				task = queue.take();
+			} catch (InterruptedException e) {
+				return;
+			}
+			if (task == STOP) {
+				return;
+			}
+			if (failure != null) {
+				// after a failure the remaining steps are discarded
+				continue;
+			}
+			try {
+				task.write();
+			} catch (Throwable t) {
+				failure = t;
+			}
+		}
+	}
+
+
+	private void checkFailure() throws IOException {
+		Throwable t = failure;
+		if (t == null) {
+			return;
+		}
+		if (t instanceof IOException) {
+			throw (IOException) t;
+		}
+		throw new IOException("NetCDF writer thread failed", t);
+	}
+
+
+	/**
+	 * Copy of the buffered variables: the caller can modify or clear the map
+	 * and the arrays as soon as this method returns.
+	 */
+	public static LinkedHashMap<String,ArrayList<double[]>> copy(LinkedHashMap<String,ArrayList<double[]>> variables) {
+		LinkedHashMap<String,ArrayList<double[]>> variablesCopy = new LinkedHashMap<String,ArrayList<double[]>>(2*variables.size());
+		for (Entry<String,ArrayList<double[]>> entry : variables.entrySet()) {
+			ArrayList<double[]> values = new ArrayList<double[]>(entry.getValue().size());
+			for (double[] value : entry.getValue()) {
+				values.add(value == null ? null : value.clone());
+			}
+			variablesCopy.put(entry.getKey(), values);
+		}
+		return variablesCopy;
+	}
+
+
+	/**
+	 * Copy of the buffered variables of the 2D writers, stored as lists of Double.
+	 */
+	public static LinkedHashMap<String,ArrayList<ArrayList<Double>>> copyLists(LinkedHashMap<String,ArrayList<ArrayList<Double>>> variables) {
+		LinkedHashMap<String,ArrayList<ArrayList<Double>>> variablesCopy = new LinkedHashMap<String,ArrayList<ArrayList<Double>>>(2*variables.size());
+		for (Entry<String,ArrayList<ArrayList<Double>>> entry : variables.entrySet()) {
+			ArrayList<ArrayList<Double>> values = new ArrayList<ArrayList<Double>>(entry.getValue().size());
+			for (ArrayList<Double> value : entry.getValue()) {
+				values.add(value == null ? null : new ArrayList<Double>(value));
+			}
+			variablesCopy.put(entry.getKey(), values);
+		}
+		return variablesCopy;
+	}
+
+}
@@ -0,0 +1,321 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.utilities;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.nc2.Attribute;
+
+/**
+ * Layout of the chunked output files (.gfc), a compressed alternative to netCDF-3 that needs no native library.
+ *
+ * The file has the same data model as a netCDF-3 file: global attributes, dimensions (one of them unlimited),
+ * variables of type double, float, int or short with their attributes. The values of each variable are split
+ * in chunks of at most chunkRecords records and chunkValues values of each record (time x depth blocks);
+ * each chunk is byte-shuffled and deflated on its own, so reading a range decompresses only the chunks it overlaps.
+ * All the numbers are big-endian.
+ *
+ *  - "GFC1", length of the header, header: global attributes, dimensions (length -1 if unlimited), variables
+ *  - chunks, in the order they are written: 'C', variable, first record, records, first value, values, codec, length, data
+ *  - index, written when the file is closed: 'F', updated global attributes, number of chunks, chunk headers with their offset
+ *  - trailer: offset of the index, "GFCF"
+ *
+ * A file without index, still open or not closed, is read by scanning the chunk headers.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public final class ChunkedFile {
+
+	public static final String EXTENSION = ".gfc";
+
+	static final int MAGIC = 0x47464331; // GFC1
+	static final int TRAILER_MAGIC = 0x47464346; // GFCF
+	static final int TRAILER_SIZE = 12;
+	static final byte CHUNK = 'C';
+	static final byte INDEX = 'F';
+	static final int CHUNK_HEADER_SIZE = 26;
+	static final byte SHUFFLE_DEFLATE = 1;
+
+	private ChunkedFile() {
+	}
+
+
+	/**
+	 * Position of the values of a chunk in the file.
+	 */
+	static final class Chunk {
+
+		final int variable;
+		final int firstRecord;
+		final int records;
+		final int firstValue;
+		final int values;
+		final byte codec;
+		final int length;
+		final long offset;
+
+		Chunk(int variable, int firstRecord, int records, int firstValue, int values, byte codec, int length, long offset) {
+			this.variable = variable;
+			this.firstRecord = firstRecord;
+			this.records = records;
+			this.firstValue = firstValue;
+			this.values = values;
+			this.codec = codec;
+			this.length = length;
+			this.offset = offset;
+		}
+
+		void write(ByteBuffer buffer) {
+			buffer.putInt(variable).putInt(firstRecord).putInt(records).putInt(firstValue).putInt(values).put(codec).putInt(length);
+		}
+
+		static Chunk read(DataInput input, long offset) throws IOException {
+			return new Chunk(input.readInt(), input.readInt(), input.readInt(), input.readInt(), input.readInt(), input.readByte(), input.readInt(), offset);
+		}
+	}
+
+
+	/**
+	 * @return number of bytes of each value
+	 */
+	static int getSize(DataType dataType) {
+		switch (dataType) {
+		case DOUBLE:
+			return 8;
+		case FLOAT:
+		case INT:
+			return 4;
+		case SHORT:
+			return 2;
+		default:
+			throw new IllegalArgumentException("Type " + dataType + " is not supported by the chunked files: use double, float, int or short");
+		}
+	}
+
+
+	/**
+	 * Encode count values of a double[], float[], int[] or short[] from offset, shuffle their bytes and deflate them.
+	 *
+	 * @param scratch reused buffers, the compressed data are in scratch[2]
+	 * @return the number of bytes of the compressed data
+	 */
+	static int encode(Object values, int offset, int count, Deflater deflater, byte[][] scratch) {
+
+		int size = count*getSize(DataType.getType(values.getClass().getComponentType()));
+		ByteBuffer bytes = ByteBuffer.wrap(grow(scratch, 0, size), 0, size);
+		if (values instanceof double[]) {
+			bytes.asDoubleBuffer().put((double[]) values, offset, count);
+		} else if (values instanceof float[]) {
+			bytes.asFloatBuffer().put((float[]) values, offset, count);
+		} else if (values instanceof int[]) {
+			bytes.asIntBuffer().put((int[]) values, offset, count);
+		} else {
+			bytes.asShortBuffer().put((short[]) values, offset, count);
+		}
+
+		// the bytes of the same order of all the values are contiguous, they are similar for similar values
+		int valueSize = size/Math.max(1, count);
+		byte[] shuffled = grow(scratch, 1, size);
+		byte[] source = scratch[0];
+		for (int b = 0; b < valueSize; b++) {
+			for (int i = 0; i < count; i++) {
+				shuffled[b*count + i] = source[i*valueSize + b];
+			}
+		}
+
+		deflater.reset();
+		deflater.setInput(shuffled, 0, size);
+		deflater.finish();
+		byte[] output = grow(scratch, 2, size + size/100 + 64);
+		int length = 0;
+		while (!deflater.finished()) {
+			if (length == output.length) {
+				output = grow(scratch, 2, 2*output.length);
+			}
+			length += deflater.deflate(output, length, output.length - length);
+		}
+		return length;
+	}
+
+
+	/**
+	 * Inflate the data of a chunk and decode its values.
+	 *
+	 * @return a double[], float[], int[] or short[] of records*values elements
+	 */
+	static Object decode(byte[] data, byte codec, DataType dataType, int count, Inflater inflater) throws IOException {
+
+		int valueSize = getSize(dataType);
+		int size = count*valueSize;
+		if (codec != SHUFFLE_DEFLATE) {
+			throw new IOException("Unknown codec of the chunk: " + codec);
+		}
+		byte[] shuffled = new byte[size];
+		inflater.reset();
+		inflater.setInput(data);
+		try {
+			int length = 0;
+			while (length < size && !inflater.finished()) {
+				int n = inflater.inflate(shuffled, length, size - length);
+				if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				length += n;
+			}
+			if (length != size) {
+				throw new IOException("Corrupted chunk: " + length + " bytes instead of " + size);
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("Corrupted chunk", e);
+		}
+		byte[] bytes = new byte[size];
+		for (int b = 0; b < valueSize; b++) {
+			for (int i = 0; i < count; i++) {
+				bytes[i*valueSize + b] = shuffled[b*count + i];
+			}
+		}
+
+		ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, size);
+		Object values = newArray(dataType, count);
+		if (values instanceof double[]) {
+			buffer.asDoubleBuffer().get((double[]) values);
+		} else if (values instanceof float[]) {
+			buffer.asFloatBuffer().get((float[]) values);
+		} else if (values instanceof int[]) {
+			buffer.asIntBuffer().get((int[]) values);
+		} else {
+			buffer.asShortBuffer().get((short[]) values);
+		}
+		return values;
+	}
+
+
+	/**
+	 * @return a double[], float[], int[] or short[] of the given length
+	 */
+	static Object newArray(DataType dataType, int length) {
+		getSize(dataType);
+		return java.lang.reflect.Array.newInstance(dataType.getPrimitiveClassType(), length);
+	}
+
+
+	static void writeAttributes(DataOutput output, List<Attribute> attributes) throws IOException {
+		output.writeInt(attributes.size());
+		for (Attribute attribute : attributes) {
+			output.writeUTF(attribute.getShortName());
+			if (attribute.isString()) {
+				output.writeUTF("String");
+				output.writeUTF(attribute.getStringValue() == null ? "" : attribute.getStringValue());
+				continue;
+			}
+			DataType dataType = attribute.getDataType();
+			output.writeUTF(dataType.toString());
+			output.writeInt(attribute.getLength());
+			for (int i = 0; i < attribute.getLength(); i++) {
+				Number value = attribute.getNumericValue(i);
+				switch (dataType) {
+				case DOUBLE:
+					output.writeDouble(value.doubleValue());
+					break;
+				case FLOAT:
+					output.writeFloat(value.floatValue());
+					break;
+				case LONG:
+					output.writeLong(value.longValue());
+					break;
+				case INT:
+					output.writeInt(value.intValue());
+					break;
+				case SHORT:
+					output.writeShort(value.shortValue());
+					break;
+				case BYTE:
+					output.writeByte(value.byteValue());
+					break;
+				default:
+					throw new IOException("Type " + dataType + " of the attribute " + attribute.getShortName() + " is not supported by the chunked files");
+				}
+			}
+		}
+	}
+
+
+	static List<Attribute> readAttributes(DataInput input) throws IOException {
+		int count = input.readInt();
+		List<Attribute> attributes = new ArrayList<Attribute>(count);
+		for (int a = 0; a < count; a++) {
+			String name = input.readUTF();
+			String type = input.readUTF();
+			if (type.equals("String")) {
+				attributes.add(new Attribute(name, input.readUTF()));
+				continue;
+			}
+			DataType dataType = DataType.getType(type);
+			int length = input.readInt();
+			Array values = Array.factory(dataType, new int[] {length});
+			for (int i = 0; i < length; i++) {
+				switch (dataType) {
+				case DOUBLE:
+					values.setDouble(i, input.readDouble());
+					break;
+				case FLOAT:
+					values.setFloat(i, input.readFloat());
+					break;
+				case LONG:
+					values.setLong(i, input.readLong());
+					break;
+				case INT:
+					values.setInt(i, input.readInt());
+					break;
+				case SHORT:
+					values.setShort(i, input.readShort());
+					break;
+				case BYTE:
+					values.setByte(i, input.readByte());
+					break;
+				default:
+					throw new IOException("Type " + type + " of the attribute " + name + " is not supported by the chunked files");
+				}
+			}
+			attributes.add(new Attribute(name, values));
+		}
+		return attributes;
+	}
+
+
+	private static byte[] grow(byte[][] scratch, int index, int size) {
+		if (scratch[index] == null || scratch[index].length < size) {
+			scratch[index] = new byte[size];
+		}
+		return scratch[index];
+	}
+
+}
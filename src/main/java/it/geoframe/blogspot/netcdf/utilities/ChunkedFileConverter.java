@@ -0,0 +1,174 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.utilities;
+
+import java.io.IOException;
+
+import ucar.ma2.Array;
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.Attribute;
+import ucar.nc2.Dimension;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.Variable;
+
+/**
+ * Converts the classic netCDF-3 files to chunked files (see ChunkedFile) and back, a block of records at a time.
+ *
+ * The attributes, dimensions and variables are kept as they are, so a file converted twice is equal to the original
+ * one; the variables must be double, float, int or short.
+ *
+ *   java it.geoframe.blogspot.netcdf.utilities.ChunkedFileConverter toChunked input.nc output.gfc [chunkRecords chunkValues level]
+ *   java it.geoframe.blogspot.netcdf.utilities.ChunkedFileConverter toNetCDF3 input.gfc output.nc
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public final class ChunkedFileConverter {
+
+	private static final long CDF1_SIZE_MAX = Integer.MAX_VALUE;
+
+	private ChunkedFileConverter() {
+	}
+
+
+	/**
+	 * @param chunkRecords maximum number of records of each chunk
+	 * @param chunkValues maximum number of values of each record in a chunk, all of them if not positive
+	 * @param level deflate level, from 0 to 9
+	 */
+	public static void toChunked(String netcdfFileName, String chunkedFileName, int chunkRecords, int chunkValues, int level) throws IOException {
+
+		NetcdfFile netcdfFile = NetcdfFile.open(netcdfFileName);
+		try {
+
+			ChunkedFileWriter writer = new ChunkedFileWriter(chunkedFileName, chunkRecords, chunkValues, level);
+			for (Attribute attribute : netcdfFile.getGlobalAttributes()) {
+				writer.addGlobalAttribute(attribute);
+			}
+			for (Dimension dimension : netcdfFile.getDimensions()) {
+				if (dimension.isUnlimited()) {
+					writer.addUnlimitedDimension(dimension.getShortName());
+				} else {
+					writer.addDimension(dimension.getShortName(), dimension.getLength());
+				}
+			}
+			for (Variable variable : netcdfFile.getVariables()) {
+				writer.addVariable(variable.getShortName(), variable.getDataType(), variable.getDimensionsString(), variable.getAttributes());
+			}
+			writer.create();
+
+			try {
+				for (Variable variable : netcdfFile.getVariables()) {
+					if (!variable.isUnlimited()) {
+						writer.write(variable.getShortName(), variable.read().get1DJavaArray(variable.getDataType().getPrimitiveClassType()));
+						continue;
+					}
+					int[] shape = variable.getShape();
+					int[] origin = new int[shape.length];
+					int records = shape[0];
+					for (int first = 0; first < records; first += chunkRecords) {
+						origin[0] = first;
+						shape[0] = Math.min(chunkRecords, records - first);
+						Array values = variable.read(origin, shape);
+						writer.append(variable.getShortName(), values.get1DJavaArray(variable.getDataType().getPrimitiveClassType()), 0, shape[0]);
+					}
+				}
+			} catch (InvalidRangeException e) {
+				throw new IOException("Cannot read " + netcdfFileName, e);
+			} finally {
+				writer.close();
+			}
+		} finally {
+			netcdfFile.close();
+		}
+	}
+
+
+	/**
+	 * The netcdf-3 file uses 64 bit offsets only if the data do not fit in a classic one.
+	 */
+	public static void toNetCDF3(String chunkedFileName, String netcdfFileName) throws IOException {
+
+		try (ChunkedFileReader reader = new ChunkedFileReader(chunkedFileName)) {
+
+			NetcdfFileWriter dataFile = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, netcdfFileName);
+
+			for (Attribute attribute : reader.getGlobalAttributes()) {
+				dataFile.addGroupAttribute(null, attribute);
+			}
+			for (java.util.Map.Entry<String,Integer> dimension : reader.getDimensions().entrySet()) {
+				if (dimension.getValue() < 0) {
+					dataFile.addUnlimitedDimension(dimension.getKey());
+				} else {
+					dataFile.addDimension(null, dimension.getKey(), dimension.getValue());
+				}
+			}
+			long size = 0;
+			for (String name : reader.getVariableNames()) {
+				Variable variable = dataFile.addVariable(null, name, reader.getDataType(name), String.join(" ", reader.getDimensionNames(name)));
+				for (Attribute attribute : reader.getAttributes(name)) {
+					dataFile.addVariableAttribute(variable, attribute);
+				}
+				int records = reader.isRecordVariable(name) ? reader.getNumberOfRecords() : 1;
+				size += (long) records*reader.getLength(name)*reader.getDataType(name).getSize();
+			}
+			dataFile.setLargeFile(size > CDF1_SIZE_MAX);
+			dataFile.create();
+
+			try {
+				for (String name : reader.getVariableNames()) {
+					int[] shape = reader.getShape(name);
+					if (!reader.isRecordVariable(name)) {
+						dataFile.write(dataFile.findVariable(name), Array.factory(reader.getDataType(name), shape, reader.read(name)));
+						continue;
+					}
+					// blocks of about 64 MB
+					int block = (int) Math.max(1, (64L << 20)/Math.max(1, (long) reader.getLength(name)*reader.getDataType(name).getSize()));
+					int[] origin = new int[shape.length];
+					for (int first = 0; first < reader.getNumberOfRecords(name); first += block) {
+						origin[0] = first;
+						shape[0] = Math.min(block, reader.getNumberOfRecords(name) - first);
+						dataFile.write(dataFile.findVariable(name), origin, Array.factory(reader.getDataType(name), shape, reader.read(name, first, shape[0])));
+					}
+				}
+			} catch (InvalidRangeException e) {
+				throw new IOException("Cannot write " + netcdfFileName, e);
+			} finally {
+				dataFile.close();
+			}
+		}
+	}
+
+
+	public static void main(String[] args) throws IOException {
+		if (args.length >= 3 && args[0].equals("toChunked")) {
+			toChunked(args[1], args[2], args.length > 3 ? Integer.parseInt(args[3]) : 256, args.length > 4 ? Integer.parseInt(args[4]) : 0,
+					args.length > 5 ? Integer.parseInt(args[5]) : 6);
+		} else if (args.length == 3 && args[0].equals("toNetCDF3")) {
+			toNetCDF3(args[1], args[2]);
+		} else {
+			System.err.println("Usage: ChunkedFileConverter toChunked input.nc output.gfc [chunkRecords chunkValues level]");
+			System.err.println("       ChunkedFileConverter toNetCDF3 input.gfc output.nc");
+			System.exit(1);
+		}
+	}
+
+}
@@ -0,0 +1,387 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.utilities;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Inflater;
+
+import it.geoframe.blogspot.netcdf.utilities.ChunkedFile.Chunk;
+import ucar.ma2.DataType;
+import ucar.nc2.Attribute;
+
+/**
+ * Reads a chunked output file (see ChunkedFile).
+ *
+ * The header and the index of the chunks are read when the file is opened, the index is rebuilt from the
+ * chunk headers if the file was not closed. read(name, firstRecord, records) decompresses only the chunks
+ * overlapping the records and returns their values in a primitive array, record after record.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public class ChunkedFileReader implements Closeable {
+
+	private final String fileName;
+	private final RandomAccessFile file;
+	private final Inflater inflater = new Inflater();
+
+	private final List<Attribute> headerAttributes;
+	private final List<Attribute> updatedAttributes = new ArrayList<Attribute>();
+	private final Map<String,Integer> dimensions = new LinkedHashMap<String,Integer>();
+	private final Map<String,ChunkedVariable> variables = new LinkedHashMap<String,ChunkedVariable>();
+	private final List<ChunkedVariable> variablesByIndex = new ArrayList<ChunkedVariable>();
+	private final List<Chunk> chunks = new ArrayList<Chunk>();
+	private final long headerEnd;
+	private final long dataEnd;
+
+
+	private static final class ChunkedVariable {
+
+		private final String name;
+		private final DataType dataType;
+		private final String[] dimensions;
+		private final List<Attribute> attributes;
+		private boolean record = false;
+		private int length = 1;
+		private int records = 0;
+		private final List<Chunk> chunks = new ArrayList<Chunk>();
+
+		private ChunkedVariable(String name, DataType dataType, String[] dimensions, List<Attribute> attributes) {
+			this.name = name;
+			this.dataType = dataType;
+			this.dimensions = dimensions;
+			this.attributes = attributes;
+		}
+	}
+
+
+	public ChunkedFileReader(String fileName) throws IOException {
+
+		this.fileName = fileName;
+		file = new RandomAccessFile(fileName, "r");
+		try {
+			long fileLength = file.length();
+			if (fileLength < 8 || file.readInt() != ChunkedFile.MAGIC) {
+				throw new IOException(fileName + " is not a chunked output file");
+			}
+			byte[] headerBytes = new byte[file.readInt()];
+			file.readFully(headerBytes);
+			DataInputStream header = new DataInputStream(new ByteArrayInputStream(headerBytes));
+
+			headerAttributes = ChunkedFile.readAttributes(header);
+			int count = header.readInt();
+			for (int d = 0; d < count; d++) {
+				dimensions.put(header.readUTF(), header.readInt());
+			}
+			count = header.readInt();
+			for (int v = 0; v < count; v++) {
+				String name = header.readUTF();
+				DataType dataType = DataType.getType(header.readUTF());
+				String[] variableDimensions = new String[header.readInt()];
+				for (int d = 0; d < variableDimensions.length; d++) {
+					variableDimensions[d] = header.readUTF();
+				}
+				ChunkedVariable variable = new ChunkedVariable(name, dataType, variableDimensions, ChunkedFile.readAttributes(header));
+				for (String dimension : variableDimensions) {
+					int length = dimensions.get(dimension);
+					if (length < 0) {
+						variable.record = true;
+					} else {
+						variable.length *= length;
+					}
+				}
+				variables.put(name, variable);
+				variablesByIndex.add(variable);
+			}
+
+			headerEnd = file.getFilePointer();
+			dataEnd = readIndex(fileLength) ? getIndexOffset(fileLength) : scan(headerEnd, fileLength);
+
+			for (Chunk chunk : chunks) {
+				ChunkedVariable variable = variablesByIndex.get(chunk.variable);
+				variable.chunks.add(chunk);
+				variable.records = Math.max(variable.records, chunk.firstRecord + chunk.records);
+			}
+		} catch (IOException | RuntimeException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+
+	/**
+	 * @return the global attributes, with the values updated after the creation of the file
+	 */
+	public List<Attribute> getGlobalAttributes() {
+		Map<String,Attribute> attributes = new LinkedHashMap<String,Attribute>();
+		for (Attribute attribute : headerAttributes) {
+			attributes.put(attribute.getShortName(), attribute);
+		}
+		for (Attribute attribute : updatedAttributes) {
+			attributes.put(attribute.getShortName(), attribute);
+		}
+		return new ArrayList<Attribute>(attributes.values());
+	}
+
+
+	public Attribute findGlobalAttribute(String name) {
+		for (Attribute attribute : getGlobalAttributes()) {
+			if (attribute.getShortName().equals(name)) {
+				return attribute;
+			}
+		}
+		return null;
+	}
+
+
+	/**
+	 * @return length of each dimension, -1 for the unlimited one
+	 */
+	public Map<String,Integer> getDimensions() {
+		return Collections.unmodifiableMap(dimensions);
+	}
+
+
+	public List<String> getVariableNames() {
+		return new ArrayList<String>(variables.keySet());
+	}
+
+
+	public DataType getDataType(String name) {
+		return getVariable(name).dataType;
+	}
+
+
+	public String[] getDimensionNames(String name) {
+		return getVariable(name).dimensions.clone();
+	}
+
+
+	public List<Attribute> getAttributes(String name) {
+		return Collections.unmodifiableList(getVariable(name).attributes);
+	}
+
+
+	public boolean isRecordVariable(String name) {
+		return getVariable(name).record;
+	}
+
+
+	/**
+	 * @return number of values of each record of a record variable, of the whole variable otherwise
+	 */
+	public int getLength(String name) {
+		return getVariable(name).length;
+	}
+
+
+	/**
+	 * @return shape of the variable, the records written for the unlimited dimension
+	 */
+	public int[] getShape(String name) {
+		ChunkedVariable variable = getVariable(name);
+		int[] shape = new int[variable.dimensions.length];
+		for (int d = 0; d < shape.length; d++) {
+			int length = dimensions.get(variable.dimensions[d]);
+			shape[d] = length < 0 ? variable.records : length;
+		}
+		return shape;
+	}
+
+
+	/**
+	 * @return number of records of a record variable
+	 */
+	public int getNumberOfRecords(String name) {
+		return getVariable(name).records;
+	}
+
+
+	/**
+	 * @return number of records of the longest record variable
+	 */
+	public int getNumberOfRecords() {
+		int records = 0;
+		for (ChunkedVariable variable : variables.values()) {
+			if (variable.record) {
+				records = Math.max(records, variable.records);
+			}
+		}
+		return records;
+	}
+
+
+	/**
+	 * @return all the values of a variable: double[], float[], int[] or short[]
+	 */
+	public Object read(String name) throws IOException {
+		ChunkedVariable variable = getVariable(name);
+		return read(name, 0, variable.record ? variable.records : 1);
+	}
+
+
+	/**
+	 * @param firstRecord first record to read
+	 * @param records number of records to read
+	 * @return the values of the records: double[], float[], int[] or short[] of records*getLength(name) elements,
+	 * the records never written are zero
+	 */
+	public Object read(String name, int firstRecord, int records) throws IOException {
+
+		ChunkedVariable variable = getVariable(name);
+		Object values = ChunkedFile.newArray(variable.dataType, records*variable.length);
+		int endRecord = firstRecord + records;
+
+		for (Chunk chunk : variable.chunks) {
+			int first = Math.max(firstRecord, chunk.firstRecord);
+			int end = Math.min(endRecord, chunk.firstRecord + chunk.records);
+			if (first >= end) {
+				continue;
+			}
+			byte[] data = new byte[chunk.length];
+			file.seek(chunk.offset + ChunkedFile.CHUNK_HEADER_SIZE);
+			file.readFully(data);
+			Object chunkValues = ChunkedFile.decode(data, chunk.codec, variable.dataType, chunk.records*chunk.values, inflater);
+			for (int r = first; r < end; r++) {
+				System.arraycopy(chunkValues, (r - chunk.firstRecord)*chunk.values, values, (r - firstRecord)*variable.length + chunk.firstValue, chunk.values);
+			}
+		}
+		return values;
+	}
+
+
+	@Override
+	public void close() throws IOException {
+		inflater.end();
+		file.close();
+	}
+
+
+	List<Attribute> getHeaderAttributes() {
+		return headerAttributes;
+	}
+
+
+	List<Attribute> getUpdatedAttributes() {
+		return updatedAttributes;
+	}
+
+
+	List<Chunk> getChunks() {
+		return chunks;
+	}
+
+
+	/**
+	 * @return position of the first chunk
+	 */
+	long getHeaderEnd() {
+		return headerEnd;
+	}
+
+
+	/**
+	 * @return position after the last chunk, where the index is or new chunks are appended
+	 */
+	long getDataEnd() {
+		return dataEnd;
+	}
+
+
+	private ChunkedVariable getVariable(String name) {
+		ChunkedVariable variable = variables.get(name);
+		if (variable == null) {
+			throw new IllegalArgumentException("Variable " + name + " not found in " + fileName);
+		}
+		return variable;
+	}
+
+
+	private long getIndexOffset(long fileLength) throws IOException {
+		file.seek(fileLength - ChunkedFile.TRAILER_SIZE);
+		return file.readLong();
+	}
+
+
+	/**
+	 * @return false if the file has no index
+	 */
+	private boolean readIndex(long fileLength) throws IOException {
+
+		if (fileLength < ChunkedFile.TRAILER_SIZE) {
+			return false;
+		}
+		file.seek(fileLength - ChunkedFile.TRAILER_SIZE);
+		long offset = file.readLong();
+		if (file.readInt() != ChunkedFile.TRAILER_MAGIC || offset < 8 || offset >= fileLength - ChunkedFile.TRAILER_SIZE) {
+			return false;
+		}
+
+		byte[] bytes = new byte[(int) (fileLength - ChunkedFile.TRAILER_SIZE - offset)];
+		file.seek(offset);
+		file.readFully(bytes);
+		DataInputStream index = new DataInputStream(new ByteArrayInputStream(bytes));
+		if (index.readByte() != ChunkedFile.INDEX) {
+			return false;
+		}
+		updatedAttributes.addAll(ChunkedFile.readAttributes(index));
+		int count = index.readInt();
+		for (int c = 0; c < count; c++) {
+			Chunk chunk = Chunk.read(index, 0);
+			chunks.add(new Chunk(chunk.variable, chunk.firstRecord, chunk.records, chunk.firstValue, chunk.values, chunk.codec, chunk.length, index.readLong()));
+		}
+		return true;
+	}
+
+
+	/**
+	 * Rebuild the index from the chunk headers, a truncated last chunk is ignored.
+	 *
+	 * @return position after the last complete chunk
+	 */
+	private long scan(long position, long fileLength) throws IOException {
+		byte[] bytes = new byte[ChunkedFile.CHUNK_HEADER_SIZE];
+		while (position + ChunkedFile.CHUNK_HEADER_SIZE <= fileLength) {
+			file.seek(position);
+			file.readFully(bytes);
+			DataInputStream header = new DataInputStream(new ByteArrayInputStream(bytes));
+			if (header.readByte() != ChunkedFile.CHUNK) {
+				break;
+			}
+			Chunk chunk = Chunk.read(header, position);
+			if (chunk.variable < 0 || chunk.variable >= variablesByIndex.size() || position + ChunkedFile.CHUNK_HEADER_SIZE + chunk.length > fileLength) {
+				break;
+			}
+			chunks.add(chunk);
+			position += ChunkedFile.CHUNK_HEADER_SIZE + chunk.length;
+		}
+		return position;
+	}
+
+}
@@ -0,0 +1,500 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.utilities;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+
+import it.geoframe.blogspot.netcdf.utilities.ChunkedFile.Chunk;
+import ucar.ma2.DataType;
+import ucar.nc2.Attribute;
+
+/**
+ * Writes a chunked output file (see ChunkedFile), with the same sequence of calls of a NetcdfFileWriter:
+ * define the attributes, the dimensions and the variables, create the file, then write the static variables
+ * and append the records of the record variables.
+ *
+ * The appended records are kept in memory until chunkRecords records of a variable are available, then they are
+ * compressed and written; the last records are written when the file is closed, together with the index of the chunks.
+ * A closed file can be opened again to append more records. The files still open at the exit of the JVM
+ * are closed by a shutdown hook.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public class ChunkedFileWriter implements Closeable {
+
+	private static final Set<ChunkedFileWriter> openWriters = ConcurrentHashMap.newKeySet();
+	private static boolean shutdownHookRegistered = false;
+
+	private final String fileName;
+	private final int chunkRecords;
+	private final int chunkValues;
+	private final int level;
+
+	private final List<Attribute> globalAttributes = new ArrayList<Attribute>();
+	private final Map<String,Attribute> updatedAttributes = new LinkedHashMap<String,Attribute>();
+	private final Map<String,Integer> dimensions = new LinkedHashMap<String,Integer>();
+	private final List<ChunkedVariable> variables = new ArrayList<ChunkedVariable>();
+	private final Map<String,ChunkedVariable> variablesByName = new LinkedHashMap<String,ChunkedVariable>();
+	private final List<Chunk> chunks = new ArrayList<Chunk>();
+
+	private RandomAccessFile file;
+	private Deflater deflater;
+	private final byte[][] scratch = new byte[3][];
+	private final ByteBuffer chunkHeader = ByteBuffer.allocate(ChunkedFile.CHUNK_HEADER_SIZE);
+	private long end;
+	private long compressedBytes = 0;
+	private long uncompressedBytes = 0;
+
+
+	/**
+	 * A variable of the file, with the records not written yet.
+	 */
+	private static final class ChunkedVariable {
+
+		final String name;
+		final DataType dataType;
+		final String[] dimensions;
+		final List<Attribute> attributes;
+		final boolean record;
+		final int length;
+		final int index;
+		int records;
+
+		private Object pending;
+		private int pendingRecords;
+		private Object block;
+
+		ChunkedVariable(String name, DataType dataType, String[] dimensions, List<Attribute> attributes, boolean record, int length, int index) {
+			this.name = name;
+			this.dataType = dataType;
+			this.dimensions = dimensions;
+			this.attributes = attributes;
+			this.record = record;
+			this.length = length;
+			this.index = index;
+		}
+	}
+
+
+	/**
+	 * @param fileName name of the new file
+	 * @param chunkRecords maximum number of records of each chunk
+	 * @param chunkValues maximum number of values of each record in a chunk (for example depths), all of them if not positive
+	 * @param level deflate level, from 0 (no compression) to 9
+	 */
+	public ChunkedFileWriter(String fileName, int chunkRecords, int chunkValues, int level) {
+		if (chunkRecords < 1) {
+			throw new IllegalArgumentException("The number of records of each chunk must be positive: " + chunkRecords);
+		}
+		if (level < 0 || level > 9) {
+			throw new IllegalArgumentException("The deflate level must be between 0 and 9: " + level);
+		}
+		this.fileName = fileName;
+		this.chunkRecords = chunkRecords;
+		this.chunkValues = chunkValues;
+		this.level = level;
+	}
+
+
+	/**
+	 * Open a closed file to append records: the index is removed and written again at the next close.
+	 */
+	public static ChunkedFileWriter openExisting(String fileName, int chunkRecords, int chunkValues, int level) throws IOException {
+		return openExisting(fileName, chunkRecords, chunkValues, level, Integer.MAX_VALUE);
+	}
+
+
+	/**
+	 * Open a closed file to append records after the first records ones: the following chunks and the index
+	 * are removed, the index is written again at the next close.
+	 *
+	 * @throws IOException if a chunk holds records before and after records, or a record variable has fewer records
+	 */
+	public static ChunkedFileWriter openExisting(String fileName, int chunkRecords, int chunkValues, int level, int records) throws IOException {
+
+		ChunkedFileWriter writer = new ChunkedFileWriter(fileName, chunkRecords, chunkValues, level);
+		long dataEnd;
+		try (ChunkedFileReader reader = new ChunkedFileReader(fileName)) {
+			writer.globalAttributes.addAll(reader.getHeaderAttributes());
+			for (Attribute attribute : reader.getUpdatedAttributes()) {
+				writer.updatedAttributes.put(attribute.getShortName(), attribute);
+			}
+			writer.dimensions.putAll(reader.getDimensions());
+			for (String name : reader.getVariableNames()) {
+				ChunkedVariable variable = writer.define(name, reader.getDataType(name), reader.getDimensionNames(name), reader.getAttributes(name));
+				variable.records = reader.isRecordVariable(name) ? reader.getNumberOfRecords(name) : 1;
+				if (variable.record && records != Integer.MAX_VALUE) {
+					if (variable.records < records) {
+						throw new IOException("Variable " + name + " of " + fileName + " has " + variable.records + " records, fewer than " + records);
+					}
+					variable.records = records;
+				}
+			}
+
+			// the chunks are in the order they were written, those after the records are dropped
+			dataEnd = reader.getDataEnd();
+			for (Chunk chunk : reader.getChunks()) {
+				if (chunk.firstRecord + chunk.records <= records || !writer.variables.get(chunk.variable).record) {
+					writer.chunks.add(chunk);
+				} else if (chunk.firstRecord >= records) {
+					dataEnd = Math.min(dataEnd, chunk.offset);
+				} else {
+					throw new IOException("The chunked file " + fileName + " cannot be truncated at the record " + records);
+				}
+			}
+			for (Chunk chunk : writer.chunks) {
+				if (chunk.offset + ChunkedFile.CHUNK_HEADER_SIZE + chunk.length > dataEnd) {
+					throw new IOException("The chunked file " + fileName + " cannot be truncated at the record " + records);
+				}
+			}
+			dataEnd = Math.max(dataEnd, reader.getHeaderEnd());
+		}
+
+		writer.file = new RandomAccessFile(fileName, "rw");
+		writer.file.setLength(dataEnd);
+		writer.file.seek(dataEnd);
+		writer.end = dataEnd;
+		writer.deflater = new Deflater(level);
+		register(writer);
+		return writer;
+	}
+
+
+	public void addGlobalAttribute(Attribute attribute) {
+		if (file != null) {
+			// after the creation the attributes are written in the index
+			updatedAttributes.put(attribute.getShortName(), attribute);
+		} else {
+			globalAttributes.removeIf(previous -> previous.getShortName().equals(attribute.getShortName()));
+			globalAttributes.add(attribute);
+		}
+	}
+
+
+	public void addDimension(String name, int length) {
+		dimensions.put(name, length);
+	}
+
+
+	public void addUnlimitedDimension(String name) {
+		dimensions.put(name, -1);
+	}
+
+
+	/**
+	 * @param dimensions names of the dimensions separated by spaces, the unlimited one first for a record variable
+	 */
+	public void addVariable(String name, DataType dataType, String dimensions, List<Attribute> attributes) {
+		ChunkedFile.getSize(dataType);
+		define(name, dataType, dimensions.trim().isEmpty() ? new String[0] : dimensions.trim().split("\\s+"), new ArrayList<Attribute>(attributes));
+	}
+
+
+	private ChunkedVariable define(String name, DataType dataType, String[] dimensionNames, List<Attribute> attributes) {
+		int length = 1;
+		boolean record = false;
+		for (int d = 0; d < dimensionNames.length; d++) {
+			Integer dimension = dimensions.get(dimensionNames[d]);
+			if (dimension == null) {
+				throw new IllegalArgumentException("Dimension " + dimensionNames[d] + " of " + name + " is not defined");
+			}
+			if (dimension < 0) {
+				if (d > 0) {
+					throw new IllegalArgumentException("The unlimited dimension must be the first one of " + name);
+				}
+				record = true;
+			} else {
+				length *= dimension;
+			}
+		}
+		ChunkedVariable variable = new ChunkedVariable(name, dataType, dimensionNames, attributes, record, length, variables.size());
+		variables.add(variable);
+		variablesByName.put(name, variable);
+		return variable;
+	}
+
+
+	/**
+	 * Write the header, at this point the file is created on disk.
+	 */
+	public void create() throws IOException {
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream header = new DataOutputStream(bytes);
+		ChunkedFile.writeAttributes(header, globalAttributes);
+		header.writeInt(dimensions.size());
+		for (Map.Entry<String,Integer> dimension : dimensions.entrySet()) {
+			header.writeUTF(dimension.getKey());
+			header.writeInt(dimension.getValue());
+		}
+		header.writeInt(variables.size());
+		for (ChunkedVariable variable : variables) {
+			header.writeUTF(variable.name);
+			header.writeUTF(variable.dataType.toString());
+			header.writeInt(variable.dimensions.length);
+			for (String dimension : variable.dimensions) {
+				header.writeUTF(dimension);
+			}
+			ChunkedFile.writeAttributes(header, variable.attributes);
+		}
+		header.flush();
+
+		file = new RandomAccessFile(fileName, "rw");
+		file.setLength(0);
+		file.writeInt(ChunkedFile.MAGIC);
+		file.writeInt(bytes.size());
+		file.write(bytes.toByteArray());
+		end = file.getFilePointer();
+		deflater = new Deflater(level);
+		register(this);
+	}
+
+
+	/**
+	 * Write the values of a static variable.
+	 *
+	 * @param values double[], float[], int[] or short[] of the type of the variable
+	 */
+	public synchronized void write(String name, Object values) throws IOException {
+		ChunkedVariable variable = getVariable(name, false);
+		variable.pending = values;
+		variable.pendingRecords = 1;
+		writeChunks(variable);
+		variable.pending = null;
+		variable.records = 1;
+	}
+
+
+	/**
+	 * Append records of a record variable.
+	 *
+	 * @param values double[], float[], int[] or short[] of the type of the variable, record after record
+	 * @param offset position of the first value to write
+	 * @param records number of records to append
+	 */
+	public synchronized void append(String name, Object values, int offset, int records) throws IOException {
+
+		ChunkedVariable variable = getVariable(name, true);
+		if (variable.pending == null) {
+			variable.pending = ChunkedFile.newArray(variable.dataType, chunkRecords*variable.length);
+		}
+
+		int written = 0;
+		while (written < records) {
+			int n = Math.min(records - written, chunkRecords - variable.pendingRecords);
+			System.arraycopy(values, offset + written*variable.length, variable.pending, variable.pendingRecords*variable.length, n*variable.length);
+			variable.pendingRecords += n;
+			variable.records += n;
+			written += n;
+			if (variable.pendingRecords == chunkRecords) {
+				writeChunks(variable);
+			}
+		}
+	}
+
+
+	public boolean hasVariable(String name) {
+		return variablesByName.containsKey(name);
+	}
+
+
+	/**
+	 * @return number of records of the longest record variable
+	 */
+	public int getNumberOfRecords() {
+		int records = 0;
+		for (ChunkedVariable variable : variables) {
+			if (variable.record) {
+				records = Math.max(records, variable.records);
+			}
+		}
+		return records;
+	}
+
+
+	/**
+	 * @return size of the file [bytes], the records not written yet are estimated with getRecordSize()
+	 */
+	public long getSize() {
+		long pendingBytes = 0;
+		for (ChunkedVariable variable : variables) {
+			if (variable.record) {
+				pendingBytes += (long) variable.pendingRecords*variable.length*ChunkedFile.getSize(variable.dataType);
+			}
+		}
+		return end + (long) (pendingBytes*getCompressionRatio());
+	}
+
+
+	/**
+	 * @return estimated size of a compressed record of all the record variables [bytes]
+	 */
+	public long getRecordSize() {
+		long recordBytes = 0;
+		for (ChunkedVariable variable : variables) {
+			if (variable.record) {
+				recordBytes += (long) variable.length*ChunkedFile.getSize(variable.dataType);
+			}
+		}
+		return Math.max(1, (long) Math.ceil(recordBytes*getCompressionRatio()));
+	}
+
+
+	/**
+	 * Write the records in memory and the index of the chunks, then close the file.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+
+		if (file == null) {
+			return;
+		}
+		try {
+			for (ChunkedVariable variable : variables) {
+				if (variable.record && variable.pendingRecords > 0) {
+					writeChunks(variable);
+				}
+			}
+
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream index = new DataOutputStream(bytes);
+			index.writeByte(ChunkedFile.INDEX);
+			ChunkedFile.writeAttributes(index, new ArrayList<Attribute>(updatedAttributes.values()));
+			index.writeInt(chunks.size());
+			ByteBuffer entry = ByteBuffer.allocate(ChunkedFile.CHUNK_HEADER_SIZE - 1 + 8);
+			for (Chunk chunk : chunks) {
+				entry.clear();
+				chunk.write(entry);
+				entry.putLong(chunk.offset);
+				index.write(entry.array(), 0, entry.position());
+			}
+			index.writeLong(end);
+			index.writeInt(ChunkedFile.TRAILER_MAGIC);
+			index.flush();
+
+			file.seek(end);
+			file.write(bytes.toByteArray());
+			file.setLength(file.getFilePointer());
+		} finally {
+			file.close();
+			file = null;
+			deflater.end();
+			openWriters.remove(this);
+		}
+	}
+
+
+	private static synchronized void register(ChunkedFileWriter writer) {
+		openWriters.add(writer);
+		if (!shutdownHookRegistered) {
+			Runtime.getRuntime().addShutdownHook(new Thread(ChunkedFileWriter::closeAll, "chunked-close"));
+			shutdownHookRegistered = true;
+		}
+	}
+
+
+	/**
+	 * Close all the files still open, called by the shutdown hook, after the queued steps of the writer threads are written.
+	 */
+	public static void closeAll() {
+		AsyncNetCDFWriter.closeAll();
+		for (ChunkedFileWriter writer : openWriters) {
+			try {
+				writer.close();
+			} catch (IOException ioe) {
+				ioe.printStackTrace();
+			}
+		}
+	}
+
+
+	private ChunkedVariable getVariable(String name, boolean record) {
+		ChunkedVariable variable = variablesByName.get(name);
+		if (variable == null) {
+			throw new IllegalArgumentException("Variable " + name + " is not defined in " + fileName);
+		}
+		if (variable.record != record) {
+			throw new IllegalArgumentException("Variable " + name + (record ? " is not" : " is") + " a record variable");
+		}
+		if (file == null) {
+			throw new IllegalStateException("The file " + fileName + " is not created or it is closed");
+		}
+		return variable;
+	}
+
+
+	/**
+	 * Write the records in memory of a variable, in blocks of chunkValues values of each record.
+	 */
+	private void writeChunks(ChunkedVariable variable) throws IOException {
+
+		int records = variable.pendingRecords;
+		int firstRecord = variable.record ? variable.records - records : 0;
+		int blockValues = chunkValues > 0 ? Math.min(chunkValues, variable.length) : variable.length;
+		if (variable.block == null || java.lang.reflect.Array.getLength(variable.block) < records*blockValues) {
+			variable.block = ChunkedFile.newArray(variable.dataType, chunkRecords*blockValues);
+		}
+
+		for (int firstValue = 0; firstValue < variable.length; firstValue += blockValues) {
+			int values = Math.min(blockValues, variable.length - firstValue);
+			Object block = variable.pending;
+			if (values != variable.length) {
+				block = variable.block;
+				for (int r = 0; r < records; r++) {
+					System.arraycopy(variable.pending, r*variable.length + firstValue, block, r*values, values);
+				}
+			}
+			int length = ChunkedFile.encode(block, 0, records*values, deflater, scratch);
+
+			Chunk chunk = new Chunk(variable.index, firstRecord, records, firstValue, values, ChunkedFile.SHUFFLE_DEFLATE, length, end);
+			chunkHeader.clear();
+			chunkHeader.put(ChunkedFile.CHUNK);
+			chunk.write(chunkHeader);
+			file.seek(end);
+			file.write(chunkHeader.array(), 0, ChunkedFile.CHUNK_HEADER_SIZE);
+			file.write(scratch[2], 0, length);
+			end += ChunkedFile.CHUNK_HEADER_SIZE + length;
+			chunks.add(chunk);
+
+			compressedBytes += length;
+			uncompressedBytes += (long) records*values*ChunkedFile.getSize(variable.dataType);
+		}
+		variable.pendingRecords = 0;
+	}
+
+
+	private double getCompressionRatio() {
+		return uncompressedBytes == 0 ? 1.0 : (double) compressedBytes/uncompressedBytes;
+	}
+
+}
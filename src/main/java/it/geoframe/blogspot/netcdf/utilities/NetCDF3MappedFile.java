@@ -0,0 +1,502 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.utilities;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Memory-mapped reader of the classic netCDF-3 files (CDF-1 and CDF-2) written by the writers.
+ *
+ * The header is read and parsed once, without mapping the file, then the values are accessed through read-only views of the mapped
+ * file, without copies and without the ucar.ma2.Array decoding: getDoubleBuffer(name, record)
+ * returns the values of a record of a variable, for example the depths of psi at a time step.
+ * The records are mapped in segments of at most 1 GB, each record lies in a single segment; the non record
+ * variables and each segment are mapped the first time they are accessed, so a file opened only for its header
+ * or for a few values with getDouble is never mapped. Values are big-endian, as the format requires.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public class NetCDF3MappedFile implements Closeable {
+
+	private static final int NC_DIMENSION = 10;
+	private static final int NC_VARIABLE = 11;
+	private static final int NC_ATTRIBUTE = 12;
+	private static final int STREAMING = -1;
+	private static final long SEGMENT_SIZE = 1L << 30;
+	private static final int HEADER_SIZE = 1 << 16;
+
+	private final String fileName;
+	private final Map<String,MappedVariable> variables = new LinkedHashMap<String,MappedVariable>();
+	private final Map<String,String> textAttributes = new LinkedHashMap<String,String>();
+	private final FileChannel channel;
+	private final long fileLength;
+	private int records;
+	private long recordSize;
+	private long recordsBegin;
+	private int recordsPerSegment;
+	private ByteBuffer fixed;
+	private ByteBuffer[] segments;
+
+
+	/**
+	 * A variable of the file: the record dimension, if any, is the first one.
+	 */
+	private static final class MappedVariable {
+
+		private final String name;
+		private final int[] shape;
+		private final boolean record;
+		private final int type;
+		private final long begin;
+		private final int length;
+
+		private MappedVariable(String name, int[] shape, boolean record, int type, long begin) {
+			this.name = name;
+			this.shape = shape;
+			this.record = record;
+			this.type = type;
+			this.begin = begin;
+			int length = 1;
+			for (int d = record ? 1 : 0; d < shape.length; d++) {
+				length *= shape[d];
+			}
+			this.length = length;
+		}
+	}
+
+
+	public NetCDF3MappedFile(String fileName) throws IOException {
+
+		this.fileName = fileName;
+		channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+		try {
+			fileLength = channel.size();
+			// the header is usually a few kB, it is read again with a larger buffer if it is longer
+			for (long size = HEADER_SIZE; ; size *= 2) {
+				try {
+					readHeader(read(0, (int) Math.min(fileLength, Math.min(size, Integer.MAX_VALUE))));
+					break;
+				} catch (BufferUnderflowException | IllegalArgumentException e) {
+					if (size >= fileLength || size >= Integer.MAX_VALUE) {
+						throw new IOException(fileName + " is not a classic netCDF-3 file, the header is truncated", e);
+					}
+					variables.clear();
+					textAttributes.clear();
+				}
+			}
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+
+		recordsPerSegment = recordSize == 0 ? 1 : (int) Math.max(1, Math.min(Integer.MAX_VALUE, SEGMENT_SIZE/recordSize));
+		segments = new ByteBuffer[(records + recordsPerSegment - 1)/recordsPerSegment];
+	}
+
+
+	private void readHeader(ByteBuffer header) throws IOException {
+
+		if (header.get() != 'C' || header.get() != 'D' || header.get() != 'F') {
+			throw new IOException(fileName + " is not a classic netCDF-3 file");
+		}
+		int version = header.get();
+		if (version != 1 && version != 2) {
+			throw new IOException(fileName + " is not a classic netCDF-3 file, version " + version);
+		}
+		int numrecs = header.getInt();
+
+		// dimensions, the unlimited one has length 0
+		List<Integer> dimensions = new ArrayList<Integer>();
+		int tag = header.getInt();
+		int count = header.getInt();
+		if (tag == NC_DIMENSION) {
+			for (int i = 0; i < count; i++) {
+				readName(header);
+				dimensions.add(header.getInt());
+			}
+		}
+
+		readAttributes(header, textAttributes);
+
+		long recordSize = 0;
+		long recordsBegin = fileLength;
+		int recordVariables = 0;
+		MappedVariable lastRecordVariable = null;
+		tag = header.getInt();
+		count = header.getInt();
+		if (tag == NC_VARIABLE) {
+			for (int i = 0; i < count; i++) {
+				String name = readName(header);
+				int[] shape = new int[header.getInt()];
+				for (int d = 0; d < shape.length; d++) {
+					shape[d] = dimensions.get(header.getInt());
+				}
+				readAttributes(header, null);
+				int type = header.getInt();
+				long vsize = header.getInt() & 0xffffffffL;
+				long begin = version == 1 ? header.getInt() & 0xffffffffL : header.getLong();
+				boolean record = shape.length > 0 && shape[0] == 0;
+				MappedVariable variable = new MappedVariable(name, shape, record, type, begin);
+				variables.put(name, variable);
+				if (record) {
+					recordSize += vsize;
+					recordsBegin = Math.min(recordsBegin, begin);
+					recordVariables++;
+					lastRecordVariable = variable;
+				}
+			}
+		}
+		// with a single record variable the records are not padded
+		if (recordVariables == 1) {
+			recordSize = (long) lastRecordVariable.length*sizeOf(lastRecordVariable.type);
+		}
+		this.recordSize = recordSize;
+		this.recordsBegin = recordsBegin;
+
+		if (numrecs == STREAMING) {
+			numrecs = recordSize == 0 ? 0 : (int) ((fileLength - recordsBegin)/recordSize);
+		}
+		records = numrecs;
+		for (MappedVariable variable : variables.values()) {
+			if (variable.record) {
+				variable.shape[0] = records;
+			}
+		}
+	}
+
+
+	public String getFileName() {
+		return fileName;
+	}
+
+
+	/**
+	 * @return number of records (time steps)
+	 */
+	public int getNumberOfRecords() {
+		return records;
+	}
+
+
+	/**
+	 * @return number of bytes of each record
+	 */
+	public long getRecordSize() {
+		return recordSize;
+	}
+
+
+	/**
+	 * @return position of the first record in the file
+	 */
+	public long getRecordsBegin() {
+		return recordsBegin;
+	}
+
+
+	public List<String> getVariableNames() {
+		return Collections.unmodifiableList(new ArrayList<String>(variables.keySet()));
+	}
+
+
+	public boolean isRecordVariable(String name) {
+		return getVariable(name).record;
+	}
+
+
+	/**
+	 * @return shape of the variable, the first dimension of a record variable is the number of records
+	 */
+	public int[] getShape(String name) {
+		return getVariable(name).shape.clone();
+	}
+
+
+	/**
+	 * @return number of values of each record of a record variable, or of a non record variable
+	 */
+	public int getLength(String name) {
+		return getVariable(name).length;
+	}
+
+
+	/**
+	 * @return Java type of the values: byte, char, short, int, float or double
+	 */
+	public Class<?> getType(String name) {
+		switch (getVariable(name).type) {
+		case 1:
+			return byte.class;
+		case 2:
+			return char.class;
+		case 3:
+			return short.class;
+		case 4:
+			return int.class;
+		case 5:
+			return float.class;
+		default:
+			return double.class;
+		}
+	}
+
+
+	/**
+	 * @return the value of a text global attribute, null if it is not defined
+	 */
+	public String getTextAttribute(String name) {
+		return textAttributes.get(name);
+	}
+
+
+	/**
+	 * @return read-only view of the values of the record of a double variable, record is ignored for non record variables
+	 */
+	public DoubleBuffer getDoubleBuffer(String name, int record) {
+		return view(name, record, 6).asDoubleBuffer();
+	}
+
+
+	/**
+	 * @return read-only view of count values, from the first-th one, of the record of a double variable
+	 */
+	public DoubleBuffer getDoubleBuffer(String name, int record, int first, int count) {
+		DoubleBuffer buffer = getDoubleBuffer(name, record);
+		buffer.position(first);
+		buffer.limit(first + count);
+		return buffer.slice();
+	}
+
+
+	/**
+	 * @return read-only view of the values of the record of a float variable, record is ignored for non record variables
+	 */
+	public FloatBuffer getFloatBuffer(String name, int record) {
+		return view(name, record, 5).asFloatBuffer();
+	}
+
+
+	/**
+	 * @return read-only view of the values of the record of an int variable, record is ignored for non record variables
+	 */
+	public IntBuffer getIntBuffer(String name, int record) {
+		return view(name, record, 4).asIntBuffer();
+	}
+
+
+	/**
+	 * @return the index-th value of the record of a numeric variable, converted to double; the value is read
+	 * from the file without mapping it, use the views to access many values
+	 */
+	public double getDouble(String name, int record, int index) {
+		MappedVariable variable = getVariable(name);
+		if (index < 0 || index >= variable.length) {
+			throw new IndexOutOfBoundsException("Index " + index + " of " + name + ", length " + variable.length);
+		}
+		checkRecord(variable, record);
+		long position = (variable.record ? variable.begin + record*recordSize : variable.begin) + index*sizeOf(variable.type);
+		ByteBuffer value;
+		try {
+			value = read(position, sizeOf(variable.type));
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot read " + name + " from " + fileName, e);
+		}
+		switch (variable.type) {
+		case 1:
+			return value.get(0);
+		case 3:
+			return value.getShort(0);
+		case 4:
+			return value.getInt(0);
+		case 5:
+			return value.getFloat(0);
+		case 6:
+			return value.getDouble(0);
+		default:
+			throw new IllegalArgumentException("Variable " + name + " is not numeric");
+		}
+	}
+
+
+	/**
+	 * Close the file and drop the mapped buffers, the ones mapped are unmapped by the garbage collector.
+	 */
+	@Override
+	public void close() throws IOException {
+		fixed = null;
+		segments = null;
+		channel.close();
+	}
+
+
+	private ByteBuffer view(String name, int record, int type) {
+		MappedVariable variable = getVariable(name);
+		if (variable.type != type) {
+			throw new IllegalArgumentException("Variable " + name + " is a " + getType(name) + " variable");
+		}
+		ByteBuffer buffer = buffer(variable, record).duplicate();
+		int position = position(variable, record);
+		buffer.position(position);
+		buffer.limit(position + variable.length*sizeOf(type));
+		return buffer.slice();
+	}
+
+
+	/**
+	 * @return the mapped buffer of the non record variables or of the segment of the record, mapped the first time
+	 */
+	private ByteBuffer buffer(MappedVariable variable, int record) {
+		checkRecord(variable, record);
+		try {
+			if (!variable.record) {
+				if (fixed == null) {
+					// non record variables are before the records
+					fixed = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(fileLength, Math.min(recordsBegin, Integer.MAX_VALUE)));
+				}
+				return fixed;
+			}
+			int s = record/recordsPerSegment;
+			if (segments[s] == null) {
+				long position = recordsBegin + s*recordsPerSegment*recordSize;
+				segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(fileLength - position, recordsPerSegment*recordSize));
+			}
+			return segments[s];
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot map " + fileName, e);
+		}
+	}
+
+
+	private void checkRecord(MappedVariable variable, int record) {
+		if (segments == null) {
+			throw new IllegalStateException(fileName + " is closed");
+		}
+		if (variable.record && (record < 0 || record >= records)) {
+			throw new IndexOutOfBoundsException("Record " + record + " of " + fileName + ", " + records + " records");
+		}
+	}
+
+
+	/**
+	 * @return length bytes of the file from position, read without mapping them
+	 */
+	private ByteBuffer read(long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				break;
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+
+	/**
+	 * @return position of the values of the record in its buffer
+	 */
+	private int position(MappedVariable variable, int record) {
+		if (!variable.record) {
+			return (int) variable.begin;
+		}
+		long segmentBegin = recordsBegin + (long) (record/recordsPerSegment)*recordsPerSegment*recordSize;
+		return (int) (variable.begin + record*recordSize - segmentBegin);
+	}
+
+
+	private MappedVariable getVariable(String name) {
+		MappedVariable variable = variables.get(name);
+		if (variable == null) {
+			throw new IllegalArgumentException("Variable " + name + " not found in " + fileName);
+		}
+		return variable;
+	}
+
+
+	private static String readName(ByteBuffer header) {
+		int length = header.getInt();
+		byte[] name = new byte[length];
+		header.get(name);
+		skipPadding(header, length);
+		return new String(name, StandardCharsets.UTF_8);
+	}
+
+
+	/**
+	 * Read an attribute list, keeping the text attributes if attributes is not null.
+	 */
+	private static void readAttributes(ByteBuffer header, Map<String,String> attributes) {
+		int tag = header.getInt();
+		int count = header.getInt();
+		if (tag != NC_ATTRIBUTE) {
+			return;
+		}
+		for (int i = 0; i < count; i++) {
+			String name = readName(header);
+			int type = header.getInt();
+			int length = header.getInt();
+			byte[] values = new byte[length*sizeOf(type)];
+			header.get(values);
+			skipPadding(header, values.length);
+			if (attributes != null && type == 2) {
+				attributes.put(name, new String(values, StandardCharsets.UTF_8));
+			}
+		}
+	}
+
+
+	private static void skipPadding(ByteBuffer header, int length) {
+		header.position(header.position() + (4 - length%4)%4);
+	}
+
+
+	private static int sizeOf(int type) {
+		switch (type) {
+		case 1:
+		case 2:
+			return 1;
+		case 3:
+			return 2;
+		case 4:
+		case 5:
+			return 4;
+		default:
+			return 8;
+		}
+	}
+
+}
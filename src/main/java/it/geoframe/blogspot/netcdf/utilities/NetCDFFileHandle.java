@@ -0,0 +1,155 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.utilities;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import ucar.nc2.NetcdfFileWriter;
+
+/**
+ * Handle on the NetCDF output file of a writer component.
+ *
+ * With keepOpen = true the NetcdfFileWriter is created (or opened) once and kept
+ * open across the @Execute calls: at the end of each write step the data are only flushed,
+ * so the header is not parsed again at every flush. The file is closed at rollover, at the end
+ * of the simulation, or by a shutdown hook if the component is never finalized.
+ * With keepOpen = false the file is closed at the end of each step, as before.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public class NetCDFFileHandle {
+
+	private static final Set<NetCDFFileHandle> openHandles = ConcurrentHashMap.newKeySet();
+	private static boolean shutdownHookRegistered = false;
+
+	private final String fileName;
+	private final boolean keepOpen;
+	private NetcdfFileWriter dataFile;
+
+
+	public NetCDFFileHandle(String fileName, boolean keepOpen) {
+		this.fileName = fileName;
+		this.keepOpen = keepOpen;
+	}
+
+
+	/**
+	 * Create a new netcdf-3 file, in define mode. An existing file is deleted first: the netcdf-3 writer
+	 * would keep its length, and the records after the new ones.
+	 */
+	public synchronized NetcdfFileWriter createNew() throws IOException {
+		close();
+		Files.deleteIfExists(Paths.get(fileName));
+		dataFile = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, fileName);
+		register(this);
+		return dataFile;
+	}
+
+
+	/**
+	 * Return the open writer, opening the existing file only if it is not open yet.
+	 */
+	public synchronized NetcdfFileWriter open() throws IOException {
+		if (dataFile == null) {
+			dataFile = NetcdfFileWriter.openExisting(fileName);
+			register(this);
+		}
+		return dataFile;
+	}
+
+
+	/**
+	 * End of a create or write step: the file is flushed if it must be kept open,
+	 * closed otherwise.
+	 */
+	public synchronized void release() {
+		release(false);
+	}
+
+
+	/**
+	 * @param forceClose close the file even if it must be kept open (rollover or end of the simulation)
+	 */
+	public synchronized void release(boolean forceClose) {
+		if (dataFile == null) {
+			return;
+		}
+		if (keepOpen && !forceClose && !dataFile.isDefineMode()) {
+			try {
+				dataFile.flush();
+			} catch (IOException ioe) {
+				ioe.printStackTrace();
+			}
+		} else {
+			close();
+		}
+	}
+
+
+	public synchronized void close() {
+		if (dataFile == null) {
+			return;
+		}
+		try {
+			dataFile.close();
+		} catch (IOException ioe) {
+			ioe.printStackTrace();
+		} finally {
+			dataFile = null;
+			openHandles.remove(this);
+		}
+	}
+
+
+	public synchronized boolean isOpen() {
+		return dataFile != null;
+	}
+
+
+	public String getFileName() {
+		return fileName;
+	}
+
+
+	private static synchronized void register(NetCDFFileHandle handle) {
+		openHandles.add(handle);
+		if (!shutdownHookRegistered) {
+			Runtime.getRuntime().addShutdownHook(new Thread(NetCDFFileHandle::closeAll, "netcdf-close"));
+			shutdownHookRegistered = true;
+		}
+	}
+
+
+	/**
+	 * Close all the files still open, called by the shutdown hook, after the queued steps of the writer threads are written.
+	 */
+	public static void closeAll() {
+		AsyncNetCDFWriter.closeAll();
+		for (NetCDFFileHandle handle : openHandles) {
+			handle.close();
+		}
+	}
+
+}
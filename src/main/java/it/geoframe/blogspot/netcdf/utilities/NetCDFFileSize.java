@@ -0,0 +1,169 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.utilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import ucar.nc2.Dimension;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+
+/**
+ * Size of a netcdf-3 classic file that grows along the unlimited dimension.
+ *
+ * The file is made of the header and the non-record variables, whose size is measured on
+ * the disk once the file is created, followed by the records. The size of a record is computed
+ * from the variables of the file with the netcdf-3 layout: the data of each record variable are
+ * padded to 4 bytes, unless the file has only one record variable. The size is updated
+ * incrementally as records are added, without any I/O.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public class NetCDFFileSize {
+
+	private final long recordSize;
+	private final long nonRecordSize;
+	private long headerSize;
+	private long records = 0;
+
+
+	/**
+	 * @param ncfile the file, after its variables are defined
+	 */
+	public NetCDFFileSize(NetcdfFile ncfile) {
+		long recordSize = 0;
+		long nonRecordSize = 0;
+		int recordVariables = 0;
+		for (Variable variable : ncfile.getVariables()) {
+			if (variable.isUnlimited()) {
+				recordVariables++;
+			}
+		}
+		for (Variable variable : ncfile.getVariables()) {
+			long size = variable.getElementSize();
+			for (Dimension dimension : variable.getDimensions()) {
+				if (!dimension.isUnlimited()) {
+					size *= dimension.getLength();
+				}
+			}
+			if (variable.isUnlimited()) {
+				recordSize += recordVariables == 1 ? size : padding(size);
+			} else {
+				nonRecordSize += padding(size);
+			}
+		}
+		this.recordSize = recordSize;
+		this.nonRecordSize = nonRecordSize;
+		this.headerSize = nonRecordSize;
+	}
+
+
+	/**
+	 * Measure the size of the header and of the non-record variables, the file
+	 * must be flushed or closed and must not contain records yet.
+	 */
+	public void measure(String fileName) {
+		headerSize = Math.max(nonRecordSize, new File(fileName).length());
+	}
+
+
+	/**
+	 * Measure the size of the header of a file with records, the file must be flushed or closed.
+	 */
+	public void measure(String fileName, long records) {
+		this.records = records;
+		headerSize = Math.max(nonRecordSize, new File(fileName).length() - records*recordSize);
+	}
+
+
+	/**
+	 * Drop the records of a closed netcdf-3 file after the first records ones: the number of records
+	 * in the header is updated and the file is cut after them.
+	 *
+	 * @throws IOException if the file has fewer records
+	 */
+	public static void truncate(String fileName, int records) throws IOException {
+		long length;
+		// only the header is read, it is not mapped: a file with a mapped section cannot be truncated on Windows
+		try (NetCDF3MappedFile mappedFile = new NetCDF3MappedFile(fileName)) {
+			if (mappedFile.getNumberOfRecords() < records) {
+				throw new IOException(fileName + " has " + mappedFile.getNumberOfRecords() + " records, fewer than " + records);
+			}
+			length = mappedFile.getRecordsBegin() + records*mappedFile.getRecordSize();
+		}
+		try (RandomAccessFile file = new RandomAccessFile(fileName, "rw")) {
+			// numrecs follows the magic number
+			file.seek(4);
+			file.writeInt(records);
+			file.setLength(length);
+		}
+	}
+
+
+	public void addRecords(int n) {
+		records += n;
+	}
+
+
+	/**
+	 * @return number of bytes of each record
+	 */
+	public long getRecordSize() {
+		return recordSize;
+	}
+
+
+	/**
+	 * @return number of bytes before the first record
+	 */
+	public long getHeaderSize() {
+		return headerSize;
+	}
+
+
+	public long getRecords() {
+		return records;
+	}
+
+
+	/**
+	 * @return size of the file [bytes]
+	 */
+	public long getSize() {
+		return headerSize + records*recordSize;
+	}
+
+
+	/**
+	 * @return size of the file [MB]
+	 */
+	public double getSizeMB() {
+		return getSize()/1000000.0;
+	}
+
+
+	private static long padding(long size) {
+		return (size + 3) & ~3L;
+	}
+
+}
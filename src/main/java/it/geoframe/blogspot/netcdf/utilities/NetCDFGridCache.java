@@ -0,0 +1,219 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.utilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Process-wide cache of the decoded variables of the grid files.
+ *
+ * Calibration and ensemble runs read the same grid file at each run: the values are kept in
+ * memory, keyed by canonical path, modification time and size of the file, so a modified file is
+ * read again. The cached arrays are never modified, NetCDFGridFile hands out copies of them.
+ * The least recently used values are evicted when the cache exceeds its maximum size.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public final class NetCDFGridCache {
+
+	private static final NetCDFGridCache INSTANCE = new NetCDFGridCache();
+
+	// access order: the first entry is the least recently used
+	private final LinkedHashMap<Key,Object> values = new LinkedHashMap<Key,Object>(64, 0.75f, true);
+	private long sizeMax = 256000000L;
+	private long size = 0;
+	private long hits = 0;
+	private long misses = 0;
+
+
+	/**
+	 * Reads a value from the grid file on a cache miss.
+	 */
+	public interface Loader {
+		Object load() throws IOException;
+	}
+
+
+	private NetCDFGridCache() {
+	}
+
+
+	public static NetCDFGridCache getInstance() {
+		return INSTANCE;
+	}
+
+
+	/**
+	 * @param sizeMax maximum size of the cache [MB], shared by all the readers
+	 * @return the cache, or null if sizeMax is not positive and the files must be read at each run
+	 */
+	public static NetCDFGridCache getInstance(double sizeMax) {
+		if (sizeMax <= 0) {
+			return null;
+		}
+		INSTANCE.setSizeMax(sizeMax);
+		return INSTANCE;
+	}
+
+
+	/**
+	 * @param sizeMax maximum size of the cache [MB]
+	 */
+	public synchronized void setSizeMax(double sizeMax) {
+		this.sizeMax = (long) (sizeMax*1000000);
+		evict();
+	}
+
+
+	/**
+	 * @return identity of the current version of the file, to build the keys of its values
+	 */
+	public static Key getKey(String fileName) throws IOException {
+		File file = new File(fileName);
+		return new Key(file.getCanonicalPath(), file.lastModified(), file.length(), null);
+	}
+
+
+	/**
+	 * @return the cached value of the variable of the file, loaded if it is not cached
+	 */
+	public Object get(Key file, String variable, Loader loader) throws IOException {
+
+		Key key = new Key(file.path, file.lastModified, file.length, variable);
+		synchronized (this) {
+			Object value = values.get(key);
+			if (value != null) {
+				hits++;
+				return value;
+			}
+			misses++;
+		}
+
+		// the file is read outside the lock, two threads may read the same value
+		Object value = loader.load();
+
+		synchronized (this) {
+			if (values.put(key, value) == null) {
+				size += sizeOf(value);
+			}
+			removeOldVersions(key);
+			evict();
+		}
+		return value;
+	}
+
+
+	/**
+	 * @return size of the cached values [bytes]
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+
+	public synchronized void clear() {
+		values.clear();
+		size = 0;
+	}
+
+
+	private void removeOldVersions(Key key) {
+		Iterator<Map.Entry<Key,Object>> iterator = values.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<Key,Object> entry = iterator.next();
+			Key other = entry.getKey();
+			if (other.path.equals(key.path) && (other.lastModified != key.lastModified || other.length != key.length)) {
+				size -= sizeOf(entry.getValue());
+				iterator.remove();
+			}
+		}
+	}
+
+
+	private void evict() {
+		Iterator<Map.Entry<Key,Object>> iterator = values.entrySet().iterator();
+		while (size > sizeMax && iterator.hasNext()) {
+			size -= sizeOf(iterator.next().getValue());
+			iterator.remove();
+		}
+	}
+
+
+	private static long sizeOf(Object value) {
+		if (value instanceof double[]) {
+			return 16 + 8L*((double[]) value).length;
+		}
+		if (value instanceof int[]) {
+			return 16 + 4L*((int[]) value).length;
+		}
+		return 16;
+	}
+
+
+	/**
+	 * Canonical path, modification time and size of a file, and name of one of its variables.
+	 */
+	public static final class Key {
+
+		private final String path;
+		private final long lastModified;
+		private final long length;
+		private final String variable;
+
+		private Key(String path, long lastModified, long length, String variable) {
+			this.path = path;
+			this.lastModified = lastModified;
+			this.length = length;
+			this.variable = variable;
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			if (!(object instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) object;
+			return path.equals(other.path) && lastModified == other.lastModified && length == other.length
+					&& Objects.equals(variable, other.variable);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(path, lastModified, length, variable);
+		}
+	}
+
+}
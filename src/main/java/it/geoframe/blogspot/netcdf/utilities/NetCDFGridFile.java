@@ -0,0 +1,194 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.utilities;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import ucar.ma2.Array;
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+
+/**
+ * Grid file of a 1D problem, read on demand.
+ *
+ * The file is opened at the first read and stays open until close(), each variable is
+ * read only when it is asked for. The grid readers read only the variables of their
+ * outVariables list, so the parameters that the model does not use are neither read
+ * nor allocated.
+ * With a NetCDFGridCache the decoded values are shared by all the runs on the same file,
+ * which is not even opened when all of them are cached; each run gets its own copy of the arrays.
+ * The time spent opening and reading the file is added to its NetCDFMetrics, the cache hits are not counted.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public class NetCDFGridFile implements Closeable {
+
+	private final String fileName;
+	private final List<String> outVariablesList;
+	private final NetCDFGridCache cache;
+	private NetCDFGridCache.Key cacheKey;
+	private final NetCDFMetrics metrics;
+	private NetcdfFile dataFile;
+
+
+	/**
+	 * @param fileName name of the grid file
+	 * @param outVariables name of the variables to read, "all" to read all of them
+	 */
+	public NetCDFGridFile(String fileName, String[] outVariables) {
+		this(fileName, outVariables, null);
+	}
+
+
+	/**
+	 * @param fileName name of the grid file
+	 * @param outVariables name of the variables to read, "all" to read all of them
+	 * @param cache cache of the decoded values, null to always read the file
+	 */
+	public NetCDFGridFile(String fileName, String[] outVariables, NetCDFGridCache cache) {
+		this.fileName = fileName;
+		outVariablesList = outVariables == null ? Collections.<String>emptyList() : Arrays.asList(outVariables);
+		this.cache = cache;
+		metrics = NetCDFMetrics.get(fileName);
+	}
+
+
+	/**
+	 * @return true if the variable has to be read
+	 */
+	public boolean isRequested(String outVariable) {
+		return outVariablesList.contains(outVariable) || outVariablesList.contains("all");
+	}
+
+
+	/**
+	 * @return length of the first dimension of the variable
+	 */
+	public int getLength(String name) throws IOException {
+		return (Integer) cached("length " + name, () -> findVariable(name).getShape()[0]);
+	}
+
+
+	public int readScalarInt(String name) throws IOException {
+		return (Integer) cached("int " + name, () -> read(name).getInt(0));
+	}
+
+
+	public double readScalarDouble(String name) throws IOException {
+		return (Double) cached("double " + name, () -> read(name).getDouble(0));
+	}
+
+
+	/**
+	 * @return all the values of the variable
+	 */
+	public double[] readDouble(String name) throws IOException {
+		return readDouble(name, getLength(name));
+	}
+
+
+	/**
+	 * @return the first length values of the variable
+	 */
+	public double[] readDouble(String name, int length) throws IOException {
+		double[] values = (double[]) cached("double[" + length + "] " + name, () -> read(name, length).get1DJavaArray(double.class));
+		return cache == null ? values : values.clone();
+	}
+
+
+	/**
+	 * @return all the values of the variable
+	 */
+	public int[] readInt(String name) throws IOException {
+		return readInt(name, getLength(name));
+	}
+
+
+	/**
+	 * @return the first length values of the variable, truncated if the variable is not an integer one
+	 */
+	public int[] readInt(String name, int length) throws IOException {
+		int[] values = (int[]) cached("int[" + length + "] " + name, () -> read(name, length).get1DJavaArray(int.class));
+		return cache == null ? values : values.clone();
+	}
+
+
+	@Override
+	public void close() throws IOException {
+		if (dataFile != null) {
+			dataFile.close();
+			dataFile = null;
+		}
+	}
+
+
+	private Object cached(String variable, NetCDFGridCache.Loader loader) throws IOException {
+		if (cache == null) {
+			return loader.load();
+		}
+		if (cacheKey == null) {
+			cacheKey = NetCDFGridCache.getKey(fileName);
+		}
+		return cache.get(cacheKey, variable, loader);
+	}
+
+
+	private Array read(String name, int length) throws IOException {
+		Variable variable = findVariable(name);
+		long start = System.nanoTime();
+		try {
+			Array array = variable.read(new int[] {0}, new int[] {length});
+			metrics.addRead(System.nanoTime() - start, array.getSizeBytes());
+			return array;
+		} catch (InvalidRangeException e) {
+			throw new IOException("Cannot read " + length + " values of " + name + " in " + fileName, e);
+		}
+	}
+
+
+	private Array read(String name) throws IOException {
+		Variable variable = findVariable(name);
+		long start = System.nanoTime();
+		Array array = variable.read();
+		metrics.addRead(System.nanoTime() - start, array.getSizeBytes());
+		return array;
+	}
+
+
+	private Variable findVariable(String name) throws IOException {
+		if (dataFile == null) {
+			long start = System.nanoTime();
+			dataFile = NetcdfFile.open(fileName, null);
+			metrics.addOpen(System.nanoTime() - start);
+		}
+		Variable variable = dataFile.findVariable(name);
+		if (variable == null) {
+			throw new IOException("Variable " + name + " not found in " + fileName);
+		}
+		return variable;
+	}
+
+}
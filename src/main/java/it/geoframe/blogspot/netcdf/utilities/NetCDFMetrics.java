@@ -0,0 +1,464 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.utilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import ucar.nc2.NetcdfFile;
+
+/**
+ * Counters of the time and of the bytes spent reading and writing a file, shared by the writers and the readers.
+ *
+ * There is one instance for each file name, the name given to the writer or to the reader: get(fileName)
+ * creates it at the first call and registers it as the JMX MBean
+ * it.geoframe.blogspot.netcdf:type=NetCDFMetrics,name="fileName", so it can be watched with jconsole
+ * while the simulation runs. The counters are updated with a few additions on each writing step, by the
+ * simulation thread or by the background writer thread; with setDumpFile(fileName) all of them are saved in
+ * a CSV file, or a JSON one if the name ends with .json, at the end of the run.
+ *
+ * The phases are: open (create or open a file), header (define the dimensions, the variables and the attributes),
+ * marshalling (copy the buffered records in the arrays to write), write (write the records and flush them) and read.
+ * Flushes are the writing steps, with the bytes allocated by the thread during each of them when the JVM measures it.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public final class NetCDFMetrics implements NetCDFMetricsMBean {
+
+	private static final Map<String,NetCDFMetrics> instances = new ConcurrentHashMap<String,NetCDFMetrics>();
+	private static final Map<NetcdfFile,Long> openFiles = Collections.synchronizedMap(new IdentityHashMap<NetcdfFile,Long>());
+	private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+	private static final boolean allocationSupported = isAllocationSupported();
+	private static String dumpFile;
+	private static boolean shutdownHookRegistered = false;
+
+	private static final String[] COLUMNS = {"name", "records", "bytesWritten", "bytesRead", "filesOpened",
+			"openMillis", "headerMillis", "marshallingMillis", "writeMillis", "readMillis",
+			"flushes", "flushMillis", "allocatedBytes", "lastFlushAllocatedBytes", "rollovers"};
+
+	private final String name;
+	private final LongAdder records = new LongAdder();
+	private final LongAdder bytesWritten = new LongAdder();
+	private final LongAdder bytesRead = new LongAdder();
+	private final LongAdder filesOpened = new LongAdder();
+	private final LongAdder openNanos = new LongAdder();
+	private final LongAdder headerNanos = new LongAdder();
+	private final LongAdder marshallingNanos = new LongAdder();
+	private final LongAdder writeNanos = new LongAdder();
+	private final LongAdder readNanos = new LongAdder();
+	private final LongAdder flushes = new LongAdder();
+	private final LongAdder flushNanos = new LongAdder();
+	private final LongAdder allocatedBytes = new LongAdder();
+	private final AtomicLong lastFlushAllocatedBytes = new AtomicLong(-1);
+	private final LongAdder rollovers = new LongAdder();
+
+
+	private NetCDFMetrics(String name) {
+		this.name = name;
+	}
+
+
+	/**
+	 * @return the metrics of the file, created and registered in JMX at the first call
+	 */
+	public static NetCDFMetrics get(String fileName) {
+		NetCDFMetrics metrics = instances.get(fileName);
+		if (metrics == null) {
+			metrics = instances.computeIfAbsent(fileName, NetCDFMetrics::register);
+		}
+		return metrics;
+	}
+
+
+	/**
+	 * @return the metrics of all the files, in no particular order
+	 */
+	public static List<NetCDFMetrics> getAll() {
+		return new ArrayList<NetCDFMetrics>(instances.values());
+	}
+
+
+	/**
+	 * Save all the metrics in the file once, at the end of the run: the shutdown hook runs after all the components,
+	 * so the file holds the metrics of every writer and reader. dump() saves them earlier.
+	 *
+	 * @param fileName CSV file, or JSON file if the name ends with .json; null or empty to save nothing
+	 */
+	public static synchronized void setDumpFile(String fileName) {
+		dumpFile = fileName == null || fileName.trim().isEmpty() ? null : fileName;
+		if (dumpFile != null && !shutdownHookRegistered) {
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				try {
+					dump();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}, "netcdf-metrics"));
+			shutdownHookRegistered = true;
+		}
+	}
+
+
+	/**
+	 * Save all the metrics in the file given to setDumpFile, if any.
+	 */
+	public static void dump() throws IOException {
+		String fileName;
+		synchronized (NetCDFMetrics.class) {
+			fileName = dumpFile;
+		}
+		if (fileName != null) {
+			dump(fileName);
+		}
+	}
+
+
+	/**
+	 * Save all the metrics in a CSV file, or in a JSON file if the name ends with .json.
+	 */
+	public static void dump(String fileName) throws IOException {
+		List<NetCDFMetrics> metrics = getAll();
+		metrics.sort((a, b) -> a.name.compareTo(b.name));
+		boolean json = fileName.toLowerCase(Locale.ROOT).endsWith(".json");
+		try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(Paths.get(fileName), StandardCharsets.UTF_8))) {
+			if (json) {
+				writer.println("[");
+				for (int m = 0; m < metrics.size(); m++) {
+					Object[] values = metrics.get(m).getValues();
+					StringBuilder line = new StringBuilder("  {");
+					for (int c = 0; c < COLUMNS.length; c++) {
+						line.append(c == 0 ? "" : ", ").append('"').append(COLUMNS[c]).append("\": ");
+						line.append(values[c] instanceof String ? '"' + escape((String) values[c], '\\') + '"' : format(values[c]));
+					}
+					writer.println(line.append(m < metrics.size() - 1 ? "}," : "}"));
+				}
+				writer.println("]");
+			} else {
+				writer.println(String.join(",", COLUMNS));
+				for (NetCDFMetrics metric : metrics) {
+					Object[] values = metric.getValues();
+					StringBuilder line = new StringBuilder();
+					for (int c = 0; c < COLUMNS.length; c++) {
+						line.append(c == 0 ? "" : ",");
+						line.append(values[c] instanceof String ? '"' + escape((String) values[c], '"') + '"' : format(values[c]));
+					}
+					writer.println(line);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * @return bytes allocated so far by the current thread, -1 if the JVM does not measure them
+	 */
+	public static long getThreadAllocatedBytes() {
+		if (!allocationSupported) {
+			return -1;
+		}
+		return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+
+	/**
+	 * Open a file to read it, the time is added to the open time of its metrics.
+	 * The file is to be closed with close(dataFile).
+	 */
+	public static NetcdfFile open(String fileName) throws IOException {
+		long start = System.nanoTime();
+		NetcdfFile dataFile = NetcdfFile.open(fileName, null);
+		long end = System.nanoTime();
+		get(fileName).addOpen(end - start);
+		openFiles.put(dataFile, end);
+		return dataFile;
+	}
+
+
+	/**
+	 * Close a file opened with open(fileName): the time since it was opened is added to the read time,
+	 * and its length to the bytes read.
+	 */
+	public static void close(NetcdfFile dataFile) throws IOException {
+		Long opened = openFiles.remove(dataFile);
+		String fileName = dataFile.getLocation();
+		dataFile.close();
+		if (opened != null) {
+			get(fileName).addRead(System.nanoTime() - opened, new File(fileName).length());
+		}
+	}
+
+
+	public void addOpen(long nanos) {
+		filesOpened.increment();
+		openNanos.add(nanos);
+	}
+
+
+	public void addHeader(long nanos) {
+		headerNanos.add(nanos);
+	}
+
+
+	public void addMarshalling(long nanos) {
+		marshallingNanos.add(nanos);
+	}
+
+
+	/**
+	 * @param records number of records written
+	 * @param bytes number of bytes added to the file
+	 */
+	public void addWrite(long nanos, long records, long bytes) {
+		writeNanos.add(nanos);
+		this.records.add(records);
+		bytesWritten.add(bytes);
+	}
+
+
+	public void addRead(long nanos, long bytes) {
+		readNanos.add(nanos);
+		bytesRead.add(bytes);
+	}
+
+
+	/**
+	 * @param nanos duration of the writing step
+	 * @param allocatedBytes bytes allocated by the thread during the writing step, negative if not measured
+	 */
+	public void addFlush(long nanos, long allocatedBytes) {
+		flushes.increment();
+		flushNanos.add(nanos);
+		if (allocatedBytes >= 0) {
+			this.allocatedBytes.add(allocatedBytes);
+			lastFlushAllocatedBytes.set(allocatedBytes);
+		}
+	}
+
+
+	/**
+	 * Measure a whole writing step of the writers that do not time its phases: the time and the allocated bytes
+	 * are added to the flushes and to the write time, the growth of the file with the name of these metrics to the bytes written.
+	 *
+	 * @param records number of records written by the step
+	 */
+	public void measure(long records, WritingStep step) throws IOException {
+		File file = new File(name);
+		long size = file.length();
+		long allocated = getThreadAllocatedBytes();
+		long start = System.nanoTime();
+		step.write();
+		long nanos = System.nanoTime() - start;
+		addWrite(nanos, records, Math.max(0, file.length() - size));
+		addFlush(nanos, allocated < 0 ? -1 : getThreadAllocatedBytes() - allocated);
+	}
+
+
+	public void addRollover() {
+		rollovers.increment();
+	}
+
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+
+	@Override
+	public long getRecords() {
+		return records.sum();
+	}
+
+
+	@Override
+	public long getBytesWritten() {
+		return bytesWritten.sum();
+	}
+
+
+	@Override
+	public long getBytesRead() {
+		return bytesRead.sum();
+	}
+
+
+	@Override
+	public long getFilesOpened() {
+		return filesOpened.sum();
+	}
+
+
+	@Override
+	public double getOpenMillis() {
+		return openNanos.sum()/1e6;
+	}
+
+
+	@Override
+	public double getHeaderMillis() {
+		return headerNanos.sum()/1e6;
+	}
+
+
+	@Override
+	public double getMarshallingMillis() {
+		return marshallingNanos.sum()/1e6;
+	}
+
+
+	@Override
+	public double getWriteMillis() {
+		return writeNanos.sum()/1e6;
+	}
+
+
+	@Override
+	public double getReadMillis() {
+		return readNanos.sum()/1e6;
+	}
+
+
+	@Override
+	public long getFlushes() {
+		return flushes.sum();
+	}
+
+
+	@Override
+	public double getFlushMillis() {
+		return flushNanos.sum()/1e6;
+	}
+
+
+	/**
+	 * @return bytes allocated during the writing steps, 0 if the JVM does not measure them
+	 */
+	@Override
+	public long getAllocatedBytes() {
+		return allocatedBytes.sum();
+	}
+
+
+	/**
+	 * @return bytes allocated during the last writing step, -1 if not measured
+	 */
+	@Override
+	public long getLastFlushAllocatedBytes() {
+		return lastFlushAllocatedBytes.get();
+	}
+
+
+	@Override
+	public long getRollovers() {
+		return rollovers.sum();
+	}
+
+
+	@Override
+	public void reset() {
+		for (LongAdder adder : new LongAdder[] {records, bytesWritten, bytesRead, filesOpened, openNanos, headerNanos,
+				marshallingNanos, writeNanos, readNanos, flushes, flushNanos, allocatedBytes, rollovers}) {
+			adder.reset();
+		}
+		lastFlushAllocatedBytes.set(-1);
+	}
+
+
+	/**
+	 * Writing step measured by measure(records, step).
+	 */
+	public interface WritingStep {
+		void write() throws IOException;
+	}
+
+
+	private Object[] getValues() {
+		return new Object[] {name, getRecords(), getBytesWritten(), getBytesRead(), getFilesOpened(),
+				getOpenMillis(), getHeaderMillis(), getMarshallingMillis(), getWriteMillis(), getReadMillis(),
+				getFlushes(), getFlushMillis(), getAllocatedBytes(), getLastFlushAllocatedBytes(), getRollovers()};
+	}
+
+
+	private static NetCDFMetrics register(String fileName) {
+		NetCDFMetrics metrics = new NetCDFMetrics(fileName);
+		try {
+			ObjectName objectName = new ObjectName("it.geoframe.blogspot.netcdf:type=NetCDFMetrics,name=" + ObjectName.quote(fileName));
+			if (!ManagementFactory.getPlatformMBeanServer().isRegistered(objectName)) {
+				ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, objectName);
+			}
+		} catch (JMException | SecurityException e) {
+			// the metrics are still collected and dumped, only the JMX view is missing
+			System.err.println("Cannot register the metrics of " + fileName + " in JMX: " + e.getMessage());
+		}
+		return metrics;
+	}
+
+
+	private static boolean isAllocationSupported() {
+		try {
+			if (threads instanceof com.sun.management.ThreadMXBean) {
+				com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+				if (sunThreads.isThreadAllocatedMemorySupported() && !sunThreads.isThreadAllocatedMemoryEnabled()) {
+					sunThreads.setThreadAllocatedMemoryEnabled(true);
+				}
+				return sunThreads.isThreadAllocatedMemorySupported() && sunThreads.isThreadAllocatedMemoryEnabled();
+			}
+		} catch (LinkageError | UnsupportedOperationException | SecurityException e) {
+			// not a HotSpot-like JVM
+		}
+		return false;
+	}
+
+
+	private static String format(Object value) {
+		if (value instanceof Double) {
+			return String.format(Locale.ROOT, "%.3f", (Double) value);
+		}
+		return String.valueOf(value);
+	}
+
+
+	private static String escape(String value, char quote) {
+		if (quote == '"') {
+			return value.replace("\"", "\"\"");
+		}
+		return value.replace("\\", "\\\\").replace("\"", "\\\"");
+	}
+
+}
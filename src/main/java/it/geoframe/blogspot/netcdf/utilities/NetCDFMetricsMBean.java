@@ -0,0 +1,62 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.utilities;
+
+/**
+ * JMX view of the NetCDFMetrics of a file: times are in milliseconds, sizes in bytes.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public interface NetCDFMetricsMBean {
+
+	String getName();
+
+	long getRecords();
+
+	long getBytesWritten();
+
+	long getBytesRead();
+
+	long getFilesOpened();
+
+	double getOpenMillis();
+
+	double getHeaderMillis();
+
+	double getMarshallingMillis();
+
+	double getWriteMillis();
+
+	double getReadMillis();
+
+	long getFlushes();
+
+	double getFlushMillis();
+
+	long getAllocatedBytes();
+
+	long getLastFlushAllocatedBytes();
+
+	long getRollovers();
+
+	void reset();
+
+}
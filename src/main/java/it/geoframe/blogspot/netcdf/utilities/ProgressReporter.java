@@ -0,0 +1,128 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.geoframe.blogspot.netcdf.utilities;
+
+import java.io.Closeable;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Progress of a writer, printed at most once every interval.
+ *
+ * The writer calls update(fileName, records, lastTime) at each writing step: it only adds the records
+ * and stores the file and the time of the last one, so it neither allocates nor locks the console. The lines are
+ * printed by a single daemon thread shared by all the reporters, and only when there were records since
+ * the previous line; each line gives the date of the last record written, the records written, the
+ * records per second and the simulated time per wall time since the previous line. The file is the one
+ * of the last record, so after a rollover the lines name the new file.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public final class ProgressReporter implements Closeable {
+
+	private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "netcdf-progress");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private volatile String name;
+	private final TimeCodec timeCodec;
+	private final ScheduledFuture<?> task;
+	private final LongAdder records = new LongAdder();
+	private volatile long lastTime = Long.MIN_VALUE;
+
+	// state at the previous line
+	private long reportedRecords = 0;
+	private long reportedTime = Long.MIN_VALUE;
+	private long reportedNanos = System.nanoTime();
+
+
+	/**
+	 * @param name name of the output in the lines, until the first update
+	 * @param timeCodec to print the date of the last record
+	 * @param interval seconds between two lines; if not positive the progress is printed only by close()
+	 */
+	public ProgressReporter(String name, TimeCodec timeCodec, double interval) {
+		this.name = name;
+		this.timeCodec = timeCodec;
+		if (interval > 0) {
+			long period = Math.max(1, (long) (interval*1000));
+			task = timer.scheduleAtFixedRate(this::report, period, period, TimeUnit.MILLISECONDS);
+		} else {
+			task = null;
+		}
+	}
+
+
+	/**
+	 * @param fileName name of the file of the last record written
+	 * @param records number of records written
+	 * @param lastTime epoch time [ms] of the last record written
+	 */
+	public void update(String fileName, long records, long lastTime) {
+		this.records.add(records);
+		name = fileName;
+		this.lastTime = lastTime;
+	}
+
+
+	/**
+	 * Print a line if there were records since the previous one.
+	 */
+	public synchronized void report() {
+
+		long time = lastTime;
+		long total = records.sum();
+		if (total == reportedRecords || time == Long.MIN_VALUE) {
+			return;
+		}
+		long now = System.nanoTime();
+		double seconds = Math.max(1e-9, (now - reportedNanos)/1e9);
+
+		StringBuilder line = new StringBuilder("\t\t*** ").append(timeCodec.format(time)).append(", writing output file: ").append(name);
+		line.append(String.format(Locale.ROOT, ", %d records, %.1f records/s", total, (total - reportedRecords)/seconds));
+		if (reportedTime != Long.MIN_VALUE) {
+			line.append(String.format(Locale.ROOT, ", simulated/wall time %.1f", (time - reportedTime)/1000.0/seconds));
+		}
+		System.out.println(line.append('\n'));
+
+		reportedRecords = total;
+		reportedTime = time;
+		reportedNanos = now;
+	}
+
+
+	/**
+	 * Stop the periodic lines and print the last one.
+	 */
+	@Override
+	public void close() {
+		if (task != null) {
+			task.cancel(false);
+		}
+		report();
+	}
+
+}
@@ -0,0 +1,209 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.utilities;
+
+import java.text.ParseException;
+import java.text.ParsePosition;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.ResolverStyle;
+import java.time.temporal.TemporalAccessor;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Conversion between the dates used as keys of the output buffers (yyyy-MM-dd HH:mm)
+ * and epoch time in milliseconds, in a given time zone.
+ *
+ * Dates with the fixed width format are parsed digit by digit; the start of the last parsed
+ * day is memorized, so the dates of the same day only need an addition. Other dates are
+ * parsed with a lenient java.time formatter; as with the SimpleDateFormat used before, the
+ * fields may be not padded or out of range, and an ambiguous local time is read as standard time.
+ * Instances are immutable apart from the memo, which is replaced atomically: a codec can be
+ * shared by many threads.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public class TimeCodec {
+
+	public static final String PATTERN = "yyyy-MM-dd HH:mm";
+
+	private static final ConcurrentHashMap<String,TimeCodec> CODECS = new ConcurrentHashMap<String,TimeCodec>();
+
+	private final ZoneId zone;
+	private final ZoneRules rules;
+	private final DateTimeFormatter parser;
+	private final DateTimeFormatter formatter;
+	private volatile Day lastDay;
+
+
+	/**
+	 * Start of a day, the offset of the time zone is constant during the day if constantOffset is true.
+	 */
+	private static final class Day {
+		final String text;
+		final long startMillis;
+		final boolean constantOffset;
+
+		Day(String text, long startMillis, boolean constantOffset) {
+			this.text = text;
+			this.startMillis = startMillis;
+			this.constantOffset = constantOffset;
+		}
+	}
+
+
+	private TimeCodec(ZoneId zone) {
+		this.zone = zone;
+		this.rules = zone.getRules();
+		this.parser = DateTimeFormatter.ofPattern("u-M-d H:m").withResolverStyle(ResolverStyle.LENIENT);
+		this.formatter = DateTimeFormatter.ofPattern("uuuu-MM-dd HH:mm").withZone(zone);
+	}
+
+
+	/**
+	 * @param timeZone time zone id, unknown ids are GMT as for java.util.TimeZone
+	 * @return the shared codec of the time zone
+	 */
+	public static TimeCodec getInstance(String timeZone) {
+		TimeCodec codec = CODECS.get(timeZone);
+		if (codec == null) {
+			codec = new TimeCodec(TimeZone.getTimeZone(timeZone).toZoneId());
+			TimeCodec previous = CODECS.putIfAbsent(timeZone, codec);
+			if (previous != null) {
+				codec = previous;
+			}
+		}
+		return codec;
+	}
+
+
+	/**
+	 * @return the shared codec of the default time zone of the JVM
+	 */
+	public static TimeCodec getDefault() {
+		return getInstance(TimeZone.getDefault().getID());
+	}
+
+
+	/**
+	 * @param date date in the format yyyy-MM-dd HH:mm, characters after the minutes are ignored
+	 * @return epoch time in milliseconds
+	 * @throws ParseException if the string is not a date
+	 */
+	public long parse(String date) throws ParseException {
+
+		if (isFixedWidth(date)) {
+			int hour = digits(date, 11, 2);
+			int minute = digits(date, 14, 2);
+			if (hour < 24 && minute < 60) {
+				Day day = lastDay;
+				if (day == null || !date.regionMatches(0, day.text, 0, 10)) {
+					day = day(date);
+				}
+				if (day != null) {
+					if (day.constantOffset) {
+						return day.startMillis + hour*3600000L + minute*60000L;
+					}
+					LocalDateTime dateTime = LocalDateTime.of(digits(date, 0, 4), digits(date, 5, 2), digits(date, 8, 2), hour, minute);
+					return ZonedDateTime.of(dateTime, zone).withLaterOffsetAtOverlap().toInstant().toEpochMilli();
+				}
+			}
+		}
+
+		ParsePosition position = new ParsePosition(0);
+		try {
+			TemporalAccessor parsed = parser.parse(date, position);
+			return ZonedDateTime.of(LocalDateTime.from(parsed), zone).withLaterOffsetAtOverlap().toInstant().toEpochMilli();
+		} catch (DateTimeException e) {
+			ParseException parseException = new ParseException("Unparseable date: \"" + date + "\"", position.getErrorIndex() < 0 ? 0 : position.getErrorIndex());
+			parseException.initCause(e);
+			throw parseException;
+		}
+
+	}
+
+
+	/**
+	 * @param millis epoch time in milliseconds
+	 * @return date in the format yyyy-MM-dd HH:mm
+	 */
+	public String format(long millis) {
+		return formatter.format(Instant.ofEpochMilli(millis));
+	}
+
+
+	public ZoneId getZone() {
+		return zone;
+	}
+
+
+	/**
+	 * @return the start of the day of the date, null if it is not a valid day
+	 */
+	private Day day(String date) {
+		LocalDate localDate;
+		try {
+			localDate = LocalDate.of(digits(date, 0, 4), digits(date, 5, 2), digits(date, 8, 2));
+		} catch (DateTimeException e) {
+			return null;
+		}
+		ZonedDateTime start = localDate.atStartOfDay(zone);
+		Instant end = localDate.plusDays(1).atStartOfDay(zone).toInstant();
+		ZoneOffsetTransition transition = rules.nextTransition(start.toInstant());
+		boolean constantOffset = start.toLocalTime().equals(LocalTime.MIDNIGHT)
+				&& (transition == null || !transition.getInstant().isBefore(end));
+		Day day = new Day(date.substring(0, 10), start.toInstant().toEpochMilli(), constantOffset);
+		lastDay = day;
+		return day;
+	}
+
+
+	private static boolean isFixedWidth(String date) {
+		if (date.length() < 16 || date.charAt(4) != '-' || date.charAt(7) != '-' || date.charAt(10) != ' ' || date.charAt(13) != ':') {
+			return false;
+		}
+		for (int i = 0; i < 16; i++) {
+			if (i != 4 && i != 7 && i != 10 && i != 13 && (date.charAt(i) < '0' || date.charAt(i) > '9')) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	private static int digits(String date, int start, int length) {
+		int value = 0;
+		for (int i = start; i < start + length; i++) {
+			value = 10*value + (date.charAt(i) - '0');
+		}
+		return value;
+	}
+
+}
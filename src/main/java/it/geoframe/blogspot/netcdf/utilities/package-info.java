@@ -0,0 +1,18 @@
+/**
+ * This package contains the classes shared by the NetCDF writers and readers.
+ * 
+ *  - NetCDFFileHandle.java to keep the output file open across the @Execute calls of a writer
+ *  - AsyncNetCDFWriter.java to write the output with a background thread
+ *  - TimeCodec.java to convert the dates of the output buffers in epoch time
+ *  - NetCDFFileSize.java to track the size of an output file for the rollover
+ *  - NetCDFGridFile.java to read only the requested variables of a grid file, NetCDFGridCache.java to share them across the runs
+ *  - NetCDF3MappedFile.java memory-mapped reader of the classic netCDF-3 output files
+ *  - ChunkedFile.java compressed chunked output format, ChunkedFileWriter.java and ChunkedFileReader.java to write and read it,
+ *    ChunkedFileConverter.java to convert it from and to netCDF-3
+ *  - NetCDFMetrics.java counters of the time and bytes of the reads and writes of each file, exposed in JMX and saved in CSV or JSON
+ *  - ProgressReporter.java to print the progress of a writer at most once every interval
+ * 
+ * @author Niccolo` Tubini
+ *
+ */
+package it.geoframe.blogspot.netcdf.utilities;
@@ -0,0 +1,161 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.Variable;
+
+import it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent.AggregatedOutputReader1D.TimeSlice;
+
+/**
+ * Tests of the reader of the sequence of files of a 1D output.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public class AggregatedOutputReader1DTest {
+
+	private static final int DEPTHS = 3;
+	private static final int RECORDS = 4;
+	private static final long MINUTE = 60000L;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+
+	@Test
+	public void indexTheFiles() throws IOException, InvalidRangeException {
+		AggregatedOutputReader1D reader = createFiles();
+
+		assertEquals(3, reader.getNumberOfFiles());
+		assertEquals(new File(folder.getRoot(), "out_0000.nc").getPath(), reader.getFileName(0));
+		assertEquals(3*RECORDS, reader.getNumberOfRecords());
+		assertEquals(time(0)*MINUTE, reader.getStartTime());
+		assertEquals(time(3*RECORDS - 1)*MINUTE, reader.getEndTime());
+	}
+
+
+	@Test
+	public void readAcrossTheFiles() throws IOException, InvalidRangeException {
+		AggregatedOutputReader1D reader = createFiles();
+
+		// from the third record of the first file to the second record of the last one
+		TimeSlice slice = reader.read(time(2)*MINUTE, time(2*RECORDS + 1)*MINUTE + 1, "psi", "error");
+
+		assertEquals(2*RECORDS, slice.getRecords());
+		assertEquals(DEPTHS, slice.getLength("psi"));
+		assertEquals(1, slice.getLength("error"));
+		for (int i = 0; i < slice.getRecords(); i++) {
+			assertEquals(time(i + 2)*MINUTE, slice.getTime(i));
+			assertEquals(i + 2, slice.getValues("error")[i], 0.0);
+			for (int k = 0; k < DEPTHS; k++) {
+				assertEquals(psi(i + 2, k), slice.getValues("psi")[i*DEPTHS + k], 0.0);
+			}
+		}
+	}
+
+
+	@Test
+	public void readADepthRange() throws IOException, InvalidRangeException {
+		AggregatedOutputReader1D reader = createFiles();
+		reader.setDepthRange(1, 2);
+
+		TimeSlice slice = reader.read(time(RECORDS)*MINUTE, time(RECORDS)*MINUTE, "psi");
+
+		assertEquals(1, slice.getRecords());
+		assertArrayEquals(new double[] {psi(RECORDS, 1), psi(RECORDS, 2)}, slice.getValues("psi"), 0.0);
+	}
+
+
+	@Test
+	public void readOutOfTheFiles() throws IOException, InvalidRangeException {
+		AggregatedOutputReader1D reader = createFiles();
+
+		TimeSlice slice = reader.read(time(3*RECORDS)*MINUTE, Long.MAX_VALUE, "psi");
+
+		assertEquals(0, slice.getRecords());
+		assertEquals(0, slice.getValues("psi").length);
+	}
+
+
+	/**
+	 * Three files of RECORDS records each, one record every 15 minutes.
+	 */
+	private AggregatedOutputReader1D createFiles() throws IOException, InvalidRangeException {
+		for (int f = 0; f < 3; f++) {
+			String fileName = new File(folder.getRoot(), String.format("out_%04d.nc", f)).getPath();
+			NetcdfFileWriter dataFile = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, fileName);
+			try {
+				dataFile.addDimension(null, "depth", DEPTHS);
+				dataFile.addUnlimitedDimension("time");
+				Variable time = dataFile.addVariable(null, "time", DataType.INT, "time");
+				Variable psi = dataFile.addVariable(null, "psi", DataType.DOUBLE, "time depth");
+				Variable error = dataFile.addVariable(null, "error", DataType.DOUBLE, "time");
+				dataFile.create();
+				int[] times = new int[RECORDS];
+				double[] psiValues = new double[RECORDS*DEPTHS];
+				double[] errors = new double[RECORDS];
+				for (int r = 0; r < RECORDS; r++) {
+					int record = f*RECORDS + r;
+					times[r] = time(record);
+					errors[r] = record;
+					for (int k = 0; k < DEPTHS; k++) {
+						psiValues[r*DEPTHS + k] = psi(record, k);
+					}
+				}
+				dataFile.write(time, Array.factory(DataType.INT, new int[] {RECORDS}, times));
+				dataFile.write(psi, Array.factory(DataType.DOUBLE, new int[] {RECORDS, DEPTHS}, psiValues));
+				dataFile.write(error, Array.factory(DataType.DOUBLE, new int[] {RECORDS}, errors));
+			} finally {
+				dataFile.close();
+			}
+		}
+		// a file of another output is not part of the sequence
+		folder.newFile("out_1d_0000.nc");
+		return new AggregatedOutputReader1D(new File(folder.getRoot(), "out.nc").getPath());
+	}
+
+
+	/**
+	 * @return minutes since 01/01/1970 of the record
+	 */
+	private static int time(int record) {
+		return 26297280 + 15*record;
+	}
+
+
+	private static double psi(int record, int k) {
+		return -0.5 + 0.01*record - 0.1*k;
+	}
+
+}
@@ -0,0 +1,134 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ucar.nc2.NetcdfFileWriter;
+
+/**
+ * Tests of the checkpoint files: what is written is read back.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public class Checkpoint1DTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+
+	@Test
+	public void writeAndRead() throws IOException {
+		long time = 1577836800000L;
+		Map<String,double[]> state = new LinkedHashMap<String,double[]>();
+		state.put("psi", new double[] {-0.5, -0.25, 0.125});
+		state.put("T", new double[] {273.15});
+		Checkpoint1D checkpoint = new Checkpoint1D(time, state);
+		checkpoint.addWriterPosition("out.nc", 120, 2, 35, time - 3600000L, 123456789L);
+		checkpoint.addWriterPosition("out_1d.nc", 120, 0, -1, time - 86400000L, 0L);
+		checkpoint.addAggregation(time - 900000L, 4, new double[] {1.0, 2.0, 3.0});
+		String fileName = new File(folder.getRoot(), "checkpoint.nc").getPath();
+
+		checkpoint.write(fileName);
+		Checkpoint1D read = Checkpoint1D.read(fileName);
+
+		assertEquals(time, read.getTime());
+		assertArrayEquals(new String[] {"psi", "T"}, read.getState().keySet().toArray(new String[0]));
+		assertArrayEquals(state.get("psi"), read.getState("psi"), 0.0);
+		assertArrayEquals(state.get("T"), read.getState("T"), 0.0);
+		assertEquals("out.nc", read.getWriterFileName());
+		assertEquals(2, read.getWriterPositions().size());
+		assertArrayEquals(new long[] {120, 2, 35, time - 3600000L, 123456789L}, read.getWriterPositions().get(0));
+		assertArrayEquals(new long[] {120, 0, -1, time - 86400000L, 0L}, read.getWriterPositions().get(1));
+		assertEquals(1, read.getAggregations().size());
+		assertArrayEquals(new long[] {time - 900000L, 4}, read.getAggregations().get(0));
+		assertArrayEquals(new double[] {1.0, 2.0, 3.0}, read.getAccumulators().get(0), 0.0);
+	}
+
+
+	@Test
+	public void writeReplacesThePreviousCheckpoint() throws IOException {
+		String fileName = new File(folder.getRoot(), "checkpoint.nc").getPath();
+		Map<String,double[]> state = new LinkedHashMap<String,double[]>();
+		state.put("psi", new double[] {1.0});
+		new Checkpoint1D(1000L, state).write(fileName);
+		state.put("psi", new double[] {2.0});
+
+		new Checkpoint1D(2000L, state).write(fileName);
+		Checkpoint1D read = Checkpoint1D.read(fileName);
+
+		assertEquals(2000L, read.getTime());
+		assertArrayEquals(new double[] {2.0}, read.getState("psi"), 0.0);
+		assertTrue(read.getWriterPositions().isEmpty());
+		assertTrue(read.getAggregations().isEmpty());
+		assertArrayEquals(new String[] {"checkpoint.nc"}, folder.getRoot().list());
+	}
+
+
+	@Test
+	public void theStateIsCopied() {
+		double[] psi = {1.0};
+		Map<String,double[]> state = new LinkedHashMap<String,double[]>();
+		state.put("psi", psi);
+		Checkpoint1D checkpoint = new Checkpoint1D(0L, state);
+		psi[0] = 2.0;
+
+		assertEquals(1.0, checkpoint.getState("psi")[0], 0.0);
+		assertFalse(checkpoint.getState().containsKey("theta"));
+	}
+
+
+	@Test(expected = IllegalArgumentException.class)
+	public void reservedNamesAreRejected() {
+		Map<String,double[]> state = new LinkedHashMap<String,double[]>();
+		state.put("writer_position", new double[] {1.0});
+		new Checkpoint1D(0L, state);
+	}
+
+
+	@Test(expected = IllegalArgumentException.class)
+	public void aMissingStateVariableIsRejected() {
+		new Checkpoint1D(0L, new LinkedHashMap<String,double[]>()).getState("psi");
+	}
+
+
+	@Test(expected = IOException.class)
+	public void readRejectsAFileWithoutTime() throws IOException {
+		String fileName = new File(folder.getRoot(), "empty.nc").getPath();
+		NetcdfFileWriter dataFile = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, fileName);
+		dataFile.create();
+		dataFile.close();
+		Checkpoint1D.read(fileName);
+	}
+
+}
@@ -0,0 +1,147 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ucar.ma2.DataType;
+import ucar.nc2.NetcdfFile;
+
+import it.geoframe.blogspot.netcdf.utilities.TimeCodec;
+
+/**
+ * Tests of the writer of an ensemble of columns.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public class MultiColumnWriter1DTest {
+
+	private static final int COLUMNS = 2;
+	private static final int DEPTHS = 3;
+	private static final long START = 1577836800000L;
+	private static final long STEP = 900000L;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+
+	@Test
+	public void rolloverStartsANewFile() throws IOException {
+		MultiColumnWriter1D writer = new MultiColumnWriter1D(schema(), new File(folder.getRoot(), "ensemble.nc").getPath(), "UTC", COLUMNS, 2);
+		writer.setRolloverPolicy(RolloverPolicies.byRecords(3));
+		// the second column is one record behind the first one
+		for (int i = 0; i < 5; i++) {
+			writer.write(0, time(i), record(i, 0));
+			if (i > 0) {
+				writer.write(1, time(i - 1), record(i - 1, 1));
+			}
+		}
+		writer.write(1, time(4), record(4, 1));
+		writer.close();
+
+		checkFile(0, 0, 3);
+		checkFile(1, 3, 2);
+		assertFalse(new File(folder.getRoot(), "ensemble_0002.nc").exists());
+	}
+
+
+	@Test
+	public void columnsMustSubmitTheSameTime() throws IOException {
+		MultiColumnWriter1D writer = new MultiColumnWriter1D(schema(), new File(folder.getRoot(), "ensemble.nc").getPath(), "UTC", COLUMNS, 1);
+		writer.setKeepFileOpen(false);
+		writer.write(0, time(0), record(0, 0));
+		try {
+			writer.write(1, time(1), record(0, 1));
+			fail("A different time for the same row is accepted");
+		} catch (IOException e) {
+			// expected
+		}
+		writer.write(1, time(0), record(0, 1));
+		writer.write(0, time(1), record(1, 0));
+		writer.write(1, time(1), record(1, 1));
+		writer.close();
+
+		checkFile(0, 0, 2);
+	}
+
+
+	private void checkFile(int fileNumber, int first, int records) throws IOException {
+		TimeCodec timeCodec = TimeCodec.getInstance("UTC");
+		NetcdfFile file = NetcdfFile.open(new File(folder.getRoot(), String.format("ensemble_%04d.nc", fileNumber)).getPath());
+		try {
+			assertEquals(timeCodec.format(time(first)), file.findGlobalAttribute("time_coverage_start").getStringValue());
+			assertEquals(timeCodec.format(time(first + records - 1)), file.findGlobalAttribute("time_coverage_end").getStringValue());
+			assertArrayEquals(new int[] {records, COLUMNS, DEPTHS}, file.findVariable("psi").getShape());
+			assertArrayEquals(new int[] {records, COLUMNS}, file.findVariable("error").getShape());
+
+			double[] psi = (double[]) file.findVariable("psi").read().get1DJavaArray(double.class);
+			double[] error = (double[]) file.findVariable("error").read().get1DJavaArray(double.class);
+			for (int i = 0; i < records; i++) {
+				assertEquals(time(first + i)/60000, file.findVariable("time").read().getLong(i));
+				for (int column = 0; column < COLUMNS; column++) {
+					double[][] record = record(first + i, column);
+					assertArrayEquals(record[0], Arrays.copyOfRange(psi, (i*COLUMNS + column)*DEPTHS, (i*COLUMNS + column + 1)*DEPTHS), 0.0);
+					assertEquals(record[1][0], error[i*COLUMNS + column], 0.0);
+				}
+			}
+		} finally {
+			file.close();
+		}
+	}
+
+
+	private static OutputSchema1D schema() {
+		OutputSchema1D schema = new OutputSchema1D(new String[] {""});
+		schema.setDepthDimension("depth", DEPTHS);
+		schema.addStatic("depth", OutputDimension.DEPTH, DataType.DOUBLE, "m", "Soil depth.", new double[] {0.0, -0.1, -0.2});
+		schema.addTime("Minutes since 01/01/1970 00:00:00 UTC", "Time.");
+		schema.add("psi", 0, OutputDimension.DEPTH, DataType.DOUBLE, "m", "Water suction.");
+		schema.add("error", 1, OutputDimension.TIME, DataType.DOUBLE, "m", "Volume error at each time step.");
+		return schema;
+	}
+
+
+	private static double[][] record(int i, int column) {
+		double[] psi = new double[DEPTHS];
+		for (int k = 0; k < DEPTHS; k++) {
+			psi[k] = 100*i + 10*column + k;
+		}
+		return new double[][] {psi, {-100*i - column}};
+	}
+
+
+	private static long time(int i) {
+		return START + i*STEP;
+	}
+
+}
@@ -0,0 +1,130 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ucar.ma2.DataType;
+import ucar.nc2.NetcdfFile;
+
+import it.geoframe.blogspot.netcdf.utilities.TimeCodec;
+
+/**
+ * Tests of the asynchronous and keep-open modes of the writer.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public class NetCDFWriter1DTest {
+
+	private static final int DEPTHS = 3;
+	private static final int RECORDS = 10;
+	private static final int ROLLOVER_RECORDS = 4;
+	private static final long START = 1577836800000L;
+	private static final long STEP = 900000L;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+
+	@Test
+	public void asyncAndSyncWriteTheSameFiles() throws IOException {
+		write("sync", false, false);
+		write("async", true, false);
+		write("asyncKeepOpen", true, true);
+
+		// 10 records in files of 4 records
+		for (int n = 0; n < 3; n++) {
+			byte[] sync = Files.readAllBytes(file("sync", n).toPath());
+			assertArrayEquals(sync, Files.readAllBytes(file("async", n).toPath()));
+			assertArrayEquals(sync, Files.readAllBytes(file("asyncKeepOpen", n).toPath()));
+		}
+		assertFalse(file("sync", 3).exists());
+	}
+
+
+	@Test
+	public void keepOpenWritesTheTimeCoverageEndAtClose() throws IOException {
+		write("keepOpen", false, true);
+
+		TimeCodec timeCodec = TimeCodec.getInstance("UTC");
+		for (int n = 0; n < 3; n++) {
+			int first = n*ROLLOVER_RECORDS;
+			int last = Math.min(RECORDS, first + ROLLOVER_RECORDS) - 1;
+			NetcdfFile file = NetcdfFile.open(file("keepOpen", n).getPath());
+			try {
+				assertEquals(timeCodec.format(time(first)), file.findGlobalAttribute("time_coverage_start").getStringValue());
+				assertEquals(timeCodec.format(time(last)), file.findGlobalAttribute("time_coverage_end").getStringValue());
+				assertEquals(last - first + 1, file.findVariable("time").getShape()[0]);
+			} finally {
+				file.close();
+			}
+		}
+	}
+
+
+	/**
+	 * Write the records one at a time, in files of ROLLOVER_RECORDS records.
+	 */
+	private void write(String name, boolean async, boolean keepOpen) throws IOException {
+		OutputSchema1D schema = new OutputSchema1D(new String[] {""});
+		schema.setDepthDimension("depth", DEPTHS);
+		schema.addStatic("depth", OutputDimension.DEPTH, DataType.DOUBLE, "m", "Soil depth.", new double[] {0.0, -0.1, -0.2});
+		schema.addTime("Minutes since 01/01/1970 00:00:00 UTC", "Time.");
+		schema.add("psi", 0, OutputDimension.DEPTH, DataType.DOUBLE, "m", "Water suction.");
+		schema.add("error", 1, OutputDimension.TIME, DataType.DOUBLE, "m", "Volume error at each time step.");
+
+		NetCDFWriter1D writer = new NetCDFWriter1D(schema, new File(folder.getRoot(), name + ".nc").getPath(), "UTC");
+		writer.setRolloverPolicy(RolloverPolicies.create("records", 0, ROLLOVER_RECORDS, "UTC"));
+		writer.setKeepFileOpen(keepOpen);
+		writer.setAsyncWrite(async, 2);
+		writer.setProgressInterval(0);
+		for (int i = 0; i < RECORDS; i++) {
+			double[] psi = new double[DEPTHS];
+			for (int k = 0; k < DEPTHS; k++) {
+				psi[k] = 10*i + k;
+			}
+			writer.write(time(i), new double[][] {psi, {-i}}, i < RECORDS - 1);
+		}
+		writer.close();
+	}
+
+
+	private File file(String name, int fileNumber) {
+		return new File(folder.getRoot(), String.format("%s_%04d.nc", name, fileNumber));
+	}
+
+
+	private static long time(int i) {
+		return START + i*STEP;
+	}
+
+}
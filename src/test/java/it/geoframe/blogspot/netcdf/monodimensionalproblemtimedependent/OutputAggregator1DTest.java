@@ -0,0 +1,139 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import ucar.ma2.DataType;
+
+/**
+ * Tests of the periods of the output policies across the daylight saving transitions.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public class OutputAggregator1DTest {
+
+	private static final ZoneId ROME = ZoneId.of("Europe/Rome");
+	private static final long HOUR = 3600000L;
+
+
+	@Test
+	public void dailyPeriodsStartAtTheLocalMidnightInSpring() {
+		List<double[]> periods = aggregate("error:1d:sum", local(2020, 3, 28, 0), 3*24 - 1);
+
+		assertEquals(3, periods.size());
+		assertPeriod(local(2020, 3, 28, 0), 24, periods.get(0));
+		// 2020-03-29 lasts 23 hours
+		assertPeriod(local(2020, 3, 29, 0), 23, periods.get(1));
+		assertPeriod(local(2020, 3, 30, 0), 24, periods.get(2));
+	}
+
+
+	@Test
+	public void dailyPeriodsStartAtTheLocalMidnightInAutumn() {
+		List<double[]> periods = aggregate("error:1d:sum", local(2020, 10, 24, 0), 3*24 + 1);
+
+		assertEquals(3, periods.size());
+		assertPeriod(local(2020, 10, 24, 0), 24, periods.get(0));
+		// 2020-10-25 lasts 25 hours
+		assertPeriod(local(2020, 10, 25, 0), 25, periods.get(1));
+		assertPeriod(local(2020, 10, 26, 0), 24, periods.get(2));
+	}
+
+
+	@Test
+	public void periodsOfManyDaysFollowTheCalendar() {
+		List<double[]> periods = aggregate("error:2d:sum", local(2020, 3, 28, 0), 4*24 - 1);
+
+		// the periods are aligned to the days since 01/01/1970
+		assertEquals(3, periods.size());
+		assertPeriod(local(2020, 3, 27, 0), 24, periods.get(0));
+		assertPeriod(local(2020, 3, 29, 0), 47, periods.get(1));
+		assertPeriod(local(2020, 3, 31, 0), 24, periods.get(2));
+	}
+
+
+	@Test
+	public void periodsOfHoursNeverGoBackInTime() {
+		for (long first : new long[] {local(2020, 3, 28, 0), local(2020, 10, 24, 0)}) {
+			List<double[]> periods = aggregate("error:6h:sum", first, 3*24);
+
+			List<Long> starts = new ArrayList<Long>();
+			double records = 0.0;
+			for (double[] period : periods) {
+				if (!starts.isEmpty()) {
+					assertTrue((long) period[0] > starts.get(starts.size() - 1));
+				}
+				starts.add((long) period[0]);
+				records += period[1];
+			}
+			assertEquals(3*24, records, 0.0);
+			// each day starts at the local midnight
+			for (int day = 0; day < 3; day++) {
+				assertTrue(starts.contains(Instant.ofEpochMilli(first).atZone(ROME).toLocalDate().plusDays(day).atStartOfDay(ROME).toInstant().toEpochMilli()));
+			}
+		}
+	}
+
+
+	/**
+	 * Aggregate hourly records of value 1 of the variable error.
+	 *
+	 * @return time and value of each period
+	 */
+	private static List<double[]> aggregate(String policy, long first, int records) {
+		OutputSchema1D schema = new OutputSchema1D(new String[0]);
+		schema.addTime("minutes since 01/01/1970 00:00:00 UTC", "time");
+		schema.add("error", 0, OutputDimension.TIME, DataType.DOUBLE, "m", "volume error");
+		OutputAggregator1D aggregator = new OutputAggregator1D(schema, null, OutputPolicy.parse(policy).getPeriod(),
+				OutputPolicy.parse(new String[] {policy}), ROME);
+
+		List<double[]> periods = new ArrayList<double[]>();
+		for (int i = 0; i < records; i++) {
+			OutputBuffer1D output = aggregator.aggregate(first + i*HOUR, new double[][] {{1.0}}, i == records - 1);
+			for (int r = 0; r < output.size(); r++) {
+				periods.add(new double[] {output.getTime(r), output.getValues(0)[output.getIndex(r)]});
+			}
+		}
+		return periods;
+	}
+
+
+	private static void assertPeriod(long start, double records, double[] period) {
+		assertEquals(start, (long) period[0]);
+		assertEquals(records, period[1], 0.0);
+	}
+
+
+	private static long local(int year, int month, int day, int hour) {
+		return LocalDateTime.of(year, month, day, hour, 0).atZone(ROME).toInstant().toEpochMilli();
+	}
+
+}
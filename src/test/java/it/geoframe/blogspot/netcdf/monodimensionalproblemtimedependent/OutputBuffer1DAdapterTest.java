@@ -0,0 +1,146 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+import org.junit.Test;
+
+import it.geoframe.blogspot.netcdf.utilities.TimeCodec;
+
+/**
+ * Tests of the copy of the legacy buffer in an OutputBuffer1D, and of the incremental adapt of a growing buffer.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public class OutputBuffer1DAdapterTest {
+
+	private final TimeCodec timeCodec = TimeCodec.getInstance("UTC");
+
+
+	@Test
+	public void adaptCopiesAllTheRecords() throws IOException, ParseException {
+		LinkedHashMap<String,ArrayList<double[]>> variables = new LinkedHashMap<String,ArrayList<double[]>>();
+		put(variables, "2020-01-01 00:00", 1.0);
+		put(variables, "2020-01-01 00:15", 2.0);
+
+		OutputBuffer1D buffer = new OutputBuffer1DAdapter(timeCodec).adapt(variables);
+
+		assertEquals(2, buffer.size());
+		assertEquals(timeCodec.parse("2020-01-01 00:15"), buffer.getTime(1));
+		assertArrayEquals(new double[] {2.0, 20.0}, values(buffer, 0, 1), 0.0);
+		assertArrayEquals(new double[] {-2.0}, values(buffer, 1, 1), 0.0);
+	}
+
+
+	@Test
+	public void adaptAfterSkipsTheOldRecords() throws IOException, ParseException {
+		LinkedHashMap<String,ArrayList<double[]>> variables = new LinkedHashMap<String,ArrayList<double[]>>();
+		put(variables, "2020-01-01 00:00", 1.0);
+		put(variables, "2020-01-01 00:15", 2.0);
+		put(variables, "2020-01-01 00:30", 3.0);
+
+		OutputBuffer1D buffer = new OutputBuffer1DAdapter(timeCodec).adapt(variables, timeCodec.parse("2020-01-01 00:15"));
+
+		assertEquals(1, buffer.size());
+		assertArrayEquals(new double[] {3.0, 30.0}, values(buffer, 0, 0), 0.0);
+	}
+
+
+	@Test
+	public void incrementalAdaptCopiesOnlyTheNewEntries() throws IOException, ParseException {
+		OutputBuffer1DAdapter adapter = new OutputBuffer1DAdapter(timeCodec);
+		LinkedHashMap<String,ArrayList<double[]>> variables = new LinkedHashMap<String,ArrayList<double[]>>();
+		put(variables, "2020-01-01 00:00", 1.0);
+		put(variables, "2020-01-01 00:15", 2.0);
+		assertEquals(2, adapter.adapt(variables, Long.MIN_VALUE).size());
+
+		put(variables, "2020-01-01 00:30", 3.0);
+		put(variables, "2020-01-01 00:45", 4.0);
+		// the entries seen are skipped even if they are after the time
+		OutputBuffer1D buffer = adapter.adapt(variables, Long.MIN_VALUE);
+
+		assertEquals(2, buffer.size());
+		assertEquals(timeCodec.parse("2020-01-01 00:30"), buffer.getTime(0));
+		assertArrayEquals(new double[] {4.0, 40.0}, values(buffer, 0, 1), 0.0);
+
+		assertEquals(0, adapter.adapt(variables, Long.MIN_VALUE).size());
+	}
+
+
+	@Test
+	public void incrementalAdaptOfAnotherMapParsesAllTheEntries() throws IOException, ParseException {
+		OutputBuffer1DAdapter adapter = new OutputBuffer1DAdapter(timeCodec);
+		LinkedHashMap<String,ArrayList<double[]>> variables = new LinkedHashMap<String,ArrayList<double[]>>();
+		put(variables, "2020-01-01 00:00", 1.0);
+		put(variables, "2020-01-01 00:15", 2.0);
+		adapter.adapt(variables, Long.MIN_VALUE);
+
+		// the caller cleared the map and added new records: the last key seen does not match
+		variables.clear();
+		put(variables, "2020-01-01 00:30", 3.0);
+		put(variables, "2020-01-01 00:45", 4.0);
+		put(variables, "2020-01-01 01:00", 5.0);
+		OutputBuffer1D buffer = adapter.adapt(variables, timeCodec.parse("2020-01-01 00:30"));
+
+		assertEquals(2, buffer.size());
+		assertArrayEquals(new double[] {4.0, 40.0}, values(buffer, 0, 0), 0.0);
+
+		// the map is smaller than the one seen
+		variables.clear();
+		put(variables, "2020-01-01 01:15", 6.0);
+		buffer = adapter.adapt(variables, Long.MIN_VALUE);
+
+		assertEquals(1, buffer.size());
+		assertArrayEquals(new double[] {6.0, 60.0}, values(buffer, 0, 0), 0.0);
+	}
+
+
+	@Test(expected = IOException.class)
+	public void adaptRejectsAWrongDate() throws IOException {
+		LinkedHashMap<String,ArrayList<double[]>> variables = new LinkedHashMap<String,ArrayList<double[]>>();
+		put(variables, "not a date", 1.0);
+		new OutputBuffer1DAdapter(timeCodec).adapt(variables);
+	}
+
+
+	/**
+	 * Add a record with two variables: {value, 10*value} and {-value}.
+	 */
+	private static void put(LinkedHashMap<String,ArrayList<double[]>> variables, String date, double value) {
+		variables.put(date, new ArrayList<double[]>(Arrays.asList(new double[] {value, 10*value}, new double[] {-value})));
+	}
+
+
+	private static double[] values(OutputBuffer1D buffer, int slot, int i) {
+		int length = buffer.getLength(slot);
+		int offset = buffer.getIndex(i)*length;
+		return Arrays.copyOfRange(buffer.getValues(slot), offset, offset + length);
+	}
+
+}
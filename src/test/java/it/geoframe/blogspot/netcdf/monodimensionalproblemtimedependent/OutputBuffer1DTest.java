@@ -0,0 +1,102 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Tests of the ring buffer of the 1D writers.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public class OutputBuffer1DTest {
+
+	@Test
+	public void appendPadsAndTruncatesTheValues() {
+		OutputBuffer1D buffer = new OutputBuffer1D(2, new int[] {3, 1});
+		buffer.append(1000L, new double[][] {{1.0, 2.0}, {5.0, 6.0}});
+
+		assertEquals(1, buffer.size());
+		assertEquals(1000L, buffer.getTime(0));
+		assertArrayEquals(new double[] {1.0, 2.0, 0.0}, values(buffer, 0, 0), 0.0);
+		assertArrayEquals(new double[] {5.0}, values(buffer, 1, 0), 0.0);
+	}
+
+
+	@Test
+	public void recordsWrapAroundTheRing() {
+		OutputBuffer1D buffer = new OutputBuffer1D(3, new int[] {2});
+		buffer.append(1L, new double[][] {{1.0, 1.5}});
+		buffer.append(2L, new double[][] {{2.0, 2.5}});
+		buffer.clear();
+		assertTrue(buffer.isEmpty());
+
+		buffer.append(3L, new double[][] {{3.0, 3.5}});
+		buffer.append(4L, new double[][] {{4.0, 4.5}});
+		buffer.append(5L, new double[][] {{5.0, 5.5}});
+
+		assertEquals(3, buffer.size());
+		assertEquals(3L, buffer.getTime(0));
+		assertEquals(5L, buffer.getTime(2));
+		assertEquals(1, buffer.getIndex(2));
+		assertArrayEquals(new double[] {5.0, 5.5}, values(buffer, 0, 2), 0.0);
+	}
+
+
+	@Test(expected = IllegalStateException.class)
+	public void appendToAFullBufferFails() {
+		OutputBuffer1D buffer = new OutputBuffer1D(1, new int[] {1});
+		buffer.append(1L, new double[][] {{1.0}});
+		buffer.append(2L, new double[][] {{2.0}});
+	}
+
+
+	@Test
+	public void copyIsIndependentOfTheBuffer() {
+		OutputBuffer1D buffer = new OutputBuffer1D(2, new int[] {1});
+		buffer.append(1L, new double[][] {{1.0}});
+		buffer.clear();
+		buffer.append(2L, new double[][] {{2.0}});
+		buffer.append(3L, new double[][] {{3.0}});
+
+		OutputBuffer1D copy = buffer.copy();
+		buffer.clear();
+		buffer.append(4L, new double[][] {{4.0}});
+
+		assertEquals(2, copy.size());
+		assertEquals(2L, copy.getTime(0));
+		assertArrayEquals(new double[] {3.0}, values(copy, 0, 1), 0.0);
+	}
+
+
+	private static double[] values(OutputBuffer1D buffer, int slot, int i) {
+		int length = buffer.getLength(slot);
+		int offset = buffer.getIndex(i)*length;
+		return Arrays.copyOfRange(buffer.getValues(slot), offset, offset + length);
+	}
+
+}
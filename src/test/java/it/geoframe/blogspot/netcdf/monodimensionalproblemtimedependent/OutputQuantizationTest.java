@@ -0,0 +1,158 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import ucar.ma2.DataType;
+import ucar.nc2.Attribute;
+
+/**
+ * Tests of the bit rounding and of the 16 bit packing of the record variables.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public class OutputQuantizationTest {
+
+	@Test
+	public void roundKeepsTheSignificantDigits() {
+		OutputQuantization quantization = OutputQuantization.bySignificantDigits("celerity", 3);
+		double[] source = {0.123456789, -98765.4321, 1.0e-7 + 3.0e-13, 0.0};
+		double[] target = new double[5];
+
+		quantization.copy(source, 0, target, 0, source.length, target.length);
+
+		for (int k = 0; k < source.length; k++) {
+			assertEquals(source[k], target[k], Math.abs(source[k])*1.0e-3);
+			// the dropped bits of the mantissa are zero
+			long dropped = Double.doubleToRawLongBits(target[k]) & ((1L << (52 - 11)) - 1);
+			assertEquals(0L, dropped);
+		}
+		assertEquals(0.0, target[4], 0.0);
+		assertEquals(11, attribute(quantization.getAttributes(DataType.DOUBLE), "_QuantizeBitRoundNumberOfSignificantBits").getNumericValue().intValue());
+		assertEquals(DataType.DOUBLE, quantization.getDataType(DataType.DOUBLE));
+	}
+
+
+	@Test
+	public void roundToTheNearestValue() {
+		assertEquals(1.0, OutputQuantization.round(1.0 + Math.ulp(1.0)*1000, 11), 0.0);
+		assertEquals(1.5, OutputQuantization.round(1.49999, 11), 0.0);
+		assertEquals(1.0f, OutputQuantization.round(1.0f + Math.ulp(1.0f)*3, 11), 0.0f);
+		assertTrue(Double.isNaN(OutputQuantization.round(Double.NaN, 11)));
+		assertEquals(Double.NEGATIVE_INFINITY, OutputQuantization.round(Double.NEGATIVE_INFINITY, 11), 0.0);
+	}
+
+
+	@Test
+	public void roundFloatStorage() {
+		OutputQuantization quantization = OutputQuantization.bySignificantDigits("T", 2);
+		float[] target = new float[2];
+
+		quantization.copy(new double[] {273.456}, 0, target, 0, 1, 2);
+
+		assertEquals(273.456f, target[0], 273.456f*1.0e-2f);
+		assertEquals(0, Float.floatToRawIntBits(target[0]) & ((1 << (23 - 8)) - 1));
+		assertEquals(0.0f, target[1], 0.0f);
+	}
+
+
+	@Test
+	public void packInTheRange() {
+		OutputQuantization quantization = OutputQuantization.byPacking("theta", 0.0, 1.0);
+		double scaleFactor = attribute(quantization.getAttributes(DataType.DOUBLE), "scale_factor").getNumericValue().doubleValue();
+		double addOffset = attribute(quantization.getAttributes(DataType.DOUBLE), "add_offset").getNumericValue().doubleValue();
+		double[] source = {0.0, 1.0, 0.3, 2.0, -1.0, Double.NaN};
+		short[] target = new short[7];
+
+		quantization.copy(source, 0, target, 0, source.length, target.length);
+
+		assertTrue(quantization.isPacked());
+		assertEquals(DataType.SHORT, quantization.getDataType(DataType.DOUBLE));
+		assertEquals(-Short.MAX_VALUE, target[0]);
+		assertEquals(Short.MAX_VALUE, target[1]);
+		assertEquals(0.3, target[2]*scaleFactor + addOffset, scaleFactor/2);
+		// values out of the range are clipped, NaN is the fill value
+		assertEquals(Short.MAX_VALUE, target[3]);
+		assertEquals(-Short.MAX_VALUE, target[4]);
+		assertEquals(OutputQuantization.FILL_VALUE, target[5]);
+		// the missing values are zero
+		assertEquals(0.0, target[6]*scaleFactor + addOffset, scaleFactor/2);
+	}
+
+
+	@Test
+	public void packedAttributesHaveTheTypeOfTheData() {
+		List<Attribute> attributes = OutputQuantization.byPacking("theta", 0.0, 1.0).getAttributes(DataType.FLOAT);
+
+		assertEquals(DataType.FLOAT, attribute(attributes, "scale_factor").getDataType());
+		assertEquals(DataType.FLOAT, attribute(attributes, "add_offset").getDataType());
+		assertEquals(DataType.SHORT, attribute(attributes, "_FillValue").getDataType());
+	}
+
+
+	@Test
+	public void parseTheQuantizations() {
+		Map<String,OutputQuantization> quantizations = OutputQuantization.parse(new String[] {"celerity:3", " theta : short : 0 : 1 ", null, " "});
+
+		assertArrayEquals(new String[] {"celerity", "theta"}, quantizations.keySet().toArray(new String[0]));
+		assertFalse(quantizations.get("celerity").isPacked());
+		assertTrue(quantizations.get("theta").isPacked());
+		assertTrue(OutputQuantization.parse((String[]) null).isEmpty());
+	}
+
+
+	@Test(expected = IllegalArgumentException.class)
+	public void parseRejectsAWrongQuantization() {
+		OutputQuantization.parse("celerity:three");
+	}
+
+
+	@Test(expected = IllegalArgumentException.class)
+	public void packingRejectsAnEmptyRange() {
+		OutputQuantization.byPacking("theta", 1.0, 1.0);
+	}
+
+
+	@Test(expected = IllegalArgumentException.class)
+	public void roundingRejectsTooManyDigits() {
+		OutputQuantization.bySignificantDigits("celerity", 16);
+	}
+
+
+	private static Attribute attribute(List<Attribute> attributes, String name) {
+		for (Attribute attribute : attributes) {
+			if (attribute.getShortName().equals(name)) {
+				return attribute;
+			}
+		}
+		throw new AssertionError("Missing attribute " + name);
+	}
+
+}
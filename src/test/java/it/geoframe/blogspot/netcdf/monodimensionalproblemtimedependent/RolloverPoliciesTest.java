@@ -0,0 +1,111 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import org.junit.Test;
+
+/**
+ * Tests of the rollover policies of the output files.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public class RolloverPoliciesTest {
+
+	@Test
+	public void bySizeStartsANewFileWhenTheRecordDoesNotFit() {
+		RolloverPolicy policy = RolloverPolicies.bySize(1.0);
+
+		assertFalse(policy.startNewFile(0L, 0L, 10, 999000L, 1000L));
+		assertTrue(policy.startNewFile(0L, 0L, 10, 999001L, 1000L));
+		// a file always contains at least one record
+		assertFalse(policy.startNewFile(0L, 0L, 0, 2000000L, 1000L));
+		assertFalse(RolloverPolicies.bySize(0.0).startNewFile(0L, 0L, 10, Long.MAX_VALUE/2, 1000L));
+	}
+
+
+	@Test
+	public void byRecordsStartsANewFileAfterTheRecords() {
+		RolloverPolicy policy = RolloverPolicies.byRecords(3);
+
+		assertFalse(policy.startNewFile(0L, 0L, 2, 0L, 0L));
+		assertTrue(policy.startNewFile(0L, 0L, 3, 0L, 0L));
+		assertEquals("0012", policy.getFileSuffix(0L, 12));
+	}
+
+
+	@Test(expected = IllegalArgumentException.class)
+	public void byRecordsRejectsNoRecords() {
+		RolloverPolicies.byRecords(0);
+	}
+
+
+	@Test
+	public void byMonthFollowsTheCalendarOfTheTimeZone() {
+		RolloverPolicy policy = RolloverPolicies.byMonth("Europe/Rome");
+		long first = millis(2020, 1, 15, 0, "Europe/Rome");
+
+		assertFalse(policy.startNewFile(first, millis(2020, 1, 31, 23, "Europe/Rome"), 1, 0L, 0L));
+		assertTrue(policy.startNewFile(first, millis(2020, 2, 1, 0, "Europe/Rome"), 1, 0L, 0L));
+		// 2020-01-31 23:00 UTC is already February in Rome
+		assertTrue(policy.startNewFile(first, millis(2020, 1, 31, 23, "UTC"), 1, 0L, 0L));
+		assertFalse(policy.startNewFile(first, millis(2020, 2, 1, 0, "Europe/Rome"), 0, 0L, 0L));
+		assertEquals("2020-01", policy.getFileSuffix(first, 3));
+	}
+
+
+	@Test
+	public void byYearIgnoresTheMonths() {
+		RolloverPolicy policy = RolloverPolicies.byYear("UTC");
+		long first = millis(2020, 1, 1, 0, "UTC");
+
+		assertFalse(policy.startNewFile(first, millis(2020, 12, 31, 23, "UTC"), 1, 0L, 0L));
+		assertTrue(policy.startNewFile(first, millis(2021, 1, 1, 0, "UTC"), 1, 0L, 0L));
+		assertEquals("2020", policy.getFileSuffix(first, 0));
+	}
+
+
+	@Test
+	public void createByName() {
+		assertTrue(RolloverPolicies.create(" Records ", 0.0, 1, "UTC").startNewFile(0L, 0L, 1, 0L, 0L));
+		// size is the default policy
+		assertTrue(RolloverPolicies.create(null, 1.0, 0, "UTC").startNewFile(0L, 0L, 1, 1000000L, 1L));
+		assertEquals("1970-01", RolloverPolicies.create("month", 0.0, 0, "UTC").getFileSuffix(0L, 0));
+	}
+
+
+	@Test(expected = IllegalArgumentException.class)
+	public void createRejectsAnUnknownPolicy() {
+		RolloverPolicies.create("week", 0.0, 0, "UTC");
+	}
+
+
+	private static long millis(int year, int month, int day, int hour, String zone) {
+		return ZonedDateTime.of(year, month, day, hour, 0, 0, 0, ZoneId.of(zone)).toInstant().toEpochMilli();
+	}
+
+}
@@ -0,0 +1,262 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package it.geoframe.blogspot.netcdf.monodimensionalproblemtimedependent;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ucar.ma2.Array;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+
+/**
+ * Tests of the files written by the components through their output schema:
+ * name, shape and values of the variables.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public class WriterSchemasTest {
+
+	private static final int DEPTHS = 4;
+	private static final int RECORDS = 3;
+	private static final long START = 1577836800000L;
+	private static final long STEP = 900000L;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+
+	@Test
+	public void richards() throws IOException {
+		int[] lengths = lengths(14, new int[] {0, 1, 2, 3}, new int[] {4, 5, 6, 7, 8, 9});
+
+		WriteNetCDFRichards1DDouble writer = new WriteNetCDFRichards1DDouble();
+		writer.fileName = new File(folder.getRoot(), "richards.nc").getPath();
+		writer.spatialCoordinate = depth(DEPTHS);
+		writer.dualSpatialCoordinate = depth(DEPTHS + 1);
+		writer.controlVolume = new double[DEPTHS];
+		writer.psiIC = depth(DEPTHS);
+		writer.temperature = new double[DEPTHS];
+		writer.briefDescritpion = "richards";
+		writer.outVariables = new String[] {"darcyVelocity"};
+		writer.outputBuffer = buffer(lengths);
+		writer.doProcess = false;
+		writer.writeNetCDF();
+		writer.closeNetCDF();
+
+		NetcdfFile file = NetcdfFile.open(new File(folder.getRoot(), "richards_0000.nc").getPath());
+		try {
+			checkTime(file);
+			checkStatic(file, "depth", depth(DEPTHS));
+			checkStatic(file, "dualDepth", depth(DEPTHS + 1));
+			checkStatic(file, "T", new double[DEPTHS]);
+			checkRecords(file, "psi", 0, lengths);
+			checkRecords(file, "theta", 1, lengths);
+			checkRecords(file, "waterVolume", 2, lengths);
+			checkRecords(file, "saturationDegree", 3, lengths);
+			checkRecords(file, "darcyVelocity", 4, lengths);
+			checkRecords(file, "error", 10, lengths);
+			checkRecords(file, "topBC", 11, lengths);
+			checkRecords(file, "bottomBC", 12, lengths);
+			checkRecords(file, "runOff", 13, lengths);
+			// the optional variables not requested are not defined
+			assertNull(file.findVariable("darcyVelocityCapillary"));
+			assertNull(file.findVariable("celerities"));
+		} finally {
+			file.close();
+		}
+	}
+
+
+	@Test
+	public void geospace() throws IOException {
+		int[] lengths = lengths(23, new int[] {0, 1, 2, 9, 14, 19, 20, 21, 22}, new int[] {3, 4, 5, 6, 7, 8});
+
+		WriteNetCDFGEOSPACE1DDouble writer = new WriteNetCDFGEOSPACE1DDouble();
+		writer.fileName = new File(folder.getRoot(), "geospace.nc").getPath();
+		writer.spatialCoordinate = depth(DEPTHS);
+		writer.dualSpatialCoordinate = depth(DEPTHS + 1);
+		writer.controlVolume = new double[DEPTHS];
+		writer.psiIC = depth(DEPTHS);
+		writer.temperature = new double[DEPTHS];
+		writer.rootIC = new double[DEPTHS];
+		writer.briefDescritpion = "geospace";
+		writer.outVariables = new String[] {"darcyVelocity", "boundaryConditions"};
+		writer.outputBuffer = buffer(lengths);
+		writer.doProcess = false;
+		writer.writeNetCDF();
+		writer.closeNetCDF();
+
+		NetcdfFile file = NetcdfFile.open(new File(folder.getRoot(), "geospace_0000.nc").getPath());
+		try {
+			checkTime(file);
+			checkStatic(file, "depth", depth(DEPTHS));
+			checkStatic(file, "dualDepth", depth(DEPTHS + 1));
+			checkRecords(file, "psi", 0, lengths);
+			checkRecords(file, "theta", 1, lengths);
+			checkRecords(file, "waterVolume", 2, lengths);
+			// the variables on the dual grid have dualDepth values, the last one included
+			checkRecords(file, "darcyVelocity", 3, lengths);
+			checkRecords(file, "ets", 9, lengths);
+			checkRecords(file, "errorWaterVolume", 10, lengths);
+			checkRecords(file, "topBC", 11, lengths);
+			checkRecords(file, "bottomBC", 12, lengths);
+			checkRecords(file, "runOff", 13, lengths);
+			// the stresses and the root density are written at every depth, the last one included
+			checkRecords(file, "StressWaters", 14, lengths);
+			checkRecords(file, "StressWater", 15, lengths);
+			checkRecords(file, "EvaporationStressWater", 16, lengths);
+			checkRecords(file, "StressSun", 17, lengths);
+			checkRecords(file, "StressShade", 18, lengths);
+			checkRecords(file, "StressedETs", 19, lengths);
+			checkRecords(file, "RootDensity", 20, lengths);
+			checkRecords(file, "StressedTs", 21, lengths);
+			checkRecords(file, "StressedEs", 22, lengths);
+			assertEquals(value(RECORDS - 1, 14, DEPTHS - 1), file.findVariable("StressWaters").read().getDouble(RECORDS*DEPTHS - 1), 0.0);
+			assertNull(file.findVariable("poreVelocity"));
+		} finally {
+			file.close();
+		}
+	}
+
+
+	@Test
+	public void heatAdvectionDiffusion() throws IOException {
+		int[] lengths = lengths(7, new int[] {0, 1, 2}, new int[] {3, 4});
+
+		WriteNetCDFHeatAdvectionDiffusion1D writer = new WriteNetCDFHeatAdvectionDiffusion1D();
+		writer.fileName = new File(folder.getRoot(), "heat.nc").getPath();
+		writer.spatialCoordinate = depth(DEPTHS);
+		writer.dualSpatialCoordinate = depth(DEPTHS + 1);
+		writer.controlVolume = new double[DEPTHS];
+		writer.psi = depth(DEPTHS);
+		writer.temperatureIC = new double[DEPTHS];
+		writer.briefDescritpion = "heat";
+		writer.outputBuffer = buffer(lengths);
+		writer.doProcess = false;
+		writer.writeNetCDF();
+		writer.closeNetCDF();
+
+		NetcdfFile file = NetcdfFile.open(new File(folder.getRoot(), "heat_0000.nc").getPath());
+		try {
+			checkTime(file);
+			checkStatic(file, "depth", depth(DEPTHS));
+			checkStatic(file, "dualDepth", depth(DEPTHS + 1));
+			checkStatic(file, "psiIC", depth(DEPTHS));
+			checkRecords(file, "psi", 0, lengths);
+			checkRecords(file, "T", 1, lengths);
+			checkRecords(file, "theta", 2, lengths);
+			checkRecords(file, "heatFlux", 3, lengths);
+			checkRecords(file, "darcyFlux", 4, lengths);
+			checkRecords(file, "errorHeat", 5, lengths);
+			checkRecords(file, "errorVolume", 6, lengths);
+		} finally {
+			file.close();
+		}
+	}
+
+
+	/**
+	 * @return length of each slot: DEPTHS for the depth slots, DEPTHS+1 for the dual depth ones, 1 for the others
+	 */
+	private static int[] lengths(int slots, int[] depthSlots, int[] dualDepthSlots) {
+		int[] lengths = new int[slots];
+		Arrays.fill(lengths, 1);
+		for (int slot : depthSlots) {
+			lengths[slot] = DEPTHS;
+		}
+		for (int slot : dualDepthSlots) {
+			lengths[slot] = DEPTHS + 1;
+		}
+		return lengths;
+	}
+
+
+	private static OutputBuffer1D buffer(int[] lengths) {
+		OutputBuffer1D buffer = new OutputBuffer1D(RECORDS, lengths);
+		for (int i = 0; i < RECORDS; i++) {
+			double[][] record = new double[lengths.length][];
+			for (int slot = 0; slot < lengths.length; slot++) {
+				record[slot] = new double[lengths[slot]];
+				for (int k = 0; k < lengths[slot]; k++) {
+					record[slot][k] = value(i, slot, k);
+				}
+			}
+			buffer.append(START + i*STEP, record);
+		}
+		return buffer;
+	}
+
+
+	private static double value(int record, int slot, int k) {
+		return 1000*record + 10*slot + 0.5*k;
+	}
+
+
+	private static double[] depth(int length) {
+		double[] depth = new double[length];
+		for (int k = 0; k < length; k++) {
+			depth[k] = -0.1*k;
+		}
+		return depth;
+	}
+
+
+	private static void checkTime(NetcdfFile file) throws IOException {
+		Array time = file.findVariable("time").read();
+		assertEquals(RECORDS, time.getSize());
+		for (int i = 0; i < RECORDS; i++) {
+			assertEquals((START + i*STEP)/60000, time.getLong(i));
+		}
+	}
+
+
+	private static void checkStatic(NetcdfFile file, String name, double[] expected) throws IOException {
+		Variable variable = file.findVariable(name);
+		assertArrayEquals(name, new int[] {expected.length}, variable.getShape());
+		assertArrayEquals(name, expected, (double[]) variable.read().get1DJavaArray(double.class), 0.0);
+	}
+
+
+	private static void checkRecords(NetcdfFile file, String name, int slot, int[] lengths) throws IOException {
+		Variable variable = file.findVariable(name);
+		int[] shape = lengths[slot] == 1 ? new int[] {RECORDS} : new int[] {RECORDS, lengths[slot]};
+		assertArrayEquals(name, shape, variable.getShape());
+		double[] expected = new double[RECORDS*lengths[slot]];
+		for (int i = 0; i < RECORDS; i++) {
+			for (int k = 0; k < lengths[slot]; k++) {
+				expected[i*lengths[slot] + k] = value(i, slot, k);
+			}
+		}
+		assertArrayEquals(name, expected, (double[]) variable.read().get1DJavaArray(double.class), 0.0);
+	}
+
+}
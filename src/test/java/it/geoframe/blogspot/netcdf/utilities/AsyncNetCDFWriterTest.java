@@ -0,0 +1,133 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package it.geoframe.blogspot.netcdf.utilities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+/**
+ * Tests of the background writer thread.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public class AsyncNetCDFWriterTest {
+
+
+	@Test
+	public void closeWritesTheQueuedStepsInOrder() throws IOException {
+		List<Integer> steps = Collections.synchronizedList(new ArrayList<Integer>());
+		AsyncNetCDFWriter writer = new AsyncNetCDFWriter("order", 2);
+		for (int i = 0; i < 10; i++) {
+			final int step = i;
+			writer.submit(() -> steps.add(step));
+		}
+		writer.close();
+
+		assertEquals(10, steps.size());
+		for (int i = 0; i < 10; i++) {
+			assertEquals(i, (int) steps.get(i));
+		}
+	}
+
+
+	@Test
+	public void failureIsRethrownByClose() throws IOException {
+		IOException failure = new IOException("disk full");
+		List<Integer> steps = Collections.synchronizedList(new ArrayList<Integer>());
+		CountDownLatch submitted = new CountDownLatch(1);
+		AsyncNetCDFWriter writer = new AsyncNetCDFWriter("close", 4);
+		// the step fails only after the next one is queued
+		writer.submit(() -> {
+			try {
+				submitted.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			throw failure;
+		});
+		writer.submit(() -> steps.add(1));
+		submitted.countDown();
+
+		try {
+			writer.close();
+			fail("The failure of the step is not rethrown");
+		} catch (IOException e) {
+			assertSame(failure, e);
+		}
+		// the steps after the failure are discarded
+		assertEquals(0, steps.size());
+	}
+
+
+	@Test
+	public void failureIsRethrownBySubmit() throws IOException {
+		AsyncNetCDFWriter writer = new AsyncNetCDFWriter("submit", 4);
+		writer.submit(() -> { throw new IllegalStateException("bad record"); });
+
+		// the following steps are discarded, until the failure is seen by submit
+		IOException rethrown = null;
+		long deadline = System.currentTimeMillis() + 10000;
+		while (rethrown == null && System.currentTimeMillis() < deadline) {
+			try {
+				writer.submit(() -> { });
+			} catch (IOException e) {
+				rethrown = e;
+			}
+		}
+
+		assertNotNull("The failure of the step is not rethrown", rethrown);
+		assertEquals(IllegalStateException.class, rethrown.getCause().getClass());
+		try {
+			writer.close();
+			fail("The failure of the step is not rethrown");
+		} catch (IOException e) {
+			assertEquals(IllegalStateException.class, e.getCause().getClass());
+		}
+	}
+
+
+	@Test
+	public void submitAfterCloseFails() throws IOException {
+		AsyncNetCDFWriter writer = new AsyncNetCDFWriter("closed", 1);
+		writer.close();
+		// close is idempotent
+		writer.close();
+
+		try {
+			writer.submit(() -> { });
+			fail("A step is accepted after close");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+}
@@ -0,0 +1,169 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.utilities;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.Attribute;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.Variable;
+
+/**
+ * Tests of the conversion of a netCDF-3 file to a chunked file and back.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public class ChunkedFileConverterTest {
+
+	private static final int DEPTHS = 5;
+	private static final int RECORDS = 7;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+
+	@Test
+	public void roundTrip() throws IOException, InvalidRangeException {
+		String original = path("original.nc");
+		String chunked = path("original.gfc");
+		String converted = path("converted.nc");
+		createNetCDF3(original);
+
+		// chunks smaller than the records and the depths, so a record is split in many chunks
+		ChunkedFileConverter.toChunked(original, chunked, 3, 2, 6);
+		ChunkedFileConverter.toNetCDF3(chunked, converted);
+
+		NetcdfFile expected = NetcdfFile.open(original);
+		NetcdfFile actual = NetcdfFile.open(converted);
+		try {
+			assertEquals(expected.getGlobalAttributes(), actual.getGlobalAttributes());
+			assertEquals(RECORDS, actual.getUnlimitedDimension().getLength());
+			assertEquals(expected.getVariables().size(), actual.getVariables().size());
+			for (Variable variable : expected.getVariables()) {
+				Variable convertedVariable = actual.findVariable(variable.getShortName());
+				assertNotNull(variable.getShortName(), convertedVariable);
+				assertEquals(variable.getDataType(), convertedVariable.getDataType());
+				assertEquals(variable.getDimensionsString(), convertedVariable.getDimensionsString());
+				assertEquals(variable.getAttributes(), convertedVariable.getAttributes());
+				assertArrayEquals(variable.getShortName(), variable.getShape(), convertedVariable.getShape());
+				assertEquals(variable.getShortName(), variable.read().toString(), convertedVariable.read().toString());
+			}
+		} finally {
+			expected.close();
+			actual.close();
+		}
+	}
+
+
+	@Test
+	public void chunkedFileHasTheRecords() throws IOException, InvalidRangeException {
+		String original = path("original.nc");
+		String chunked = path("original.gfc");
+		createNetCDF3(original);
+
+		ChunkedFileConverter.toChunked(original, chunked, 4, 0, 1);
+
+		try (ChunkedFileReader reader = new ChunkedFileReader(chunked)) {
+			assertEquals(RECORDS, reader.getNumberOfRecords());
+			assertTrue(reader.isRecordVariable("psi"));
+			assertArrayEquals(new int[] {RECORDS, DEPTHS}, reader.getShape("psi"));
+			double[] psi = (double[]) reader.read("psi", 2, 3);
+			for (int r = 0; r < 3; r++) {
+				for (int k = 0; k < DEPTHS; k++) {
+					assertEquals(psi(r + 2, k), psi[r*DEPTHS + k], 0.0);
+				}
+			}
+			assertEquals("test", reader.findGlobalAttribute("title").getStringValue());
+		}
+	}
+
+
+	/**
+	 * A netCDF-3 file with the variables of the 1D writers: static and record variables
+	 * of the types supported by the chunked files.
+	 */
+	private static void createNetCDF3(String fileName) throws IOException, InvalidRangeException {
+		NetcdfFileWriter dataFile = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, fileName);
+		try {
+			dataFile.addGroupAttribute(null, new Attribute("title", "test"));
+			dataFile.addDimension(null, "depth", DEPTHS);
+			dataFile.addUnlimitedDimension("time");
+			Variable depth = dataFile.addVariable(null, "depth", DataType.DOUBLE, "depth");
+			dataFile.addVariableAttribute(depth, new Attribute("units", "m"));
+			Variable time = dataFile.addVariable(null, "time", DataType.INT, "time");
+			Variable psi = dataFile.addVariable(null, "psi", DataType.DOUBLE, "time depth");
+			Variable temperature = dataFile.addVariable(null, "T", DataType.FLOAT, "time depth");
+			Variable theta = dataFile.addVariable(null, "theta", DataType.SHORT, "time depth");
+			dataFile.addVariableAttribute(theta, new Attribute("scale_factor", 1.0/Short.MAX_VALUE));
+			dataFile.create();
+
+			double[] depths = new double[DEPTHS];
+			int[] times = new int[RECORDS];
+			double[] psiValues = new double[RECORDS*DEPTHS];
+			float[] temperatures = new float[RECORDS*DEPTHS];
+			short[] thetas = new short[RECORDS*DEPTHS];
+			for (int k = 0; k < DEPTHS; k++) {
+				depths[k] = -0.1*k;
+			}
+			for (int r = 0; r < RECORDS; r++) {
+				times[r] = 26297280 + 15*r;
+				for (int k = 0; k < DEPTHS; k++) {
+					psiValues[r*DEPTHS + k] = psi(r, k);
+					temperatures[r*DEPTHS + k] = (float) (273.15 + Math.cos(r + k));
+					thetas[r*DEPTHS + k] = (short) (r*1000 - k*77);
+				}
+			}
+			int[] shape = {RECORDS, DEPTHS};
+			dataFile.write(depth, Array.factory(DataType.DOUBLE, new int[] {DEPTHS}, depths));
+			dataFile.write(time, Array.factory(DataType.INT, new int[] {RECORDS}, times));
+			dataFile.write(psi, Array.factory(DataType.DOUBLE, shape, psiValues));
+			dataFile.write(temperature, Array.factory(DataType.FLOAT, shape, temperatures));
+			dataFile.write(theta, Array.factory(DataType.SHORT, shape, thetas));
+		} finally {
+			dataFile.close();
+		}
+	}
+
+
+	private static double psi(int record, int k) {
+		return -0.5 + 0.3*Math.sin(0.7*record + 0.05*k)*Math.exp(-0.01*k);
+	}
+
+
+	private String path(String name) {
+		return new File(folder.getRoot(), name).getPath();
+	}
+
+}
@@ -0,0 +1,152 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.utilities;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.Attribute;
+import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.Variable;
+
+/**
+ * Tests of the memory-mapped reader of the netCDF-3 files.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public class NetCDF3MappedFileTest {
+
+	private static final int DEPTHS = 4;
+	private static final int RECORDS = 6;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+
+	@Test
+	public void readTheHeaderAndTheValues() throws IOException, InvalidRangeException {
+		String fileName = create("a.nc", "test");
+
+		try (NetCDF3MappedFile file = new NetCDF3MappedFile(fileName)) {
+			assertEquals(RECORDS, file.getNumberOfRecords());
+			assertEquals(Arrays.asList("depth", "time", "psi"), file.getVariableNames());
+			assertTrue(file.isRecordVariable("psi"));
+			assertFalse(file.isRecordVariable("depth"));
+			assertArrayEquals(new int[] {RECORDS, DEPTHS}, file.getShape("psi"));
+			assertEquals(DEPTHS*8 + 4, file.getRecordSize());
+			assertEquals(new File(fileName).length(), file.getRecordsBegin() + RECORDS*file.getRecordSize());
+			assertEquals("test", file.getTextAttribute("title"));
+
+			assertEquals(-0.1*3, file.getDouble("depth", 0, 3), 0.0);
+			assertEquals(15*5, file.getDouble("time", 5, 0), 0.0);
+			assertEquals(psi(4, 2), file.getDouble("psi", 4, 2), 0.0);
+			DoubleBuffer values = file.getDoubleBuffer("psi", 3);
+			for (int k = 0; k < DEPTHS; k++) {
+				assertEquals(psi(3, k), values.get(k), 0.0);
+			}
+			assertEquals(psi(5, 1), file.getDoubleBuffer("psi", 5, 1, 2).get(0), 0.0);
+			assertEquals(-0.1, file.getDoubleBuffer("depth", 0).get(1), 0.0);
+		}
+	}
+
+
+	@Test
+	public void readALongHeader() throws IOException, InvalidRangeException {
+		char[] text = new char[200000];
+		Arrays.fill(text, 'x');
+		String fileName = create("b.nc", new String(text));
+
+		try (NetCDF3MappedFile file = new NetCDF3MappedFile(fileName)) {
+			assertEquals(text.length, file.getTextAttribute("title").length());
+			assertEquals(psi(RECORDS - 1, DEPTHS - 1), file.getDoubleBuffer("psi", RECORDS - 1).get(DEPTHS - 1), 0.0);
+		}
+	}
+
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void recordOutOfRange() throws IOException, InvalidRangeException {
+		try (NetCDF3MappedFile file = new NetCDF3MappedFile(create("c.nc", "test"))) {
+			file.getDouble("psi", RECORDS, 0);
+		}
+	}
+
+
+	@Test(expected = IOException.class)
+	public void notANetCDF3File() throws IOException {
+		File file = folder.newFile("d.nc");
+		java.nio.file.Files.write(file.toPath(), "CDF".getBytes("US-ASCII"));
+		new NetCDF3MappedFile(file.getPath()).close();
+	}
+
+
+	private String create(String name, String title) throws IOException, InvalidRangeException {
+		String fileName = new File(folder.getRoot(), name).getPath();
+		NetcdfFileWriter dataFile = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, fileName);
+		try {
+			dataFile.addGroupAttribute(null, new Attribute("title", title));
+			dataFile.addDimension(null, "depth", DEPTHS);
+			dataFile.addUnlimitedDimension("time");
+			Variable depth = dataFile.addVariable(null, "depth", DataType.DOUBLE, "depth");
+			Variable time = dataFile.addVariable(null, "time", DataType.INT, "time");
+			Variable psi = dataFile.addVariable(null, "psi", DataType.DOUBLE, "time depth");
+			dataFile.create();
+
+			double[] depths = new double[DEPTHS];
+			int[] times = new int[RECORDS];
+			double[] psiValues = new double[RECORDS*DEPTHS];
+			for (int k = 0; k < DEPTHS; k++) {
+				depths[k] = -0.1*k;
+			}
+			for (int r = 0; r < RECORDS; r++) {
+				times[r] = 15*r;
+				for (int k = 0; k < DEPTHS; k++) {
+					psiValues[r*DEPTHS + k] = psi(r, k);
+				}
+			}
+			dataFile.write(depth, Array.factory(DataType.DOUBLE, new int[] {DEPTHS}, depths));
+			dataFile.write(time, Array.factory(DataType.INT, new int[] {RECORDS}, times));
+			dataFile.write(psi, Array.factory(DataType.DOUBLE, new int[] {RECORDS, DEPTHS}, psiValues));
+		} finally {
+			dataFile.close();
+		}
+		return fileName;
+	}
+
+
+	private static double psi(int record, int k) {
+		return -0.5 + 0.1*record - 0.01*k;
+	}
+
+}
@@ -0,0 +1,122 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package it.geoframe.blogspot.netcdf.utilities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ucar.ma2.DataType;
+import ucar.nc2.Dimension;
+import ucar.nc2.NetcdfFileWriter;
+
+/**
+ * Tests of the handle on the output file of a writer.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public class NetCDFFileHandleTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+
+	@Test
+	public void createNewDeletesTheStaleFile() throws IOException {
+		File file = new File(folder.getRoot(), "out.nc");
+		Files.write(file.toPath(), new byte[100000]);
+
+		NetCDFFileHandle handle = new NetCDFFileHandle(file.getPath(), false);
+		create(handle);
+		handle.release();
+
+		// the netcdf-3 writer would keep the length of the existing file
+		assertTrue(file.length() < 1000);
+	}
+
+
+	@Test
+	public void keepOpenFlushesAtRelease() throws IOException {
+		NetCDFFileHandle handle = new NetCDFFileHandle(new File(folder.getRoot(), "out.nc").getPath(), true);
+		NetcdfFileWriter dataFile = create(handle);
+		handle.release();
+		assertTrue(handle.isOpen());
+		// the next step writes with the same writer
+		assertSame(dataFile, handle.open());
+		handle.release();
+		assertTrue(handle.isOpen());
+
+		handle.release(true);
+		assertFalse(handle.isOpen());
+	}
+
+
+	@Test
+	public void withoutKeepOpenReleaseCloses() throws IOException {
+		NetCDFFileHandle handle = new NetCDFFileHandle(new File(folder.getRoot(), "out.nc").getPath(), false);
+		create(handle);
+		handle.release();
+
+		handle.open();
+		assertTrue(handle.isOpen());
+		handle.release();
+		assertFalse(handle.isOpen());
+	}
+
+
+	@Test
+	public void closeAllClosesTheOpenFiles() throws IOException {
+		NetCDFFileHandle first = new NetCDFFileHandle(new File(folder.getRoot(), "first.nc").getPath(), true);
+		NetCDFFileHandle second = new NetCDFFileHandle(new File(folder.getRoot(), "second.nc").getPath(), true);
+		create(first);
+		create(second);
+		first.release();
+		second.release();
+		first.open();
+		second.open();
+
+		NetCDFFileHandle.closeAll();
+
+		assertFalse(first.isOpen());
+		assertFalse(second.isOpen());
+		assertEquals("first.nc", new File(first.getFileName()).getName());
+	}
+
+
+	private static NetcdfFileWriter create(NetCDFFileHandle handle) throws IOException {
+		NetcdfFileWriter dataFile = handle.createNew();
+		Dimension time = dataFile.addUnlimitedDimension("time");
+		dataFile.addVariable(null, "time", DataType.INT, time.getShortName());
+		dataFile.create();
+		return dataFile;
+	}
+
+}
@@ -0,0 +1,121 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.utilities;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.Variable;
+
+/**
+ * Tests of the size of the netcdf-3 files and of the truncation used to restart a simulation.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public class NetCDFFileSizeTest {
+
+	private static final int DEPTHS = 3;
+	private static final int RECORDS = 5;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+
+	@Test
+	public void sizeOfTheRecords() throws IOException, InvalidRangeException {
+		String fileName = create();
+
+		NetcdfFile dataFile = NetcdfFile.open(fileName);
+		try {
+			NetCDFFileSize size = new NetCDFFileSize(dataFile);
+			size.measure(fileName, RECORDS);
+			assertEquals(4 + DEPTHS*8, size.getRecordSize());
+			assertEquals(new File(fileName).length(), size.getSize());
+		} finally {
+			dataFile.close();
+		}
+	}
+
+
+	@Test
+	public void truncateKeepsTheFirstRecords() throws IOException, InvalidRangeException {
+		String fileName = create();
+		long recordSize = 4 + DEPTHS*8;
+		long length = new File(fileName).length();
+
+		NetCDFFileSize.truncate(fileName, 2);
+
+		assertEquals(length - 3*recordSize, new File(fileName).length());
+		NetcdfFile dataFile = NetcdfFile.open(fileName);
+		try {
+			assertEquals(2, dataFile.getUnlimitedDimension().getLength());
+			assertArrayEquals(new int[] {0, 15}, (int[]) dataFile.findVariable("time").read().copyTo1DJavaArray());
+			assertArrayEquals(new double[] {1.0, 1.1, 1.2}, (double[]) dataFile.findVariable("psi").read("1,:").copyTo1DJavaArray(), 0.0);
+		} finally {
+			dataFile.close();
+		}
+	}
+
+
+	@Test(expected = IOException.class)
+	public void truncateRejectsMissingRecords() throws IOException, InvalidRangeException {
+		NetCDFFileSize.truncate(create(), RECORDS + 1);
+	}
+
+
+	private String create() throws IOException, InvalidRangeException {
+		String fileName = new File(folder.getRoot(), "out.nc").getPath();
+		NetcdfFileWriter dataFile = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, fileName);
+		try {
+			dataFile.addDimension(null, "depth", DEPTHS);
+			dataFile.addUnlimitedDimension("time");
+			Variable time = dataFile.addVariable(null, "time", DataType.INT, "time");
+			Variable psi = dataFile.addVariable(null, "psi", DataType.DOUBLE, "time depth");
+			dataFile.create();
+			int[] times = new int[RECORDS];
+			double[] values = new double[RECORDS*DEPTHS];
+			for (int r = 0; r < RECORDS; r++) {
+				times[r] = 15*r;
+				for (int k = 0; k < DEPTHS; k++) {
+					values[r*DEPTHS + k] = r + 0.1*k;
+				}
+			}
+			dataFile.write(time, Array.factory(DataType.INT, new int[] {RECORDS}, times));
+			dataFile.write(psi, Array.factory(DataType.DOUBLE, new int[] {RECORDS, DEPTHS}, values));
+		} finally {
+			dataFile.close();
+		}
+		return fileName;
+	}
+
+}
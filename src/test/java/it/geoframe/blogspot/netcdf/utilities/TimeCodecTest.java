@@ -0,0 +1,105 @@
+/*
+ * GNU GPL v3 License
+ *
+ * Copyright 2026 Niccolo` Tubini
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package it.geoframe.blogspot.netcdf.utilities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.text.ParseException;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import org.junit.Test;
+
+/**
+ * Tests of the conversion between the dates of the output buffers and epoch time.
+ *
+ * @author Niccolo` Tubini
+ *
+ */
+public class TimeCodecTest {
+
+	@Test
+	public void parseAndFormat() throws ParseException {
+		TimeCodec codec = TimeCodec.getInstance("UTC");
+
+		assertEquals(1577836800000L, codec.parse("2020-01-01 00:00"));
+		assertEquals(1577836800000L + 13*3600000L + 45*60000L, codec.parse("2020-01-01 13:45"));
+		// the memo of the day is replaced
+		assertEquals(1577836800000L + 86400000L, codec.parse("2020-01-02 00:00"));
+		assertEquals(1577836800000L, codec.parse("2020-01-01 00:00"));
+		assertEquals("2020-01-01 13:45", codec.format(1577836800000L + 13*3600000L + 45*60000L));
+	}
+
+
+	@Test
+	public void formatIsTheInverseOfParse() throws ParseException {
+		TimeCodec codec = TimeCodec.getInstance("Europe/Rome");
+		for (String date : new String[] {"1999-12-31 23:59", "2020-02-29 12:00", "2020-07-01 06:15", "2021-01-01 00:00"}) {
+			assertEquals(date, codec.format(codec.parse(date)));
+		}
+	}
+
+
+	@Test
+	public void parseInTheTimeZone() throws ParseException {
+		TimeCodec codec = TimeCodec.getInstance("Europe/Rome");
+
+		assertEquals(millis(2020, 1, 1, 0, 0, "Europe/Rome"), codec.parse("2020-01-01 00:00"));
+		assertEquals(millis(2020, 7, 1, 0, 0, "Europe/Rome"), codec.parse("2020-07-01 00:00"));
+		// an ambiguous local time is read as standard time
+		assertEquals(millis(2020, 10, 25, 1, 30, "UTC"), codec.parse("2020-10-25 02:30"));
+		// a local time in the gap is moved forward
+		assertEquals(millis(2020, 3, 29, 1, 30, "UTC"), codec.parse("2020-03-29 02:30"));
+		assertEquals(millis(2020, 3, 29, 1, 0, "UTC"), codec.parse("2020-03-29 03:00"));
+	}
+
+
+	@Test
+	public void parseTheDatesNotOfFixedWidth() throws ParseException {
+		TimeCodec codec = TimeCodec.getInstance("UTC");
+
+		assertEquals(millis(2020, 1, 5, 3, 7, "UTC"), codec.parse("2020-1-5 3:7"));
+		// fields out of range are lenient, as with SimpleDateFormat
+		assertEquals(millis(2020, 1, 2, 0, 0, "UTC"), codec.parse("2020-01-01 24:00"));
+		assertEquals(millis(2020, 3, 1, 0, 0, "UTC"), codec.parse("2020-02-30 00:00"));
+		// characters after the minutes are ignored
+		assertEquals(millis(2020, 1, 1, 0, 15, "UTC"), codec.parse("2020-01-01 00:15:59"));
+	}
+
+
+	@Test(expected = ParseException.class)
+	public void parseRejectsAWrongDate() throws ParseException {
+		TimeCodec.getInstance("UTC").parse("01/01/2020");
+	}
+
+
+	@Test
+	public void codecsAreShared() {
+		assertSame(TimeCodec.getInstance("Europe/Rome"), TimeCodec.getInstance("Europe/Rome"));
+		assertEquals(ZoneId.of("GMT"), TimeCodec.getInstance("Not/AZone").getZone());
+	}
+
+
+	private static long millis(int year, int month, int day, int hour, int minute, String zone) {
+		return ZonedDateTime.of(year, month, day, hour, minute, 0, 0, ZoneId.of(zone)).toInstant().toEpochMilli();
+	}
+
+}